@@ -0,0 +1,491 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.exceptions.CartNotFoundException;
+import com.crio.qeats.exceptions.EmptyCartException;
+import com.crio.qeats.exceptions.ItemNotFromSameRestaurantException;
+import com.crio.qeats.exceptions.OrderInProgressException;
+import com.crio.qeats.repositoryservices.CartRepositoryService;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carts of the users, modified in memory and written behind to the db.
+ *   - Each cart is modified under one of lock-stripes locks, striped by cart id: carts of
+ *     different users rarely contend, and a modification never waits for the db, unless the
+ *     cart has to be loaded first.
+ *   - Totals are kept in paise and updated by every modification, instead of adding the prices
+ *     of the items up again.
+ *   - Modified carts are written to the db in bulks by a background thread every
+ *     flush-interval-millis, so while the db is up it is at most that far behind. A bulk which
+ *     failed is written again on the next round.
+ *   - A cart which is not in memory, after a restart or once evicted, is loaded from the db:
+ *     after a crash users get their cart as it was last flushed. Carts unused for
+ *     idle-eviction-seconds are evicted once flushed.
+ *   - A cart is only ever modified by the instance which holds it, so requests of a user are
+ *     expected to stick to one instance.
+ * The number of carts waiting to be flushed is published as "qeats.cart.unflushed", and the
+ * flushes as "qeats.cart.flush".
+ */
+@Log4j2
+@Component
+public class CartStore {
+
+  private static final long EVICTION_INTERVAL_MILLIS = 1000;
+
+  @Autowired
+  private CartRepositoryService cartRepositoryService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.cart.lock-stripes:1024}")
+  private int lockStripes;
+
+  // 0 leaves flushing to whoever calls flush()
+  @Value("${qeats.cart.flush-interval-millis:200}")
+  private long flushIntervalMillis;
+
+  @Value("${qeats.cart.flush-batch-size:500}")
+  private int flushBatchSize;
+
+  @Value("${qeats.cart.idle-eviction-seconds:600}")
+  private long idleEvictionSeconds;
+
+  private final ConcurrentMap<String, CartState> carts = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, String> cartIdsByUserId = new ConcurrentHashMap<>();
+
+  private final Set<String> unflushed = ConcurrentHashMap.newKeySet();
+
+  private Striped<Lock> locks;
+
+  private ScheduledExecutorService flusher;
+
+  private Timer flushes;
+
+  private long lastEvictionNanos;
+
+  @PostConstruct
+  public void initStore() {
+    locks = Striped.lock(lockStripes);
+    flushes = Timer.builder("qeats.cart.flush")
+        .description("Bulk writes of the modified carts to the db")
+        .register(meterRegistry);
+    Gauge.builder("qeats.cart.unflushed", unflushed, Set::size)
+        .description("Carts modified since they were last written to the db")
+        .register(meterRegistry);
+    lastEvictionNanos = System.nanoTime();
+
+    if (flushIntervalMillis > 0) {
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis,
+          flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops the background flushes and writes the carts modified since the last one.
+   */
+  @PreDestroy
+  public void closeStore() {
+    if (flusher != null) {
+      flusher.shutdown();
+      try {
+        flusher.awaitTermination(flushIntervalMillis + 5000, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flushQuietly();
+  }
+
+  /**
+   * Get the cart of a user, creating an empty one if the user has none.
+   * @param userId id of the user
+   * @return copy of the cart
+   */
+  public Cart findOrCreateCart(String userId) {
+    String cartId = cartIdsByUserId.get(userId);
+    if (cartId == null) {
+      cartId = findOrCreateCartId(userId);
+    }
+    try {
+      return findCart(cartId);
+    } catch (CartNotFoundException e) {
+      // evicted, then deleted from the db by someone else
+      cartIdsByUserId.remove(userId, cartId);
+      return findCart(findOrCreateCartId(userId));
+    }
+  }
+
+  /**
+   * Get a cart.
+   * @param cartId id of the cart
+   * @return copy of the cart
+   * @throws CartNotFoundException if there is no cart with this id
+   */
+  public Cart findCart(String cartId) {
+    return withCart(cartId, CartState::toCart);
+  }
+
+  /**
+   * Add an item to a cart.
+   * @param cartId id of the cart
+   * @param restaurantId restaurant of the item
+   * @param item item to add, from the menu of the restaurant; it is kept, not copied
+   * @return copy of the cart with the item
+   * @throws CartNotFoundException if there is no cart with this id
+   * @throws ItemNotFromSameRestaurantException if the cart has items of another restaurant
+   */
+  public Cart addItem(String cartId, String restaurantId, Item item) {
+    return withCart(cartId, cart -> {
+      if (!cart.items.isEmpty() && !restaurantId.equals(cart.restaurantId)) {
+        throw new ItemNotFromSameRestaurantException("Cart " + cartId
+            + " has items of restaurant " + cart.restaurantId + ", not " + restaurantId);
+      }
+      cart.restaurantId = restaurantId;
+      cart.items.add(item);
+      cart.totalInPaise += paise(item);
+      modified(cart);
+      return cart.toCart();
+    });
+  }
+
+  /**
+   * Remove one of the items with the given itemId from a cart, if there is one.
+   * @param cartId id of the cart
+   * @param restaurantId restaurant of the item
+   * @param itemId itemId of the item to remove
+   * @return copy of the cart, without the item
+   * @throws CartNotFoundException if there is no cart with this id
+   */
+  public Cart removeItem(String cartId, String restaurantId, String itemId) {
+    return withCart(cartId, cart -> {
+      if (!restaurantId.equals(cart.restaurantId)) {
+        return cart.toCart();
+      }
+      for (Iterator<Item> items = cart.items.iterator(); items.hasNext(); ) {
+        Item item = items.next();
+        if (itemId.equals(item.getItemId())) {
+          items.remove();
+          cart.totalInPaise -= paise(item);
+          if (cart.items.isEmpty()) {
+            cart.restaurantId = null;
+          }
+          modified(cart);
+          break;
+        }
+      }
+      return cart.toCart();
+    });
+  }
+
+  /**
+   * Remove all the items of a cart.
+   * @param cartId id of the cart
+   * @return copy of the cart, empty
+   * @throws CartNotFoundException if there is no cart with this id
+   */
+  public Cart clearCart(String cartId) {
+    return withCart(cartId, cart -> {
+      if (!cart.items.isEmpty()) {
+        clear(cart);
+      }
+      return cart.toCart();
+    });
+  }
+
+  /**
+   * Order the items of a cart, and take them out of it.
+   *   - The cart is marked and copied under its lock, and the order placed outside of it, so
+   *     that other carts of the same lock stripe don't wait for the broker meanwhile.
+   *   - While the order is placed the cart can be modified, but not ordered again: the same
+   *     items can't be ordered twice.
+   *   - Once placed the items ordered are taken out of the cart, leaving those added meanwhile.
+   *     If it fails, the cart is left as it was.
+   * @param cartId id of the cart
+   * @param placeOrder places the order of a copy of the cart, e.g. by queueing it
+   * @return what placeOrder returned
+   * @throws CartNotFoundException if there is no cart with this id
+   * @throws EmptyCartException if the cart has no items
+   * @throws OrderInProgressException if the cart is being ordered by another request
+   */
+  public <T> T checkout(String cartId, Function<Cart, T> placeOrder) {
+    Cart ordered = withCart(cartId, cart -> {
+      if (cart.items.isEmpty()) {
+        throw new EmptyCartException("Cart " + cartId + " has no items");
+      }
+      if (cart.checkingOut) {
+        throw new OrderInProgressException("Cart " + cartId + " is being ordered");
+      }
+      cart.checkingOut = true;
+      return cart.toCart();
+    });
+
+    T placed;
+    try {
+      placed = placeOrder.apply(ordered);
+    } catch (RuntimeException e) {
+      checkedOut(cartId, Collections.emptyList());
+      throw e;
+    }
+    checkedOut(cartId, ordered.getItems());
+    return placed;
+  }
+
+  /**
+   * Write the carts modified since the last flush to the db, flush-batch-size carts per bulk.
+   *   - A cart modified while it is written stays modified, and is written again next time.
+   *   - If a bulk fails, its carts and the following ones are left for the next flush.
+   * @return true if all the modified carts were written
+   */
+  public synchronized boolean flush() {
+    List<String> cartIds = new ArrayList<>(unflushed);
+    for (List<String> batch : Lists.partition(cartIds, flushBatchSize)) {
+      Map<String, Long> versions = new LinkedHashMap<>();
+      List<Cart> snapshots = new ArrayList<>(batch.size());
+      for (String cartId : batch) {
+        // removed first: a modification made from now on marks the cart again
+        unflushed.remove(cartId);
+        Lock lock = locks.get(cartId);
+        lock.lock();
+        try {
+          CartState cart = carts.get(cartId);
+          if (cart != null) {
+            snapshots.add(cart.toCart());
+            versions.put(cartId, cart.version);
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+
+      try {
+        flushes.record(() -> cartRepositoryService.saveCarts(snapshots));
+      } catch (RuntimeException e) {
+        unflushed.addAll(versions.keySet());
+        log.warn("Unable to write {} carts, {} carts are waiting", snapshots.size(),
+            unflushed.size(), e);
+        return false;
+      }
+      versions.forEach(this::flushed);
+    }
+
+    long now = System.nanoTime();
+    if (now - lastEvictionNanos >= TimeUnit.MILLISECONDS.toNanos(EVICTION_INTERVAL_MILLIS)) {
+      lastEvictionNanos = now;
+      evictIdleCarts(now);
+    }
+    return true;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      // the next round tries again
+      log.warn("Unable to flush the carts", e);
+    }
+  }
+
+  private void flushed(String cartId, long version) {
+    Lock lock = locks.get(cartId);
+    lock.lock();
+    try {
+      CartState cart = carts.get(cartId);
+      if (cart != null) {
+        cart.flushedVersion = Math.max(cart.flushedVersion, version);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Takes the items ordered out of the cart, once each, and unmarks it.
+  private void checkedOut(String cartId, List<Item> ordered) {
+    Lock lock = locks.get(cartId);
+    lock.lock();
+    try {
+      // not evicted while checking out
+      CartState cart = carts.get(cartId);
+      cart.checkingOut = false;
+      boolean removed = false;
+      for (Item item : ordered) {
+        // removed meanwhile otherwise
+        if (cart.items.remove(item)) {
+          cart.totalInPaise -= paise(item);
+          removed = true;
+        }
+      }
+      if (removed) {
+        if (cart.items.isEmpty()) {
+          cart.restaurantId = null;
+        }
+        modified(cart);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictIdleCarts(long now) {
+    long idleNanos = TimeUnit.SECONDS.toNanos(idleEvictionSeconds);
+    int evicted = 0;
+    for (CartState candidate : carts.values()) {
+      if (now - candidate.lastUsedNanos < idleNanos) {
+        continue;
+      }
+      Lock lock = locks.get(candidate.id);
+      lock.lock();
+      try {
+        CartState cart = carts.get(candidate.id);
+        if (cart != null && cart.flushedVersion == cart.version && !cart.checkingOut
+            && now - cart.lastUsedNanos >= idleNanos) {
+          carts.remove(cart.id);
+          cartIdsByUserId.remove(cart.userId, cart.id);
+          evicted++;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    if (evicted > 0) {
+      log.info("Evicted {} idle carts, {} carts in memory", evicted, carts.size());
+    }
+  }
+
+  // Under the lock of the user, so that a user never gets two carts. The lock of a cart may
+  // be taken while holding the lock of a user, never the other way round.
+  private String findOrCreateCartId(String userId) {
+    Lock lock = locks.get(userId);
+    lock.lock();
+    try {
+      String cartId = cartIdsByUserId.get(userId);
+      if (cartId != null) {
+        return cartId;
+      }
+      Cart cart = cartRepositoryService.findCartByUserId(userId);
+      if (cart == null) {
+        cart = new Cart(new ObjectId().toHexString(), null, userId, new ArrayList<>(), 0);
+        CartState created = new CartState(cart);
+        carts.put(cart.getId(), created);
+        modified(created);
+      }
+      cartIdsByUserId.put(userId, cart.getId());
+      return cart.getId();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Runs the action on the cart under its lock, loading it from the db if it isn't in memory.
+  private <T> T withCart(String cartId, Function<CartState, T> action) {
+    Lock lock = locks.get(cartId);
+    lock.lock();
+    try {
+      CartState cart = carts.get(cartId);
+      if (cart == null) {
+        Cart flushed = cartRepositoryService.findCartById(cartId);
+        if (flushed == null) {
+          throw new CartNotFoundException("No cart with id " + cartId);
+        }
+        cart = new CartState(flushed);
+        carts.put(cartId, cart);
+        cartIdsByUserId.putIfAbsent(cart.userId, cartId);
+      }
+      cart.lastUsedNanos = System.nanoTime();
+      return action.apply(cart);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void clear(CartState cart) {
+    cart.items.clear();
+    cart.totalInPaise = 0;
+    cart.restaurantId = null;
+    modified(cart);
+  }
+
+  private void modified(CartState cart) {
+    cart.version++;
+    unflushed.add(cart.id);
+  }
+
+  private static long paise(Item item) {
+    return item.getPrice() == null ? 0 : Math.round(item.getPrice() * 100);
+  }
+
+  // Guarded by the lock of the cart, but for lastUsedNanos which eviction reads first without.
+  private static class CartState {
+
+    private final String id;
+
+    private final String userId;
+
+    private String restaurantId;
+
+    private final List<Item> items;
+
+    private long totalInPaise;
+
+    // modifications so far, and the last one written to the db
+    private long version;
+
+    private long flushedVersion;
+
+    // while an order of the cart is placed
+    private boolean checkingOut;
+
+    private volatile long lastUsedNanos;
+
+    CartState(Cart cart) {
+      this.id = cart.getId();
+      this.userId = cart.getUserId();
+      this.restaurantId = cart.getRestaurantId();
+      this.items = cart.getItems() == null ? new ArrayList<>() : new ArrayList<>(cart.getItems());
+      this.totalInPaise = Math.round(cart.getTotal() * 100);
+      this.lastUsedNanos = System.nanoTime();
+    }
+
+    Cart toCart() {
+      return new Cart(id, restaurantId, userId, new ArrayList<>(items), totalInPaise / 100.0);
+    }
+  }
+}
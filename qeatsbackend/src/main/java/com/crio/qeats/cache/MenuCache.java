@@ -0,0 +1,188 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.repositoryservices.MenuRepositoryService;
+import com.crio.qeats.utils.MenuMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-through cache of the menu responses, by restaurantId.
+ *   - Only the first read of a restaurant goes to the database; restaurants without a menu are
+ *     cached too. Reads of several restaurants load all the missing ones with one query.
+ *   - A menu saved through this application replaces its entry right away. Deletes only carry
+ *     the query, so they drop every entry.
+ *   - Entries older than refresh-after-write-seconds are reloaded on a background thread when
+ *     read, and the old entry is served meanwhile: this catches writes made by other servers.
+ *   - Every response carries a strong ETag, the SHA-256 of its JSON, computed once per load.
+ * Hit/miss/eviction counts are published as "cache.*" metrics with name=menus.
+ */
+@Component
+public class MenuCache extends AbstractMongoEventListener<MenuEntity> {
+
+  private static final String CACHE_NAME = "menus";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Autowired
+  private MenuRepositoryService menuRepositoryService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.cache.menu.maximum-size:10000}")
+  private long maximumSize;
+
+  @Value("${qeats.cache.menu.refresh-after-write-seconds:300}")
+  private long refreshAfterWriteInSeconds;
+
+  private ExecutorService refresher;
+
+  private LoadingCache<String, Optional<GetMenuResponse>> menus;
+
+  @PostConstruct
+  public void initCache() {
+    refresher = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "menu-cache-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    CacheLoader<String, Optional<GetMenuResponse>> loader =
+        new CacheLoader<String, Optional<GetMenuResponse>>() {
+          @Override
+          public Optional<GetMenuResponse> load(String restaurantId) {
+            return Optional.ofNullable(menuRepositoryService.findMenu(restaurantId))
+                .map(MenuCache.this::responseOf);
+          }
+
+          @Override
+          public Map<String, Optional<GetMenuResponse>> loadAll(
+              Iterable<? extends String> restaurantIds) {
+            List<String> missing = Lists.newArrayList(restaurantIds);
+            Map<String, Optional<GetMenuResponse>> loaded = new LinkedHashMap<>();
+            for (String restaurantId : missing) {
+              loaded.put(restaurantId, Optional.empty());
+            }
+            for (Menu menu : menuRepositoryService.findMenus(missing)) {
+              loaded.put(menu.getRestaurantId(), Optional.of(responseOf(menu)));
+            }
+            return loaded;
+          }
+        };
+    menus = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .refreshAfterWrite(refreshAfterWriteInSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build(CacheLoader.asyncReloading(loader, refresher));
+    GuavaCacheMetrics.monitor(meterRegistry, menus, CACHE_NAME);
+  }
+
+  @PreDestroy
+  public void closeCache() {
+    refresher.shutdownNow();
+  }
+
+  /**
+   * Get the menu response of a restaurant, loading it on the first read.
+   * The response is shared by all the readers and must not be modified.
+   * @param restaurantId id of the restaurant
+   * @return menu response with its ETag, or null if the restaurant has no menu
+   */
+  public GetMenuResponse get(String restaurantId) {
+    try {
+      return menus.getUnchecked(restaurantId).orElse(null);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Get the menu responses of several restaurants; the ones not cached yet are loaded together.
+   * @param restaurantIds ids of the restaurants, may repeat
+   * @return menu responses by restaurantId, in the order of restaurantIds, without the
+   *     restaurants which have no menu
+   */
+  public Map<String, GetMenuResponse> getAll(List<String> restaurantIds) {
+    ImmutableMap<String, Optional<GetMenuResponse>> cached;
+    try {
+      cached = menus.getAll(restaurantIds);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    Map<String, GetMenuResponse> found = new LinkedHashMap<>();
+    cached.forEach((restaurantId, menu) -> menu.ifPresent(
+        getMenuResponse -> found.put(restaurantId, getMenuResponse)));
+    return found;
+  }
+
+  // A load of the same restaurant still running is discarded by the cache: the saved menu wins.
+  @Override
+  public void onAfterSave(AfterSaveEvent<MenuEntity> event) {
+    MenuEntity menuEntity = event.getSource();
+    if (menuEntity.getRestaurantId() != null) {
+      menus.put(menuEntity.getRestaurantId(),
+          Optional.of(responseOf(MenuMapper.toMenu(menuEntity))));
+    }
+  }
+
+  @Override
+  public void onAfterDelete(AfterDeleteEvent<MenuEntity> event) {
+    menus.invalidateAll();
+  }
+
+  private GetMenuResponse responseOf(Menu menu) {
+    GetMenuResponse getMenuResponse = new GetMenuResponse(menu);
+    getMenuResponse.setEtag(etagOf(getMenuResponse));
+    return getMenuResponse;
+  }
+
+  private String etagOf(GetMenuResponse getMenuResponse) {
+    byte[] json;
+    try {
+      json = objectMapper.writeValueAsBytes(getMenuResponse);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialize the menu of "
+          + getMenuResponse.getMenu().getRestaurantId(), e);
+    }
+    return "\"" + Hashing.sha256().hashBytes(json) + "\"";
+  }
+}
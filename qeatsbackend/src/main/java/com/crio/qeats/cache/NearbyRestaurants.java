@@ -0,0 +1,117 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RadiusFilter;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cached restaurants near a cell, with their opening hours parsed once when the entry is built.
+ * They cover the whole cell, so a few of them may be out of the radius of a given user: those
+ * are left out by the methods taking a {@link RadiusFilter}.
+ */
+public class NearbyRestaurants {
+
+  private final List<Restaurant> restaurants;
+
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+  private final int[] openingHours;
+
+  // seconds of the day at which one of the restaurants opens or closes
+  private final int[] transitions;
+
+  public NearbyRestaurants(List<Restaurant> restaurants) {
+    this.restaurants = Collections.unmodifiableList(restaurants);
+    this.openingHours = OpeningHours.compile(restaurants);
+    this.transitions = OpeningHours.transitions(openingHours);
+  }
+
+  public List<Restaurant> getRestaurants() {
+    return restaurants;
+  }
+
+  /**
+   * Get the restaurants open at the given time.
+   * @return new list of the open restaurants
+   */
+  public List<Restaurant> openAt(LocalTime currentTime) {
+    return openAt(currentTime, null);
+  }
+
+  /**
+   * Get the restaurants open at the given time, and within the radius of the user.
+   * @param within radius around the user, or null for all the restaurants of the entry
+   * @return new list of the matching restaurants
+   */
+  public List<Restaurant> openAt(LocalTime currentTime, RadiusFilter within) {
+    List<Restaurant> open = new ArrayList<>();
+    forEachOpenAt(currentTime, within, open::add);
+    return open;
+  }
+
+  /**
+   * Same as {@link #openAt(LocalTime)}, handing the open restaurants over one by one instead of
+   * collecting them.
+   */
+  public void forEachOpenAt(LocalTime currentTime, Consumer<Restaurant> consumer) {
+    forEachOpenAt(currentTime, null, consumer);
+  }
+
+  /**
+   * Same as {@link #openAt(LocalTime, RadiusFilter)}, handing the matching restaurants over one
+   * by one instead of collecting them.
+   */
+  public void forEachOpenAt(LocalTime currentTime, RadiusFilter within,
+      Consumer<Restaurant> consumer) {
+    int secondOfDay = currentTime.toSecondOfDay();
+    for (int i = 0; i < restaurants.size(); i++) {
+      if (OpeningHours.isOpen(openingHours, i, secondOfDay) && isWithin(i, within)) {
+        consumer.accept(restaurants.get(i));
+      }
+    }
+  }
+
+  private boolean isWithin(int i, RadiusFilter within) {
+    if (within == null) {
+      return true;
+    }
+    Restaurant restaurant = restaurants.get(i);
+    return within.contains(restaurant.getLatitude(), restaurant.getLongitude());
+  }
+
+  /**
+   * Get the first second of the time slot containing the given second of the day: the same
+   * restaurants are open from the start of the slot until its end.
+   * @return the last open/close transition at or before secondOfDay, or 0 (midnight)
+   */
+  public int slotStart(int secondOfDay) {
+    int index = Arrays.binarySearch(transitions, secondOfDay);
+    if (index >= 0) {
+      return secondOfDay;
+    }
+    int insertionPoint = -index - 1;
+    return insertionPoint == 0 ? 0 : transitions[insertionPoint - 1];
+  }
+
+  /**
+   * Get the end of the time slot containing the given second of the day, exclusive.
+   * @return the first open/close transition after secondOfDay, or 86400 (the next midnight)
+   */
+  public int slotEnd(int secondOfDay) {
+    int index = Arrays.binarySearch(transitions, secondOfDay);
+    int next = index >= 0 ? index + 1 : -index - 1;
+    return next == transitions.length ? SECONDS_PER_DAY : transitions[next];
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.RadiusFilter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import javax.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Two-tier cache of the restaurants near a geohash cell, for a given serving radius.
+ *   - Tier 1 is a bounded in-process cache with a short TTL, so hot cells cost no network
+ *     round trip and no JSON parsing.
+ *   - Tier 2 is Redis, shared by all servers, with entries expiring after
+ *     {@link GlobalConstants#REDIS_ENTRY_EXPIRY_IN_SECONDS}. Its keys carry the version of the
+ *     catalogue, which {@link #invalidate()} bumps when a restaurant is saved or deleted, so
+ *     entries of older versions are never read again.
+ *   - Misses are loaded once per cell: concurrent readers of a cell being loaded wait for that
+ *     load instead of starting their own.
+ *   - When Redis is down the database is read directly, and Redis is skipped for a while.
+ *   - Entries hold every restaurant which may be within the radius of a point of the cell, open
+ *     or not, so they stay valid however long they live. Callers keep the ones within the
+ *     radius of the user, see {@link NearbyRestaurants#openAt(LocalTime, RadiusFilter)}.
+ * Hit/miss/eviction counts are published as "cache.*" metrics with name=nearbyRestaurants.
+ */
+@Log4j2
+@Component
+public class NearbyRestaurantsCache {
+
+  private static final String CACHE_NAME = "nearbyRestaurants";
+
+  private static final String KEY_PREFIX = "restaurants:";
+
+  // version of the catalogue, part of the redis keys
+  private static final String VERSION_KEY = KEY_PREFIX + "version";
+
+  // no point of a cell is further than this from its centre
+  static final double CELL_HALF_DIAGONAL_IN_KMS = 0.5 * 111.195 * Math.hypot(
+      GeoHashUtils.cellHeightInDegrees(GlobalConstants.GEOHASH_PRECISION_FOR_CACHE),
+      GeoHashUtils.cellWidthInDegrees(GlobalConstants.GEOHASH_PRECISION_FOR_CACHE)) + 0.001;
+
+  private static final long REDIS_RETRY_AFTER_MILLIS = 5000;
+
+  private static final TypeReference<List<Restaurant>> RESTAURANT_LIST =
+      new TypeReference<List<Restaurant>>() {};
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Autowired
+  private RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.cache.near.maximum-size:10000}")
+  private long nearCacheMaximumSize;
+
+  @Value("${qeats.cache.near.expire-after-write-seconds:30}")
+  private long nearCacheExpiryInSeconds;
+
+  private Cache<String, NearbyRestaurants> nearCache;
+
+  private Counter redisHits;
+  private Counter redisMisses;
+  private Counter redisErrors;
+
+  private volatile long redisDownUntil = 0;
+
+  // the version could not be bumped while redis was down, it is on the next redis call
+  private volatile boolean versionBumpPending = false;
+
+  @PostConstruct
+  public void initCache() {
+    nearCache = CacheBuilder.newBuilder()
+        .maximumSize(nearCacheMaximumSize)
+        .expireAfterWrite(nearCacheExpiryInSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(meterRegistry, nearCache, CACHE_NAME);
+
+    redisHits = redisCounter("hit");
+    redisMisses = redisCounter("miss");
+    redisErrors = redisCounter("error");
+  }
+
+  /**
+   * Get the restaurants near the cell containing the given point.
+   * @param latitude latitude of the user
+   * @param longitude longitude of the user
+   * @param servingRadiusInKms serving radius
+   * @param loader finds the restaurants within a radius of a point, used on a miss with the
+   *     centre of the cell and a radius covering the whole cell
+   * @return restaurants near the cell, with their opening hours parsed; some of them may be
+   *     further than servingRadiusInKms from the user
+   */
+  public NearbyRestaurants get(double latitude, double longitude, double servingRadiusInKms,
+      BiFunction<GeoLocation, Double, List<Restaurant>> loader) {
+    String key = keyFor(latitude, longitude, servingRadiusInKms);
+    try {
+      return nearCache.get(key, () -> new NearbyRestaurants(
+          loadFromRedisOrDb(key, latitude, longitude, servingRadiusInKms, loader)));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Drops the in-process tier; Redis entries are left alone.
+   */
+  public void invalidateNearCache() {
+    nearCache.invalidateAll();
+  }
+
+  /**
+   * Drops every entry after a restaurant was saved or deleted: the in-process tier of this
+   * server, and the Redis tier by bumping the version of the catalogue. The in-process tier of
+   * the other servers expires on its own.
+   */
+  public void invalidate() {
+    nearCache.invalidateAll();
+    versionBumpPending = true;
+    if (System.currentTimeMillis() < redisDownUntil) {
+      return;
+    }
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      bumpVersionIfPending(jedis);
+    } catch (JedisException e) {
+      markRedisDown(e);
+    }
+  }
+
+  /**
+   * Cache key for the cell containing the given point.
+   * @return key of the form restaurants:{geohash}:{radius}, followed by :v{version} in Redis
+   */
+  public String keyFor(double latitude, double longitude, double servingRadiusInKms) {
+    return KEY_PREFIX
+        + GeoHashUtils.geoHash(latitude, longitude, GlobalConstants.GEOHASH_PRECISION_FOR_CACHE)
+        + ":" + servingRadiusInKms;
+  }
+
+  private List<Restaurant> loadFromRedisOrDb(String key, double latitude, double longitude,
+      double servingRadiusInKms, BiFunction<GeoLocation, Double, List<Restaurant>> loader) {
+    String redisKey = null;
+    if (System.currentTimeMillis() >= redisDownUntil) {
+      try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+        bumpVersionIfPending(jedis);
+        String version = jedis.get(VERSION_KEY);
+        redisKey = key + ":v" + (version == null ? "0" : version);
+        List<Restaurant> restaurants = readFromRedis(jedis, redisKey);
+        if (restaurants != null) {
+          redisHits.increment();
+          return restaurants;
+        }
+        redisMisses.increment();
+      } catch (JedisException e) {
+        markRedisDown(e);
+        redisKey = null;
+      }
+    }
+
+    // Computed around the centre of the cell, over the radius of the point of the cell
+    // furthest from it, so every user in the cell can share it.
+    List<Restaurant> restaurants = loader.apply(GeoHashUtils.cellCenter(latitude, longitude,
+        GlobalConstants.GEOHASH_PRECISION_FOR_CACHE),
+        servingRadiusInKms + CELL_HALF_DIAGONAL_IN_KMS);
+    if (redisKey != null) {
+      try {
+        writeToRedis(redisKey, restaurants);
+      } catch (JedisException e) {
+        markRedisDown(e);
+      }
+    }
+    return restaurants;
+  }
+
+  private void bumpVersionIfPending(Jedis jedis) {
+    if (versionBumpPending) {
+      versionBumpPending = false;
+      try {
+        jedis.incr(VERSION_KEY);
+      } catch (JedisException e) {
+        versionBumpPending = true;
+        throw e;
+      }
+    }
+  }
+
+  private List<Restaurant> readFromRedis(Jedis jedis, String key) {
+    String json = jedis.get(key);
+    if (json == null) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(json, RESTAURANT_LIST);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable cache entry {}", key, e);
+      return null;
+    }
+  }
+
+  private void writeToRedis(String key, List<Restaurant> restaurants) {
+    String json;
+    try {
+      json = objectMapper.writeValueAsString(restaurants);
+    } catch (IOException e) {
+      log.warn("Unable to serialize restaurants for {}", key, e);
+      return;
+    }
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      jedis.setex(key, GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS, json);
+    }
+  }
+
+  private void markRedisDown(JedisException e) {
+    redisErrors.increment();
+    redisDownUntil = System.currentTimeMillis() + REDIS_RETRY_AFTER_MILLIS;
+    log.warn("Redis is not available, reading restaurants from the db: {}", e.getMessage());
+  }
+
+  private Counter redisCounter(String result) {
+    return Counter.builder("qeats.cache.redis")
+        .tag("name", CACHE_NAME)
+        .tag("result", result)
+        .description("Lookups of the redis tier of the nearby restaurants cache")
+        .register(meterRegistry);
+  }
+}
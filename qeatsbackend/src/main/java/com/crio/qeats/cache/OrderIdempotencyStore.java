@@ -0,0 +1,243 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.exceptions.OrderInProgressException;
+import com.crio.qeats.globals.GlobalConstants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Orders placed with an Idempotency-Key, by cart and key, so that a request sent again gets the
+ * order placed the first time instead of placing another one.
+ *   - Tier 1 is a bounded in-process cache, expiring after expire-after-write-seconds.
+ *   - Tier 2 is Redis, when enabled, shared by all servers, with orders expiring after
+ *     {@link GlobalConstants#REDIS_ENTRY_EXPIRY_IN_SECONDS}. A key is claimed there with
+ *     SET NX before the order is placed, so a single server places it. The claim expires
+ *     sooner, so that a server which died while placing doesn't keep the key for long.
+ *   - Requests with the same key arriving together on one server wait for the first one, and
+ *     get its order or its exception. Another server which finds the key claimed but no order
+ *     yet gets an OrderInProgressException, and so does one which can't read the order.
+ *   - Only orders placed are kept: a request which failed placed nothing, so it is run again
+ *     when sent again.
+ *   - When Redis is down the in-process tier is used alone, and Redis is skipped for a while.
+ * Hit/miss/eviction counts are published as "cache.*" metrics with name=placedOrders.
+ */
+@Log4j2
+@Component
+public class OrderIdempotencyStore {
+
+  private static final String CACHE_NAME = "placedOrders";
+
+  private static final String KEY_PREFIX = "idempotency:order:";
+
+  // in redis while the order is placed
+  private static final String PENDING = "pending";
+
+  // Outlives placing the order, a few times the confirm timeout of RabbitOrderBroker.
+  private static final int PENDING_EXPIRY_IN_SECONDS = 30;
+
+  private static final long REDIS_RETRY_AFTER_MILLIS = 5000;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final ConcurrentMap<String, CompletableFuture<Order>> placing =
+      new ConcurrentHashMap<>();
+
+  @Autowired
+  private RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.orders.idempotency.maximum-size:100000}")
+  private long maximumSize;
+
+  @Value("${qeats.orders.idempotency.expire-after-write-seconds:3600}")
+  private long expireAfterWriteInSeconds;
+
+  @Value("${qeats.orders.idempotency.redis-enabled:true}")
+  private boolean redisEnabled;
+
+  private Cache<String, Order> placedOrders;
+
+  private Counter duplicates;
+  private Counter redisErrors;
+
+  private volatile long redisDownUntil = 0;
+
+  @PostConstruct
+  public void initStore() {
+    placedOrders = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWriteInSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(meterRegistry, placedOrders, CACHE_NAME);
+
+    duplicates = Counter.builder("qeats.orders.duplicates")
+        .description("Orders sent again with their Idempotency-Key, and not placed again")
+        .register(meterRegistry);
+    redisErrors = Counter.builder("qeats.cache.redis")
+        .tag("name", CACHE_NAME)
+        .tag("result", "error")
+        .description("Failed calls to the redis tier of the placed orders")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Place an order once per cart and Idempotency-Key.
+   * @param cartId id of the cart ordered
+   * @param idempotencyKey key sent by the client, the same for all the tries of an order
+   * @param placeOrder places the order, only called if no order was placed with this key
+   * @return the order placed with this key, now or before
+   * @throws OrderInProgressException if another server is placing the order with this key,
+   *     or placed it and its order can't be read
+   * @throws RuntimeException what placeOrder threw, to this request and to those which waited
+   *     for it
+   */
+  public Order placeOnce(String cartId, String idempotencyKey, Supplier<Order> placeOrder) {
+    String key = KEY_PREFIX + cartId + ":" + idempotencyKey;
+    Order placed = placedOrders.getIfPresent(key);
+    if (placed != null) {
+      duplicates.increment();
+      return placed;
+    }
+
+    CompletableFuture<Order> mine = new CompletableFuture<>();
+    CompletableFuture<Order> first = placing.putIfAbsent(key, mine);
+    if (first != null) {
+      duplicates.increment();
+      return await(first);
+    }
+    try {
+      // placed by a request which was done before ours got in
+      placed = placedOrders.getIfPresent(key);
+      if (placed == null) {
+        placed = placeOnceAcrossServers(key, placeOrder);
+      } else {
+        duplicates.increment();
+      }
+      placedOrders.put(key, placed);
+      mine.complete(placed);
+      return placed;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      placing.remove(key, mine);
+    }
+  }
+
+  private Order placeOnceAcrossServers(String key, Supplier<Order> placeOrder) {
+    boolean redisUp = redisEnabled && System.currentTimeMillis() >= redisDownUntil;
+    if (redisUp) {
+      try {
+        Order placed = claimInRedis(key);
+        if (placed != null) {
+          duplicates.increment();
+          return placed;
+        }
+      } catch (JedisException e) {
+        markRedisDown(e);
+        redisUp = false;
+      }
+    }
+
+    Order order;
+    try {
+      order = placeOrder.get();
+    } catch (RuntimeException e) {
+      if (redisUp) {
+        releaseInRedis(key);
+      }
+      throw e;
+    }
+    if (redisUp) {
+      writeToRedis(key, order);
+    }
+    return order;
+  }
+
+  // null once claimed, else the order another server placed
+  private Order claimInRedis(String key) {
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      if ("OK".equals(jedis.set(key, PENDING, "NX", "EX", PENDING_EXPIRY_IN_SECONDS))) {
+        return null;
+      }
+      String json = jedis.get(key);
+      if (json == null || PENDING.equals(json)) {
+        // or released in the meantime, after a failure: the client tries again
+        throw new OrderInProgressException("Order " + key + " is being placed");
+      }
+      try {
+        return objectMapper.readValue(json, Order.class);
+      } catch (IOException e) {
+        // placed, but not ordered again: the client tries again once the key expired
+        log.warn("Unable to read placed order {}", key, e);
+        throw new OrderInProgressException("Order " + key + " was placed, and is unreadable");
+      }
+    }
+  }
+
+  private void writeToRedis(String key, Order order) {
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      jedis.setex(key, GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS,
+          objectMapper.writeValueAsString(order));
+    } catch (IOException e) {
+      log.warn("Unable to serialize placed order {}", key, e);
+    } catch (JedisException e) {
+      // left pending: tries on other servers are refused until the claim expires
+      markRedisDown(e);
+    }
+  }
+
+  private void releaseInRedis(String key) {
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      jedis.del(key);
+    } catch (JedisException e) {
+      markRedisDown(e);
+    }
+  }
+
+  private void markRedisDown(JedisException e) {
+    redisErrors.increment();
+    redisDownUntil = System.currentTimeMillis() + REDIS_RETRY_AFTER_MILLIS;
+    log.warn("Redis is not available, keeping placed orders in memory only: {}", e.getMessage());
+  }
+
+  private static Order await(CompletableFuture<Order> first) {
+    try {
+      return first.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
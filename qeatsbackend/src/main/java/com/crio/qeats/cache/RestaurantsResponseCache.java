@@ -0,0 +1,268 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.RadiusFilter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * JSON of the /restaurants response of a geohash cell, serialized once per time slot.
+ *   - The open restaurants of a cell only change when one of them opens or closes, see
+ *     {@link NearbyRestaurants#slotStart}: until then every request of the cell is answered
+ *     from the same bytes, without running Jackson again.
+ *   - Each open restaurant is serialized on its own, and classed by its distance from the cell:
+ *     within the radius of every point of the cell, of none of them, or in between, in the band
+ *     of about a cell around the edge of the radius. Only the restaurants of that band are
+ *     checked against the location of the user.
+ *   - A user who has none or all of the band within the radius gets bytes shared by the
+ *     requests of the cell. The others get a copy of the pieces of the restaurants they keep:
+ *     in a busy cell, where the band is never empty, that is most of the requests, which pay
+ *     for a copy of their response and the distance checks of the band.
+ *   - An entry is only used for the {@link NearbyRestaurants} it was serialized from, and during
+ *     its slot. It is serialized again on the first request after the next transition, or once
+ *     the entry of {@link NearbyRestaurantsCache} was reloaded.
+ *   - The bytes are the same as the ones spring writes for the GetRestaurantsResponse, as they
+ *     come from the same ObjectMapper.
+ * Hit/miss/eviction counts are published as "cache.*" metrics with name=restaurantsResponses.
+ */
+@Component
+public class RestaurantsResponseCache {
+
+  private static final String CACHE_NAME = "restaurantsResponses";
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.cache.restaurants-response.maximum-size:10000}")
+  private long maximumSize;
+
+  // entries of an expired near cache entry are of no use any more
+  @Value("${qeats.cache.near.expire-after-write-seconds:30}")
+  private long expiryInSeconds;
+
+  private Cache<String, SerializedSlot> cache;
+
+  // the JSON of a response without restaurants, around the list of restaurants
+  private byte[] responseStart;
+  private byte[] responseEnd;
+
+  @PostConstruct
+  public void initCache() {
+    String empty = new String(writeValueAsBytes(new GetRestaurantsResponse(
+        Collections.emptyList())), StandardCharsets.UTF_8);
+    int list = empty.indexOf("[]");
+    responseStart = empty.substring(0, list + 1).getBytes(StandardCharsets.UTF_8);
+    responseEnd = empty.substring(list + 1).getBytes(StandardCharsets.UTF_8);
+
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expiryInSeconds, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+  }
+
+  /**
+   * Get the JSON of the GetRestaurantsResponse with the restaurants open at the given time,
+   * within the serving radius of the user.
+   * @param key key of the cell and serving radius, see {@link NearbyRestaurantsCache#keyFor}
+   * @param nearbyRestaurants current restaurants of the cell
+   * @param currentTime current time
+   * @param latitude latitude of the user, in the cell
+   * @param longitude longitude of the user, in the cell
+   * @param servingRadiusInKms serving radius of the key
+   * @return serialized response, not to be modified
+   */
+  public byte[] get(String key, NearbyRestaurants nearbyRestaurants, LocalTime currentTime,
+      double latitude, double longitude, double servingRadiusInKms) {
+    int secondOfDay = currentTime.toSecondOfDay();
+    GeoLocation cellCentre = GeoHashUtils.cellCenter(latitude, longitude,
+        GlobalConstants.GEOHASH_PRECISION_FOR_CACHE);
+    SerializedSlot slot;
+    try {
+      slot = cache.get(key, () -> serialize(nearbyRestaurants, secondOfDay, cellCentre,
+          servingRadiusInKms));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    if (!slot.isFor(nearbyRestaurants, secondOfDay)) {
+      // a transition went by: the next slot replaces this one. Requests racing here may each
+      // serialize it once, the last one wins.
+      SerializedSlot next = serialize(nearbyRestaurants, secondOfDay, cellCentre,
+          servingRadiusInKms);
+      cache.asMap().replace(key, slot, next);
+      slot = next;
+    }
+    return slot.within(latitude, longitude, servingRadiusInKms);
+  }
+
+  private SerializedSlot serialize(NearbyRestaurants nearbyRestaurants, int secondOfDay,
+      GeoLocation cellCentre, double servingRadiusInKms) {
+    List<Restaurant> open = nearbyRestaurants.openAt(LocalTime.ofSecondOfDay(secondOfDay));
+    List<Restaurant> served = new ArrayList<>(open.size());
+    List<byte[]> pieces = new ArrayList<>(open.size());
+    List<Boolean> inBand = new ArrayList<>(open.size());
+    for (Restaurant restaurant : open) {
+      // every point of the cell is within the half diagonal of its centre
+      double distance = GeoUtils.findDistanceInKm(cellCentre.getLatitude(),
+          cellCentre.getLongitude(), restaurant.getLatitude(), restaurant.getLongitude());
+      if (distance - NearbyRestaurantsCache.CELL_HALF_DIAGONAL_IN_KMS > servingRadiusInKms) {
+        continue;
+      }
+      served.add(restaurant);
+      pieces.add(writeValueAsBytes(restaurant));
+      inBand.add(distance + NearbyRestaurantsCache.CELL_HALF_DIAGONAL_IN_KMS
+          > servingRadiusInKms);
+    }
+    return new SerializedSlot(nearbyRestaurants, nearbyRestaurants.slotStart(secondOfDay),
+        nearbyRestaurants.slotEnd(secondOfDay), served, pieces, inBand);
+  }
+
+  private byte[] writeValueAsBytes(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private class SerializedSlot {
+
+    private final NearbyRestaurants source;
+
+    private final int fromSecond;
+
+    private final int untilSecond;
+
+    // the open restaurants within the radius of some point of the cell
+    private final List<Restaurant> served;
+
+    // JSON of each of them
+    private final byte[][] pieces;
+
+    // positions of those within the radius of some points of the cell only
+    private final int[] band;
+
+    // those within the radius of every point of the cell
+    private final boolean[] inside;
+    private final int insideCount;
+
+    // the response with the restaurants inside, and with all of them
+    private final byte[] insideJson;
+    private final byte[] allJson;
+
+    SerializedSlot(NearbyRestaurants source, int fromSecond, int untilSecond,
+        List<Restaurant> served, List<byte[]> pieces, List<Boolean> inBand) {
+      this.source = source;
+      this.fromSecond = fromSecond;
+      this.untilSecond = untilSecond;
+      this.served = served;
+      this.pieces = pieces.toArray(new byte[pieces.size()][]);
+      this.inside = new boolean[served.size()];
+      this.band = new int[Collections.frequency(inBand, true)];
+      for (int i = 0, b = 0; i < inside.length; i++) {
+        if (inBand.get(i)) {
+          band[b++] = i;
+        } else {
+          inside[i] = true;
+        }
+      }
+      this.insideCount = inside.length - band.length;
+      this.insideJson = join(this.pieces, insideCount, inside);
+      this.allJson = band.length == 0 ? insideJson : join(this.pieces, inside.length,
+          allOf(inside.length));
+    }
+
+    byte[] within(double latitude, double longitude, double servingRadiusInKms) {
+      if (band.length == 0) {
+        return insideJson;
+      }
+      RadiusFilter within = GeoUtils.withinRadius(latitude, longitude, servingRadiusInKms);
+      boolean[] kept = null;
+      int keptInBand = 0;
+      for (int i : band) {
+        Restaurant restaurant = served.get(i);
+        if (within.contains(restaurant.getLatitude(), restaurant.getLongitude())) {
+          if (kept == null) {
+            kept = Arrays.copyOf(inside, inside.length);
+          }
+          kept[i] = true;
+          keptInBand++;
+        }
+      }
+      if (keptInBand == 0) {
+        return insideJson;
+      }
+      return keptInBand == band.length ? allJson
+          : join(pieces, insideCount + keptInBand, kept);
+    }
+
+    boolean isFor(NearbyRestaurants nearbyRestaurants, int secondOfDay) {
+      return source == nearbyRestaurants && secondOfDay >= fromSecond
+          && secondOfDay < untilSecond;
+    }
+  }
+
+  private byte[] join(byte[][] pieces, int keptCount, boolean[] kept) {
+    int length = responseStart.length + Math.max(keptCount - 1, 0) + responseEnd.length;
+    for (int i = 0; i < pieces.length; i++) {
+      length += kept[i] ? pieces[i].length : 0;
+    }
+    byte[] json = new byte[length];
+    System.arraycopy(responseStart, 0, json, 0, responseStart.length);
+    int position = responseStart.length;
+    for (int i = 0; i < pieces.length; i++) {
+      if (!kept[i]) {
+        continue;
+      }
+      if (position > responseStart.length) {
+        json[position++] = ',';
+      }
+      System.arraycopy(pieces[i], 0, json, position, pieces[i].length);
+      position += pieces[i].length;
+    }
+    System.arraycopy(responseEnd, 0, json, position, responseEnd.length);
+    return json;
+  }
+
+  private static boolean[] allOf(int count) {
+    boolean[] all = new boolean[count];
+    Arrays.fill(all, true);
+    return all;
+  }
+}
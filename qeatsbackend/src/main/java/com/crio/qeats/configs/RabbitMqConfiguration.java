@@ -0,0 +1,41 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import com.crio.qeats.globals.GlobalConstants;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Exchange and queue of the orders on RabbitMQ, for the "rabbitmq" profile.
+ * They are declared by spring on the first connection, durable so that orders published survive
+ * a restart of the broker.
+ */
+@Configuration
+@Profile("rabbitmq")
+public class RabbitMqConfiguration {
+
+  @Bean
+  public TopicExchange orderExchange() {
+    return new TopicExchange(GlobalConstants.EXCHANGE_NAME, true, false);
+  }
+
+  @Bean
+  public Queue orderQueue() {
+    return new Queue(GlobalConstants.QUEUE_NAME, true);
+  }
+
+  @Bean
+  public Binding orderBinding(Queue orderQueue, TopicExchange orderExchange) {
+    return BindingBuilder.bind(orderQueue).to(orderExchange).with(GlobalConstants.ROUTING_KEY);
+  }
+}
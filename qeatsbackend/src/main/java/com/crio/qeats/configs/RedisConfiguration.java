@@ -0,0 +1,84 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Holds the connection pool to the Redis cache.
+ * Redis is only a cache: callers must treat any JedisException as a miss and go to the database.
+ */
+@Log4j2
+@Component
+public class RedisConfiguration {
+
+  // Keep redis calls short so a slow or dead cache never costs more than the db would.
+  private static final int REDIS_TIMEOUT_IN_MILLIS = 200;
+
+  @Value("${spring.redis.host:localhost}")
+  private String redisHost;
+
+  @Value("${spring.redis.port}")
+  private int redisPort;
+
+  private JedisPool jedisPool;
+
+  /**
+   * Creates the connection pool. Connections are opened lazily, so this works even when Redis
+   * is down.
+   */
+  @PostConstruct
+  public void initCache() {
+    JedisPoolConfig poolConfig = new JedisPoolConfig();
+    poolConfig.setMaxTotal(64);
+    poolConfig.setMaxIdle(64);
+    poolConfig.setBlockWhenExhausted(false);
+    jedisPool = new JedisPool(poolConfig, redisHost, redisPort, REDIS_TIMEOUT_IN_MILLIS);
+  }
+
+  public JedisPool getJedisPool() {
+    return jedisPool;
+  }
+
+  /**
+   * Checks if Redis is reachable right now.
+   * @return true if a PING succeeds
+   */
+  public boolean isCacheAvailable() {
+    try (Jedis jedis = jedisPool.getResource()) {
+      return "PONG".equals(jedis.ping());
+    } catch (JedisException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Drops all the cached entries.
+   */
+  public void destroyCache() {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.flushAll();
+    } catch (JedisException e) {
+      log.warn("Unable to flush the redis cache", e);
+    }
+  }
+
+  @PreDestroy
+  public void closeCache() {
+    if (jedisPool != null) {
+      jedisPool.close();
+    }
+  }
+}
@@ -6,44 +6,107 @@
 
 package com.crio.qeats.controller;
 
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.exceptions.CartNotFoundException;
+import com.crio.qeats.exceptions.EmptyCartException;
+import com.crio.qeats.exceptions.OrderInProgressException;
+import com.crio.qeats.exchanges.AddCartRequest;
+import com.crio.qeats.exchanges.CartModifiedResponse;
+import com.crio.qeats.exchanges.ClearCartRequest;
+import com.crio.qeats.exchanges.DeleteCartRequest;
+import com.crio.qeats.exchanges.GetCartRequest;
+import com.crio.qeats.exchanges.GetMenuRequest;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetMenusRequest;
+import com.crio.qeats.exchanges.GetMenusResponse;
+import com.crio.qeats.exchanges.GetOrdersRequest;
+import com.crio.qeats.exchanges.GetOrdersResponse;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.GetSuggestionsRequest;
+import com.crio.qeats.exchanges.GetSuggestionsResponse;
+import com.crio.qeats.exchanges.PostOrderRequest;
+import com.crio.qeats.exchanges.StreamedRestaurantsResponse;
+import com.crio.qeats.services.CartAndOrderService;
+import com.crio.qeats.services.MenuService;
+import com.crio.qeats.services.RestaurantRequestExecutor;
 import com.crio.qeats.services.RestaurantService;
 import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import javax.validation.Valid;
 import javax.validation.constraints.*;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 // TODO: CRIO_TASK_MODULE_RESTAURANTSAPI
 // Implement Controller using Spring annotations.
 // Remember, annotations have various "targets". They can be class level, method level or others.
 
+// Servlet stack only: its endpoints block on mongo, redis and the cart locks, which must not
+// happen on the event loop of the "reactive" profile, see RestaurantRouter.
 @Log4j2
 @RestController
+@Profile("!reactive")
 @RequestMapping(RestaurantController.RESTAURANT_API_ENDPOINT)
 public class RestaurantController {
 
   public static final String RESTAURANT_API_ENDPOINT = "/qeats/v1";
   public static final String RESTAURANTS_API = "/restaurants";
   public static final String MENU_API = "/menu";
+  public static final String MENUS_API = "/menus";
   public static final String CART_API = "/cart";
   public static final String CART_ITEM_API = "/cart/item";
   public static final String CART_CLEAR_API = "/cart/clear";
   public static final String POST_ORDER_API = "/order";
   public static final String GET_ORDERS_API = "/orders";
+  public static final String SUGGEST_API = "/suggest";
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
   @Autowired
   private RestaurantService restaurantService;
+
+  @Autowired
+  private MenuService menuService;
+
+  @Autowired
+  private CartAndOrderService cartAndOrderService;
+
+  @Autowired
+  private RestaurantRequestExecutor restaurantRequestExecutor;
+
+  // Look /restaurants up off the servlet threads, see findRestaurantsAsync.
+  @Value("${qeats.restaurants.async.enabled:true}")
+  private boolean asyncEnabled;
+
+  // Write /restaurants responses as the restaurants are found, see streamRestaurants.
+  // Listings are streamed instead of looked up on the executor or served serialized.
+  @Value("${qeats.restaurants.streaming.enabled:false}")
+  private boolean streamingEnabled;
+
+  // Write the /restaurants responses serialized once per cell and time slot, see json.
+  @Value("${qeats.cache.restaurants-response.enabled:true}")
+  private boolean serializedResponsesEnabled;
   
   // @GetMapping(RESTAURANT_API_ENDPOINT+RESTAURANTS_API)
   // public ResponseEntity<String> module2(@Valid @RequestParam @Min(value = -90, message = "Latitude must be between -90 and 90") 
@@ -60,21 +123,152 @@ public class RestaurantController {
    * Springboot creates an instance of Getresturantsrequest and maps the query parameter
     */
   @GetMapping(RESTAURANTS_API)
-  public ResponseEntity<GetRestaurantsResponse> getRestaurants(
-      @Valid GetRestaurantsRequest getRestaurantsRequest) { 
+  public DeferredResult<ResponseEntity<?>> getRestaurants(
+      @Valid GetRestaurantsRequest getRestaurantsRequest) {
 
     log.info("getRestaurants called with {}", getRestaurantsRequest);
+    DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>();
+    if (isStreamed(getRestaurantsRequest)) {
+      // set straight away: the restaurants are looked up while spring writes the response
+      deferredResult.setResult(streamRestaurants(getRestaurantsRequest));
+      return deferredResult;
+    }
+    if (asyncEnabled) {
+      return findRestaurantsAsync(getRestaurantsRequest);
+    }
+    // looked up on the servlet thread: the result is set before spring dispatches it
+    deferredResult.setResult(findRestaurants(getRestaurantsRequest));
+    return deferredResult;
+  }
+
+  // Pages are small, and have a cursor to add to the end; search results are ranked, so they
+  // come as a list anyway.
+  private boolean isStreamed(GetRestaurantsRequest getRestaurantsRequest) {
+    return streamingEnabled && getRestaurantsRequest.getSearchFor() == null
+        && getRestaurantsRequest.getLimit() == null;
+  }
+
+  private ResponseEntity<?> findRestaurants(GetRestaurantsRequest getRestaurantsRequest) {
+    if (isServedSerialized(getRestaurantsRequest)) {
+      return json(restaurantService.findAllRestaurantsCloseByAsJson(getRestaurantsRequest,
+          LocalTime.now()));
+    }
     GetRestaurantsResponse getRestaurantsResponse;
 
       //CHECKSTYLE:OFF
-      getRestaurantsResponse = restaurantService
-          .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.now());
+      if (getRestaurantsRequest.getSearchFor() != null) {
+        getRestaurantsResponse = restaurantService
+            .findRestaurantsBySearchQuery(getRestaurantsRequest, LocalTime.now());
+      } else {
+        getRestaurantsResponse = restaurantService
+            .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.now());
+      }
       log.info("getRestaurants returned {}", getRestaurantsResponse);
       //CHECKSTYLE:ON
 
     return ResponseEntity.ok().body(getRestaurantsResponse);
   }
 
+  private boolean isServedSerialized(GetRestaurantsRequest getRestaurantsRequest) {
+    return serializedResponsesEnabled && getRestaurantsRequest.getSearchFor() == null
+        && getRestaurantsRequest.getLimit() == null;
+  }
+
+  // Looks the restaurants up on the bounded RestaurantRequestExecutor, so a slow database holds
+  // pool threads and not servlet threads; serialized responses too, as a miss reads redis or
+  // mongo. When the pool is full, or the lookup takes longer than the timeout, the request
+  // gets 503 straight away; a timed out lookup is dropped if it did not start yet.
+  private DeferredResult<ResponseEntity<?>> findRestaurantsAsync(
+      GetRestaurantsRequest getRestaurantsRequest) {
+    try {
+      if (isServedSerialized(getRestaurantsRequest)) {
+        return respondWhenDone(getRestaurantsRequest,
+            restaurantService.findAllRestaurantsCloseByAsJsonAsync(getRestaurantsRequest,
+                LocalTime.now()), RestaurantController::json);
+      }
+      CompletableFuture<GetRestaurantsResponse> future;
+      if (getRestaurantsRequest.getSearchFor() != null) {
+        future = restaurantService.findRestaurantsBySearchQueryAsync(getRestaurantsRequest,
+            LocalTime.now());
+      } else {
+        future = restaurantService.findAllRestaurantsCloseByAsync(getRestaurantsRequest,
+            LocalTime.now());
+      }
+      return respondWhenDone(getRestaurantsRequest, future, getRestaurantsResponse -> {
+        log.info("getRestaurants returned {} restaurants",
+            getRestaurantsResponse.getRestaurants().size());
+        return ResponseEntity.ok().body(getRestaurantsResponse);
+      });
+    } catch (RejectedExecutionException e) {
+      log.warn("getRestaurants rejected: {}", e.getMessage());
+      DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>();
+      deferredResult.setResult(serviceUnavailable());
+      return deferredResult;
+    }
+  }
+
+  private <T> DeferredResult<ResponseEntity<?>> respondWhenDone(
+      GetRestaurantsRequest getRestaurantsRequest, CompletableFuture<T> future,
+      Function<T, ResponseEntity<?>> respond) {
+    DeferredResult<ResponseEntity<?>> deferredResult =
+        new DeferredResult<>(restaurantRequestExecutor.getTimeoutMillis());
+    deferredResult.onTimeout(() -> {
+      // the 503 first: cancelling completes the future, with a CancellationException
+      deferredResult.setResult(serviceUnavailable());
+      future.cancel(false);
+      restaurantRequestExecutor.recordTimeout();
+      log.warn("getRestaurants timed out with {}", getRestaurantsRequest);
+    });
+    future.whenComplete((body, e) -> {
+      if (e != null) {
+        deferredResult.setErrorResult(e instanceof CompletionException ? e.getCause() : e);
+        return;
+      }
+      deferredResult.setResult(respond.apply(body));
+    });
+    return deferredResult;
+  }
+
+  private static ResponseEntity<?> serviceUnavailable() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+  }
+
+  // The json converter writes the same bytes as for the whole GetRestaurantsResponse, one
+  // restaurant at a time, so the memory used does not grow with the number of restaurants.
+  // They are read straight from the cache while the response is written.
+  // A failure half way leaves the JSON truncated, and the connection is closed.
+  // The lookup runs on the thread writing the response, also when async is enabled: the
+  // executor's 503s do not cover streamed listings.
+  private ResponseEntity<StreamedRestaurantsResponse> streamRestaurants(
+      GetRestaurantsRequest getRestaurantsRequest) {
+    LocalTime currentTime = LocalTime.now();
+    return ResponseEntity.ok().body(new StreamedRestaurantsResponse(consumer ->
+        restaurantService.streamAllRestaurantsCloseBy(getRestaurantsRequest, currentTime,
+            consumer)));
+  }
+
+  // The bytes come from the cache of serialized responses and are shared between requests,
+  // they are only copied to the response. Written by the byte array converter, with the
+  // content type of the responses serialized by the json converter.
+  private static ResponseEntity<?> json(byte[] json) {
+    log.info("getRestaurants returned {} bytes", json.length);
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(json);
+  }
+
+  // Called on every keystroke: only logged at debug level.
+  // curl -X GET "http://localhost:8081/qeats/v1/suggest?latitude=20&longitude=30&prefix=bir"
+  @GetMapping(SUGGEST_API)
+  public ResponseEntity<GetSuggestionsResponse> getSuggestions(
+      @Valid GetSuggestionsRequest getSuggestionsRequest) {
+
+    log.debug("getSuggestions called with {}", getSuggestionsRequest);
+    GetSuggestionsResponse getSuggestionsResponse =
+        restaurantService.findSuggestions(getSuggestionsRequest);
+    log.debug("getSuggestions returned {}", getSuggestionsResponse);
+
+    return ResponseEntity.ok().body(getSuggestionsResponse);
+  }
+
   // TIP(MODULE_MENUAPI): Model Implementation for getting menu given a restaurantId.
   // Get the Menu for the given restaurantId
   // API URI: /qeats/v1/menu?restaurantId=11
@@ -107,17 +301,148 @@ public class RestaurantController {
   //          : 5xx, if server side error.
   // Eg:
   // curl -X GET "http://localhost:8081/qeats/v1/menu?restaurantId=11"
+  //
+  // The response has the ETag of the menu: a request with it in If-None-Match gets
+  // 304 Not Modified and no body, while the menu is unchanged. 404 if there is no menu.
+  @GetMapping(MENU_API)
+  public ResponseEntity<GetMenuResponse> getMenu(@Valid GetMenuRequest getMenuRequest) {
 
+    log.debug("getMenu called with {}", getMenuRequest);
+    GetMenuResponse getMenuResponse = menuService.findMenu(getMenuRequest);
+    if (getMenuResponse == null) {
+      return ResponseEntity.notFound().build();
+    }
 
+    // If-None-Match is checked against the ETag by spring once this is returned.
+    // no-cache: clients may keep the menu, but must revalidate it before using it
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.noCache())
+        .eTag(getMenuResponse.getEtag())
+        .body(getMenuResponse);
+  }
 
+  // Menus of several restaurants in one response, e.g. for a page of search results.
+  // Restaurants without a menu are left out; revalidated with ETags like a single menu.
+  // curl -X GET "http://localhost:8081/qeats/v1/menus?restaurantIds=11,12,13"
+  @GetMapping(MENUS_API)
+  public ResponseEntity<GetMenusResponse> getMenus(@Valid GetMenusRequest getMenusRequest) {
 
+    log.debug("getMenus called with {}", getMenusRequest);
+    GetMenusResponse getMenusResponse = menuService.findMenus(getMenusRequest);
 
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.noCache())
+        .eTag(getMenusResponse.getEtag())
+        .body(getMenusResponse);
+  }
 
+  // The cart of a user, created empty on the first read.
+  // curl -X GET "http://localhost:8081/qeats/v1/cart?userId=Bunny"
+  @GetMapping(CART_API)
+  public ResponseEntity<Cart> getCart(@Valid GetCartRequest getCartRequest) {
 
+    log.debug("getCart called with {}", getCartRequest);
+    Cart cart = cartAndOrderService.findOrCreateCart(getCartRequest.getUserId());
 
+    return ResponseEntity.ok().body(cart);
+  }
 
+  // Adding an item which isn't in the menu of the restaurant, or to a cart with items of another
+  // restaurant, is a bad request: the response has the cart as it was and the error type.
+  // 404 if there is no such cart.
+  // curl -X POST -H "Content-Type: application/json" \
+  //   -d '{"cartId":"1","itemId":"1","restaurantId":"10"}' http://localhost:8081/qeats/v1/cart/item
+  @PostMapping(CART_ITEM_API)
+  public ResponseEntity<CartModifiedResponse> addItem(
+      @Valid @RequestBody AddCartRequest addCartRequest) {
 
+    log.debug("addItem called with {}", addCartRequest);
+    try {
+      return cartModified(cartAndOrderService.addItemToCart(addCartRequest.getItemId(),
+          addCartRequest.getCartId(), addCartRequest.getRestaurantId()));
+    } catch (CartNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
 
+  // Removes one of the items with this itemId; the cart is unchanged if it has none.
+  @DeleteMapping(CART_ITEM_API)
+  public ResponseEntity<CartModifiedResponse> deleteItem(
+      @Valid @RequestBody DeleteCartRequest deleteCartRequest) {
 
-}
+    log.debug("deleteItem called with {}", deleteCartRequest);
+    try {
+      return cartModified(cartAndOrderService.removeItemFromCart(deleteCartRequest.getItemId(),
+          deleteCartRequest.getCartId(), deleteCartRequest.getRestaurantId()));
+    } catch (CartNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
 
+  @PutMapping(CART_CLEAR_API)
+  public ResponseEntity<Cart> clearCart(@Valid @RequestBody ClearCartRequest clearCartRequest) {
+
+    log.debug("clearCart called with {}", clearCartRequest);
+    try {
+      return ResponseEntity.ok().body(cartAndOrderService.clearCart(clearCartRequest.getCartId()));
+    } catch (CartNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  // Orders the items of the cart and empties it. 202 once the order is queued, with the order;
+  // it is written to the db in the background. 400 if the cart is empty, 404 if there is no
+  // such cart, 409 if it is being ordered by another request, 503 if the order queue can't
+  // take it now, leaving the cart as it was.
+  // With an Idempotency-Key header, a request sent again with the same key gets 202 and the
+  // order placed the first time, instead of ordering again. 409 if the first request is still
+  // being placed on another server, 400 if the key is blank or longer than 255 characters.
+  // curl -X POST -H "Content-Type: application/json" -H "Idempotency-Key: 7f3c..." \
+  //   -d '{"cartId":"1"}' http://localhost:8081/qeats/v1/order
+  @PostMapping(POST_ORDER_API)
+  public ResponseEntity<Order> postOrder(@Valid @RequestBody PostOrderRequest postOrderRequest,
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+
+    log.debug("postOrder called with {}, idempotency key {}", postOrderRequest, idempotencyKey);
+    if (idempotencyKey != null
+        && (idempotencyKey.trim().isEmpty() || idempotencyKey.length() > 255)) {
+      return ResponseEntity.badRequest().build();
+    }
+    try {
+      Order order = idempotencyKey == null
+          ? cartAndOrderService.postOrder(postOrderRequest.getCartId())
+          : cartAndOrderService.postOrder(postOrderRequest.getCartId(), idempotencyKey);
+      log.debug("postOrder queued order {}", order.getId());
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(order);
+    } catch (CartNotFoundException e) {
+      return ResponseEntity.notFound().build();
+    } catch (EmptyCartException e) {
+      return ResponseEntity.badRequest().build();
+    } catch (OrderInProgressException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    } catch (RejectedExecutionException e) {
+      log.warn("postOrder rejected: {}", e.getMessage());
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+
+  // The orders of a user, latest first, a page at a time: nextCursor, when there is one, is
+  // passed as cursor to get the next page. Orders are summaries without their items, unless
+  // includeItems=true. An order shows up once the order queue wrote it to the db.
+  // curl -X GET "http://localhost:8081/qeats/v1/orders?userId=Bunny&limit=20"
+  @GetMapping(GET_ORDERS_API)
+  public ResponseEntity<GetOrdersResponse> getOrders(@Valid GetOrdersRequest getOrdersRequest) {
+
+    log.debug("getOrders called with {}", getOrdersRequest);
+    return ResponseEntity.ok().body(cartAndOrderService.findOrders(getOrdersRequest));
+  }
+
+  private static ResponseEntity<CartModifiedResponse> cartModified(
+      CartModifiedResponse cartModifiedResponse) {
+    if (cartModifiedResponse.getCartResponseType() != CartModifiedResponse.NO_ERROR) {
+      return ResponseEntity.badRequest().body(cartModifiedResponse);
+    }
+    return ResponseEntity.ok().body(cartModifiedResponse);
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.services.ReactiveRestaurantService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.Set;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * GET /qeats/v1/restaurants on the reactive stack, see {@link RestaurantRouter}.
+ *   - Same query params, validation and JSON as {@link RestaurantController#getRestaurants}.
+ *   - Restaurants close by are written as they come from the db, one at a time; pages and
+ *     search results are ranked, so they are written once complete.
+ *   - A failure half way leaves the JSON truncated, and the connection is closed.
+ */
+@Log4j2
+@Component
+@Profile("reactive")
+public class RestaurantHandler {
+
+  private static final DefaultDataBufferFactory BUFFERS = new DefaultDataBufferFactory();
+
+  private static final byte[] OPEN = "{\"restaurants\":[".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] CLOSE = "]}".getBytes(StandardCharsets.UTF_8);
+
+  @Autowired
+  private ReactiveRestaurantService reactiveRestaurantService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private Validator validator;
+
+  /**
+   * Handles GET /qeats/v1/restaurants.
+   * @return 200 with a GetRestaurantsResponse, or 400 if the query params are not valid
+   */
+  public Mono<ServerResponse> getRestaurants(ServerRequest request) {
+    GetRestaurantsRequest getRestaurantsRequest;
+    try {
+      getRestaurantsRequest = bind(request);
+    } catch (NumberFormatException e) {
+      log.info("getRestaurants called with {}: {}", request.queryParams(), e.getMessage());
+      return ServerResponse.badRequest().build();
+    }
+    Set<ConstraintViolation<GetRestaurantsRequest>> violations =
+        validator.validate(getRestaurantsRequest);
+    if (!violations.isEmpty()) {
+      log.info("getRestaurants called with {}: {} violations", getRestaurantsRequest,
+          violations.size());
+      return ServerResponse.badRequest().build();
+    }
+
+    log.info("getRestaurants called with {}", getRestaurantsRequest);
+    if (getRestaurantsRequest.getSearchFor() != null) {
+      return ok(reactiveRestaurantService.findRestaurantsBySearchQuery(getRestaurantsRequest,
+          LocalTime.now()));
+    }
+    if (getRestaurantsRequest.getLimit() != null) {
+      return ok(reactiveRestaurantService.findAllRestaurantsCloseBy(getRestaurantsRequest,
+          LocalTime.now()));
+    }
+    return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON_UTF8)
+        .body(BodyInserters.fromDataBuffers(toJson(
+            reactiveRestaurantService.streamAllRestaurantsCloseBy(getRestaurantsRequest,
+                LocalTime.now()))));
+  }
+
+  private static Mono<ServerResponse> ok(Mono<GetRestaurantsResponse> getRestaurantsResponse) {
+    return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON_UTF8)
+        .body(getRestaurantsResponse, GetRestaurantsResponse.class);
+  }
+
+  // The same bytes as the whole GetRestaurantsResponse would be, see StreamedRestaurantsResponse
+  private Flux<DataBuffer> toJson(Flux<Restaurant> restaurants) {
+    return Flux.concat(
+        Mono.fromSupplier(() -> BUFFERS.wrap(OPEN)),
+        restaurants.index().map(indexed -> toJson(indexed.getT1() > 0, indexed.getT2())),
+        Mono.fromSupplier(() -> BUFFERS.wrap(CLOSE)));
+  }
+
+  private DataBuffer toJson(boolean separated, Restaurant restaurant) {
+    byte[] json;
+    try {
+      json = objectMapper.writeValueAsBytes(restaurant);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (!separated) {
+      return BUFFERS.wrap(json);
+    }
+    byte[] bytes = new byte[json.length + 1];
+    bytes[0] = ',';
+    System.arraycopy(json, 0, bytes, 1, json.length);
+    return BUFFERS.wrap(bytes);
+  }
+
+  // What the MVC data binder does for the controller; a param which isn't a number is a 400.
+  private static GetRestaurantsRequest bind(ServerRequest request) {
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest();
+    getRestaurantsRequest.setLatitude(
+        request.queryParam("latitude").map(Double::valueOf).orElse(null));
+    getRestaurantsRequest.setLongitude(
+        request.queryParam("longitude").map(Double::valueOf).orElse(null));
+    getRestaurantsRequest.setSearchFor(request.queryParam("searchFor").orElse(null));
+    getRestaurantsRequest.setLimit(
+        request.queryParam("limit").map(Integer::valueOf).orElse(null));
+    getRestaurantsRequest.setCursor(request.queryParam("cursor").orElse(null));
+    return getRestaurantsRequest;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Routes of the "reactive" profile, where the application runs on WebFlux.
+ *   - GET /restaurants is served by {@link RestaurantHandler}, end to end on the reactive mongo
+ *     driver.
+ *   - Only endpoints which never block are served: those of {@link RestaurantController} block
+ *     on mongo, redis and the cart locks, and would hold the event loop threads, so it is left
+ *     out of this profile. They stay on the servlet stack.
+ */
+@Configuration
+@Profile("reactive")
+public class RestaurantRouter {
+
+  @Bean
+  public RouterFunction<ServerResponse> restaurantRoutes(RestaurantHandler restaurantHandler) {
+    return RouterFunctions.route(GET(RestaurantController.RESTAURANT_API_ENDPOINT
+        + RestaurantController.RESTAURANTS_API), restaurantHandler::getRestaurants);
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cart of one user, with the items of one restaurant at most.
+// {
+//  "id": "1",
+//  "restaurantId": "10",
+//  "userId": "Bunny",
+//  "items": [ ... ],
+//  "total": 225
+// }
+// An empty cart has no restaurantId; total is the sum of the prices of the items.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Cart {
+
+  private String id;
+
+  private String restaurantId;
+
+  private String userId;
+
+  private List<Item> items = new ArrayList<>();
+
+  private double total;
+}
@@ -0,0 +1,42 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One dish of a menu.
+// {
+//  "attributes": [
+//    "South Indian"
+//  ],
+//  "id": "1",
+//  "imageUrl": "www.google.com",
+//  "itemId": "10",
+//  "name": "Idly",
+//  "price": 45
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Item {
+
+  private String id;
+
+  private String itemId;
+
+  private String name;
+
+  private String imageUrl;
+
+  private Double price;
+
+  private List<String> attributes = new ArrayList<>();
+}
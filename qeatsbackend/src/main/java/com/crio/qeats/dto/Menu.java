@@ -0,0 +1,28 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Menu of one restaurant.
+// {
+//  "items": [ ... ],
+//  "restaurantId": "11"
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Menu {
+
+  private String restaurantId;
+
+  private List<Item> items = new ArrayList<>();
+}
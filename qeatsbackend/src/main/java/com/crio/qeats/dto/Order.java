@@ -0,0 +1,45 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Order of the items of a cart, placed by its user.
+// {
+//  "id": "5d1b2f3e9c1f4a0001a1b2c3",
+//  "restaurantId": "10",
+//  "userId": "Bunny",
+//  "items": [ ... ],
+//  "total": 225,
+//  "placedAt": "2019-07-02T10:15:30.000+0000"
+// }
+// The id is given when the order is placed, so writing the same order twice stores it once.
+// GET /orders lists summaries, which have no items, unless it is asked for them.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Order {
+
+  private String id;
+
+  private String restaurantId;
+
+  private String userId;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private List<Item> items = new ArrayList<>();
+
+  private double total;
+
+  private Date placedAt;
+}
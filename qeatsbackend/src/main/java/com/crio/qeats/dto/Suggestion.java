@@ -0,0 +1,31 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One completion of what the user is typing.
+// {
+//  "text": "Chicken Biryani",
+//  "type": "DISH"
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Suggestion {
+
+  public enum Type {
+    RESTAURANT,
+    DISH
+  }
+
+  private String text;
+
+  private Type type;
+}
@@ -0,0 +1,20 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exceptions;
+
+// No cart with the given id.
+public class CartNotFoundException extends QEatsException {
+
+  public CartNotFoundException(String message) {
+    super(message);
+  }
+
+  @Override
+  public int getErrorType() {
+    return CART_NOT_FOUND;
+  }
+}
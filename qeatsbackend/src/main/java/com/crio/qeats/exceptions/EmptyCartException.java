@@ -0,0 +1,20 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exceptions;
+
+// An order of a cart without items.
+public class EmptyCartException extends QEatsException {
+
+  public EmptyCartException(String message) {
+    super(message);
+  }
+
+  @Override
+  public int getErrorType() {
+    return EMPTY_CART;
+  }
+}
@@ -0,0 +1,20 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exceptions;
+
+// The item is not on the menu of the restaurant.
+public class ItemNotFoundInRestaurantMenuException extends QEatsException {
+
+  public ItemNotFoundInRestaurantMenuException(String message) {
+    super(message);
+  }
+
+  @Override
+  public int getErrorType() {
+    return ITEM_NOT_FOUND_IN_RESTAURANT_MENU;
+  }
+}
@@ -0,0 +1,21 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exceptions;
+
+// An order sent again with its Idempotency-Key while the first request is still being placed,
+// on another server.
+public class OrderInProgressException extends QEatsException {
+
+  public OrderInProgressException(String message) {
+    super(message);
+  }
+
+  @Override
+  public int getErrorType() {
+    return ORDER_IN_PROGRESS;
+  }
+}
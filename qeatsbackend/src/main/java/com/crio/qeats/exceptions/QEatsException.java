@@ -7,6 +7,7 @@ abstract class QEatsException extends RuntimeException {
   static final int ITEM_NOT_FOUND_IN_RESTAURANT_MENU = 101;
   static final int ITEM_NOT_FROM_SAME_RESTAURANT = 102;
   static final int CART_NOT_FOUND = 103;
+  static final int ORDER_IN_PROGRESS = 104;
 
   QEatsException() {}
 
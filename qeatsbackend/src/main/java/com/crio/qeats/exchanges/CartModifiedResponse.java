@@ -0,0 +1,35 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.dto.Cart;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Response to adding or removing an item.
+// {
+//  "cart": { ... },
+//  "cartResponseType": 0
+// }
+// cartResponseType is NO_ERROR when the cart was modified. Otherwise it is the error type of the
+// QEatsException which prevented it, and cart is the cart left as it was.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartModifiedResponse {
+
+  public static final int NO_ERROR = 0;
+
+  private Cart cart;
+
+  private int cartResponseType;
+
+  public CartModifiedResponse(Cart cart) {
+    this(cart, NO_ERROR);
+  }
+}
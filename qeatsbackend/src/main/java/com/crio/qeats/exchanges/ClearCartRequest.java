@@ -0,0 +1,25 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import javax.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Body of PUT /qeats/v1/cart/clear
+// {
+//  "cartId": "1"
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClearCartRequest {
+
+  @NotBlank
+  private String cartId;
+}
@@ -0,0 +1,33 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import javax.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Body of DELETE /qeats/v1/cart/item
+// {
+//  "cartId": "1",
+//  "itemId": "1",
+//  "restaurantId": "10"
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeleteCartRequest {
+
+  @NotBlank
+  private String cartId;
+
+  @NotBlank
+  private String itemId;
+
+  @NotBlank
+  private String restaurantId;
+}
@@ -0,0 +1,22 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import javax.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Query params of /qeats/v1/menu?restaurantId=11
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetMenuRequest {
+
+  @NotBlank
+  private String restaurantId;
+}
@@ -0,0 +1,35 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.dto.Menu;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// {
+//  "menu": {
+//    "items": [ ... ],
+//    "restaurantId": "11"
+//  }
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetMenuResponse {
+
+  private Menu menu;
+
+  // Strong ETag of the serialized response, sent as a header rather than in the body.
+  @JsonIgnore
+  private String etag;
+
+  public GetMenuResponse(Menu menu) {
+    this.menu = menu;
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import java.util.List;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Query params of /qeats/v1/menus?restaurantIds=11,12,13
+// (or restaurantIds=11&restaurantIds=12&restaurantIds=13)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetMenusRequest {
+
+  @NotEmpty
+  @Size(max = 100)
+  private List<@NotBlank String> restaurantIds;
+}
@@ -0,0 +1,39 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.dto.Menu;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// {
+//  "menus": [
+//    {
+//      "items": [ ... ],
+//      "restaurantId": "11"
+//    },
+//    ...
+//  ]
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetMenusResponse {
+
+  private List<Menu> menus;
+
+  // Strong ETag of the serialized response, sent as a header rather than in the body.
+  @JsonIgnore
+  private String etag;
+
+  public GetMenusResponse(List<Menu> menus) {
+    this.menus = menus;
+  }
+}
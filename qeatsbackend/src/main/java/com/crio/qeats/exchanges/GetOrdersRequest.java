@@ -0,0 +1,65 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.utils.OrderCursor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Query params of /qeats/v1/orders?userId=Bunny
+// limit is the size of the page (20 by default), cursor the nextCursor of the page before, and
+// includeItems=true lists the items of each order too:
+// /qeats/v1/orders?userId=Bunny&limit=50&cursor=AQAAAWv...&includeItems=true
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetOrdersRequest {
+
+  public static final int DEFAULT_LIMIT = 20;
+
+  @NotBlank
+  private String userId;
+
+  @Min(1)
+  @Max(100)
+  private Integer limit;
+
+  @Size(max = 512)
+  private String cursor;
+
+  private boolean includeItems;
+
+  public GetOrdersRequest(String userId) {
+    this.userId = userId;
+  }
+
+  @JsonIgnore
+  public int getLimitOrDefault() {
+    return limit == null ? DEFAULT_LIMIT : limit;
+  }
+
+  // a cursor only makes sense for the user it was returned for
+  @JsonIgnore
+  @AssertTrue(message = "cursor must come from a previous page for the same user")
+  public boolean isCursorValid() {
+    if (cursor == null) {
+      return true;
+    }
+    try {
+      return OrderCursor.decode(cursor).isFor(userId);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
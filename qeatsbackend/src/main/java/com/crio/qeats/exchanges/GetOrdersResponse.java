@@ -0,0 +1,40 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.dto.Order;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// {
+//  "orders": [
+//    {
+//      "id": "5d1b2f3e9c1f4a0001a1b2c3",
+//      "restaurantId": "10",
+//      "userId": "Bunny",
+//      "total": 225,
+//      "placedAt": "2019-07-02T10:15:30.000+0000"
+//    },
+//    ...
+//  ],
+//  "nextCursor": "AQAAAWv..."
+// }
+// Orders are latest first, with their items only if includeItems was asked for. nextCursor is
+// only there when the page is full, so there may be more orders.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetOrdersResponse {
+
+  private List<Order> orders;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String nextCursor;
+}
@@ -6,9 +6,13 @@
 
 package com.crio.qeats.exchanges;
 
+import com.crio.qeats.utils.RestaurantCursor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,6 +24,10 @@ import lombok.NoArgsConstructor;
 //  For instance, if a REST client calls API
 //  /qeats/v1/restaurants?latitude=28.4900591&longitude=77.536386&searchFor=tamil,
 //  this class should be able to deserialize lat/long and optional searchFor from that.
+//
+// limit asks for the nearest restaurants only, and cursor for the ones after the page which
+// returned it: /qeats/v1/restaurants?latitude=28.49&longitude=77.53&limit=30&cursor=AT...
+// Search results are ranked by relevance, they are not paged.
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,6 +43,35 @@ private Double latitude;
 @Max(value=180, message="maximum Longitude is 180")
 private Double longitude;
 
-//private String searchFor;
+private String searchFor;
+
+@Min(1)
+@Max(100)
+private Integer limit;
+
+@Size(max = 512)
+private String cursor;
+
+public GetRestaurantsRequest(Double latitude, Double longitude) {
+  this.latitude = latitude;
+  this.longitude = longitude;
+}
+
+// a cursor only makes sense with a limit, for the location it was returned for
+@JsonIgnore
+@AssertTrue(message = "cursor must come from a previous page for the same location")
+public boolean isCursorValid() {
+  if (cursor == null) {
+    return true;
+  }
+  if (limit == null || latitude == null || longitude == null) {
+    return false;
+  }
+  try {
+    return RestaurantCursor.decode(cursor).isFor(latitude, longitude);
+  } catch (IllegalArgumentException e) {
+    return false;
+  }
+}
 }
 
@@ -7,6 +7,7 @@
 package com.crio.qeats.exchanges;
 
 import com.crio.qeats.dto.Restaurant;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -49,13 +50,21 @@ import lombok.NoArgsConstructor;
 //        "South Indian"
 //      ]
 //    }
-//  ]
+//  ],
+//  "nextCursor": "AUA0..."
+// nextCursor is only there when a limit was asked for and there may be more restaurants.
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class GetRestaurantsResponse {
 private List<Restaurant> restaurants; 
-  
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String nextCursor;
+
+  public GetRestaurantsResponse(List<Restaurant> restaurants) {
+    this.restaurants = restaurants;
+  }
 }
 
 // }
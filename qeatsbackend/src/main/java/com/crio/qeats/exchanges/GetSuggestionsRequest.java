@@ -0,0 +1,41 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Query params of /qeats/v1/suggest?latitude=28.4900591&longitude=77.536386&prefix=bir&limit=5
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetSuggestionsRequest {
+
+  @NotNull
+  @Min(-90)
+  @Max(90)
+  private Double latitude;
+
+  @NotNull
+  @Min(-180)
+  @Max(180)
+  private Double longitude;
+
+  @NotBlank
+  @Size(max = 64)
+  private String prefix;
+
+  @Min(1)
+  @Max(20)
+  private int limit = 10;
+}
@@ -0,0 +1,25 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import javax.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Body of POST /qeats/v1/order
+// {
+//  "cartId": "1"
+// }
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostOrderRequest {
+
+  @NotBlank
+  private String cartId;
+}
@@ -0,0 +1,66 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import com.crio.qeats.dto.Restaurant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Body serialized as a {@link GetRestaurantsResponse}, whose restaurants are handed over one at
+ * a time while the json message converter writes it, so the list is never held in memory.
+ *   - The bytes are the same as those of a GetRestaurantsResponse with the same restaurants, the
+ *     restaurants going through the serializers of the converter.
+ *   - Only the buffer of the generator is kept; it goes to the stream when full.
+ *   - If writing fails half way the JSON is left truncated, instead of looking like a shorter
+ *     list.
+ */
+public class StreamedRestaurantsResponse extends JsonSerializable.Base {
+
+  private final Consumer<Consumer<Restaurant>> restaurants;
+
+  /**
+   * Creates the body, nothing is looked up before it is written.
+   * @param restaurants hands the restaurants of the response over to the consumer it is given,
+   *     in the order of the response
+   */
+  public StreamedRestaurantsResponse(Consumer<Consumer<Restaurant>> restaurants) {
+    this.restaurants = restaurants;
+  }
+
+  @Override
+  public void serialize(JsonGenerator generator, SerializerProvider serializers)
+      throws IOException {
+    generator.writeStartObject();
+    generator.writeFieldName("restaurants");
+    generator.writeStartArray();
+    try {
+      restaurants.accept(restaurant -> {
+        try {
+          serializers.defaultSerializeValue(restaurant, generator);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  @Override
+  public void serializeWithType(JsonGenerator generator, SerializerProvider serializers,
+      TypeSerializer typeSerializer) throws IOException {
+    serialize(generator, serializers);
+  }
+}
@@ -6,6 +6,9 @@ public class GlobalConstants {
   // Amount of time after which the redis entries should expire.
   public static final int REDIS_ENTRY_EXPIRY_IN_SECONDS = 3600;
 
+  // Precision of the geohash used to key cached restaurant lists, 7 chars ~ 153m x 153m.
+  public static final int GEOHASH_PRECISION_FOR_CACHE = 7;
+
   // TIP(MODULE_RABBITMQ): RabbitMQ related configs.
   public static final String EXCHANGE_NAME = "rabbitmq-exchange";
   public static final String QUEUE_NAME = "rabbitmq-queue";
@@ -0,0 +1,24 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.models.RestaurantEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Entry of the geo index: the restaurant, its position in the catalogue and its geohash cell.
+@Getter
+@AllArgsConstructor
+class IndexedRestaurant {
+
+  private final RestaurantEntity restaurantEntity;
+
+  private final long sequence;
+
+  private final String cell;
+
+}
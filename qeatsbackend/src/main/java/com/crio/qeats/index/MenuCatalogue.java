@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Menus of all the restaurants, as needed by {@link RestaurantSearchIndex} and
+ * {@link RestaurantSuggestionIndex}.
+ *   - Loaded from the database on first use, then kept in sync with the menus saved and deleted
+ *     through this application.
+ *   - The version goes up on every change, so that indexes built from the menus can tell when
+ *     they are stale.
+ */
+@Log4j2
+@Component
+public class MenuCatalogue extends AbstractMongoEventListener<MenuEntity> {
+
+  @Autowired
+  private MenuRepository menuRepository;
+
+  private volatile Map<String, MenuTerms> menuTermsByRestaurantId = new ConcurrentHashMap<>();
+
+  private volatile boolean loaded = false;
+
+  private final AtomicLong version = new AtomicLong();
+
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Get the menus by restaurantId, loading them first if needed.
+   * The map keeps changing: read {@link #getVersion()} before reading it.
+   */
+  Map<String, MenuTerms> menus() {
+    if (!loaded) {
+      load();
+    }
+    return menuTermsByRestaurantId;
+  }
+
+  // synchronized with load, so that a menu saved while loading is applied after the load
+  @Override
+  public synchronized void onAfterSave(AfterSaveEvent<MenuEntity> event) {
+    MenuEntity menuEntity = event.getSource();
+    if (menuEntity.getRestaurantId() != null) {
+      menuTermsByRestaurantId.put(menuEntity.getRestaurantId(), MenuTerms.of(menuEntity));
+      version.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void onAfterDelete(AfterDeleteEvent<MenuEntity> event) {
+    // the event only has the query, load every menu again
+    loaded = false;
+    version.incrementAndGet();
+  }
+
+  private synchronized void load() {
+    if (loaded) {
+      return;
+    }
+    // set first, so that a menu deleted while loading has them loaded again
+    loaded = true;
+    Map<String, MenuTerms> menus = new ConcurrentHashMap<>();
+    try {
+      for (MenuEntity menuEntity : menuRepository.findAll()) {
+        if (menuEntity.getRestaurantId() != null) {
+          menus.put(menuEntity.getRestaurantId(), MenuTerms.of(menuEntity));
+        }
+      }
+    } catch (RuntimeException e) {
+      loaded = false;
+      throw e;
+    }
+    menuTermsByRestaurantId = menus;
+    version.incrementAndGet();
+    log.info("Loaded {} menus", menus.size());
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.utils.SearchTokens;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+
+// What the search and suggestion indexes need from the menu of one restaurant.
+@Getter
+class MenuTerms {
+
+  // distinct item names, as first written on the menu
+  private final List<String> itemNames;
+
+  private final List<String> itemNameTokens;
+
+  private final List<String> itemAttributeTokens;
+
+  private MenuTerms(List<String> itemNames, List<String> itemNameTokens,
+      List<String> itemAttributeTokens) {
+    this.itemNames = itemNames;
+    this.itemNameTokens = itemNameTokens;
+    this.itemAttributeTokens = itemAttributeTokens;
+  }
+
+  static MenuTerms of(MenuEntity menuEntity) {
+    Map<String, String> itemNames = new LinkedHashMap<>();
+    Set<String> itemNameTokens = new LinkedHashSet<>();
+    Set<String> itemAttributeTokens = new LinkedHashSet<>();
+    if (menuEntity.getItems() != null) {
+      for (ItemEntity itemEntity : menuEntity.getItems()) {
+        List<String> nameTokens = SearchTokens.tokenize(itemEntity.getName());
+        if (!nameTokens.isEmpty()) {
+          itemNames.putIfAbsent(String.join(" ", nameTokens), itemEntity.getName().trim());
+        }
+        itemNameTokens.addAll(nameTokens);
+        itemAttributeTokens.addAll(SearchTokens.tokenize(itemEntity.getAttributes()));
+      }
+    }
+    return new MenuTerms(new ArrayList<>(itemNames.values()), new ArrayList<>(itemNameTokens),
+        new ArrayList<>(itemAttributeTokens));
+  }
+}
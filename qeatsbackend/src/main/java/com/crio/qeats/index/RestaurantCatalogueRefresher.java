@@ -0,0 +1,394 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.models.RestaurantEntity;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies changes made to the restaurants collection by other applications to
+ * {@link RestaurantGeoIndex}, one batch at a time, on a background thread.
+ *   - Tails a MongoDB change stream (replica sets and sharded clusters) and resumes it after
+ *     errors from the last change applied.
+ *   - On a standalone mongod, where change streams aren't available, polls for restaurants
+ *     with a newer {@code lastModified}. Restaurants polled again as they were applied are
+ *     skipped. Polling relies on every writer setting {@code lastModified} on every save, as
+ *     this application does: other changes are only seen by the next reload. A warning is
+ *     logged when polling starts on a collection with restaurants without one.
+ *   - Deleted documents can't be found by polling: when the estimated number of documents,
+ *     read from the collection metadata, changes, and every reconcile-every-polls polls
+ *     anyway, the restaurantIds of the collection are counted and everything is reloaded if
+ *     the index doesn't have as many.
+ * Readers are never blocked: every batch is published as one new snapshot. The cached nearby
+ * restaurants are dropped after every batch which changed the index.
+ */
+@Log4j2
+@Component
+public class RestaurantCatalogueRefresher {
+
+  // $changeStream is only supported on replica sets
+  private static final int CHANGE_STREAMS_NOT_SUPPORTED = 40573;
+  // the resume token is no longer in the oplog
+  private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+  private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final long MAX_AWAIT_MILLIS = 500;
+  private static final long RETRY_MILLIS = 5000;
+  // writes with older timestamps can commit after a poll, e.g. from a clock running behind
+  private static final long POLL_OVERLAP_MILLIS = 1000;
+
+  @Value("${qeats.restaurants.refresh.enabled:true}")
+  private boolean enabled;
+
+  @Value("${qeats.restaurants.refresh.poll-interval-millis:5000}")
+  private long pollIntervalMillis;
+
+  @Value("${qeats.restaurants.refresh.reconcile-every-polls:60}")
+  private int reconcileEveryPolls;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired
+  private RestaurantGeoIndexSynchronizer restaurantGeoIndexSynchronizer;
+
+  @Autowired
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+
+  private ExecutorService executor;
+
+  private volatile boolean running;
+
+  private volatile MongoCursor<ChangeStreamDocument<Document>> cursor;
+
+  private BsonDocument resumeToken;
+
+  private boolean reloadNeeded;
+
+  private Date watermark;
+
+  // lastModified of the documents applied by the polls, back to the overlap before watermark
+  private final Map<String, Date> appliedLastModified = new HashMap<>();
+
+  private long documentCount = -1;
+
+  private int pollsSinceReconcile;
+
+  /**
+   * Starts following the collection, before the index is first loaded so that no change
+   * made while it loads is missed.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    running = true;
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "restaurant-catalogue-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    try {
+      cursor = openChangeStream();
+      log.info("Following restaurant changes with a change stream");
+      executor.execute(this::tailChangeStream);
+    } catch (MongoCommandException e) {
+      if (e.getErrorCode() != CHANGE_STREAMS_NOT_SUPPORTED) {
+        throw e;
+      }
+      startPolling();
+    } catch (MongoException e) {
+      log.warn("Unable to open a change stream on restaurants, retrying in the background", e);
+      executor.execute(this::tailChangeStream);
+    }
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void startPolling() {
+    watermark = new Date();
+    log.info("Change streams aren't available, polling restaurants every {}ms",
+        pollIntervalMillis);
+    executor.execute(this::pollUntilStopped);
+  }
+
+  private MongoCursor<ChangeStreamDocument<Document>> openChangeStream() {
+    String collectionName = mongoTemplate.getCollectionName(RestaurantEntity.class);
+    ChangeStreamIterable<Document> changeStream =
+        mongoTemplate.getCollection(collectionName).watch()
+            .fullDocument(FullDocument.UPDATE_LOOKUP)
+            .maxAwaitTime(MAX_AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+    if (resumeToken != null) {
+      changeStream = changeStream.resumeAfter(resumeToken);
+    }
+    return changeStream.iterator();
+  }
+
+  private void tailChangeStream() {
+    while (running) {
+      try {
+        if (cursor == null) {
+          cursor = openChangeStream();
+        }
+        if (reloadNeeded) {
+          restaurantGeoIndexSynchronizer.reload();
+          reloadNeeded = false;
+        } else {
+          restaurantGeoIndexSynchronizer.ensureLoaded();
+        }
+        while (running && cursor != null) {
+          applyNextBatch();
+        }
+      } catch (MongoCommandException e) {
+        if (e.getErrorCode() == CHANGE_STREAMS_NOT_SUPPORTED) {
+          startPolling();
+          return;
+        }
+        if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST
+            || e.getErrorCode() == CHANGE_STREAM_FATAL_ERROR) {
+          // changes were missed, start again from now
+          resumeToken = null;
+          reloadNeeded = true;
+        }
+        retryLater(e);
+      } catch (MongoException | DataAccessException e) {
+        retryLater(e);
+      }
+    }
+    closeCursor();
+  }
+
+  private void applyNextBatch() {
+    List<ChangeStreamDocument<Document>> changes = new ArrayList<>();
+    ChangeStreamDocument<Document> change = cursor.tryNext();
+    while (change != null) {
+      changes.add(change);
+      if (changes.size() == MAX_BATCH_SIZE) {
+        break;
+      }
+      change = cursor.tryNext();
+    }
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    // the index applies saves before deletes, so keep only the last change of each document
+    Map<String, RestaurantEntity> savedRestaurants = new LinkedHashMap<>();
+    Set<String> deletedDocumentIds = new LinkedHashSet<>();
+    boolean collectionChanged = false;
+    for (ChangeStreamDocument<Document> next : changes) {
+      switch (next.getOperationType()) {
+        case INSERT:
+        case UPDATE:
+        case REPLACE:
+          // null when the document was deleted before the update was looked up
+          if (next.getFullDocument() != null) {
+            RestaurantEntity restaurantEntity = mongoTemplate.getConverter()
+                .read(RestaurantEntity.class, next.getFullDocument());
+            deletedDocumentIds.remove(restaurantEntity.getId());
+            savedRestaurants.put(restaurantEntity.getId(), restaurantEntity);
+          }
+          break;
+        case DELETE:
+          String documentId = documentId(next.getDocumentKey().get("_id"));
+          savedRestaurants.remove(documentId);
+          deletedDocumentIds.add(documentId);
+          break;
+        default:
+          // drop, rename or invalidate: the collection isn't what we indexed anymore
+          collectionChanged = true;
+      }
+    }
+
+    if (collectionChanged) {
+      // open a new change stream, then reload everything
+      resumeToken = null;
+      reloadNeeded = true;
+      closeCursor();
+      return;
+    }
+    resumeToken = changes.get(changes.size() - 1).getResumeToken();
+    if (restaurantGeoIndex.applyChanges(savedRestaurants.values(), deletedDocumentIds)) {
+      nearbyRestaurantsCache.invalidate();
+    }
+    log.debug("Applied {} restaurant changes", changes.size());
+  }
+
+  private void pollUntilStopped() {
+    try {
+      if (mongoTemplate.exists(new Query(Criteria.where("lastModified").exists(false)),
+          RestaurantEntity.class)) {
+        log.warn("Some restaurants have no lastModified, their changes are only picked up by "
+            + "reloads: writers other than this application must set it on every save");
+      }
+    } catch (DataAccessException e) {
+      log.warn("Unable to check the lastModified of restaurants", e);
+    }
+    while (running) {
+      try {
+        restaurantGeoIndexSynchronizer.ensureLoaded();
+        pollChanges();
+      } catch (MongoException | DataAccessException e) {
+        log.warn("Unable to poll restaurant changes", e);
+      }
+      try {
+        Thread.sleep(pollIntervalMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Applies the restaurants saved since the last poll, then looks for deleted restaurants if
+   * the number of documents changed or it is time to.
+   */
+  void pollChanges() {
+    Query query = new Query(Criteria.where("lastModified")
+        .gte(new Date(watermark.getTime() - POLL_OVERLAP_MILLIS)))
+        .with(Sort.by(Sort.Direction.ASC, "lastModified"));
+    List<RestaurantEntity> savedRestaurants = new ArrayList<>();
+    for (RestaurantEntity restaurantEntity : mongoTemplate.find(query, RestaurantEntity.class)) {
+      // polled again within the overlap
+      if (!restaurantEntity.getLastModified()
+          .equals(appliedLastModified.get(restaurantEntity.getId()))) {
+        savedRestaurants.add(restaurantEntity);
+      }
+    }
+    if (!savedRestaurants.isEmpty()) {
+      if (restaurantGeoIndex.applyChanges(savedRestaurants, new ArrayList<>())) {
+        nearbyRestaurantsCache.invalidate();
+      }
+      for (RestaurantEntity restaurantEntity : savedRestaurants) {
+        appliedLastModified.put(restaurantEntity.getId(), restaurantEntity.getLastModified());
+        if (restaurantEntity.getLastModified().after(watermark)) {
+          watermark = restaurantEntity.getLastModified();
+        }
+      }
+      Date overlapStart = new Date(watermark.getTime() - POLL_OVERLAP_MILLIS);
+      appliedLastModified.values().removeIf(lastModified -> lastModified.before(overlapStart));
+    }
+
+    long count = estimateDocumentCount();
+    if (count != documentCount || ++pollsSinceReconcile >= reconcileEveryPolls) {
+      documentCount = count;
+      pollsSinceReconcile = 0;
+      reconcile();
+    }
+  }
+
+  // Reloads everything if the index and the collection don't have as many restaurantIds.
+  private void reconcile() {
+    long count = countRestaurantIds();
+    if (count != restaurantGeoIndex.size()) {
+      log.info("Collection has {} restaurants and the index {}, reloading", count,
+          restaurantGeoIndex.size());
+      restaurantGeoIndexSynchronizer.reload();
+    }
+  }
+
+  // from the metadata of the collection, without reading it
+  private long estimateDocumentCount() {
+    return mongoTemplate.getCollection(mongoTemplate.getCollectionName(RestaurantEntity.class))
+        .estimatedDocumentCount();
+  }
+
+  // the index keeps one entry per restaurantId: documents sharing one are counted once
+  private long countRestaurantIds() {
+    Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.match(Criteria.where("restaurantId").ne(null)
+            .and("latitude").ne(null)
+            .and("longitude").ne(null)),
+        Aggregation.group("restaurantId"),
+        Aggregation.count().as("count"));
+    Document result = mongoTemplate.aggregate(aggregation, RestaurantEntity.class, Document.class)
+        .getUniqueMappedResult();
+    return result == null ? 0 : ((Number) result.get("count")).longValue();
+  }
+
+  private void retryLater(RuntimeException e) {
+    if (!running) {
+      return;
+    }
+    log.warn("Restaurant change stream failed, retrying in {}ms", RETRY_MILLIS, e);
+    closeCursor();
+    try {
+      Thread.sleep(RETRY_MILLIS);
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+
+  private void closeCursor() {
+    MongoCursor<ChangeStreamDocument<Document>> current = cursor;
+    cursor = null;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (MongoException e) {
+        log.debug("Unable to close the restaurant change stream", e);
+      }
+    }
+  }
+
+  private static String documentId(BsonValue id) {
+    if (id.isObjectId()) {
+      return id.asObjectId().getValue().toHexString();
+    }
+    return id.isString() ? id.asString().getValue() : id.toString();
+  }
+}
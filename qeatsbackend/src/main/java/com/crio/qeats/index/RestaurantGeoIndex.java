@@ -0,0 +1,319 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoHashUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory spatial index over the restaurants collection.
+ *
+ * <p>Restaurants are bucketed by the geohash cell containing their lat/long. A radius query only
+ * visits the cells that intersect the bounding box of the search circle, so its cost grows with
+ * the number of nearby restaurants rather than with the size of the whole catalogue.
+ *
+ * <p>Reads never lock. Writers are serialized and {@link #rebuild(List)} swaps the whole
+ * structure in one step.
+ *
+ * <p>The index also hands out a {@link RestaurantSnapshot}, a columnar copy of the catalogue.
+ * Every write builds a new snapshot and publishes it in one step, so readers never wait and
+ * always see either all of a batch of changes or none of it. The catalogue is kept in order as
+ * it changes, so a new snapshot is a single pass over it, without sorting; writers should still
+ * hand in their changes in batches, see {@link #applyChanges(Collection, Collection)}.
+ */
+@Log4j2
+@Component
+public class RestaurantGeoIndex {
+
+  // 5 characters ~ 4.9km x 4.9km at the equator, i.e. about the size of our serving radius.
+  static final int GEOHASH_PRECISION = 5;
+
+  private static final double EARTH_RADIUS_IN_KMS = 6371.0;
+
+  private static final double CELL_HEIGHT_IN_DEGREES =
+      GeoHashUtils.cellHeightInDegrees(GEOHASH_PRECISION);
+  private static final double CELL_WIDTH_IN_DEGREES =
+      GeoHashUtils.cellWidthInDegrees(GEOHASH_PRECISION);
+
+  private static final Comparator<IndexedRestaurant> CATALOGUE_ORDER =
+      Comparator.comparingLong(IndexedRestaurant::getSequence);
+
+  private volatile Buckets buckets = new Buckets();
+
+  private volatile boolean loaded = false;
+
+  private volatile RestaurantSnapshot snapshot = RestaurantSnapshot.EMPTY;
+
+  private long nextSequence = 0;
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  public int size() {
+    return buckets.byRestaurantId.size();
+  }
+
+  /**
+   * Marks the index as stale, so that the next reader reloads it from the database.
+   */
+  public void invalidate() {
+    loaded = false;
+  }
+
+  /**
+   * Replaces the contents of the index with the given restaurants.
+   * @param restaurantEntities complete list of restaurants, in catalogue order
+   */
+  public synchronized void rebuild(List<RestaurantEntity> restaurantEntities) {
+    Buckets fresh = new Buckets();
+    long sequence = 0;
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      if (isIndexable(restaurantEntity)) {
+        fresh.put(new IndexedRestaurant(restaurantEntity, sequence++,
+            cellOf(restaurantEntity.getLatitude(), restaurantEntity.getLongitude())));
+      }
+    }
+    RestaurantSnapshot freshSnapshot = RestaurantSnapshot.of(catalogue(fresh));
+    nextSequence = sequence;
+    buckets = fresh;
+    snapshot = freshSnapshot;
+    loaded = true;
+    log.info("Restaurant geo index built with {} restaurants in {} cells",
+        fresh.byRestaurantId.size(), fresh.cells.size());
+  }
+
+  /**
+   * Inserts a restaurant, or moves it to its new cell if it already exists.
+   * @param restaurantEntity restaurant which was saved to the database
+   */
+  public void upsert(RestaurantEntity restaurantEntity) {
+    applyChanges(Collections.singletonList(restaurantEntity), Collections.emptyList());
+  }
+
+  /**
+   * Removes the restaurant stored under the given Mongo document id, if present.
+   * @param documentId value of the {@code _id} field
+   */
+  public void removeByDocumentId(String documentId) {
+    applyChanges(Collections.emptyList(), Collections.singletonList(documentId));
+  }
+
+  /**
+   * Applies a batch of changes, then publishes a single new snapshot with all of them.
+   *   - Saved restaurants are inserted, or moved, and keep their position in the catalogue.
+   *   - Deletes are applied after the saves.
+   *   - Saves of restaurants indexed as they are, and deletes of restaurants not in the index,
+   *     change nothing: if nothing changed, no snapshot is built.
+   * @param savedRestaurants restaurants which were inserted or updated
+   * @param deletedDocumentIds values of the {@code _id} field of deleted restaurants
+   * @return true if the index changed, and a new snapshot was published
+   */
+  public synchronized boolean applyChanges(Collection<RestaurantEntity> savedRestaurants,
+      Collection<String> deletedDocumentIds) {
+    boolean changed = false;
+    for (RestaurantEntity restaurantEntity : savedRestaurants) {
+      changed |= applySave(restaurantEntity);
+    }
+    for (String documentId : deletedDocumentIds) {
+      changed |= applyDelete(documentId);
+    }
+    if (changed) {
+      snapshot = RestaurantSnapshot.of(catalogue(buckets));
+    }
+    return changed;
+  }
+
+  /**
+   * Get a columnar snapshot of the restaurants in the index.
+   *   - Never blocks: writers build the next snapshot before publishing it.
+   *   - The snapshot is immutable: it is consistent however long the caller keeps it, and
+   *     doesn't see later changes.
+   * @return RestaurantSnapshot of the current catalogue
+   */
+  public RestaurantSnapshot snapshot() {
+    return snapshot;
+  }
+
+  private boolean applySave(RestaurantEntity restaurantEntity) {
+    if (!isIndexable(restaurantEntity)) {
+      return false;
+    }
+    // saved again as it is indexed
+    IndexedRestaurant indexed = buckets.byRestaurantId.get(restaurantEntity.getRestaurantId());
+    if (indexed != null && indexed.getRestaurantEntity().equals(restaurantEntity)) {
+      return false;
+    }
+    // the document may have been saved before under another restaurantId
+    if (restaurantEntity.getId() != null) {
+      String previousRestaurantId =
+          buckets.restaurantIdByDocumentId.get(restaurantEntity.getId());
+      if (previousRestaurantId != null
+          && !previousRestaurantId.equals(restaurantEntity.getRestaurantId())) {
+        buckets.remove(buckets.byRestaurantId.get(previousRestaurantId));
+      }
+    }
+    IndexedRestaurant existing = buckets.byRestaurantId.get(restaurantEntity.getRestaurantId());
+    long sequence = existing != null ? existing.getSequence() : nextSequence++;
+    if (existing != null) {
+      buckets.remove(existing);
+    }
+    buckets.put(new IndexedRestaurant(restaurantEntity, sequence,
+        cellOf(restaurantEntity.getLatitude(), restaurantEntity.getLongitude())));
+    return true;
+  }
+
+  private boolean applyDelete(String documentId) {
+    String restaurantId = buckets.restaurantIdByDocumentId.get(documentId);
+    if (restaurantId == null) {
+      return false;
+    }
+    IndexedRestaurant existing = buckets.byRestaurantId.get(restaurantId);
+    if (existing == null) {
+      return false;
+    }
+    buckets.remove(existing);
+    return true;
+  }
+
+  /**
+   * Get the restaurants in every cell touched by the circle around the given point.
+   *   - The result is a superset of the restaurants within the radius; callers still need to
+   *     check the exact distance.
+   *   - Restaurants are returned in catalogue order.
+   * @param latitude latitude of the centre
+   * @param longitude longitude of the centre
+   * @param radiusInKms search radius
+   * @return candidate restaurants, or empty list if there is none
+   */
+  public List<RestaurantEntity> findCandidates(double latitude, double longitude,
+      double radiusInKms) {
+    Buckets current = buckets;
+    List<IndexedRestaurant> candidates = new ArrayList<>();
+    for (String cell : coveringCells(latitude, longitude, radiusInKms)) {
+      Map<String, IndexedRestaurant> bucket = current.cells.get(cell);
+      if (bucket != null) {
+        candidates.addAll(bucket.values());
+      }
+    }
+    candidates.sort(CATALOGUE_ORDER);
+
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>(candidates.size());
+    for (IndexedRestaurant candidate : candidates) {
+      restaurantEntities.add(candidate.getRestaurantEntity());
+    }
+    return restaurantEntities;
+  }
+
+  private static List<IndexedRestaurant> catalogue(Buckets current) {
+    return new ArrayList<>(current.bySequence.values());
+  }
+
+  /**
+   * Geohash cells intersecting the bounding box of a circle.
+   * Sampling the box at cell-sized steps, including both edges, hits every cell it overlaps.
+   */
+  static Set<String> coveringCells(double latitude, double longitude, double radiusInKms) {
+    double angularRadius = radiusInKms / EARTH_RADIUS_IN_KMS;
+    double latitudeDelta = Math.toDegrees(angularRadius);
+    double minLatitude = Math.max(-90.0, latitude - latitudeDelta);
+    double maxLatitude = Math.min(90.0, latitude + latitudeDelta);
+
+    // Widest longitude span of the circle; covers the whole band when it contains a pole.
+    double longitudeDelta = 180.0;
+    double cosLatitude = Math.cos(Math.toRadians(latitude));
+    if (minLatitude > -90.0 && maxLatitude < 90.0 && Math.sin(angularRadius) < cosLatitude) {
+      longitudeDelta = Math.toDegrees(Math.asin(Math.sin(angularRadius) / cosLatitude));
+    }
+    double minLongitude = longitude - longitudeDelta;
+    double maxLongitude = longitude + longitudeDelta;
+    if (longitudeDelta >= 180.0) {
+      minLongitude = -180.0;
+      maxLongitude = 180.0;
+    }
+
+    int latitudeSteps = (int) Math.ceil((maxLatitude - minLatitude) / CELL_HEIGHT_IN_DEGREES);
+    int longitudeSteps = (int) Math.ceil((maxLongitude - minLongitude) / CELL_WIDTH_IN_DEGREES);
+
+    Set<String> cells = new LinkedHashSet<>();
+    for (int i = 0; i <= latitudeSteps; i++) {
+      double cellLatitude = Math.min(minLatitude + i * CELL_HEIGHT_IN_DEGREES, maxLatitude);
+      for (int j = 0; j <= longitudeSteps; j++) {
+        double cellLongitude = Math.min(minLongitude + j * CELL_WIDTH_IN_DEGREES, maxLongitude);
+        cells.add(cellOf(cellLatitude, normalizeLongitude(cellLongitude)));
+      }
+    }
+    return cells;
+  }
+
+  static String cellOf(double latitude, double longitude) {
+    return GeoHashUtils.geoHash(latitude, longitude, GEOHASH_PRECISION);
+  }
+
+  private static double normalizeLongitude(double longitude) {
+    if (longitude >= -180.0 && longitude <= 180.0) {
+      return longitude;
+    }
+    return ((longitude + 180.0) % 360.0 + 360.0) % 360.0 - 180.0;
+  }
+
+  private static boolean isIndexable(RestaurantEntity restaurantEntity) {
+    return restaurantEntity != null
+        && restaurantEntity.getRestaurantId() != null
+        && restaurantEntity.getLatitude() != null
+        && restaurantEntity.getLongitude() != null;
+  }
+
+  private static class Buckets {
+
+    private final Map<String, Map<String, IndexedRestaurant>> cells = new ConcurrentHashMap<>();
+    private final Map<String, IndexedRestaurant> byRestaurantId = new ConcurrentHashMap<>();
+    private final Map<String, String> restaurantIdByDocumentId = new ConcurrentHashMap<>();
+    // the catalogue order
+    private final NavigableMap<Long, IndexedRestaurant> bySequence = new ConcurrentSkipListMap<>();
+
+    private void put(IndexedRestaurant indexedRestaurant) {
+      RestaurantEntity restaurantEntity = indexedRestaurant.getRestaurantEntity();
+      cells.computeIfAbsent(indexedRestaurant.getCell(), cell -> new ConcurrentHashMap<>())
+          .put(restaurantEntity.getRestaurantId(), indexedRestaurant);
+      byRestaurantId.put(restaurantEntity.getRestaurantId(), indexedRestaurant);
+      bySequence.put(indexedRestaurant.getSequence(), indexedRestaurant);
+      if (restaurantEntity.getId() != null) {
+        restaurantIdByDocumentId.put(restaurantEntity.getId(), restaurantEntity.getRestaurantId());
+      }
+    }
+
+    private void remove(IndexedRestaurant indexedRestaurant) {
+      RestaurantEntity restaurantEntity = indexedRestaurant.getRestaurantEntity();
+      Map<String, IndexedRestaurant> bucket = cells.get(indexedRestaurant.getCell());
+      if (bucket != null) {
+        bucket.remove(restaurantEntity.getRestaurantId());
+        if (bucket.isEmpty()) {
+          cells.remove(indexedRestaurant.getCell());
+        }
+      }
+      byRestaurantId.remove(restaurantEntity.getRestaurantId());
+      bySequence.remove(indexedRestaurant.getSequence());
+      if (restaurantEntity.getId() != null) {
+        restaurantIdByDocumentId.remove(restaurantEntity.getId());
+      }
+    }
+  }
+}
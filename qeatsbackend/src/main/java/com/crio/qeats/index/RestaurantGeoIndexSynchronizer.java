@@ -0,0 +1,150 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps {@link RestaurantGeoIndex} in sync with the restaurants collection.
+ *   - Loads the whole collection once when the application starts (or on first use).
+ *   - Applies every restaurant saved or deleted through this application. The changes are
+ *     queued as they are made, last one per document, and applied in a single batch by the next
+ *     {@link #ensureLoaded()}, so a burst of saves publishes one snapshot instead of one each.
+ *   - Stamps {@code lastModified} on every restaurant saved through this application.
+ *   - Drops the cached nearby restaurants on every save, delete or reload.
+ * Changes made by other applications are picked up by {@link RestaurantCatalogueRefresher}.
+ */
+@Log4j2
+@Component
+public class RestaurantGeoIndexSynchronizer extends AbstractMongoEventListener<RestaurantEntity> {
+
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+
+  @Autowired
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+
+  // by document id, a document is either in one or the other
+  private final Map<String, RestaurantEntity> pendingSaves = new ConcurrentHashMap<>();
+  private final Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+
+  // held while queueing a change, or taking the queued changes
+  private final Object pendingLock = new Object();
+
+  // held while applying queued changes, so batches are applied in the order they were taken
+  private final Object applyLock = new Object();
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void bootstrap() {
+    try {
+      ensureLoaded();
+    } catch (DataAccessException e) {
+      // Not fatal, the index is loaded again on the first request.
+      log.warn("Unable to load the restaurant geo index at startup", e);
+    }
+  }
+
+  /**
+   * Loads the index from the database unless it is already loaded, then applies the changes
+   * made through this application since the last call.
+   */
+  public void ensureLoaded() {
+    if (!restaurantGeoIndex.isLoaded()) {
+      synchronized (this) {
+        if (!restaurantGeoIndex.isLoaded()) {
+          restaurantGeoIndex.rebuild(restaurantRepository.findAll());
+        }
+      }
+    }
+    if (!pendingSaves.isEmpty() || !pendingDeletes.isEmpty()) {
+      applyPendingChanges();
+    }
+  }
+
+  /**
+   * Reloads the whole index from the database, e.g. when changes may have been missed.
+   */
+  public void reload() {
+    synchronized (this) {
+      restaurantGeoIndex.rebuild(restaurantRepository.findAll());
+    }
+    nearbyRestaurantsCache.invalidate();
+  }
+
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<RestaurantEntity> event) {
+    event.getSource().setLastModified(new Date());
+  }
+
+  @Override
+  public void onAfterSave(AfterSaveEvent<RestaurantEntity> event) {
+    RestaurantEntity restaurantEntity = event.getSource();
+    if (restaurantEntity.getId() == null) {
+      restaurantGeoIndex.upsert(restaurantEntity);
+    } else {
+      synchronized (pendingLock) {
+        pendingDeletes.remove(restaurantEntity.getId());
+        pendingSaves.put(restaurantEntity.getId(), restaurantEntity);
+      }
+    }
+    nearbyRestaurantsCache.invalidate();
+  }
+
+  @Override
+  public void onAfterDelete(AfterDeleteEvent<RestaurantEntity> event) {
+    Document query = event.getSource();
+    Object documentId = query == null ? null : query.get("_id");
+    if (documentId == null || documentId instanceof Document) {
+      // Bulk delete, we can't tell which restaurants went away.
+      restaurantGeoIndex.invalidate();
+    } else {
+      synchronized (pendingLock) {
+        pendingSaves.remove(documentId.toString());
+        pendingDeletes.add(documentId.toString());
+      }
+    }
+    nearbyRestaurantsCache.invalidate();
+  }
+
+  private void applyPendingChanges() {
+    synchronized (applyLock) {
+      List<RestaurantEntity> savedRestaurants;
+      List<String> deletedDocumentIds;
+      synchronized (pendingLock) {
+        savedRestaurants = new ArrayList<>(pendingSaves.values());
+        deletedDocumentIds = new ArrayList<>(pendingDeletes);
+        pendingSaves.clear();
+        pendingDeletes.clear();
+      }
+      if (!savedRestaurants.isEmpty() || !deletedDocumentIds.isEmpty()) {
+        restaurantGeoIndex.applyChanges(savedRestaurants, deletedDocumentIds);
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of snapshot records holding one search token.
+ *   - Rare tokens, the bulk of menu words, are a sorted array of records.
+ *   - Common tokens, like "south" or "indian", are a bitset over all the records.
+ * Whichever is smaller is used, so a rare token never costs a bitset of the whole catalogue.
+ */
+class RestaurantPostings {
+
+  private final int[] records;
+  private final long[] words;
+  private final int cardinality;
+
+  private RestaurantPostings(int[] records, long[] words, int cardinality) {
+    this.records = records;
+    this.words = words;
+    this.cardinality = cardinality;
+  }
+
+  /**
+   * Builds the postings of the given records.
+   * @param sortedRecords distinct records, in increasing order
+   * @param size number of records
+   * @param catalogueSize number of records in the snapshot
+   */
+  static RestaurantPostings of(int[] sortedRecords, int size, int catalogueSize) {
+    int wordCount = (catalogueSize + 63) >>> 6;
+    // an int per record against a bit per catalogue record
+    if ((long) size * 32 < (long) wordCount * 64) {
+      return new RestaurantPostings(Arrays.copyOf(sortedRecords, size), null, size);
+    }
+    long[] words = new long[wordCount];
+    for (int i = 0; i < size; i++) {
+      words[sortedRecords[i] >>> 6] |= 1L << sortedRecords[i];
+    }
+    return new RestaurantPostings(null, words, size);
+  }
+
+  boolean contains(int record) {
+    if (words != null) {
+      return (words[record >>> 6] & (1L << record)) != 0;
+    }
+    return Arrays.binarySearch(records, record) >= 0;
+  }
+
+  int cardinality() {
+    return cardinality;
+  }
+}
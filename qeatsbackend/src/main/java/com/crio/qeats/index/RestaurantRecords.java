@@ -0,0 +1,94 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Display fields of the restaurants in a {@link RestaurantSnapshot}, in catalogue order.
+ * Cities, hours and attribute lists repeat a lot across restaurants, so each distinct value is
+ * stored only once.
+ */
+class RestaurantRecords {
+
+  private final String[] restaurantIds;
+  private final String[] names;
+  private final String[] cities;
+  private final String[] imageUrls;
+  private final String[] opensAt;
+  private final String[] closesAt;
+  private final List<List<String>> attributes;
+
+  RestaurantRecords(List<RestaurantEntity> restaurantEntities) {
+    int size = restaurantEntities.size();
+    restaurantIds = new String[size];
+    names = new String[size];
+    cities = new String[size];
+    imageUrls = new String[size];
+    opensAt = new String[size];
+    closesAt = new String[size];
+    attributes = new ArrayList<>(size);
+
+    Map<String, String> strings = new HashMap<>();
+    Map<List<String>, List<String>> attributeLists = new HashMap<>();
+    for (int record = 0; record < size; record++) {
+      RestaurantEntity restaurantEntity = restaurantEntities.get(record);
+      restaurantIds[record] = restaurantEntity.getRestaurantId();
+      names[record] = restaurantEntity.getName();
+      imageUrls[record] = restaurantEntity.getImageUrl();
+      cities[record] = shared(strings, restaurantEntity.getCity());
+      opensAt[record] = shared(strings, restaurantEntity.getOpensAt());
+      closesAt[record] = shared(strings, restaurantEntity.getClosesAt());
+      attributes.add(restaurantEntity.getAttributes() == null ? null
+          : attributeLists.computeIfAbsent(restaurantEntity.getAttributes(),
+              list -> Collections.unmodifiableList(new ArrayList<>(list))));
+    }
+  }
+
+  int size() {
+    return restaurantIds.length;
+  }
+
+  String getRestaurantId(int record) {
+    return restaurantIds[record];
+  }
+
+  String getName(int record) {
+    return names[record];
+  }
+
+  List<String> getAttributes(int record) {
+    return attributes.get(record);
+  }
+
+  /**
+   * Builds the dto of a record, the same as {@link com.crio.qeats.utils.RestaurantMapper} would.
+   */
+  Restaurant toRestaurant(int record, double latitude, double longitude) {
+    List<String> recordAttributes = attributes.get(record);
+    return new Restaurant(
+        restaurantIds[record],
+        names[record],
+        cities[record],
+        imageUrls[record],
+        opensAt[record],
+        closesAt[record],
+        latitude,
+        longitude,
+        recordAttributes == null ? null : new ArrayList<>(recordAttributes));
+  }
+
+  private static String shared(Map<String, String> strings, String value) {
+    return value == null ? null : strings.computeIfAbsent(value, v -> v);
+  }
+}
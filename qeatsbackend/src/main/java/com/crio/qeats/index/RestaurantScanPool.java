@@ -0,0 +1,82 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fork-join pool for scanning large parts of a {@link RestaurantSnapshot} in parallel.
+ *   - Off by default: a query only goes parallel when this is enabled and it has at least
+ *     {@code threshold} rows to look at.
+ *   - Uses its own pool, never the common pool, so scans don't compete with parallel streams
+ *     and a slow scan can't starve the rest of the application.
+ */
+@Log4j2
+@Component
+public class RestaurantScanPool {
+
+  @Value("${qeats.restaurants.parallel-scan.enabled:false}")
+  private boolean enabled;
+
+  @Value("${qeats.restaurants.parallel-scan.threshold:50000}")
+  private int threshold;
+
+  @Value("${qeats.restaurants.parallel-scan.pool-size:0}")
+  private int poolSize;
+
+  @Value("${qeats.restaurants.parallel-scan.min-rows-per-task:8192}")
+  private int minRowsPerTask;
+
+  private ForkJoinPool forkJoinPool;
+
+  /**
+   * Creates the pool, with one thread per core unless the pool size is set.
+   */
+  @PostConstruct
+  public void initPool() {
+    if (!enabled) {
+      return;
+    }
+    int parallelism = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+    forkJoinPool = new ForkJoinPool(parallelism, pool -> {
+      ForkJoinWorkerThread thread =
+          ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("restaurant-scan-" + thread.getPoolIndex());
+      return thread;
+    }, null, false);
+    log.info("Parallel restaurant scans enabled from {} rows on {} threads", threshold,
+        parallelism);
+  }
+
+  @PreDestroy
+  public void closePool() {
+    if (forkJoinPool != null) {
+      forkJoinPool.shutdownNow();
+    }
+  }
+
+  /**
+   * Checks if a scan of the given number of rows should be split across the pool.
+   */
+  public boolean shouldSplit(int rows) {
+    return forkJoinPool != null && rows >= threshold && rows >= 2 * minRowsPerTask;
+  }
+
+  public ForkJoinPool getForkJoinPool() {
+    return forkJoinPool;
+  }
+
+  public int getMinRowsPerTask() {
+    return minRowsPerTask;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.utils.SearchTokens;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches the restaurants of the {@link RestaurantGeoIndex} snapshot by name, attributes and
+ * menu items, see {@link RestaurantSearchTerms}.
+ *   - The terms are built for one snapshot, and built again on a background thread once the
+ *     geo index publishes a new snapshot or a menu changes, like the dictionaries of
+ *     {@link RestaurantSuggestionIndex}. Meanwhile searches keep using the previous terms and
+ *     snapshot, which are consistent with each other.
+ *   - Only the first search builds them, as there is nothing to search before. Without the
+ *     background rebuild, the searches which find the terms stale rebuild them: one of them
+ *     does while the others keep searching the previous terms.
+ *   - Menus come from the {@link MenuCatalogue}.
+ */
+@Log4j2
+@Component
+public class RestaurantSearchIndex {
+
+  // 0 disables the background rebuild
+  @Value("${qeats.search.refresh-interval-millis:1000}")
+  private long refreshIntervalMillis;
+
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired
+  private RestaurantGeoIndexSynchronizer restaurantGeoIndexSynchronizer;
+
+  @Autowired
+  private MenuCatalogue menuCatalogue;
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  private ScheduledExecutorService executor;
+
+  private volatile RestaurantSearchTerms terms;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (refreshIntervalMillis <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "restaurant-search-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Builds the terms again if the restaurants or the menus changed since the last build.
+   */
+  public void refresh() {
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    rebuildLock.lock();
+    try {
+      RestaurantSearchTerms current = terms;
+      if (current == null || isStale(current)) {
+        terms = build();
+      }
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Get the restaurants within the radius matching every word of the search query.
+   * @param latitude latitude of the user
+   * @param longitude longitude of the user
+   * @param radiusInKms serving radius
+   * @param secondOfDay only restaurants open at this time, or {@link RestaurantSnapshot#ANY_TIME}
+   * @param searchFor search query
+   * @param scanPool pool to scan big areas on, or null
+   * @return matching restaurants, best matches first, or empty list if there is none
+   */
+  public List<Restaurant> search(double latitude, double longitude, double radiusInKms,
+      int secondOfDay, String searchFor, RestaurantScanPool scanPool) {
+    List<String> tokens = SearchTokens.tokenize(searchFor);
+    if (tokens.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return currentTerms().search(latitude, longitude, radiusInKms, secondOfDay, tokens,
+        scanPool);
+  }
+
+  private RestaurantSearchTerms currentTerms() {
+    RestaurantSearchTerms current = terms;
+    if (current != null && (refreshIntervalMillis > 0 || !isStale(current))) {
+      return current;
+    }
+    if (current == null) {
+      rebuildLock.lock();
+    } else if (!rebuildLock.tryLock()) {
+      // someone is already rebuilding them
+      return current;
+    }
+    try {
+      current = terms;
+      if (current == null || isStale(current)) {
+        current = build();
+        terms = current;
+      }
+      return current;
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      // keep the previous terms, and try again on the next run
+      log.warn("Unable to build the restaurant search terms", e);
+    }
+  }
+
+  private boolean isStale(RestaurantSearchTerms current) {
+    return current.getSnapshot() != restaurantGeoIndex.snapshot()
+        || current.getMenusVersion() != menuCatalogue.getVersion();
+  }
+
+  private RestaurantSearchTerms build() {
+    Map<String, MenuTerms> menus = menuCatalogue.menus();
+    // read first, so a menu saved while building makes the terms stale
+    long menusVersion = menuCatalogue.getVersion();
+    RestaurantSnapshot snapshot = restaurantGeoIndex.snapshot();
+    long start = System.currentTimeMillis();
+    RestaurantSearchTerms built = new RestaurantSearchTerms(snapshot, menus, menusVersion);
+    log.debug("Search terms of {} restaurants built in {}ms", snapshot.size(),
+        System.currentTimeMillis() - start);
+    return built;
+  }
+}
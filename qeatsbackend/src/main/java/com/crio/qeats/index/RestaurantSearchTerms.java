@@ -0,0 +1,180 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.utils.SearchTokens;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Immutable inverted index over the records of one {@link RestaurantSnapshot}: for each field,
+ * the records holding each search token.
+ *   - A restaurant matches when every token of the query is in one of its fields.
+ *   - Matches are ranked by the first field holding the whole query: name, then attributes,
+ *     then item names, then item attributes; matches spread over several fields come last.
+ *     Within a rank they stay in catalogue order.
+ *   - Only the restaurants found by the geo query are looked up in the postings.
+ */
+class RestaurantSearchTerms {
+
+  static final int NAME = 0;
+  static final int ATTRIBUTES = 1;
+  static final int ITEM_NAMES = 2;
+  static final int ITEM_ATTRIBUTES = 3;
+  static final int FIELDS = 4;
+
+  @Getter
+  private final RestaurantSnapshot snapshot;
+
+  @Getter
+  private final long menusVersion;
+
+  // postings.get(field).get(token)
+  private final List<Map<String, RestaurantPostings>> postings;
+
+  /**
+   * Indexes the records of the snapshot, and the menus of their restaurants.
+   * @param menuTermsByRestaurantId tokens of the menus, by restaurantId
+   * @param menusVersion version of the menus which were indexed
+   */
+  RestaurantSearchTerms(RestaurantSnapshot snapshot,
+      Map<String, MenuTerms> menuTermsByRestaurantId, long menusVersion) {
+    this.snapshot = snapshot;
+    this.menusVersion = menusVersion;
+
+    List<Map<String, RecordList>> recordLists = new ArrayList<>(FIELDS);
+    for (int field = 0; field < FIELDS; field++) {
+      recordLists.add(new HashMap<>());
+    }
+    RestaurantRecords records = snapshot.getRecords();
+    for (int record = 0; record < records.size(); record++) {
+      add(recordLists.get(NAME), SearchTokens.tokenize(records.getName(record)), record);
+      add(recordLists.get(ATTRIBUTES), SearchTokens.tokenize(records.getAttributes(record)),
+          record);
+      MenuTerms menuTerms = menuTermsByRestaurantId.get(records.getRestaurantId(record));
+      if (menuTerms != null) {
+        add(recordLists.get(ITEM_NAMES), menuTerms.getItemNameTokens(), record);
+        add(recordLists.get(ITEM_ATTRIBUTES), menuTerms.getItemAttributeTokens(), record);
+      }
+    }
+
+    postings = new ArrayList<>(FIELDS);
+    for (Map<String, RecordList> fieldRecordLists : recordLists) {
+      Map<String, RestaurantPostings> fieldPostings = new HashMap<>(fieldRecordLists.size());
+      fieldRecordLists.forEach((token, recordList) -> fieldPostings.put(token,
+          RestaurantPostings.of(recordList.records, recordList.size, records.size())));
+      postings.add(fieldPostings);
+    }
+  }
+
+  /**
+   * Get the restaurants of the snapshot within the radius which match every token.
+   * @param tokens normalized query tokens, see {@link SearchTokens}
+   * @return matching restaurants, best matches first, or empty list if there is none
+   */
+  List<Restaurant> search(double latitude, double longitude, double radiusInKms,
+      int secondOfDay, List<String> tokens, RestaurantScanPool scanPool) {
+    if (tokens.isEmpty()) {
+      return new ArrayList<>();
+    }
+    // postings of each token in each field, null when no restaurant has it there
+    RestaurantPostings[][] tokenPostings = new RestaurantPostings[tokens.size()][FIELDS];
+    for (int i = 0; i < tokens.size(); i++) {
+      boolean anywhere = false;
+      for (int field = 0; field < FIELDS; field++) {
+        tokenPostings[i][field] = postings.get(field).get(tokens.get(i));
+        anywhere |= tokenPostings[i][field] != null;
+      }
+      if (!anywhere) {
+        // nothing can match, skip the geo query
+        return new ArrayList<>();
+      }
+    }
+
+    int[] nearby = snapshot.findRecords(latitude, longitude, radiusInKms, secondOfDay,
+        scanPool);
+    int[] ranks = new int[nearby.length];
+    int[] countOfRank = new int[FIELDS + 1];
+    for (int i = 0; i < nearby.length; i++) {
+      ranks[i] = rank(nearby[i], tokenPostings);
+      if (ranks[i] >= 0) {
+        countOfRank[ranks[i]]++;
+      }
+    }
+
+    // counting sort by rank, keeping catalogue order within a rank
+    int[] nextOfRank = new int[FIELDS + 1];
+    for (int rank = 1; rank <= FIELDS; rank++) {
+      nextOfRank[rank] = nextOfRank[rank - 1] + countOfRank[rank - 1];
+    }
+    int[] matchingRecords = new int[nextOfRank[FIELDS] + countOfRank[FIELDS]];
+    for (int i = 0; i < nearby.length; i++) {
+      if (ranks[i] >= 0) {
+        matchingRecords[nextOfRank[ranks[i]]++] = nearby[i];
+      }
+    }
+    return snapshot.toRestaurants(matchingRecords);
+  }
+
+  // First field holding every token, FIELDS if they are spread over fields, -1 if some token
+  // isn't there at all.
+  private static int rank(int record, RestaurantPostings[][] tokenPostings) {
+    for (int field = 0; field < FIELDS; field++) {
+      if (allTokensIn(record, tokenPostings, field)) {
+        return field;
+      }
+    }
+    for (RestaurantPostings[] postingsOfToken : tokenPostings) {
+      boolean found = false;
+      for (RestaurantPostings fieldPostings : postingsOfToken) {
+        if (fieldPostings != null && fieldPostings.contains(record)) {
+          found = true;
+          break;
+        }
+      }
+      if (!found) {
+        return -1;
+      }
+    }
+    return FIELDS;
+  }
+
+  private static boolean allTokensIn(int record, RestaurantPostings[][] tokenPostings,
+      int field) {
+    for (RestaurantPostings[] postingsOfToken : tokenPostings) {
+      if (postingsOfToken[field] == null || !postingsOfToken[field].contains(record)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void add(Map<String, RecordList> recordLists, List<String> tokens, int record) {
+    for (String token : tokens) {
+      recordLists.computeIfAbsent(token, t -> new RecordList()).add(record);
+    }
+  }
+
+  // Records are added in increasing order, at most once per token.
+  private static class RecordList {
+
+    private int[] records = new int[4];
+    private int size = 0;
+
+    private void add(int record) {
+      if (size == records.length) {
+        records = Arrays.copyOf(records, size * 2);
+      }
+      records[size++] = record;
+    }
+  }
+}
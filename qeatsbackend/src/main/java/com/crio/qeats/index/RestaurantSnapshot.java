@@ -0,0 +1,395 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RadiusFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Immutable, column oriented copy of the catalogue, for queries which look at many restaurants.
+ *
+ * <p>Location and opening hours live in parallel primitive arrays, one row per restaurant, so a
+ * scan reads a few contiguous arrays instead of chasing entities, boxed doubles and strings.
+ *   - Rows are grouped by geohash cell ({@link RestaurantGeoIndex#GEOHASH_PRECISION}), so a
+ *     radius query only scans the rows of the cells around the user.
+ *   - Each row points to its record in {@link RestaurantRecords}, which holds the display fields
+ *     in catalogue order. Only the matching rows are turned into dto.Restaurant objects.
+ *   - Results are always in catalogue order.
+ *   - Big queries can be split across a {@link RestaurantScanPool}.
+ * A snapshot never changes; {@link RestaurantGeoIndex} publishes a new one when the catalogue
+ * changes.
+ */
+public class RestaurantSnapshot {
+
+  /**
+   * Time to pass to the queries to get restaurants whether they are open or not.
+   */
+  public static final int ANY_TIME = -1;
+
+  private static final double CELL_HEIGHT_IN_KMS =
+      GeoHashUtils.cellHeightInDegrees(RestaurantGeoIndex.GEOHASH_PRECISION) * 111.195;
+
+  static final RestaurantSnapshot EMPTY = new RestaurantSnapshot(Collections.emptyList());
+
+  // columns, one row per restaurant, grouped by cell
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final int[] opensAtMinutes;
+  private final int[] closesAtMinutes;
+  private final int[] recordOfRow;
+
+  // rows of cells[i] are cellStarts[i] until cellStarts[i + 1], cells are sorted
+  private final String[] cells;
+  private final int[] cellStarts;
+
+  private final int[] rowOfRecord;
+  private final RestaurantRecords records;
+
+  /**
+   * Builds a snapshot of the given restaurants.
+   * @param restaurantEntities restaurants with a location, in catalogue order
+   */
+  RestaurantSnapshot(List<RestaurantEntity> restaurantEntities) {
+    this(restaurantEntities, cellsOf(restaurantEntities));
+  }
+
+  private RestaurantSnapshot(List<RestaurantEntity> restaurantEntities, String[] cellOfRecord) {
+    int size = restaurantEntities.size();
+    records = new RestaurantRecords(restaurantEntities);
+
+    // counting sort of the records by cell, records of a cell stay in catalogue order
+    cells = Arrays.stream(cellOfRecord).distinct().sorted().toArray(String[]::new);
+    Map<String, Integer> cellIndex = new HashMap<>();
+    for (int i = 0; i < cells.length; i++) {
+      cellIndex.put(cells[i], i);
+    }
+    cellStarts = new int[cells.length + 1];
+    for (String cell : cellOfRecord) {
+      cellStarts[cellIndex.get(cell) + 1]++;
+    }
+    for (int i = 0; i < cells.length; i++) {
+      cellStarts[i + 1] += cellStarts[i];
+    }
+
+    latitudes = new double[size];
+    longitudes = new double[size];
+    opensAtMinutes = new int[size];
+    closesAtMinutes = new int[size];
+    recordOfRow = new int[size];
+    rowOfRecord = new int[size];
+    int[] nextRowOfCell = Arrays.copyOf(cellStarts, cells.length);
+    for (int record = 0; record < size; record++) {
+      RestaurantEntity restaurantEntity = restaurantEntities.get(record);
+      int row = nextRowOfCell[cellIndex.get(cellOfRecord[record])]++;
+      latitudes[row] = restaurantEntity.getLatitude();
+      longitudes[row] = restaurantEntity.getLongitude();
+      opensAtMinutes[row] = OpeningHours.parseMinuteOfDay(restaurantEntity.getOpensAt());
+      closesAtMinutes[row] = OpeningHours.parseMinuteOfDay(restaurantEntity.getClosesAt());
+      recordOfRow[row] = record;
+      rowOfRecord[record] = row;
+    }
+  }
+
+  /**
+   * Builds a snapshot of the entries of the geo index, reusing the cells they are in.
+   * @param indexedRestaurants entries in catalogue order
+   */
+  static RestaurantSnapshot of(List<IndexedRestaurant> indexedRestaurants) {
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>(indexedRestaurants.size());
+    String[] cellOfRecord = new String[indexedRestaurants.size()];
+    for (int record = 0; record < cellOfRecord.length; record++) {
+      IndexedRestaurant indexedRestaurant = indexedRestaurants.get(record);
+      restaurantEntities.add(indexedRestaurant.getRestaurantEntity());
+      cellOfRecord[record] = indexedRestaurant.getCell();
+    }
+    return new RestaurantSnapshot(restaurantEntities, cellOfRecord);
+  }
+
+  public int size() {
+    return recordOfRow.length;
+  }
+
+  /**
+   * Get the restaurants within a radius of the given point, only looking at the cells around it.
+   * @param latitude latitude of the centre
+   * @param longitude longitude of the centre
+   * @param radiusInKms search radius
+   * @param secondOfDay only restaurants open at this time, or {@link #ANY_TIME}
+   * @return new list of the matching restaurants, in catalogue order
+   */
+  public List<Restaurant> findRestaurants(double latitude, double longitude, double radiusInKms,
+      int secondOfDay) {
+    return findRestaurants(latitude, longitude, radiusInKms, secondOfDay, null);
+  }
+
+  /**
+   * Same as {@link #findRestaurants(double, double, double, int)}, splitting the rows across
+   * the given pool when there are enough of them. The result doesn't depend on the split.
+   * @param scanPool pool to scan on, or null to scan on the calling thread
+   */
+  public List<Restaurant> findRestaurants(double latitude, double longitude, double radiusInKms,
+      int secondOfDay, RestaurantScanPool scanPool) {
+    return toRestaurants(findRecords(latitude, longitude, radiusInKms, secondOfDay, scanPool));
+  }
+
+  /**
+   * Same as {@link #findRestaurants(double, double, double, int, RestaurantScanPool)}, without
+   * building the dto objects.
+   * @return records of the matching restaurants, in increasing order
+   */
+  int[] findRecords(double latitude, double longitude, double radiusInKms, int secondOfDay,
+      RestaurantScanPool scanPool) {
+    // when the circle spans more cells than the catalogue has, a plain scan is cheaper than
+    // the lookups; the first check avoids listing the cells of a huge circle at all
+    double cellsAcross = 2 * radiusInKms / CELL_HEIGHT_IN_KMS + 1;
+    if (cellsAcross * cellsAcross >= cells.length) {
+      return scanRecords(latitude, longitude, radiusInKms, secondOfDay, scanPool);
+    }
+    Set<String> coveringCells =
+        RestaurantGeoIndex.coveringCells(latitude, longitude, radiusInKms);
+    if (coveringCells.size() >= cells.length) {
+      return scanRecords(latitude, longitude, radiusInKms, secondOfDay, scanPool);
+    }
+
+    RowRanges rowRanges = new RowRanges(coveringCells.size());
+    for (String cell : coveringCells) {
+      int i = Arrays.binarySearch(cells, cell);
+      if (i >= 0) {
+        rowRanges.add(cellStarts[i], cellStarts[i + 1]);
+      }
+    }
+    return filter(rowRanges, GeoUtils.withinRadius(latitude, longitude, radiusInKms),
+        secondOfDay, scanPool).sorted();
+  }
+
+  /**
+   * Same as {@link #findRestaurants} but looks at every row. Meant for very large radiuses.
+   */
+  public List<Restaurant> scan(double latitude, double longitude, double radiusInKms,
+      int secondOfDay) {
+    return scan(latitude, longitude, radiusInKms, secondOfDay, null);
+  }
+
+  /**
+   * Same as {@link #scan(double, double, double, int)}, on the given pool if there are enough
+   * rows.
+   * @param scanPool pool to scan on, or null to scan on the calling thread
+   */
+  public List<Restaurant> scan(double latitude, double longitude, double radiusInKms,
+      int secondOfDay, RestaurantScanPool scanPool) {
+    return toRestaurants(scanRecords(latitude, longitude, radiusInKms, secondOfDay, scanPool));
+  }
+
+  private int[] scanRecords(double latitude, double longitude, double radiusInKms,
+      int secondOfDay, RestaurantScanPool scanPool) {
+    RowRanges rowRanges = new RowRanges(1);
+    rowRanges.add(0, size());
+    return filter(rowRanges, GeoUtils.withinRadius(latitude, longitude, radiusInKms),
+        secondOfDay, scanPool).sorted();
+  }
+
+  private Matches filter(RowRanges rowRanges, RadiusFilter withinRadius, int secondOfDay,
+      RestaurantScanPool scanPool) {
+    if (scanPool != null && scanPool.shouldSplit(rowRanges.rows())) {
+      return scanPool.getForkJoinPool().invoke(new FilterTask(rowRanges, 0, rowRanges.rows(),
+          withinRadius, secondOfDay, scanPool.getMinRowsPerTask()));
+    }
+    Matches matches = new Matches();
+    filterRows(rowRanges, 0, rowRanges.rows(), withinRadius, secondOfDay, matches);
+    return matches;
+  }
+
+  // Filters positions [from, to) of the concatenated row ranges.
+  private void filterRows(RowRanges rowRanges, int from, int to, RadiusFilter withinRadius,
+      int secondOfDay, Matches matches) {
+    int range = rowRanges.rangeAt(from);
+    int position = from;
+    while (position < to) {
+      int rangeEnd = Math.min(to, rowRanges.offsets[range + 1]);
+      int firstRow = rowRanges.starts[range] - rowRanges.offsets[range];
+      filterRows(firstRow + position, firstRow + rangeEnd, withinRadius, secondOfDay, matches);
+      position = rangeEnd;
+      range++;
+    }
+  }
+
+  private void filterRows(int fromRow, int toRow, RadiusFilter withinRadius, int secondOfDay,
+      Matches matches) {
+    for (int row = fromRow; row < toRow; row++) {
+      if (withinRadius.contains(latitudes[row], longitudes[row])
+          && (secondOfDay == ANY_TIME
+              || OpeningHours.isOpen(opensAtMinutes[row], closesAtMinutes[row], secondOfDay))) {
+        matches.add(recordOfRow[row]);
+      }
+    }
+  }
+
+  private static String[] cellsOf(List<RestaurantEntity> restaurantEntities) {
+    String[] cellOfRecord = new String[restaurantEntities.size()];
+    for (int record = 0; record < cellOfRecord.length; record++) {
+      RestaurantEntity restaurantEntity = restaurantEntities.get(record);
+      cellOfRecord[record] = RestaurantGeoIndex.cellOf(restaurantEntity.getLatitude(),
+          restaurantEntity.getLongitude());
+    }
+    return cellOfRecord;
+  }
+
+  /**
+   * Builds the dto objects of the given records, in the same order.
+   */
+  List<Restaurant> toRestaurants(int[] matchingRecords) {
+    List<Restaurant> restaurants = new ArrayList<>(matchingRecords.length);
+    for (int record : matchingRecords) {
+      restaurants.add(toRestaurant(record));
+    }
+    return restaurants;
+  }
+
+  RestaurantRecords getRecords() {
+    return records;
+  }
+
+  /**
+   * Get the geohash cell of a record, see {@link RestaurantGeoIndex#cellOf}.
+   */
+  String getCell(int record) {
+    // cells are never empty, so the starts are strictly increasing
+    int i = Arrays.binarySearch(cellStarts, rowOfRecord[record]);
+    return cells[i >= 0 ? i : -i - 2];
+  }
+
+  private Restaurant toRestaurant(int record) {
+    int row = rowOfRecord[record];
+    return records.toRestaurant(record, latitudes[row], longitudes[row]);
+  }
+
+  // Splits positions of the row ranges in halves until they are small enough, left half first
+  // when merging.
+  private class FilterTask extends RecursiveTask<Matches> {
+
+    private final RowRanges rowRanges;
+    private final int from;
+    private final int to;
+    private final RadiusFilter withinRadius;
+    private final int secondOfDay;
+    private final int minRowsPerTask;
+
+    private FilterTask(RowRanges rowRanges, int from, int to, RadiusFilter withinRadius,
+        int secondOfDay, int minRowsPerTask) {
+      this.rowRanges = rowRanges;
+      this.from = from;
+      this.to = to;
+      this.withinRadius = withinRadius;
+      this.secondOfDay = secondOfDay;
+      this.minRowsPerTask = minRowsPerTask;
+    }
+
+    @Override
+    protected Matches compute() {
+      if (to - from < 2 * minRowsPerTask) {
+        Matches matches = new Matches();
+        filterRows(rowRanges, from, to, withinRadius, secondOfDay, matches);
+        return matches;
+      }
+      int middle = (from + to) >>> 1;
+      FilterTask left = new FilterTask(rowRanges, from, middle, withinRadius, secondOfDay,
+          minRowsPerTask);
+      left.fork();
+      Matches right = new FilterTask(rowRanges, middle, to, withinRadius, secondOfDay,
+          minRowsPerTask).compute();
+      Matches matches = left.join();
+      matches.addAll(right);
+      return matches;
+    }
+  }
+
+  // Non empty ranges of rows, seen as one sequence of positions:
+  // range i holds positions offsets[i] until offsets[i + 1].
+  private static class RowRanges {
+
+    private int[] starts;
+    private int[] offsets;
+    private int ranges = 0;
+
+    private RowRanges(int capacity) {
+      starts = new int[Math.max(capacity, 1)];
+      offsets = new int[Math.max(capacity, 1) + 1];
+    }
+
+    private void add(int fromRow, int toRow) {
+      if (toRow <= fromRow) {
+        return;
+      }
+      if (ranges == starts.length) {
+        starts = Arrays.copyOf(starts, ranges * 2);
+        offsets = Arrays.copyOf(offsets, ranges * 2 + 1);
+      }
+      starts[ranges] = fromRow;
+      offsets[ranges + 1] = offsets[ranges] + toRow - fromRow;
+      ranges++;
+    }
+
+    private int rows() {
+      return offsets[ranges];
+    }
+
+    // Range holding the given position.
+    private int rangeAt(int position) {
+      int low = 0;
+      int high = ranges - 1;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (offsets[middle] <= position) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return low;
+    }
+  }
+
+  // Growable int array of matching records.
+  private static class Matches {
+
+    private int[] records = new int[16];
+    private int size = 0;
+
+    private void add(int record) {
+      if (size == records.length) {
+        records = Arrays.copyOf(records, size * 2);
+      }
+      records[size++] = record;
+    }
+
+    private void addAll(Matches other) {
+      if (size + other.size > records.length) {
+        records = Arrays.copyOf(records, Math.max(size + other.size, size * 2));
+      }
+      System.arraycopy(other.records, 0, records, size, other.size);
+      size += other.size;
+    }
+
+    private int[] sorted() {
+      int[] sorted = Arrays.copyOf(records, size);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Suggestion;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Autocompletes restaurant and dish names around the user, see {@link RestaurantSuggestions}.
+ *   - The dictionaries are only ever built on a background thread, once the geo index publishes
+ *     a new snapshot or a menu changes, so a request is only a few binary searches.
+ *   - Until the first build, and while one is running, the previous dictionaries are used.
+ */
+@Log4j2
+@Component
+public class RestaurantSuggestionIndex {
+
+  // the suggestions come from the geohash cells covering this radius around the user
+  private static final double REGION_RADIUS_IN_KMS = 5.0;
+
+  @Value("${qeats.suggest.refresh-interval-millis:1000}")
+  private long refreshIntervalMillis;
+
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired
+  private RestaurantGeoIndexSynchronizer restaurantGeoIndexSynchronizer;
+
+  @Autowired
+  private MenuCatalogue menuCatalogue;
+
+  private ScheduledExecutorService executor;
+
+  private volatile RestaurantSuggestions suggestions = RestaurantSuggestions.EMPTY;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (refreshIntervalMillis <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "restaurant-suggestion-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Builds the dictionaries again if the restaurants or the menus changed since the last build.
+   */
+  public synchronized void refresh() {
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    Map<String, MenuTerms> menus = menuCatalogue.menus();
+    // read first, so a menu saved while building makes the dictionaries stale
+    long menusVersion = menuCatalogue.getVersion();
+    RestaurantSnapshot snapshot = restaurantGeoIndex.snapshot();
+    RestaurantSuggestions current = suggestions;
+    if (current.getSnapshot() == snapshot && current.getMenusVersion() == menusVersion) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    RestaurantSuggestions built = new RestaurantSuggestions(snapshot, menus, menusVersion);
+    suggestions = built;
+    log.debug("Suggestions of {} restaurants in {} cells built in {}ms", snapshot.size(),
+        built.regionCount(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Get the restaurant and dish names near the user which have a word starting with the prefix.
+   * @param latitude latitude of the user
+   * @param longitude longitude of the user
+   * @param prefix what the user typed so far
+   * @param limit maximum number of suggestions
+   * @return names found in most restaurants first, or empty list if there is none
+   */
+  public List<Suggestion> suggest(double latitude, double longitude, String prefix, int limit) {
+    return suggestions.suggest(latitude, longitude, REGION_RADIUS_IN_KMS, prefix, limit);
+  }
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      // keep the previous dictionaries, and try again on the next run
+      log.warn("Unable to build the restaurant suggestions", e);
+    }
+  }
+}
@@ -0,0 +1,361 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Suggestion;
+import com.crio.qeats.utils.SearchTokens;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import lombok.Getter;
+
+/**
+ * Immutable prefix dictionaries of the restaurant and dish names of one
+ * {@link RestaurantSnapshot}, one dictionary per geohash cell.
+ *   - A name is found from the start of any of its words: "bir" finds "Chicken Biryani".
+ *   - The keys of a cell are sorted, so the keys starting with a prefix are one contiguous
+ *     range found by binary search: the same walk as down a trie, without the nodes.
+ *   - A name weighs as many restaurants of the cell as have it; suggestions are the heaviest
+ *     names of the cells around the user.
+ *   - Short prefixes match thousands of keys, so the heaviest names of every prefix matching
+ *     more than {@link #SCAN_LIMIT} keys of a cell are kept with the cell, like the top names
+ *     kept at the nodes of a completion trie. A name which is not among the heaviest of any
+ *     cell may then be missing from the suggestions, even if it has the highest total; the
+ *     totals of the names found are exact.
+ *   - Names and keys are stored once and shared by all the cells which have them.
+ */
+class RestaurantSuggestions {
+
+  static final RestaurantSuggestions EMPTY =
+      new RestaurantSuggestions(RestaurantSnapshot.EMPTY, Collections.emptyMap(), -1);
+
+  // most suggestions a query may ask for
+  static final int MAX_LIMIT = 20;
+
+  // most keys of a cell read by a query
+  static final int SCAN_LIMIT = 64;
+
+  @Getter
+  private final RestaurantSnapshot snapshot;
+
+  @Getter
+  private final long menusVersion;
+
+  private final String[] names;
+  private final Suggestion.Type[] types;
+  private final Map<String, Region> regions;
+
+  /**
+   * Builds the dictionaries of the restaurants of the snapshot and of their menus.
+   * @param menuTermsByRestaurantId menus, by restaurantId
+   * @param menusVersion version of the menus which were used
+   */
+  RestaurantSuggestions(RestaurantSnapshot snapshot, Map<String, MenuTerms> menuTermsByRestaurantId,
+      long menusVersion) {
+    this.snapshot = snapshot;
+    this.menusVersion = menusVersion;
+
+    Builder builder = new Builder();
+    RestaurantRecords records = snapshot.getRecords();
+    for (int record = 0; record < records.size(); record++) {
+      Map<Integer, Integer> weights = builder.weightsOfCell(snapshot.getCell(record));
+      builder.add(weights, Suggestion.Type.RESTAURANT, records.getName(record));
+      MenuTerms menuTerms = menuTermsByRestaurantId.get(records.getRestaurantId(record));
+      if (menuTerms != null) {
+        for (String itemName : menuTerms.getItemNames()) {
+          builder.add(weights, Suggestion.Type.DISH, itemName);
+        }
+      }
+    }
+
+    names = builder.names.toArray(new String[0]);
+    types = builder.types.toArray(new Suggestion.Type[0]);
+    regions = new HashMap<>(builder.weightsByCell.size());
+    builder.weightsByCell.forEach((cell, weights) ->
+        regions.put(cell, new Region(weights, builder.keysOfName, names)));
+  }
+
+  int regionCount() {
+    return regions.size();
+  }
+
+  /**
+   * Get the names starting with the prefix in the cells within the radius of the user.
+   * @param prefix what the user typed so far
+   * @param limit maximum number of suggestions, at most {@link #MAX_LIMIT}
+   * @return heaviest matching names first, or empty list if there is none
+   */
+  List<Suggestion> suggest(double latitude, double longitude, double radiusInKms, String prefix,
+      int limit) {
+    String key = String.join(" ", SearchTokens.tokenize(prefix));
+    if (key.isEmpty() || regions.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<Region> nearby = new ArrayList<>();
+    for (String cell : RestaurantGeoIndex.coveringCells(latitude, longitude, radiusInKms)) {
+      Region region = regions.get(cell);
+      if (region != null) {
+        nearby.add(region);
+      }
+    }
+    int[][] namesOfRegion = new int[nearby.size()][];
+    int count = 0;
+    for (int i = 0; i < nearby.size(); i++) {
+      namesOfRegion[i] = nearby.get(i).namesStartingWith(key);
+      count += namesOfRegion[i].length;
+    }
+    int[] matches = new int[count];
+    count = 0;
+    for (int[] regionNames : namesOfRegion) {
+      System.arraycopy(regionNames, 0, matches, count, regionNames.length);
+      count += regionNames.length;
+    }
+    int distinct = sortDistinct(matches);
+
+    // a name among the heaviest of one cell only may also be in the others
+    int[] weights = new int[distinct];
+    for (int i = 0; i < distinct; i++) {
+      for (Region region : nearby) {
+        weights[i] += region.weightOf(matches[i]);
+      }
+    }
+    List<Suggestion> suggestions = new ArrayList<>();
+    for (int name : heaviest(matches, weights, distinct, Math.min(limit, MAX_LIMIT), names)) {
+      suggestions.add(new Suggestion(names[name], types[name]));
+    }
+    return suggestions;
+  }
+
+  // Sorts the names, and moves each one once to the start: returns how many there are.
+  private static int sortDistinct(int[] names) {
+    Arrays.sort(names);
+    int distinct = 0;
+    for (int i = 0; i < names.length; i++) {
+      if (i == 0 || names[i] != names[i - 1]) {
+        names[distinct++] = names[i];
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * Get the heaviest of distinct names, heaviest first, then alphabetically.
+   * @param weights weight of each name
+   * @param count number of names
+   * @param texts texts of all the names
+   */
+  private static int[] heaviest(int[] names, int[] weights, int count, int limit,
+      String[] texts) {
+    int size = Math.min(limit, count);
+    if (size == 0) {
+      return new int[0];
+    }
+    // lightest weights in the high bits, so that the heaviest sort first
+    long[] order = new long[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = (long) (Integer.MAX_VALUE - weights[i]) << 32 | i;
+    }
+    Arrays.sort(order);
+
+    // names as heavy as the last one taken compete alphabetically for the last places,
+    // keep the first ones, the last of them on top
+    int lightest = weights[(int) order[size - 1]];
+    Comparator<Integer> byText =
+        Comparator.comparing(i -> texts[names[i]], String.CASE_INSENSITIVE_ORDER);
+    PriorityQueue<Integer> ties = new PriorityQueue<>(byText.reversed());
+    int heavier = 0;
+    for (int i = 0; i < count && weights[(int) order[i]] >= lightest; i++) {
+      if (weights[(int) order[i]] > lightest) {
+        heavier++;
+        continue;
+      }
+      ties.add((int) order[i]);
+      if (ties.size() > size - heavier) {
+        ties.poll();
+      }
+    }
+
+    int[] heaviest = new int[size];
+    for (int i = 0; i < heavier; i++) {
+      heaviest[i] = names[(int) order[i]];
+    }
+    for (int i = size - 1; i >= heavier; i--) {
+      heaviest[i] = names[ties.poll()];
+    }
+    return heaviest;
+  }
+
+  // Dictionary of one cell: sorted keys, the name each key stands for, the weight of each name
+  // in the cell, and the heaviest names of the prefixes matching too many keys to read them.
+  private static class Region {
+
+    private final String[] keys;
+    private final int[] nameOfKey;
+    // weights of the names of the cell, by name in increasing order
+    private final int[] sortedNames;
+    private final int[] weights;
+    private final Map<String, int[]> heaviestNamesOfPrefix = new HashMap<>();
+
+    private Region(Map<Integer, Integer> weightOfName, List<String[]> keysOfName, String[] names) {
+      int size = 0;
+      for (int name : weightOfName.keySet()) {
+        size += keysOfName.get(name).length;
+      }
+      Integer[] order = new Integer[size];
+      String[] unsortedKeys = new String[size];
+      int[] unsortedNames = new int[size];
+      int i = 0;
+      for (int name : weightOfName.keySet()) {
+        for (String key : keysOfName.get(name)) {
+          order[i] = i;
+          unsortedKeys[i] = key;
+          unsortedNames[i] = name;
+          i++;
+        }
+      }
+      Arrays.sort(order, Comparator.comparing(k -> unsortedKeys[k]));
+
+      keys = new String[size];
+      nameOfKey = new int[size];
+      for (i = 0; i < size; i++) {
+        keys[i] = unsortedKeys[order[i]];
+        nameOfKey[i] = unsortedNames[order[i]];
+      }
+      sortedNames = weightOfName.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+      weights = new int[sortedNames.length];
+      for (i = 0; i < sortedNames.length; i++) {
+        weights[i] = weightOfName.get(sortedNames[i]);
+      }
+      addHeaviestNames(0, size, 0, names);
+    }
+
+    // Names with a key starting with the prefix, or the heaviest of them.
+    private int[] namesStartingWith(String prefix) {
+      int[] heaviestNames = heaviestNamesOfPrefix.get(prefix);
+      if (heaviestNames != null) {
+        return heaviestNames;
+      }
+      int low = lowerBound(prefix);
+      int high = low;
+      while (high < keys.length && keys[high].startsWith(prefix)) {
+        high++;
+      }
+      return Arrays.copyOfRange(nameOfKey, low, high);
+    }
+
+    private int weightOf(int name) {
+      int i = Arrays.binarySearch(sortedNames, name);
+      return i >= 0 ? weights[i] : 0;
+    }
+
+    private int lowerBound(String prefix) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (keys[middle].compareTo(prefix) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    // Keys from low to high share their first length characters. Keeps the heaviest names of
+    // that prefix if there are too many keys to read, and does the same for longer prefixes.
+    private void addHeaviestNames(int low, int high, int length, String[] names) {
+      if (high - low <= SCAN_LIMIT) {
+        return;
+      }
+      if (length > 0) {
+        int[] matches = Arrays.copyOfRange(nameOfKey, low, high);
+        int distinct = sortDistinct(matches);
+        int[] matchWeights = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+          matchWeights[i] = weightOf(matches[i]);
+        }
+        heaviestNamesOfPrefix.put(keys[low].substring(0, length),
+            heaviest(matches, matchWeights, distinct, MAX_LIMIT, names));
+      }
+      int start = low;
+      // keys of exactly length characters sort first
+      while (start < high && keys[start].length() == length) {
+        start++;
+      }
+      while (start < high) {
+        char next = keys[start].charAt(length);
+        int end = start + 1;
+        while (end < high && keys[end].charAt(length) == next) {
+          end++;
+        }
+        addHeaviestNames(start, end, length + 1, names);
+        start = end;
+      }
+    }
+  }
+
+  private static class Builder {
+
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Suggestion.Type> types = new ArrayList<>();
+    private final List<String[]> keysOfName = new ArrayList<>();
+    private final Map<String, String> sharedKeys = new HashMap<>();
+    private final Map<String, Map<Integer, Integer>> weightsByCell = new HashMap<>();
+    // the same names come back on many menus, only normalize them once
+    private final Map<String, Integer> nameIdOfText = new HashMap<>();
+
+    private Map<Integer, Integer> weightsOfCell(String cell) {
+      return weightsByCell.computeIfAbsent(cell, c -> new HashMap<>());
+    }
+
+    private void add(Map<Integer, Integer> weights, Suggestion.Type type, String text) {
+      if (text == null) {
+        return;
+      }
+      Integer nameId = nameIdOfText.get(type.ordinal() + text);
+      if (nameId == null) {
+        nameId = nameId(type, text);
+        nameIdOfText.put(type.ordinal() + text, nameId);
+      }
+      if (nameId >= 0) {
+        weights.merge(nameId, 1, Integer::sum);
+      }
+    }
+
+    // -1 if the text has no words
+    private int nameId(Suggestion.Type type, String text) {
+      List<String> tokens = SearchTokens.tokenize(text);
+      if (tokens.isEmpty()) {
+        return -1;
+      }
+      String normalized = type.ordinal() + String.join(" ", tokens);
+      Integer nameId = nameIds.get(normalized);
+      if (nameId == null) {
+        nameId = names.size();
+        nameIds.put(normalized, nameId);
+        names.add(text.trim());
+        types.add(type);
+        // one key from the start of each word
+        String[] keys = new String[tokens.size()];
+        for (int i = 0; i < keys.length; i++) {
+          String key = String.join(" ", tokens.subList(i, tokens.size()));
+          keys[i] = sharedKeys.computeIfAbsent(key, k -> k);
+        }
+        keysOfName.add(keys);
+      }
+      return nameId;
+    }
+  }
+}
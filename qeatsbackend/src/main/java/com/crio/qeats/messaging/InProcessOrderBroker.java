@@ -0,0 +1,140 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import com.crio.qeats.dto.Order;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Orders queued in memory, and written to the db by a single consumer thread.
+ *   - The queue holds queue-capacity orders; publishing to a full queue is rejected, so a db
+ *     which can't keep up pushes back on POST /order instead of filling the heap.
+ *   - The consumer takes every order waiting, up to batch-size, and writes them in one bulk: the
+ *     more orders come, the larger the batches. A batch which failed is written again, every
+ *     retry-millis, until it succeeds.
+ *   - Orders queued but not written yet are lost if the application dies. When it stops, they
+ *     are written first: a failing batch is still retried, for up to stop-timeout-millis, and
+ *     the ids of the orders dropped after that are logged.
+ * The number of orders waiting is published as "qeats.orders.queued".
+ */
+@Log4j2
+@Component
+@Profile("!rabbitmq & !journal")
+public class InProcessOrderBroker implements OrderBroker {
+
+  @Autowired
+  private OrderBatchWriter orderBatchWriter;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.orders.queue-capacity:10000}")
+  private int queueCapacity;
+
+  @Value("${qeats.orders.batch-size:500}")
+  private int batchSize;
+
+  @Value("${qeats.orders.retry-millis:1000}")
+  private long retryMillis;
+
+  @Value("${qeats.orders.stop-timeout-millis:30000}")
+  private long stopTimeoutMillis;
+
+  private BlockingQueue<Order> queue;
+
+  private Thread consumer;
+
+  private volatile boolean running;
+
+  @PostConstruct
+  public void start() {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    Gauge.builder("qeats.orders.queued", queue, BlockingQueue::size)
+        .description("Orders waiting to be written to the db")
+        .register(meterRegistry);
+
+    running = true;
+    consumer = new Thread(this::consume, "order-consumer");
+    consumer.setDaemon(true);
+    consumer.start();
+  }
+
+  /**
+   * Stops taking orders, and waits up to stop-timeout-millis for the consumer to write the ones
+   * queued. The consumer is interrupted after that, and logs the orders it drops.
+   */
+  @PreDestroy
+  public void stop() {
+    running = false;
+    try {
+      consumer.join(stopTimeoutMillis);
+      if (consumer.isAlive()) {
+        consumer.interrupt();
+        consumer.join(TimeUnit.SECONDS.toMillis(1));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (consumer.isAlive()) {
+      log.error("Stopped with the order consumer still writing a batch");
+    }
+  }
+
+  @Override
+  public void publish(Order order) {
+    if (!running) {
+      throw new RejectedExecutionException("Order queue is stopped");
+    }
+    if (!queue.offer(order)) {
+      throw new RejectedExecutionException("Order queue is full, " + queueCapacity + " orders");
+    }
+  }
+
+  private void consume() {
+    List<Order> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Order order = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (order == null) {
+          continue;
+        }
+        batch.add(order);
+        queue.drainTo(batch, batchSize - 1);
+        // also when stopped, until stop interrupts the sleep
+        while (!orderBatchWriter.write(batch)) {
+          Thread.sleep(retryMillis);
+        }
+        batch.clear();
+      } catch (InterruptedException e) {
+        // the batch not written, and the orders queued behind it
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+          log.error("Dropped {} orders on stop: {}", batch.size(),
+              batch.stream().map(Order::getId).collect(Collectors.toList()));
+        }
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+}
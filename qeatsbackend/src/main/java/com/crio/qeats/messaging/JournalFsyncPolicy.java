@@ -0,0 +1,24 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+// When the orders appended to the OrderJournal are forced out to the disk.
+// Set with qeats.orders.journal.fsync in application-journal.properties.
+public enum JournalFsyncPolicy {
+
+  // Before POST /order returns. Orders coming at once share the forces.
+  ALWAYS,
+
+  // Every qeats.orders.journal.fsync-interval-millis, in the background. Orders acknowledged
+  // within that time may be lost if the machine crashes; a crash of the application alone loses
+  // nothing, the pages are in the page cache already.
+  INTERVAL,
+
+  // Whenever the operating system writes the pages out.
+  NEVER
+
+}
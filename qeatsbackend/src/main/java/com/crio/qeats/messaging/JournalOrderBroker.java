@@ -0,0 +1,202 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import com.crio.qeats.dto.Order;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Orders appended to an {@link OrderJournal} on the local disk, and replayed into the db by a
+ * background thread, for the "journal" profile.
+ *   - publish returns once the order is appended, and forced to the disk with fsync ALWAYS: the
+ *     latency of POST /order is the one of the disk, whatever the db is doing.
+ *   - The replayer reads up to batch-size orders from its checkpoint, writes them in one bulk,
+ *     then moves the checkpoint past them and deletes the segments replayed. A failed bulk is
+ *     written again every retry-millis, while the journal keeps taking orders.
+ *   - After a crash the replayer starts from the checkpoint: orders written but not checkpointed
+ *     are written again, by id, so never twice.
+ *   - The journal holds max-segments segments at most: once the db is that far behind, orders
+ *     are rejected.
+ * Appends are timed as "qeats.orders.journal.append", and the segments kept are published as
+ * "qeats.orders.journal.segments".
+ */
+@Log4j2
+@Component
+@Profile("journal")
+public class JournalOrderBroker implements OrderBroker {
+
+  @Autowired
+  private OrderBatchWriter orderBatchWriter;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.orders.journal.directory:orders-journal}")
+  private String directory;
+
+  @Value("${qeats.orders.journal.segment-size-bytes:67108864}")
+  private int segmentSizeBytes;
+
+  @Value("${qeats.orders.journal.max-segments:64}")
+  private int maxSegments;
+
+  @Value("${qeats.orders.journal.fsync:ALWAYS}")
+  private JournalFsyncPolicy fsync;
+
+  @Value("${qeats.orders.journal.fsync-interval-millis:10}")
+  private long fsyncIntervalMillis;
+
+  // between reads of a journal with nothing new
+  @Value("${qeats.orders.journal.replay-interval-millis:10}")
+  private long replayIntervalMillis;
+
+  @Value("${qeats.orders.batch-size:500}")
+  private int batchSize;
+
+  @Value("${qeats.orders.retry-millis:1000}")
+  private long retryMillis;
+
+  private OrderJournal journal;
+
+  private ScheduledExecutorService syncer;
+
+  private Thread replayer;
+
+  private Timer appends;
+
+  private volatile boolean running;
+
+  @PostConstruct
+  public void start() throws IOException {
+    journal = new OrderJournal(Paths.get(directory), segmentSizeBytes, maxSegments);
+    journal.open();
+    appends = Timer.builder("qeats.orders.journal.append")
+        .description("Appends of orders to the journal, forced to the disk if fsync is ALWAYS")
+        .register(meterRegistry);
+    Gauge.builder("qeats.orders.journal.segments", journal, OrderJournal::getSegmentCount)
+        .description("Segments of the order journal not replayed into the db yet")
+        .register(meterRegistry);
+
+    running = true;
+    if (fsync == JournalFsyncPolicy.INTERVAL) {
+      syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-journal-syncer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      syncer.scheduleWithFixedDelay(() -> journal.sync(journal.getWrittenPosition()),
+          fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    replayer = new Thread(this::replay, "order-journal-replayer");
+    replayer.setDaemon(true);
+    replayer.start();
+  }
+
+  /**
+   * Stops replaying and closes the journal, forcing it to the disk. The orders not replayed yet
+   * are replayed on the next start.
+   */
+  @PreDestroy
+  public void stop() {
+    running = false;
+    try {
+      replayer.join(TimeUnit.SECONDS.toMillis(30));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (syncer != null) {
+      syncer.shutdown();
+    }
+    journal.close();
+  }
+
+  @Override
+  public void publish(Order order) {
+    byte[] record = OrderRecords.encode(order);
+    long start = System.nanoTime();
+    try {
+      long position = journal.append(record);
+      if (fsync == JournalFsyncPolicy.ALWAYS) {
+        journal.sync(position);
+      }
+    } catch (IllegalStateException | UncheckedIOException e) {
+      throw new RejectedExecutionException("Order " + order.getId() + " was not journaled", e);
+    }
+    appends.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private void replay() {
+    long checkpoint;
+    try {
+      checkpoint = journal.readCheckpoint();
+    } catch (IOException e) {
+      // the orders are all in the journal still, and the db writes are idempotent
+      log.error("Unable to read the order journal checkpoint, replaying the whole journal", e);
+      checkpoint = 0;
+    }
+
+    List<Order> batch = new ArrayList<>(batchSize);
+    while (running) {
+      batch.clear();
+      // with ALWAYS, only what publish acknowledged: nothing a crash could take back
+      long upTo = fsync == JournalFsyncPolicy.ALWAYS
+          ? journal.getSyncedPosition() : journal.getWrittenPosition();
+      long next = journal.read(checkpoint, batchSize, upTo, record -> {
+        try {
+          batch.add(OrderRecords.decode(record));
+        } catch (IllegalArgumentException e) {
+          log.error("Skipped an unreadable order record", e);
+        }
+      });
+
+      try {
+        if (batch.isEmpty()) {
+          if (next != checkpoint) {
+            checkpoint = checkpoint(next);
+          }
+          Thread.sleep(replayIntervalMillis);
+        } else if (orderBatchWriter.write(batch)) {
+          checkpoint = checkpoint(next);
+        } else {
+          Thread.sleep(retryMillis);
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private long checkpoint(long position) {
+    try {
+      journal.writeCheckpoint(position);
+      journal.deleteBefore(position);
+    } catch (IOException e) {
+      // replayed again after a restart, which is harmless
+      log.warn("Unable to write the order journal checkpoint", e);
+    }
+    return position;
+  }
+
+}
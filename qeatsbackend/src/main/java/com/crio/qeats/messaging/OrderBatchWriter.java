@@ -0,0 +1,65 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.repositoryservices.OrderRepositoryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the batches of orders taken off the queue by the consumers of the brokers.
+ * The batches are timed as "qeats.orders.write", and the orders written counted as
+ * "qeats.orders.written".
+ */
+@Log4j2
+@Component
+public class OrderBatchWriter {
+
+  @Autowired
+  private OrderRepositoryService orderRepositoryService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Timer writes;
+
+  private Counter written;
+
+  @PostConstruct
+  public void initWriter() {
+    writes = Timer.builder("qeats.orders.write")
+        .description("Bulk writes of orders to the db")
+        .register(meterRegistry);
+    written = Counter.builder("qeats.orders.written")
+        .description("Orders written to the db")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Write a batch of orders to the db.
+   * @param orders orders to write
+   * @return true if they were all written, false if the batch has to be written again
+   */
+  public boolean write(List<Order> orders) {
+    try {
+      writes.record(() -> orderRepositoryService.saveOrders(orders));
+    } catch (RuntimeException e) {
+      log.warn("Unable to write a batch of {} orders", orders.size(), e);
+      return false;
+    }
+    written.increment(orders.size());
+    return true;
+  }
+
+}
@@ -0,0 +1,30 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import com.crio.qeats.dto.Order;
+
+/**
+ * Queue between POST /order and the db: orders are published by the requests, and written to
+ * the db in batches by a consumer in the background.
+ *   - {@link InProcessOrderBroker}, the default, queues them in memory.
+ *   - {@link RabbitOrderBroker} publishes them to RabbitMQ, with the "rabbitmq" profile.
+ *   - {@link JournalOrderBroker} appends them to a journal on the local disk, with the
+ *     "journal" profile.
+ */
+public interface OrderBroker {
+
+  /**
+   * Queue an order to be written to the db.
+   * - Returns once the broker took the order, without waiting for the db.
+   * @param order order to write, with its id
+   * @throws java.util.concurrent.RejectedExecutionException if the broker can't take the order
+   *     now, e.g. when its queue is full or it is unreachable
+   */
+  void publish(Order order);
+
+}
@@ -0,0 +1,446 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Append-only journal of records, in memory-mapped segment files of one directory.
+ *   - A segment is a file of segmentSize bytes, named after its index, mapped whole and zero
+ *     filled when created. Records follow each other in it: int length, int CRC32 of the data,
+ *     then the data. A length of 0 ends the segment; a record which doesn't fit in the rest of
+ *     the segment starts the next one.
+ *   - Positions are the index of the segment in the high 32 bits and the offset in the low 32
+ *     bits, so they compare like the records they point at.
+ *   - Appends are serialized, and only copy the record to the mapped memory: it is in the page
+ *     cache from there, safe from a crash of the process but not of the machine until synced.
+ *     sync forces the pages out; one force covers all the appends made before it, so appenders
+ *     waiting for it share it.
+ *   - On open, the valid records of the last segment are found by their CRCs: a record torn by a
+ *     crash, and whatever follows it, is zeroed and appended over.
+ *   - Records are read, the checkpoint kept and old segments deleted by a single reader thread.
+ */
+@Log4j2
+public class OrderJournal implements Closeable {
+
+  static final int HEADER_BYTES = 8;
+
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private static final String CHECKPOINT = "checkpoint";
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private final int maxSegments;
+
+  private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+  private final ReentrantLock appendLock = new ReentrantLock();
+
+  private final Object syncLock = new Object();
+
+  // written under appendLock, read by deleteBefore
+  private volatile Segment current;
+
+  // guarded by appendLock
+  private int currentOffset;
+
+  private boolean closed;
+
+  private volatile long writtenPosition;
+
+  private volatile long syncedPosition;
+
+  /**
+   * A journal in a directory, created if need be; see open.
+   * @param directory directory of the segment files and the checkpoint
+   * @param segmentSize size of the new segments, in bytes
+   * @param maxSegments appends are rejected while there are that many segments
+   */
+  public OrderJournal(Path directory, int segmentSize, int maxSegments) {
+    if (segmentSize < 1024) {
+      throw new IllegalArgumentException("Segments of at least 1KB, not " + segmentSize);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxSegments = Math.max(maxSegments, 2);
+  }
+
+  /**
+   * Maps the segments of the directory, and finds where the last one ends.
+   * @throws IOException if the directory or a segment can't be read or created
+   */
+  public void open() throws IOException {
+    Files.createDirectories(directory);
+    List<Long> indexes = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        indexes.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+      }
+    }
+    indexes.sort(null);
+    for (long index : indexes) {
+      Segment segment = Segment.map(segmentPath(index), index, -1);
+      segments.put(index, segment);
+    }
+
+    if (segments.isEmpty()) {
+      current = createSegment(1);
+      currentOffset = 0;
+    } else {
+      current = segments.lastEntry().getValue();
+      currentOffset = validEnd(current);
+      zero(current, currentOffset);
+    }
+    writtenPosition = position(current.index, currentOffset);
+    syncedPosition = writtenPosition;
+    log.info("Opened order journal {} with {} segments, at segment {} offset {}", directory,
+        segments.size(), current.index, currentOffset);
+  }
+
+  /**
+   * Append a record.
+   * @param data the record, not empty
+   * @return position right after the record
+   * @throws RejectedExecutionException if the journal has maxSegments segments, all full
+   * @throws IllegalStateException if the journal is closed
+   * @throws UncheckedIOException if a new segment can't be created
+   */
+  public long append(byte[] data) {
+    int recordSize = HEADER_BYTES + data.length;
+    if (data.length == 0 || recordSize > segmentSize) {
+      throw new IllegalArgumentException("Records of 1 to " + (segmentSize - HEADER_BYTES)
+          + " bytes, not " + data.length);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(data);
+
+    appendLock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Order journal is closed");
+      }
+      if (currentOffset + recordSize > current.size) {
+        roll();
+      }
+      MappedByteBuffer buffer = current.buffer;
+      buffer.putInt(currentOffset + 4, (int) crc.getValue());
+      buffer.position(currentOffset + HEADER_BYTES);
+      buffer.put(data);
+      buffer.putInt(currentOffset, data.length);
+      currentOffset += recordSize;
+      writtenPosition = position(current.index, currentOffset);
+      return writtenPosition;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * Force the records appended up to a position out to the disk, if they aren't already.
+   * @param position position returned by append
+   */
+  public void sync(long position) {
+    if (syncedPosition >= position) {
+      return;
+    }
+    synchronized (syncLock) {
+      if (syncedPosition >= position) {
+        return;
+      }
+      long target;
+      Segment segment;
+      appendLock.lock();
+      try {
+        target = writtenPosition;
+        segment = current;
+      } finally {
+        appendLock.unlock();
+      }
+      // the segments before it were forced when they were rolled
+      segment.buffer.force();
+      syncedPosition = target;
+    }
+  }
+
+  /**
+   * Read records in the order they were appended.
+   * @param from position of the first record, e.g. the checkpoint
+   * @param maxRecords the most records to read
+   * @param upTo position not to read past, e.g. getWrittenPosition()
+   * @param consumer called with each record
+   * @return position to read from next time: after the last record read, and past the ends
+   *     of segments met
+   */
+  public long read(long from, int maxRecords, long upTo, Consumer<byte[]> consumer) {
+    long position = from;
+    int read = 0;
+    while (read < maxRecords && position < upTo) {
+      long index = index(position);
+      int offset = offset(position);
+      Segment segment = segments.get(index);
+      if (segment == null) {
+        Long next = segments.higherKey(index);
+        if (next == null) {
+          break;
+        }
+        position = position(next, 0);
+        continue;
+      }
+
+      int length = offset + HEADER_BYTES > segment.size ? 0 : segment.buffer.getInt(offset);
+      if (length == 0) {
+        position = position(index + 1, 0);
+        continue;
+      }
+      byte[] data = length < 0 || offset + HEADER_BYTES + length > segment.size
+          ? null : new byte[length];
+      if (data != null) {
+        ByteBuffer view = segment.buffer.duplicate();
+        view.position(offset + HEADER_BYTES);
+        view.get(data);
+      }
+      if (data == null || crc(data) != segment.buffer.getInt(offset + 4)) {
+        // only the disk going bad gets here: the rest of the segment can't be trusted
+        log.error("Corrupt record in segment {} at offset {}, skipping the rest of the segment",
+            index, offset);
+        position = position(index + 1, 0);
+        continue;
+      }
+      consumer.accept(data);
+      read++;
+      position = position(index, offset + HEADER_BYTES + length);
+    }
+    return position;
+  }
+
+  /**
+   * Delete the segments which only hold records before a position.
+   * @param position position from which the records are still needed, e.g. the checkpoint
+   */
+  public void deleteBefore(long position) {
+    for (Long index : segments.headMap(index(position)).keySet()) {
+      if (index == current.index) {
+        continue;
+      }
+      Segment segment = segments.remove(index);
+      try {
+        segment.channel.close();
+        // the mapping stays valid until it is collected
+        Files.deleteIfExists(segment.path);
+      } catch (IOException e) {
+        log.warn("Unable to delete order journal segment {}", segment.path, e);
+      }
+    }
+  }
+
+  /**
+   * Position of the records not read yet, as last written.
+   * @return the checkpoint, or 0 which is before any record
+   * @throws IOException if the checkpoint can't be read
+   */
+  public long readCheckpoint() throws IOException {
+    Path checkpoint = directory.resolve(CHECKPOINT);
+    if (!Files.exists(checkpoint)) {
+      return 0;
+    }
+    return ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong();
+  }
+
+  /**
+   * Write the position of the records not read yet, atomically and durably.
+   * @param position position returned by read
+   * @throws IOException if the checkpoint can't be written
+   */
+  public void writeCheckpoint(long position) throws IOException {
+    Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.write((ByteBuffer) ByteBuffer.allocate(8).putLong(position).flip());
+      channel.force(true);
+    }
+    Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory();
+  }
+
+  public long getWrittenPosition() {
+    return writtenPosition;
+  }
+
+  public long getSyncedPosition() {
+    return syncedPosition;
+  }
+
+  public int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Forces the last records out, and closes the segments.
+   */
+  @Override
+  public void close() {
+    appendLock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      appendLock.unlock();
+    }
+    sync(writtenPosition);
+    for (Segment segment : segments.values()) {
+      try {
+        segment.channel.close();
+      } catch (IOException e) {
+        log.warn("Unable to close order journal segment {}", segment.path, e);
+      }
+    }
+  }
+
+  static long position(long index, int offset) {
+    return index << 32 | offset;
+  }
+
+  static long index(long position) {
+    return position >>> 32;
+  }
+
+  static int offset(long position) {
+    return (int) position;
+  }
+
+  // under appendLock
+  private void roll() {
+    if (segments.size() >= maxSegments) {
+      throw new RejectedExecutionException("Order journal is full, " + segments.size()
+          + " segments not replayed");
+    }
+    current.buffer.force();
+    try {
+      current = createSegment(current.index + 1);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    currentOffset = 0;
+  }
+
+  private Segment createSegment(long index) throws IOException {
+    Segment segment = Segment.map(segmentPath(index), index, segmentSize);
+    segments.put(index, segment);
+    syncDirectory();
+    return segment;
+  }
+
+  private Path segmentPath(long index) {
+    return directory.resolve(String.format(Locale.ROOT, "%020d", index) + SEGMENT_SUFFIX);
+  }
+
+  // so that a new file, or the rename of the checkpoint, survives a crash of the machine
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // not supported everywhere, e.g. on windows
+      log.debug("Unable to sync directory {}", directory, e);
+    }
+  }
+
+  private static int validEnd(Segment segment) {
+    int offset = 0;
+    while (offset + HEADER_BYTES <= segment.size) {
+      int length = segment.buffer.getInt(offset);
+      if (length <= 0 || offset + HEADER_BYTES + length > segment.size) {
+        break;
+      }
+      byte[] data = new byte[length];
+      ByteBuffer view = segment.buffer.duplicate();
+      view.position(offset + HEADER_BYTES);
+      view.get(data);
+      if (crc(data) != segment.buffer.getInt(offset + 4)) {
+        log.warn("Discarding a torn record in segment {} at offset {}", segment.index, offset);
+        break;
+      }
+      offset += HEADER_BYTES + length;
+    }
+    return offset;
+  }
+
+  private static void zero(Segment segment, int from) {
+    byte[] zeros = new byte[64 * 1024];
+    ByteBuffer view = segment.buffer.duplicate();
+    view.position(from);
+    while (view.hasRemaining()) {
+      view.put(zeros, 0, Math.min(zeros.length, view.remaining()));
+    }
+    segment.buffer.force();
+  }
+
+  private static int crc(byte[] data) {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    return (int) crc.getValue();
+  }
+
+  private static class Segment {
+
+    private final long index;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int size;
+
+    private Segment(long index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+      this.index = index;
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+      this.size = buffer.capacity();
+    }
+
+    // size -1 maps an existing segment whole
+    static Segment map(Path path, long index, int size) throws IOException {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        long length = size < 0 ? channel.size() : size;
+        return new Segment(index, path, channel, channel.map(MapMode.READ_WRITE, 0, length));
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+  }
+}
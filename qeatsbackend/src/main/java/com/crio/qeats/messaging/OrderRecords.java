@@ -0,0 +1,126 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Orders as the records of the {@link OrderJournal}: the fields one after the other, always in
+ * the same order, with no names and no JSON.
+ *   - byte version, string id, long placedAt, string restaurantId, string userId, double total
+ *   - int items, then for each: string id, itemId, name, imageUrl, double price (NaN for none),
+ *     int attributes, then each attribute as a string.
+ *   - A string is a boolean for null, then modified UTF-8 as DataOutput writes it.
+ * A field is only ever added at the end, with a new version.
+ */
+public final class OrderRecords {
+
+  static final byte VERSION = 1;
+
+  private OrderRecords() { /* utility */ }
+
+  /**
+   * Encodes an order as a record.
+   * @param order order with all its fields, but for any nullable string
+   * @return the record
+   */
+  public static byte[] encode(Order order) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(VERSION);
+      writeString(out, order.getId());
+      out.writeLong(order.getPlacedAt().getTime());
+      writeString(out, order.getRestaurantId());
+      writeString(out, order.getUserId());
+      out.writeDouble(order.getTotal());
+      List<Item> items = order.getItems();
+      out.writeInt(items.size());
+      for (Item item : items) {
+        writeString(out, item.getId());
+        writeString(out, item.getItemId());
+        writeString(out, item.getName());
+        writeString(out, item.getImageUrl());
+        out.writeDouble(item.getPrice() == null ? Double.NaN : item.getPrice());
+        List<String> attributes = item.getAttributes();
+        out.writeInt(attributes == null ? 0 : attributes.size());
+        if (attributes != null) {
+          for (String attribute : attributes) {
+            writeString(out, attribute);
+          }
+        }
+      }
+    } catch (IOException e) {
+      // only for strings longer than 64KB in UTF-8
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a record written by encode.
+   * @param record the record
+   * @return the order
+   * @throws IllegalArgumentException if the record isn't an order of a known version
+   */
+  public static Order decode(byte[] record) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+      byte version = in.readByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unknown order record version " + version);
+      }
+      Order order = new Order();
+      order.setId(readString(in));
+      order.setPlacedAt(new Date(in.readLong()));
+      order.setRestaurantId(readString(in));
+      order.setUserId(readString(in));
+      order.setTotal(in.readDouble());
+      int itemCount = in.readInt();
+      List<Item> items = new ArrayList<>(itemCount);
+      for (int i = 0; i < itemCount; i++) {
+        Item item = new Item();
+        item.setId(readString(in));
+        item.setItemId(readString(in));
+        item.setName(readString(in));
+        item.setImageUrl(readString(in));
+        double price = in.readDouble();
+        item.setPrice(Double.isNaN(price) ? null : price);
+        int attributeCount = in.readInt();
+        List<String> attributes = new ArrayList<>(attributeCount);
+        for (int j = 0; j < attributeCount; j++) {
+          attributes.add(readString(in));
+        }
+        item.setAttributes(attributes);
+        items.add(item);
+      }
+      order.setItems(items);
+      return order;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Truncated order record", e);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+}
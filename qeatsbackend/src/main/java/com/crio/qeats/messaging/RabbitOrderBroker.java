@@ -0,0 +1,169 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.globals.GlobalConstants;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.GetResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Orders published to RabbitMQ, on EXCHANGE_NAME with ROUTING_KEY, and written to the db by a
+ * consumer thread reading QUEUE_NAME; see {@link com.crio.qeats.configs.RabbitMqConfiguration}.
+ *   - Orders are persistent messages, and publish returns once the broker confirmed them:
+ *     spring.rabbitmq.publisher-confirms must be set, as application-rabbitmq.properties does.
+ *   - The consumer gets up to batch-size orders, writes them in one bulk, then acks them all at
+ *     once. If the write fails they are requeued; if the application dies before the ack they
+ *     are redelivered. Either way they are written again, by id, so never twice.
+ *   - Any instance may write the orders published by any other.
+ */
+@Log4j2
+@Component
+@Profile("rabbitmq")
+public class RabbitOrderBroker implements OrderBroker {
+
+  @Autowired
+  private RabbitTemplate rabbitTemplate;
+
+  @Autowired
+  private OrderBatchWriter orderBatchWriter;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${qeats.orders.batch-size:500}")
+  private int batchSize;
+
+  @Value("${qeats.orders.retry-millis:1000}")
+  private long retryMillis;
+
+  @Value("${qeats.orders.rabbitmq.confirm-timeout-millis:5000}")
+  private long confirmTimeoutMillis;
+
+  // between reads of an empty queue
+  @Value("${qeats.orders.rabbitmq.poll-interval-millis:100}")
+  private long pollIntervalMillis;
+
+  private Thread consumer;
+
+  private volatile boolean running;
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    consumer = new Thread(this::consume, "order-consumer");
+    consumer.setDaemon(true);
+    consumer.start();
+  }
+
+  /**
+   * Stops consuming; orders gotten and not acked yet are redelivered to another consumer.
+   */
+  @PreDestroy
+  public void stop() {
+    // not interrupted: that would break the channel the consumer may be reading
+    running = false;
+    try {
+      consumer.join(TimeUnit.SECONDS.toMillis(30));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void publish(Order order) {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+    messageProperties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+    messageProperties.setMessageId(order.getId());
+    Message message;
+    try {
+      message = new Message(objectMapper.writeValueAsBytes(order), messageProperties);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Unable to write order " + order.getId(), e);
+    }
+
+    try {
+      rabbitTemplate.invoke(operations -> {
+        operations.send(GlobalConstants.EXCHANGE_NAME, GlobalConstants.ROUTING_KEY, message);
+        operations.waitForConfirmsOrDie(confirmTimeoutMillis);
+        return null;
+      });
+    } catch (AmqpException e) {
+      throw new RejectedExecutionException("Order " + order.getId() + " was not confirmed", e);
+    }
+  }
+
+  private void consume() {
+    while (running) {
+      try {
+        Integer consumed = rabbitTemplate.execute(channel -> {
+          List<Order> batch = new ArrayList<>(batchSize);
+          long lastDeliveryTag = -1;
+          while (batch.size() < batchSize) {
+            GetResponse response = channel.basicGet(GlobalConstants.QUEUE_NAME, false);
+            if (response == null) {
+              break;
+            }
+            long deliveryTag = response.getEnvelope().getDeliveryTag();
+            try {
+              batch.add(objectMapper.readValue(response.getBody(), Order.class));
+              lastDeliveryTag = deliveryTag;
+            } catch (IOException e) {
+              // never readable: dropped, or dead lettered if the queue has a dead letter exchange
+              log.error("Rejected an unreadable order message", e);
+              channel.basicReject(deliveryTag, false);
+            }
+          }
+          if (batch.isEmpty()) {
+            return 0;
+          }
+          if (orderBatchWriter.write(batch)) {
+            channel.basicAck(lastDeliveryTag, true);
+            return batch.size();
+          }
+          channel.basicNack(lastDeliveryTag, true, true);
+          return -1;
+        });
+
+        if (consumed == 0) {
+          Thread.sleep(pollIntervalMillis);
+        } else if (consumed < 0) {
+          Thread.sleep(retryMillis);
+        }
+      } catch (AmqpException e) {
+        log.warn("Unable to consume orders, retrying in {}ms", retryMillis, e);
+        try {
+          Thread.sleep(retryMillis);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.models;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Cart of one user, in the carts collection. Written behind by CartStore, so it may lag the
+// cart the user sees by up to qeats.cart.flush-interval-millis.
+@Data
+@Document(collection = "carts")
+@NoArgsConstructor
+public class CartEntity {
+
+  @Id
+  private String id;
+
+  private String restaurantId;
+
+  @NotNull
+  @Indexed
+  private String userId;
+
+  @NotNull
+  private List<ItemEntity> items = new ArrayList<>();
+
+  @NotNull
+  private Double total;
+
+  // Time of the flush which wrote this state.
+  private Date lastModified;
+}
@@ -0,0 +1,34 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Menu of one restaurant, in the menus collection.
+@Data
+@Document(collection = "menus")
+@NoArgsConstructor
+public class MenuEntity {
+
+  @Id
+  private String id;
+
+  @NotNull
+  @Indexed
+  private String restaurantId;
+
+  @NotNull
+  private List<ItemEntity> items = new ArrayList<>();
+
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.models;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Order placed by a user, in the orders collection. Written in batches by the consumer of the
+// order queue, so it shows up a little after POST /order returned.
+// GET /orders reads the orders of a user latest first, a page at a time from a cursor: a single
+// range of the user_placedAt index, in its order, however many orders the user has.
+@Data
+@Document(collection = "orders")
+@CompoundIndex(name = OrderEntity.USER_PLACED_AT_INDEX,
+    def = "{'userId': 1, 'placedAt': -1, '_id': -1}")
+@NoArgsConstructor
+public class OrderEntity {
+
+  public static final String USER_PLACED_AT_INDEX = "user_placedAt";
+
+  @Id
+  private String id;
+
+  @NotNull
+  private String restaurantId;
+
+  @NotNull
+  private String userId;
+
+  @NotNull
+  private List<ItemEntity> items = new ArrayList<>();
+
+  @NotNull
+  private Double total;
+
+  @NotNull
+  private Date placedAt;
+}
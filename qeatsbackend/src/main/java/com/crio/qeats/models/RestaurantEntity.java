@@ -6,12 +6,18 @@
 
 package com.crio.qeats.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 // Java class that maps to Mongo collection.
@@ -50,5 +56,16 @@ public class RestaurantEntity {
   @NotNull
   private List<String> attributes = new ArrayList<>();
 
+  // GeoJSON copy of latitude/longitude, kept up to date by RestaurantLocationListener.
+  @JsonIgnore
+  @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+  private GeoJsonPoint location;
+
+  // Time of the last save through this application, set by RestaurantGeoIndexSynchronizer.
+  // RestaurantCatalogueRefresher polls on it when change streams aren't available.
+  @JsonIgnore
+  @Indexed
+  private Date lastModified;
+
 }
 
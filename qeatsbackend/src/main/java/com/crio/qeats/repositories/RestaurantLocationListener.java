@@ -0,0 +1,94 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.RestaurantSearchMode;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains the GeoJSON {@code location} of restaurants from their latitude/longitude.
+ *   - Every restaurant saved through this application gets its location set.
+ *   - In MONGO_GEO mode, documents loaded without a location are back-filled at startup.
+ */
+@Log4j2
+@Component
+public class RestaurantLocationListener extends AbstractMongoEventListener<RestaurantEntity> {
+
+  private static final int BACKFILL_BATCH_SIZE = 1000;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Value("${qeats.restaurants.search-mode:GEO_INDEX}")
+  private RestaurantSearchMode searchMode;
+
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<RestaurantEntity> event) {
+    RestaurantEntity restaurantEntity = event.getSource();
+    if (restaurantEntity.getLatitude() != null && restaurantEntity.getLongitude() != null) {
+      restaurantEntity.setLocation(new GeoJsonPoint(restaurantEntity.getLongitude(),
+          restaurantEntity.getLatitude()));
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillMissingLocations() {
+    if (searchMode != RestaurantSearchMode.MONGO_GEO) {
+      return;
+    }
+    Query query = new Query(Criteria.where("location").exists(false)
+        .and("latitude").exists(true).and("longitude").exists(true));
+    query.fields().include("latitude").include("longitude");
+
+    int updated = 0;
+    try (CloseableIterator<RestaurantEntity> restaurants =
+        mongoTemplate.stream(query, RestaurantEntity.class)) {
+      BulkOperations bulkOperations = null;
+      int pending = 0;
+      while (restaurants.hasNext()) {
+        RestaurantEntity restaurantEntity = restaurants.next();
+        if (bulkOperations == null) {
+          bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, RestaurantEntity.class);
+        }
+        bulkOperations.updateOne(
+            new Query(Criteria.where("_id").is(restaurantEntity.getId())),
+            new Update().set("location", new GeoJsonPoint(restaurantEntity.getLongitude(),
+                restaurantEntity.getLatitude())));
+        if (++pending == BACKFILL_BATCH_SIZE) {
+          bulkOperations.execute();
+          updated += pending;
+          bulkOperations = null;
+          pending = 0;
+        }
+      }
+      if (bulkOperations != null) {
+        bulkOperations.execute();
+        updated += pending;
+      }
+    } catch (DataAccessException e) {
+      log.warn("Unable to back-fill restaurant locations", e);
+    }
+    log.info("Back-filled location of {} restaurants", updated);
+  }
+}
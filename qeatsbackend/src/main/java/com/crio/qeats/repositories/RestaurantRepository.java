@@ -15,5 +15,21 @@ import org.springframework.data.mongodb.repository.Query;
 
 public interface RestaurantRepository extends MongoRepository<RestaurantEntity, String> {
 
+  /**
+   * Get the restaurants within the given distance, nearest first, using the 2dsphere index on
+   * {@code location}. Only the fields needed by dto.Restaurant are returned.
+   * @param latitude coordinates near which we have to search for restaurant
+   * @param longitude coordinates near which we have to search for restaurant
+   * @param maxDistanceInMeters serving radius
+   * @return list of matching restaurants, or empty list if there is none
+   */
+  @Query(value = "{ 'location': { '$nearSphere': {"
+      + " '$geometry': { 'type': 'Point', 'coordinates': [ ?1, ?0 ] },"
+      + " '$maxDistance': ?2 } } }",
+      fields = "{ '_id': 0, 'restaurantId': 1, 'name': 1, 'city': 1, 'imageUrl': 1,"
+          + " 'latitude': 1, 'longitude': 1, 'opensAt': 1, 'closesAt': 1, 'attributes': 1 }")
+  List<RestaurantEntity> findRestaurantsNearSphere(double latitude, double longitude,
+      double maxDistanceInMeters);
+
 }
 
@@ -0,0 +1,37 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Cart;
+import java.util.Collection;
+
+public interface CartRepositoryService {
+
+  /**
+   * Get a cart from the db.
+   * @param cartId id of the cart
+   * @return cart as last saved, or null if there is none with this id
+   */
+  Cart findCartById(String cartId);
+
+  /**
+   * Get the cart of a user from the db.
+   * @param userId id of the user
+   * @return cart as last saved, or null if the user has none
+   */
+  Cart findCartByUserId(String userId);
+
+  /**
+   * Insert or replace several carts in the db, with a single bulk write.
+   *   - Each cart is written whole, so it is either in its old state or in the new one.
+   * @param carts carts to write, with their ids
+   * @throws org.springframework.dao.DataAccessException if the write failed, in which case
+   *     any of the carts may or may not have been written
+   */
+  void saveCarts(Collection<Cart> carts);
+
+}
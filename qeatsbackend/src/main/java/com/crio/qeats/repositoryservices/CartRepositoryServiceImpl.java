@@ -0,0 +1,62 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.models.CartEntity;
+import com.crio.qeats.repositories.CartRepository;
+import com.crio.qeats.utils.CartMapper;
+import java.util.Collection;
+import java.util.Date;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CartRepositoryServiceImpl implements CartRepositoryService {
+
+  @Autowired
+  private CartRepository cartRepository;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public Cart findCartById(String cartId) {
+    return cartRepository.findById(cartId).map(CartMapper::toCart).orElse(null);
+  }
+
+  @Override
+  public Cart findCartByUserId(String userId) {
+    return cartRepository.findCartByUserId(userId).map(CartMapper::toCart).orElse(null);
+  }
+
+  // one unordered bulk of upserts by _id: a failed cart doesn't hold the others back
+  @Override
+  public void saveCarts(Collection<Cart> carts) {
+    if (carts.isEmpty()) {
+      return;
+    }
+    Date now = new Date();
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, CartEntity.class);
+    for (Cart cart : carts) {
+      bulkOperations.upsert(new Query(Criteria.where("_id").is(cart.getId())), new Update()
+          .set("restaurantId", cart.getRestaurantId())
+          .set("userId", cart.getUserId())
+          .set("items", CartMapper.toItemEntities(cart.getItems()))
+          .set("total", cart.getTotal())
+          .set("lastModified", now));
+    }
+    bulkOperations.execute();
+  }
+
+}
@@ -0,0 +1,29 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Menu;
+import java.util.Collection;
+import java.util.List;
+
+public interface MenuRepositoryService {
+
+  /**
+   * Get the menu of a restaurant from the db.
+   * @param restaurantId id of the restaurant
+   * @return menu of the restaurant, or null if it has none
+   */
+  Menu findMenu(String restaurantId);
+
+  /**
+   * Get the menus of several restaurants from the db, with a single query.
+   * @param restaurantIds ids of the restaurants
+   * @return menus of the restaurants which have one, in no particular order
+   */
+  List<Menu> findMenus(Collection<String> restaurantIds);
+
+}
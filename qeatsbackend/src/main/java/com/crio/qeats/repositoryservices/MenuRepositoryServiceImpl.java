@@ -0,0 +1,42 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.utils.MenuMapper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class MenuRepositoryServiceImpl implements MenuRepositoryService {
+
+  @Autowired
+  private MenuRepository menuRepository;
+
+  @Override
+  public Menu findMenu(String restaurantId) {
+    return menuRepository.findMenuByRestaurantId(restaurantId)
+        .map(MenuMapper::toMenu)
+        .orElse(null);
+  }
+
+  // one {restaurantId: {$in: [...]}} query, on the index of restaurantId
+  @Override
+  public List<Menu> findMenus(Collection<String> restaurantIds) {
+    List<Menu> menus = new ArrayList<>();
+    for (MenuEntity menuEntity : menuRepository.findMenusByRestaurantIdIn(restaurantIds)) {
+      menus.add(MenuMapper.toMenu(menuEntity));
+    }
+    return menus;
+  }
+
+}
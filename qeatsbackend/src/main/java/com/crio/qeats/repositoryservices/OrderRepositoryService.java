@@ -0,0 +1,39 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.utils.OrderCursor;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderRepositoryService {
+
+  /**
+   * Write several orders to the db, with a single bulk write.
+   *   - Orders are written by id: writing an order again, e.g. when a batch is redelivered,
+   *     leaves a single copy of it.
+   * @param orders orders to write, with their ids
+   * @throws org.springframework.dao.DataAccessException if the write failed, in which case
+   *     any of the orders may or may not have been written
+   */
+  void saveOrders(Collection<Order> orders);
+
+  /**
+   * Get a page of the orders of a user, latest first.
+   *   - The page starts right after the cursor, by seeking the (userId, placedAt, _id) index:
+   *     the orders of the earlier pages are not read again.
+   *   - Without items, only the summaries are read from the db.
+   * @param userId id of the user
+   * @param limit the most orders to return
+   * @param after only orders after this cursor, or null for the first page
+   * @param withItems whether to read the items of the orders too, else they are null
+   * @return the orders, latest first, then by descending id
+   */
+  List<Order> findOrders(String userId, int limit, OrderCursor after, boolean withItems);
+
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.models.OrderEntity;
+import com.crio.qeats.utils.CartMapper;
+import com.crio.qeats.utils.OrderCursor;
+import com.crio.qeats.utils.OrderMapper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+@Service
+public class OrderRepositoryServiceImpl implements OrderRepositoryService {
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  // upserts by _id rather than inserts: a redelivered order is not a duplicate key error
+  // failing the rest of its batch
+  @Override
+  public void saveOrders(Collection<Order> orders) {
+    if (orders.isEmpty()) {
+      return;
+    }
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, OrderEntity.class);
+    for (Order order : orders) {
+      bulkOperations.upsert(new Query(Criteria.where("_id").is(order.getId())), new Update()
+          .set("restaurantId", order.getRestaurantId())
+          .set("userId", order.getUserId())
+          .set("items", CartMapper.toItemEntities(order.getItems()))
+          .set("total", order.getTotal())
+          .set("placedAt", order.getPlacedAt()));
+    }
+    bulkOperations.execute();
+  }
+
+  // The filter and the sort are those of the user_placedAt index, so mongo reads the page off
+  // it and stops at the limit, instead of sorting all the orders of the user in memory.
+  @Override
+  public List<Order> findOrders(String userId, int limit, OrderCursor after,
+      boolean withItems) {
+    Criteria criteria = Criteria.where("userId").is(userId);
+    if (after != null) {
+      criteria.orOperator(Criteria.where("placedAt").lt(after.getPlacedAt()),
+          Criteria.where("placedAt").is(after.getPlacedAt()).and("_id").lt(after.getId()));
+    }
+    Query query = new Query(criteria)
+        .with(Sort.by(Direction.DESC, "placedAt", "_id"))
+        .limit(limit);
+    if (!withItems) {
+      query.fields().exclude("items");
+    }
+
+    List<Order> orders = new ArrayList<>(limit);
+    for (OrderEntity orderEntity : mongoTemplate.find(query, OrderEntity.class)) {
+      orders.add(OrderMapper.toOrder(orderEntity, withItems));
+    }
+    return orders;
+  }
+
+}
@@ -0,0 +1,38 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Restaurant;
+import java.time.LocalTime;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of {@link RestaurantRepositoryService}, for the "reactive" profile.
+ * Nothing is looked up until the returned Flux is subscribed to.
+ */
+public interface ReactiveRestaurantRepositoryService {
+
+  /**
+   * Get the open restaurants within the specified serving radius.
+   *   - Same restaurants as {@link RestaurantRepositoryService#findAllRestaurantsCloseBy} in
+   *     MONGO_GEO mode, read from the db on every request.
+   * @param latitude coordinates near which we have to search for restaurant
+   * @param longitude coordinates near which we have to search for restaurant
+   * @param currentTime current time
+   * @param servingRadiusInKms serving radius
+   * @return open restaurants within the radius, as they come from the db
+   */
+  Flux<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * Same as {@link RestaurantRepositoryService#findRestaurantsBySearchQuery}.
+   * @return open restaurants within the radius matching searchFor, most relevant first
+   */
+  Flux<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchFor, LocalTime currentTime, Double servingRadiusInKms);
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RadiusFilter;
+import com.crio.qeats.utils.RestaurantMapper;
+import java.time.LocalTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Restaurants from the reactive mongo driver, filtered as the documents stream in.
+ *   - The 2dsphere index prunes by distance, then each document goes through the same exact
+ *     distance and opening hours checks as in MONGO_GEO mode; only the matches are mapped.
+ *   - Searches are answered by the in-memory search index of {@link RestaurantRepositoryService},
+ *     on the elastic scheduler: the index is loaded from the db on the first one.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveRestaurantRepositoryServiceImpl
+    implements ReactiveRestaurantRepositoryService {
+
+  @Autowired
+  private ReactiveMongoTemplate reactiveMongoTemplate;
+
+  @Autowired
+  private RestaurantRepositoryService restaurantRepositoryService;
+
+  @Override
+  public Flux<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms) {
+    // same query and projection as RestaurantRepository.findRestaurantsNearSphere
+    Query query = new Query(Criteria.where("location")
+        .nearSphere(new GeoJsonPoint(longitude, latitude))
+        .maxDistance(servingRadiusInKms * 1000
+            * RestaurantRepositoryServiceImpl.MONGO_RADIUS_SLACK));
+    query.fields().exclude("_id").include("restaurantId").include("name").include("city")
+        .include("imageUrl").include("latitude").include("longitude").include("opensAt")
+        .include("closesAt").include("attributes");
+
+    RadiusFilter withinServingRadius =
+        GeoUtils.withinRadius(latitude, longitude, servingRadiusInKms);
+    return reactiveMongoTemplate.find(query, RestaurantEntity.class)
+        .filter(restaurantEntity -> isCloseByAndOpen(restaurantEntity, withinServingRadius,
+            currentTime))
+        .map(RestaurantMapper::toRestaurant);
+  }
+
+  @Override
+  public Flux<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchFor, LocalTime currentTime, Double servingRadiusInKms) {
+    return Mono.fromCallable(() -> restaurantRepositoryService.findRestaurantsBySearchQuery(
+        latitude, longitude, searchFor, currentTime, servingRadiusInKms))
+        .subscribeOn(Schedulers.elastic())
+        .flatMapIterable(restaurants -> restaurants);
+  }
+
+  private static boolean isCloseByAndOpen(RestaurantEntity restaurantEntity,
+      RadiusFilter withinServingRadius, LocalTime currentTime) {
+    return OpeningHours.isOpen(restaurantEntity.getOpensAt(), restaurantEntity.getClosesAt(),
+        currentTime)
+        && withinServingRadius.contains(restaurantEntity.getLatitude(),
+            restaurantEntity.getLongitude());
+  }
+}
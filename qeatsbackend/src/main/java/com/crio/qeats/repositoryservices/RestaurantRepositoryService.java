@@ -7,10 +7,14 @@
 package com.crio.qeats.repositoryservices;
 
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.dto.Suggestion;
+import com.crio.qeats.utils.NearestRestaurants;
+import com.crio.qeats.utils.RestaurantCursor;
 import java.time.LocalTime;
 import java.util.List;
-import java.util.concurrent.Future;
-import org.springframework.scheduling.annotation.Async;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public interface RestaurantRepositoryService {
 
@@ -28,6 +32,100 @@ public interface RestaurantRepositoryService {
   List<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
       LocalTime currentTime, Double servingRadiusInKms);
 
+  /**
+   * Same as {@link #findAllRestaurantsCloseBy}, run on the given executor.
+   *   - Cancelling the future before the lookup started drops the lookup.
+   * @param executor executor to look the restaurants up on
+   * @return future list of open restaurants within the specified radius
+   * @throws java.util.concurrent.RejectedExecutionException if the executor is full
+   */
+  default CompletableFuture<List<Restaurant>> findAllRestaurantsCloseByAsync(Double latitude,
+      Double longitude, LocalTime currentTime, Double servingRadiusInKms, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> findAllRestaurantsCloseBy(latitude, longitude,
+        currentTime, servingRadiusInKms), executor);
+  }
+
+  /**
+   * Same as {@link #findAllRestaurantsCloseBy}, handing the restaurants over to the consumer
+   * as they are found instead of returning a list of them.
+   * @param consumer called once for each open restaurant within the radius
+   */
+  default void forEachRestaurantCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, Consumer<Restaurant> consumer) {
+    findAllRestaurantsCloseBy(latitude, longitude, currentTime, servingRadiusInKms)
+        .forEach(consumer);
+  }
+
+  /**
+   * Same as {@link #findAllRestaurantsCloseBy}, as the JSON of a GetRestaurantsResponse with the
+   * restaurants found.
+   *   - The JSON is serialized once, and the same bytes returned until a restaurant nearby
+   *     opens or closes.
+   * @return serialized response, not to be modified
+   */
+  byte[] findAllRestaurantsCloseByAsJson(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * Get a page of the open restaurants within the serving radius, nearest first.
+   *   - Only the nearest limit restaurants are kept while going through the restaurants, the
+   *     others are never sorted.
+   *   - Restaurants at the same distance are ordered by restaurantId.
+   * @param limit maximum number of restaurants
+   * @param after only restaurants after this cursor, or null for the first page
+   * @return up to limit open restaurants within the radius, nearest first, or
+   *     empty list if there is none
+   */
+  default List<Restaurant> findNearestRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, int limit, RestaurantCursor after) {
+    NearestRestaurants nearest = new NearestRestaurants(latitude, longitude, limit, after);
+    forEachRestaurantCloseBy(latitude, longitude, currentTime, servingRadiusInKms, nearest);
+    return nearest.toList();
+  }
+
+  /**
+   * Get the list of open restaurants within the serving radius which match a search query.
+   *   - Every word of the query must be in the restaurant name, its attributes, or the names
+   *     or attributes of its menu items. Case and accents are ignored.
+   *   - Name matches come first, then attributes, item names and item attributes.
+   * @param latitude coordinates near which we have to search for restaurant
+   * @param longitude coordinates near which we have to search for restaurant
+   * @param searchFor search query
+   * @param currentTime current time
+   * @param servingRadiusInKms serving radius
+   * @return list of matching open restaurants within the specified radius or
+   *     empty list if there is none
+   */
+  List<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchFor, LocalTime currentTime, Double servingRadiusInKms);
+
+  /**
+   * Same as {@link #findRestaurantsBySearchQuery}, run on the given executor.
+   *   - Cancelling the future before the search started drops the search.
+   * @param executor executor to search on
+   * @return future list of matching open restaurants within the specified radius
+   * @throws java.util.concurrent.RejectedExecutionException if the executor is full
+   */
+  default CompletableFuture<List<Restaurant>> findRestaurantsBySearchQueryAsync(Double latitude,
+      Double longitude, String searchFor, LocalTime currentTime, Double servingRadiusInKms,
+      Executor executor) {
+    return CompletableFuture.supplyAsync(() -> findRestaurantsBySearchQuery(latitude, longitude,
+        searchFor, currentTime, servingRadiusInKms), executor);
+  }
+
+  /**
+   * Get the restaurant and dish names near the user which the prefix autocompletes to.
+   *   - A name matches when one of its words starts with the prefix. Case and accents are
+   *     ignored.
+   *   - Names found in most restaurants nearby come first.
+   * @param latitude coordinates near which we have to look for names
+   * @param longitude coordinates near which we have to look for names
+   * @param prefix what the user typed so far
+   * @param limit maximum number of suggestions
+   * @return list of suggestions or empty list if there is none
+   */
+  List<Suggestion> findSuggestions(Double latitude, Double longitude, String prefix, int limit);
+
 }
 
 
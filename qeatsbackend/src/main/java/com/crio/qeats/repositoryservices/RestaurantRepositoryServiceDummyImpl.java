@@ -2,10 +2,15 @@
 package com.crio.qeats.repositoryservices;
 
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.dto.Suggestion;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
 import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.SearchTokens;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,7 +53,50 @@ public class RestaurantRepositoryServiceDummyImpl implements RestaurantRepositor
     return restaurantList;
   }
 
+  @Override
+  public byte[] findAllRestaurantsCloseByAsJson(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms) {
+    try {
+      return objectMapper.writeValueAsBytes(new GetRestaurantsResponse(
+          findAllRestaurantsCloseBy(latitude, longitude, currentTime, servingRadiusInKms)));
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public List<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchFor, LocalTime currentTime, Double servingRadiusInKms) {
+    List<String> tokens = SearchTokens.tokenize(searchFor);
+    List<Restaurant> restaurantList = new ArrayList<>();
+    for (Restaurant restaurant : findAllRestaurantsCloseBy(latitude, longitude, currentTime,
+        servingRadiusInKms)) {
+      List<String> restaurantTokens = SearchTokens.tokenize(restaurant.getName());
+      restaurantTokens.addAll(SearchTokens.tokenize(restaurant.getAttributes()));
+      if (!tokens.isEmpty() && restaurantTokens.containsAll(tokens)) {
+        restaurantList.add(restaurant);
+      }
+    }
+    return restaurantList;
+  }
 
+  @Override
+  public List<Suggestion> findSuggestions(Double latitude, Double longitude, String prefix,
+      int limit) {
+    String key = String.join(" ", SearchTokens.tokenize(prefix));
+    List<Suggestion> suggestions = new ArrayList<>();
+    for (Restaurant restaurant : findAllRestaurantsCloseBy(latitude, longitude, LocalTime.now(),
+        5.0)) {
+      List<String> tokens = SearchTokens.tokenize(restaurant.getName());
+      for (int i = 0; i < tokens.size() && !key.isEmpty(); i++) {
+        if (String.join(" ", tokens.subList(i, tokens.size())).startsWith(key)) {
+          suggestions.add(new Suggestion(restaurant.getName(), Suggestion.Type.RESTAURANT));
+          break;
+        }
+      }
+    }
+    return suggestions.subList(0, Math.min(limit, suggestions.size()));
+  }
 
 }
 
@@ -7,12 +7,24 @@
 package com.crio.qeats.repositoryservices;
 
 import ch.hsr.geohash.GeoHash;
+import com.crio.qeats.cache.NearbyRestaurants;
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.cache.RestaurantsResponseCache;
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.dto.Suggestion;
 import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndexSynchronizer;
+import com.crio.qeats.index.RestaurantScanPool;
+import com.crio.qeats.index.RestaurantSearchIndex;
+import com.crio.qeats.index.RestaurantSnapshot;
+import com.crio.qeats.index.RestaurantSuggestionIndex;
 import com.crio.qeats.models.RestaurantEntity;
 import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.GeoLocation;
 import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.RadiusFilter;
+import com.crio.qeats.utils.RestaurantMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,11 +37,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import javax.inject.Provider;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -50,22 +62,36 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Autowired
   private MongoTemplate mongoTemplate;
 
-  // it Tells Spring to automatically give us a Provider for ModelMapper.
-// ModelMapper is used to copy data from one object to another (like DTO to Entity).
-// Provider allows us to get a fresh ModelMapper instance when we need it by calling modelMapperProvider.get()
-  @Autowired
-  private Provider<ModelMapper> modelMapperProvider;
-
   // for fetching the restaurant repo service which has restaurant entity type 
   @Autowired
   private RestaurantRepository restaurantRepository;
 
-  private boolean isOpenNow(LocalTime time, RestaurantEntity res) {
-    LocalTime openingTime = LocalTime.parse(res.getOpensAt());
-    LocalTime closingTime = LocalTime.parse(res.getClosesAt());
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired
+  private RestaurantGeoIndexSynchronizer restaurantGeoIndexSynchronizer;
 
-    return time.isAfter(openingTime) && time.isBefore(closingTime);
-  }
+  @Autowired
+  private RestaurantScanPool restaurantScanPool;
+
+  @Autowired
+  private RestaurantSearchIndex restaurantSearchIndex;
+
+  @Autowired
+  private RestaurantSuggestionIndex restaurantSuggestionIndex;
+
+  @Autowired
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+
+  @Autowired
+  private RestaurantsResponseCache restaurantsResponseCache;
+
+  @Value("${qeats.restaurants.search-mode:GEO_INDEX}")
+  private RestaurantSearchMode searchMode;
+
+  // mongo measures on a slightly bigger sphere than GeoUtils, see findRestaurantsCloseBy
+  static final double MONGO_RADIUS_SLACK = 1.01;
 
   // TODO: CRIO_TASK_MODULE_NOSQL
   // Objectives:
@@ -78,93 +104,90 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   public List<Restaurant> findAllRestaurantsCloseBy(Double latitude,
       Double longitude, LocalTime currentTime, Double servingRadiusInKms) {
 
-    List<Restaurant> restaurants = new ArrayList<>(); // it is for DTO object which is used for serialization and map to it 
-    // it contains the field only which need to be shown to client
-    // it would be mapped from database to dto using model mapper 
-    // first we will querry from using mongotemplate 
-    
-    // now to fetch from db which will return restaurant entity type 
-    List<RestaurantEntity> restaurantEntities=new ArrayList<>();
-     
-
-    try {
-      restaurantEntities = restaurantRepository.findAll();
-      
-    } catch (NullPointerException e) {
-      e.printStackTrace();
-    }
-
-    ModelMapper mapperClass = modelMapperProvider.get(); // to map the details with the restaurant class dto
-    for (RestaurantEntity tmp : restaurantEntities) {
-      restaurants.add(mapperClass.map(tmp, Restaurant.class)); // now mapping done ;
-    
-    }
-
-    // now mylist to keep the filter data based on the given lat long 
-    List<Restaurant> myList=new ArrayList<>();
-    
-    for (Restaurant res : restaurants) { // loop in restaurants got from database
-      double restaurantLat = res.getLatitude();
-      double restaurantLon = res.getLongitude();
-      LocalTime openAt = LocalTime.parse(res.getOpensAt());
-      LocalTime closeAt = LocalTime.parse(res.getClosesAt());
-      double distanceKm = GeoUtils.findDistanceInKm(
-                            latitude, longitude, restaurantLat, restaurantLon);
-      if (Double.compare(distanceKm, servingRadiusInKms) > 0) {
-        continue;
-      }
-      boolean result = isValidTime(currentTime, openAt, closeAt);  // just checking if is valid time o not 
-      if (result == false) {
-        continue;
-      }
-      myList.add(res); // adding to my list 
-
-    }
-    return myList;
+    // DTO objects of the restaurants around the user's geohash cell, open or not, from the
+    // two-tier cache. On a miss they are computed around the centre of the cell.
+    NearbyRestaurants restaurants = nearbyRestaurantsCache.get(latitude, longitude,
+        servingRadiusInKms, this::findRestaurantsCloseBy);
 
-
-    
-
-      //CHECKSTYLE:OFF
-      //CHECKSTYLE:On
+    // opening hours were parsed to minutes of the day when the entry was cached; the entry
+    // covers the whole cell, only the restaurants within the radius of the user are kept
+    return restaurants.openAt(currentTime,
+        GeoUtils.withinRadius(latitude, longitude, servingRadiusInKms));
   }
 
-  private boolean isValidTime(LocalTime current, 
-  LocalTime open, LocalTime close) {
-  boolean result = false;
-  if (current.equals(open) || current.equals(close)) {
-  result = true;
-  }
-  if (current.isAfter(open) && current.isBefore(close)) {
-  result = true;
+  @Override
+  public void forEachRestaurantCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, Consumer<Restaurant> consumer) {
+    // straight from the cached entry of the cell, which is shared by all the requests:
+    // nothing is copied per request
+    nearbyRestaurantsCache.get(latitude, longitude, servingRadiusInKms,
+        this::findRestaurantsCloseBy)
+        .forEachOpenAt(currentTime,
+            GeoUtils.withinRadius(latitude, longitude, servingRadiusInKms), consumer);
   }
-  return result;
-  }
-
-
-
 
+  @Override
+  public byte[] findAllRestaurantsCloseByAsJson(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms) {
+    NearbyRestaurants restaurants = nearbyRestaurantsCache.get(latitude, longitude,
+        servingRadiusInKms, this::findRestaurantsCloseBy);
 
+    // one entry per cell, serialized again once a restaurant of the cell opens or closes
+    return restaurantsResponseCache.get(
+        nearbyRestaurantsCache.keyFor(latitude, longitude, servingRadiusInKms), restaurants,
+        currentTime, latitude, longitude, servingRadiusInKms);
+  }
 
+  // Restaurants within the serving radius, open or not.
+  private List<Restaurant> findRestaurantsCloseBy(GeoLocation location,
+      Double servingRadiusInKms) {
+    double latitude = location.getLatitude();
+    double longitude = location.getLongitude();
+    if (searchMode != RestaurantSearchMode.MONGO_GEO) {
+      // only the rows of the geohash cells around the user are looked at, in the columnar
+      // snapshot of the geo index; dto objects are built for the matches only.
+      // Big scans are split across the scan pool, if it is enabled.
+      // The index is loaded from the db once and kept in sync by RestaurantGeoIndexSynchronizer
+      restaurantGeoIndexSynchronizer.ensureLoaded();
+      return restaurantGeoIndex.snapshot().findRestaurants(latitude, longitude,
+          servingRadiusInKms, RestaurantSnapshot.ANY_TIME, restaurantScanPool);
+    }
 
-  // TODO: CRIO_TASK_MODULE_NOSQL
-  // Objective:
-  // 1. Check if a restaurant is nearby and open. If so, it is a candidate to be returned.
-  // NOTE: How far exactly is "nearby"?
-
-  /**
-   * Utility method to check if a restaurant is within the serving radius at a given time.
-   * @return boolean True if restaurant falls within serving radius and is open, false otherwise
-   */
-  private boolean isRestaurantCloseByAndOpen(RestaurantEntity restaurantEntity,
-      LocalTime currentTime, Double latitude, Double longitude, Double servingRadiusInKms) {
-    if (isOpenNow(currentTime, restaurantEntity)) {
-      return GeoUtils.findDistanceInKm(latitude, longitude,
-          restaurantEntity.getLatitude(), restaurantEntity.getLongitude())
-          < servingRadiusInKms;
+    // mongo prunes by distance using the 2dsphere index, the exact check below still runs
+    // on what comes back. Mongo measures on a slightly bigger sphere than GeoUtils, hence
+    // the slack on the radius.
+    List<RestaurantEntity> restaurantEntities = restaurantRepository.findRestaurantsNearSphere(
+        latitude, longitude, servingRadiusInKms * 1000 * MONGO_RADIUS_SLACK);
+
+    // only the restaurants within the radius are mapped to the dto, the filter skips the exact
+    // distance for restaurants which are clearly in or out
+    RadiusFilter withinServingRadius =
+        GeoUtils.withinRadius(latitude, longitude, servingRadiusInKms);
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (RestaurantEntity tmp : restaurantEntities) {
+      if (!withinServingRadius.contains(tmp.getLatitude(), tmp.getLongitude())) {
+        continue;
+      }
+      restaurants.add(RestaurantMapper.toRestaurant(tmp));
     }
+    return restaurants;
+  }
+
+  @Override
+  public List<Restaurant> findRestaurantsBySearchQuery(Double latitude, Double longitude,
+      String searchFor, LocalTime currentTime, Double servingRadiusInKms) {
+    // whatever the search mode, the posting lists of the search index are looked up for the
+    // restaurants around the user only, instead of matching regexes against every document
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    return restaurantSearchIndex.search(latitude, longitude, servingRadiusInKms,
+        currentTime.toSecondOfDay(), searchFor, restaurantScanPool);
+  }
 
-    return false;
+  @Override
+  public List<Suggestion> findSuggestions(Double latitude, Double longitude, String prefix,
+      int limit) {
+    // a few binary searches: the dictionaries are built in the background
+    return restaurantSuggestionIndex.suggest(latitude, longitude, prefix, limit);
   }
 
 
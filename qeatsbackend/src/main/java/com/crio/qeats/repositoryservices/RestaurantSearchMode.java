@@ -0,0 +1,19 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+// Where RestaurantRepositoryServiceImpl looks for nearby restaurants.
+// Set with qeats.restaurants.search-mode in application.properties.
+public enum RestaurantSearchMode {
+
+  // In-memory geohash index, distance and open hours checked in the JVM.
+  GEO_INDEX,
+
+  // $nearSphere query on the 2dsphere index of the restaurants collection.
+  MONGO_GEO
+
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.exchanges.CartModifiedResponse;
+import com.crio.qeats.exchanges.GetOrdersRequest;
+import com.crio.qeats.exchanges.GetOrdersResponse;
+
+public interface CartAndOrderService {
+
+  /**
+   * Get the cart of a user.
+   * - Served from memory: only the first read of a cart goes to the db.
+   * @param userId id of the user
+   * @return the cart of the user, a new empty one if the user had none
+   */
+  Cart findOrCreateCart(String userId);
+
+  /**
+   * Add an item from the menu of a restaurant to a cart.
+   * - Never waits for the cart to be written to the db.
+   * @param itemId itemId of the item in the menu
+   * @param cartId id of the cart
+   * @param restaurantId restaurant of the item
+   * @return CartModifiedResponse with the cart, or with the cart left as it was and the error
+   *     type of ItemNotFoundInRestaurantMenuException or ItemNotFromSameRestaurantException
+   * @throws com.crio.qeats.exceptions.CartNotFoundException if there is no such cart
+   */
+  CartModifiedResponse addItemToCart(String itemId, String cartId, String restaurantId);
+
+  /**
+   * Remove one item with the given itemId from a cart.
+   * - Removing an item which isn't in the cart leaves the cart as it is.
+   * @param itemId itemId of the item
+   * @param cartId id of the cart
+   * @param restaurantId restaurant of the item
+   * @return CartModifiedResponse with the cart
+   * @throws com.crio.qeats.exceptions.CartNotFoundException if there is no such cart
+   */
+  CartModifiedResponse removeItemFromCart(String itemId, String cartId, String restaurantId);
+
+  /**
+   * Remove all the items of a cart.
+   * @param cartId id of the cart
+   * @return the empty cart
+   * @throws com.crio.qeats.exceptions.CartNotFoundException if there is no such cart
+   */
+  Cart clearCart(String cartId);
+
+  /**
+   * Order the items of a cart, and empty the cart.
+   * - Returns once the order is queued, before it is written to the db.
+   * @param cartId id of the cart
+   * @return the order, with its id and the time it was placed
+   * @throws com.crio.qeats.exceptions.CartNotFoundException if there is no such cart
+   * @throws com.crio.qeats.exceptions.EmptyCartException if the cart has no items
+   * @throws com.crio.qeats.exceptions.OrderInProgressException if the cart is being ordered
+   *     by another request
+   * @throws java.util.concurrent.RejectedExecutionException if the order can't be queued now;
+   *     the cart is left as it was
+   */
+  Order postOrder(String cartId);
+
+  /**
+   * Order the items of a cart like postOrder, once per Idempotency-Key.
+   * - A request sent again with the key gets the order placed the first time, without ordering
+   *   the cart again; concurrent ones wait for the first.
+   * @param cartId id of the cart
+   * @param idempotencyKey key sent by the client, the same for all the tries of an order
+   * @return the order placed with this key
+   * @throws com.crio.qeats.exceptions.OrderInProgressException if another server is placing
+   *     the order with this key right now, or as postOrder
+   * @throws com.crio.qeats.exceptions.CartNotFoundException as postOrder
+   * @throws com.crio.qeats.exceptions.EmptyCartException as postOrder
+   * @throws java.util.concurrent.RejectedExecutionException as postOrder
+   */
+  Order postOrder(String cartId, String idempotencyKey);
+
+  /**
+   * Get a page of the orders of a user, latest first.
+   * - Read from the db: an order only shows up once the order queue wrote it.
+   * @param getOrdersRequest valid userId, and optional limit, cursor and includeItems
+   * @return GetOrdersResponse with the orders, and the cursor to the next page if it is full
+   */
+  GetOrdersResponse findOrders(GetOrdersRequest getOrdersRequest);
+
+}
@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.cache.CartStore;
+import com.crio.qeats.cache.MenuCache;
+import com.crio.qeats.cache.OrderIdempotencyStore;
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.exceptions.ItemNotFoundInRestaurantMenuException;
+import com.crio.qeats.exceptions.ItemNotFromSameRestaurantException;
+import com.crio.qeats.exchanges.CartModifiedResponse;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetOrdersRequest;
+import com.crio.qeats.exchanges.GetOrdersResponse;
+import com.crio.qeats.messaging.OrderBroker;
+import com.crio.qeats.repositoryservices.OrderRepositoryService;
+import com.crio.qeats.utils.OrderCursor;
+import java.util.Date;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CartAndOrderServiceImpl implements CartAndOrderService {
+
+  @Autowired
+  private CartStore cartStore;
+
+  @Autowired
+  private MenuCache menuCache;
+
+  @Autowired
+  private OrderBroker orderBroker;
+
+  @Autowired
+  private OrderRepositoryService orderRepositoryService;
+
+  @Autowired
+  private OrderIdempotencyStore orderIdempotencyStore;
+
+  @Override
+  public Cart findOrCreateCart(String userId) {
+    return cartStore.findOrCreateCart(userId);
+  }
+
+  @Override
+  public CartModifiedResponse addItemToCart(String itemId, String cartId,
+      String restaurantId) {
+    try {
+      return new CartModifiedResponse(
+          cartStore.addItem(cartId, restaurantId, findItem(itemId, restaurantId)));
+    } catch (ItemNotFoundInRestaurantMenuException e) {
+      return new CartModifiedResponse(cartStore.findCart(cartId), e.getErrorType());
+    } catch (ItemNotFromSameRestaurantException e) {
+      return new CartModifiedResponse(cartStore.findCart(cartId), e.getErrorType());
+    }
+  }
+
+  @Override
+  public CartModifiedResponse removeItemFromCart(String itemId, String cartId,
+      String restaurantId) {
+    return new CartModifiedResponse(cartStore.removeItem(cartId, restaurantId, itemId));
+  }
+
+  @Override
+  public Cart clearCart(String cartId) {
+    return cartStore.clearCart(cartId);
+  }
+
+  @Override
+  public Order postOrder(String cartId) {
+    return cartStore.checkout(cartId, cart -> {
+      // the id is given here, so that a redelivered order is written once
+      Order order = new Order(new ObjectId().toHexString(), cart.getRestaurantId(),
+          cart.getUserId(), cart.getItems(), cart.getTotal(), new Date());
+      orderBroker.publish(order);
+      return order;
+    });
+  }
+
+  @Override
+  public Order postOrder(String cartId, String idempotencyKey) {
+    return orderIdempotencyStore.placeOnce(cartId, idempotencyKey, () -> postOrder(cartId));
+  }
+
+  @Override
+  public GetOrdersResponse findOrders(GetOrdersRequest getOrdersRequest) {
+    int limit = getOrdersRequest.getLimitOrDefault();
+    OrderCursor after = getOrdersRequest.getCursor() == null
+        ? null : OrderCursor.decode(getOrdersRequest.getCursor());
+
+    List<Order> orders = orderRepositoryService.findOrders(getOrdersRequest.getUserId(), limit,
+        after, getOrdersRequest.isIncludeItems());
+    String nextCursor = orders.size() < limit
+        ? null : OrderCursor.after(orders.get(orders.size() - 1)).encode();
+    return new GetOrdersResponse(orders, nextCursor);
+  }
+
+  // From the menu in memory, so prices are the ones the restaurant shows.
+  private Item findItem(String itemId, String restaurantId) {
+    GetMenuResponse getMenuResponse = menuCache.get(restaurantId);
+    if (getMenuResponse != null && getMenuResponse.getMenu().getItems() != null) {
+      for (Item item : getMenuResponse.getMenu().getItems()) {
+        if (itemId.equals(item.getItemId())) {
+          return item;
+        }
+      }
+    }
+    throw new ItemNotFoundInRestaurantMenuException("No item " + itemId
+        + " in the menu of restaurant " + restaurantId);
+  }
+
+}
@@ -0,0 +1,36 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.exchanges.GetMenuRequest;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetMenusRequest;
+import com.crio.qeats.exchanges.GetMenusResponse;
+
+public interface MenuService {
+
+  /**
+   * Get the menu of a restaurant.
+   * - Served from memory: only the first read of a restaurant goes to the db.
+   * @param getMenuRequest valid restaurantId
+   * @return GetMenuResponse object containing the menu, with the ETag of its JSON, or null if
+   *     the restaurant has no menu.
+   */
+  GetMenuResponse findMenu(GetMenuRequest getMenuRequest);
+
+  /**
+   * Get the menus of several restaurants at once, e.g. for a page of search results.
+   * - The menus not in memory yet are read from the db together, with a single query.
+   * - Menus are in the order of the restaurantIds, once each; restaurants without a menu are
+   *   left out.
+   * @param getMenusRequest valid restaurantIds
+   * @return GetMenusResponse object containing the menus, with an ETag of them all, or an empty
+   *     list if none of the restaurants has a menu.
+   */
+  GetMenusResponse findMenus(GetMenusRequest getMenusRequest);
+
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.cache.MenuCache;
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.exchanges.GetMenuRequest;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetMenusRequest;
+import com.crio.qeats.exchanges.GetMenusResponse;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class MenuServiceImpl implements MenuService {
+
+  @Autowired
+  private MenuCache menuCache;
+
+  @Override
+  public GetMenuResponse findMenu(GetMenuRequest getMenuRequest) {
+    return menuCache.get(getMenuRequest.getRestaurantId());
+  }
+
+  @Override
+  public GetMenusResponse findMenus(GetMenusRequest getMenusRequest) {
+    List<Menu> menus = new ArrayList<>();
+    // the body is the list of menus, so the hash of their ETags in order identifies it
+    Hasher etag = Hashing.sha256().newHasher();
+    for (GetMenuResponse getMenuResponse :
+        menuCache.getAll(getMenusRequest.getRestaurantIds()).values()) {
+      menus.add(getMenuResponse.getMenu());
+      etag.putString(getMenuResponse.getEtag(), StandardCharsets.UTF_8);
+    }
+    GetMenusResponse getMenusResponse = new GetMenusResponse(menus);
+    getMenusResponse.setEtag("\"" + etag.hash() + "\"");
+    return getMenusResponse;
+  }
+
+}
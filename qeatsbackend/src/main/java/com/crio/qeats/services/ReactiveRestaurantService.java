@@ -0,0 +1,48 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import java.time.LocalTime;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link RestaurantService} for /restaurants, for the "reactive"
+ * profile. Serving radius, paging and cursors are the same as there.
+ */
+public interface ReactiveRestaurantService {
+
+  /**
+   * Get the restaurants that are open now within the serving radius, as they are found.
+   * @param getRestaurantsRequest valid lat/long; limit and cursor are not looked at
+   * @param currentTime current time.
+   * @return open restaurants within the radius, in no particular order
+   */
+  Flux<Restaurant> streamAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime);
+
+  /**
+   * Same as {@link RestaurantService#findAllRestaurantsCloseBy}.
+   * @param getRestaurantsRequest valid lat/long, and optional limit and cursor
+   * @param currentTime current time.
+   * @return response with the open restaurants, or the page of them if a limit was given
+   */
+  Mono<GetRestaurantsResponse> findAllRestaurantsCloseBy(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
+
+  /**
+   * Same as {@link RestaurantService#findRestaurantsBySearchQuery}.
+   * @param getRestaurantsRequest valid lat/long and searchFor
+   * @param currentTime current time.
+   * @return response with the matching open restaurants, most relevant first
+   */
+  Mono<GetRestaurantsResponse> findRestaurantsBySearchQuery(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
+}
@@ -0,0 +1,75 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.repositoryservices.ReactiveRestaurantRepositoryService;
+import com.crio.qeats.utils.NearestRestaurants;
+import com.crio.qeats.utils.RestaurantCursor;
+import com.crio.qeats.utils.ServingRadius;
+import java.time.LocalTime;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveRestaurantServiceImpl implements ReactiveRestaurantService {
+
+  @Autowired
+  private ReactiveRestaurantRepositoryService reactiveRestaurantRepositoryService;
+
+  @Override
+  public Flux<Restaurant> streamAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime) {
+    return reactiveRestaurantRepositoryService.findAllRestaurantsCloseBy(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(), currentTime,
+        ServingRadius.inKmsAt(currentTime));
+  }
+
+  @Override
+  public Mono<GetRestaurantsResponse> findAllRestaurantsCloseBy(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    Flux<Restaurant> restaurants =
+        streamAllRestaurantsCloseBy(getRestaurantsRequest, currentTime);
+    if (getRestaurantsRequest.getLimit() == null) {
+      return restaurants.collectList().map(GetRestaurantsResponse::new);
+    }
+
+    // only the nearest limit restaurants after the cursor are kept as they stream in
+    double latitude = getRestaurantsRequest.getLatitude();
+    double longitude = getRestaurantsRequest.getLongitude();
+    int limit = getRestaurantsRequest.getLimit();
+    RestaurantCursor after = getRestaurantsRequest.getCursor() == null
+        ? null : RestaurantCursor.decode(getRestaurantsRequest.getCursor());
+    return restaurants
+        .collect(() -> new NearestRestaurants(latitude, longitude, limit, after),
+            NearestRestaurants::accept)
+        .map(nearestRestaurants -> {
+          List<Restaurant> page = nearestRestaurants.toList();
+          String nextCursor = page.size() < limit ? null : RestaurantCursor
+              .after(latitude, longitude, page.get(page.size() - 1)).encode();
+          return new GetRestaurantsResponse(page, nextCursor);
+        });
+  }
+
+  @Override
+  public Mono<GetRestaurantsResponse> findRestaurantsBySearchQuery(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return reactiveRestaurantRepositoryService.findRestaurantsBySearchQuery(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
+        getRestaurantsRequest.getSearchFor(), currentTime,
+        ServingRadius.inKmsAt(currentTime))
+        .collectList()
+        .map(GetRestaurantsResponse::new);
+  }
+}
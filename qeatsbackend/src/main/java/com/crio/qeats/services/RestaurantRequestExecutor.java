@@ -0,0 +1,114 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded pool the asynchronous restaurant lookups run on, instead of the servlet threads.
+ *   - A fixed number of threads and a bounded queue: once both are full, new lookups are
+ *     rejected with a RejectedExecutionException, to be answered with 503 right away.
+ *   - Requests are answered with 503 once they waited for {@link #getTimeoutMillis()}; a
+ *     lookup which did not start by then is dropped.
+ *   - Published as "executor.*" metrics with name=restaurantRequests, plus
+ *     "qeats.restaurants.async" counts of the rejected and timed out requests.
+ */
+@Log4j2
+@Component
+public class RestaurantRequestExecutor {
+
+  private static final String EXECUTOR_NAME = "restaurantRequests";
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${qeats.restaurants.async.pool-size:32}")
+  private int poolSize;
+
+  @Value("${qeats.restaurants.async.queue-capacity:256}")
+  private int queueCapacity;
+
+  @Value("${qeats.restaurants.async.timeout-millis:2000}")
+  private long timeoutMillis;
+
+  private ThreadPoolExecutor threadPoolExecutor;
+
+  private ExecutorService executor;
+
+  private Counter rejections;
+  private Counter timeouts;
+
+  @PostConstruct
+  public void initPool() {
+    rejections = counter("rejected");
+    timeouts = counter("timeout");
+
+    AtomicInteger threads = new AtomicInteger();
+    threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "restaurant-request-" + threads.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        }, (runnable, pool) -> {
+          rejections.increment();
+          throw new RejectedExecutionException(
+              "All the " + poolSize + " restaurant request threads and the queue are busy");
+        });
+    executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, EXECUTOR_NAME);
+    log.info("Asynchronous restaurant lookups on {} threads, queueing up to {}", poolSize,
+        queueCapacity);
+  }
+
+  @PreDestroy
+  public void closePool() {
+    if (threadPoolExecutor != null) {
+      threadPoolExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Get the pool, timed per task.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Get how long a request waits for its lookup before it is answered with 503.
+   */
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Counts a request which was answered with 503 because its lookup took too long.
+   */
+  public void recordTimeout() {
+    timeouts.increment();
+  }
+
+  private Counter counter(String result) {
+    return Counter.builder("qeats.restaurants.async")
+        .tag("result", result)
+        .description("Asynchronous restaurant lookups which were rejected or timed out")
+        .register(meterRegistry);
+  }
+}
@@ -7,9 +7,14 @@
 
 package com.crio.qeats.services;
 
+import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.GetSuggestionsRequest;
+import com.crio.qeats.exchanges.GetSuggestionsResponse;
 import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface RestaurantService {
 
@@ -19,14 +24,101 @@ public interface RestaurantService {
    * - service radius is 3KMs.
    * - All other times, serving radius is 5KMs.
    * - If there are no restaurants, return empty list of restaurants.
-   * @param getRestaurantsRequest valid lat/long
+   * - With a limit, only the nearest limit restaurants are returned, nearest first, with a
+   *   cursor to the next page if the page is full. With a cursor too, the page starts after
+   *   the one which returned it.
+   * @param getRestaurantsRequest valid lat/long, and optional limit and cursor
    * @param currentTime current time.
    * @return GetRestaurantsResponse object containing a list of open restaurants or an
    *     empty list if none fits the criteria.
    */
   GetRestaurantsResponse findAllRestaurantsCloseBy(
       GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
-  
-  
+
+  /**
+   * Same as findAllRestaurantsCloseBy, without holding the calling thread.
+   * - The restaurants are looked up on the bounded {@link RestaurantRequestExecutor}.
+   * - Cancelling the future drops the lookup if it did not start yet.
+   * @param getRestaurantsRequest valid lat/long, and optional limit and cursor
+   * @param currentTime current time.
+   * @return future GetRestaurantsResponse, completed on the executor
+   * @throws java.util.concurrent.RejectedExecutionException if the executor is full
+   */
+  CompletableFuture<GetRestaurantsResponse> findAllRestaurantsCloseByAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
+
+  /**
+   * Same as findAllRestaurantsCloseBy, handing the restaurants over one by one, e.g. to write
+   * them out as they come instead of holding the whole response in memory.
+   * - They come from the cached restaurants around the user, shared by all the requests. On a
+   *   cache miss those are loaded whole first, as they are cached for the next requests.
+   * @param getRestaurantsRequest valid lat/long
+   * @param currentTime current time.
+   * @param consumer called once for each open restaurant, in the order of the response
+   */
+  void streamAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime, Consumer<Restaurant> consumer);
+
+  /**
+   * Same as findAllRestaurantsCloseBy without limit, as the JSON of the GetRestaurantsResponse.
+   * - The same bytes are returned for every request around the same place, until one of the
+   *   restaurants opens or closes or the serving radius changes.
+   * @param getRestaurantsRequest valid lat/long
+   * @param currentTime current time.
+   * @return serialized GetRestaurantsResponse, not to be modified
+   */
+  byte[] findAllRestaurantsCloseByAsJson(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime);
+
+  /**
+   * Same as findAllRestaurantsCloseByAsJson, without holding the calling thread.
+   * - The response is looked up, and serialized on a miss, on the bounded
+   *   {@link RestaurantRequestExecutor}.
+   * - Cancelling the future drops the lookup if it did not start yet.
+   * @param getRestaurantsRequest valid lat/long
+   * @param currentTime current time.
+   * @return future serialized GetRestaurantsResponse, completed on the executor
+   * @throws java.util.concurrent.RejectedExecutionException if the executor is full
+   */
+  CompletableFuture<byte[]> findAllRestaurantsCloseByAsJsonAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
+
+  /**
+   * Get the restaurants that are open now within the serving radius and match the search query.
+   * - The serving radius is the same as for findAllRestaurantsCloseBy.
+   * - Every word of searchFor must be in the restaurant name, its attributes, or the names or
+   *   attributes of its menu items; case and accents are ignored.
+   * - Restaurants matching by name come first, then by attributes, item names and item
+   *   attributes.
+   * - If searchFor has no words, return empty list of restaurants.
+   * @param getRestaurantsRequest valid lat/long and searchFor
+   * @param currentTime current time.
+   * @return GetRestaurantsResponse object containing a list of matching open restaurants or an
+   *     empty list if none fits the criteria.
+   */
+  GetRestaurantsResponse findRestaurantsBySearchQuery(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
+
+  /**
+   * Same as findRestaurantsBySearchQuery, without holding the calling thread, like
+   * findAllRestaurantsCloseByAsync.
+   * @param getRestaurantsRequest valid lat/long and searchFor
+   * @param currentTime current time.
+   * @return future GetRestaurantsResponse, completed on the executor
+   * @throws java.util.concurrent.RejectedExecutionException if the executor is full
+   */
+  CompletableFuture<GetRestaurantsResponse> findRestaurantsBySearchQueryAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime);
+
+  /**
+   * Get the restaurant and dish names around the user which the prefix autocompletes to.
+   * - A name matches when one of its words starts with the prefix; case and accents are
+   *   ignored.
+   * - Names found in most restaurants nearby come first, whether they are open or not.
+   * @param getSuggestionsRequest valid lat/long, prefix and limit
+   * @return GetSuggestionsResponse object containing at most limit suggestions, or an empty
+   *     list if there is none.
+   */
+  GetSuggestionsResponse findSuggestions(GetSuggestionsRequest getSuggestionsRequest);
 
 }
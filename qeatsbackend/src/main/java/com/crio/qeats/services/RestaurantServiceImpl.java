@@ -8,9 +8,14 @@
 package com.crio.qeats.services;
 
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.dto.Suggestion;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.GetSuggestionsRequest;
+import com.crio.qeats.exchanges.GetSuggestionsResponse;
 import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
+import com.crio.qeats.utils.RestaurantCursor;
+import com.crio.qeats.utils.ServingRadius;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -18,7 +23,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,11 +35,12 @@ import org.springframework.stereotype.Service;
 @Log4j2
 public class RestaurantServiceImpl implements RestaurantService {
 
-  private final Double peakHoursServingRadiusInKms = 3.0;
-  private final Double normalHoursServingRadiusInKms = 5.0;
   @Autowired
   private RestaurantRepositoryService restaurantRepositoryService;
 
+  @Autowired
+  private RestaurantRequestExecutor restaurantRequestExecutor;
+
 
   // TODO: CRIO_TASK_MODULE_RESTAURANTSAPI - Implement findAllRestaurantsCloseby.
   // Check RestaurantService.java file for the interface contract.
@@ -52,20 +60,105 @@ public class RestaurantServiceImpl implements RestaurantService {
       GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
       Double latitude=getRestaurantsRequest.getLatitude();
       Double longitude=getRestaurantsRequest.getLongitude();
-      List<Restaurant> restaurant; // to store the list of restaurant taking from repositoryservice with the logic of it 
-      int h=currentTime.getHour();
-      int m=currentTime.getMinute();
-      if((h>=8 && h<=9) || (h==10 && m==0) || h==13 || (h==14 && m==0) || (h>=19 && h<=21) || (h==21 && m==0) ){
-         restaurant=restaurantRepositoryService.findAllRestaurantsCloseBy(latitude, longitude, currentTime, peakHoursServingRadiusInKms );
-      }
-      else{
-         restaurant=restaurantRepositoryService.findAllRestaurantsCloseBy(latitude, longitude, currentTime, normalHoursServingRadiusInKms);
+      if (getRestaurantsRequest.getLimit() != null) {
+        return findNearestRestaurantsCloseBy(getRestaurantsRequest, currentTime);
       }
+      List<Restaurant> restaurant; // to store the list of restaurant taking from repositoryservice with the logic of it 
+      restaurant=restaurantRepositoryService.findAllRestaurantsCloseBy(latitude, longitude, currentTime, ServingRadius.inKmsAt(currentTime));
       // then storing the list of Restaurant in restaurants then passing it as getresponse body
       GetRestaurantsResponse restaurantsResponse=new GetRestaurantsResponse(restaurant);
      return restaurantsResponse;
   }
 
+  // One page of the restaurants, nearest first, with the cursor to the next one if it is full.
+  private GetRestaurantsResponse findNearestRestaurantsCloseBy(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    double latitude = getRestaurantsRequest.getLatitude();
+    double longitude = getRestaurantsRequest.getLongitude();
+    int limit = getRestaurantsRequest.getLimit();
+    RestaurantCursor after = getRestaurantsRequest.getCursor() == null
+        ? null : RestaurantCursor.decode(getRestaurantsRequest.getCursor());
 
-}
+    List<Restaurant> restaurants = restaurantRepositoryService.findNearestRestaurantsCloseBy(
+        latitude, longitude, currentTime, ServingRadius.inKmsAt(currentTime), limit, after);
+    String nextCursor = restaurants.size() < limit ? null : RestaurantCursor
+        .after(latitude, longitude, restaurants.get(restaurants.size() - 1)).encode();
+    return new GetRestaurantsResponse(restaurants, nextCursor);
+  }
 
+  @Override
+  public CompletableFuture<GetRestaurantsResponse> findAllRestaurantsCloseByAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    if (getRestaurantsRequest.getLimit() != null) {
+      return CompletableFuture.supplyAsync(
+          () -> findNearestRestaurantsCloseBy(getRestaurantsRequest, currentTime),
+          restaurantRequestExecutor.getExecutor());
+    }
+    return thenRespond(restaurantRepositoryService.findAllRestaurantsCloseByAsync(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(), currentTime,
+        ServingRadius.inKmsAt(currentTime), restaurantRequestExecutor.getExecutor()));
+  }
+
+  @Override
+  public void streamAllRestaurantsCloseBy(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime, Consumer<Restaurant> consumer) {
+    restaurantRepositoryService.forEachRestaurantCloseBy(getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(), currentTime, ServingRadius.inKmsAt(currentTime),
+        consumer);
+  }
+
+  @Override
+  public byte[] findAllRestaurantsCloseByAsJson(GetRestaurantsRequest getRestaurantsRequest,
+      LocalTime currentTime) {
+    // the radius is part of the cache key, so peak hour boundaries switch entries too
+    return restaurantRepositoryService.findAllRestaurantsCloseByAsJson(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(), currentTime,
+        ServingRadius.inKmsAt(currentTime));
+  }
+
+  @Override
+  public CompletableFuture<byte[]> findAllRestaurantsCloseByAsJsonAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return CompletableFuture.supplyAsync(
+        () -> findAllRestaurantsCloseByAsJson(getRestaurantsRequest, currentTime),
+        restaurantRequestExecutor.getExecutor());
+  }
+
+  @Override
+  public GetRestaurantsResponse findRestaurantsBySearchQuery(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    List<Restaurant> restaurants = restaurantRepositoryService.findRestaurantsBySearchQuery(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
+        getRestaurantsRequest.getSearchFor(), currentTime, ServingRadius.inKmsAt(currentTime));
+    return new GetRestaurantsResponse(restaurants);
+  }
+
+  @Override
+  public CompletableFuture<GetRestaurantsResponse> findRestaurantsBySearchQueryAsync(
+      GetRestaurantsRequest getRestaurantsRequest, LocalTime currentTime) {
+    return thenRespond(restaurantRepositoryService.findRestaurantsBySearchQueryAsync(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
+        getRestaurantsRequest.getSearchFor(), currentTime, ServingRadius.inKmsAt(currentTime),
+        restaurantRequestExecutor.getExecutor()));
+  }
+
+  // Cancelling the response cancels the lookup too, so a lookup still queued when its request
+  // timed out is never run.
+  private static CompletableFuture<GetRestaurantsResponse> thenRespond(
+      CompletableFuture<List<Restaurant>> restaurants) {
+    CompletableFuture<GetRestaurantsResponse> response =
+        restaurants.thenApply(GetRestaurantsResponse::new);
+    response.whenComplete((getRestaurantsResponse, e) -> restaurants.cancel(false));
+    return response;
+  }
+
+  @Override
+  public GetSuggestionsResponse findSuggestions(GetSuggestionsRequest getSuggestionsRequest) {
+    List<Suggestion> suggestions = restaurantRepositoryService.findSuggestions(
+        getSuggestionsRequest.getLatitude(), getSuggestionsRequest.getLongitude(),
+        getSuggestionsRequest.getPrefix(), getSuggestionsRequest.getLimit());
+    return new GetSuggestionsResponse(suggestions);
+  }
+
+
+}
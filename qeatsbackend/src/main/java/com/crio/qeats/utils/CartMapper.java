@@ -0,0 +1,57 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.CartEntity;
+import com.crio.qeats.models.ItemEntity;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps carts between the entity and the dto, with plain field copies like {@link MenuMapper}.
+ */
+public class CartMapper {
+
+  private CartMapper() { /* utility */ }
+
+  /**
+   * Maps a CartEntity to a dto.Cart.
+   * @param cartEntity entity read from the db
+   * @return dto with its own copy of the items
+   */
+  public static Cart toCart(CartEntity cartEntity) {
+    List<Item> items = new ArrayList<>();
+    if (cartEntity.getItems() != null) {
+      for (ItemEntity itemEntity : cartEntity.getItems()) {
+        items.add(MenuMapper.toItem(itemEntity));
+      }
+    }
+    return new Cart(cartEntity.getId(), cartEntity.getRestaurantId(), cartEntity.getUserId(),
+        items, cartEntity.getTotal() == null ? 0 : cartEntity.getTotal());
+  }
+
+  /**
+   * Maps the items of a dto.Cart to the entities stored in the db.
+   */
+  public static List<ItemEntity> toItemEntities(List<Item> items) {
+    List<ItemEntity> itemEntities = new ArrayList<>(items.size());
+    for (Item item : items) {
+      ItemEntity itemEntity = new ItemEntity();
+      itemEntity.setId(item.getId());
+      itemEntity.setItemId(item.getItemId());
+      itemEntity.setName(item.getName());
+      itemEntity.setImageUrl(item.getImageUrl());
+      itemEntity.setPrice(item.getPrice());
+      itemEntity.setAttributes(item.getAttributes() == null
+          ? null : new ArrayList<>(item.getAttributes()));
+      itemEntities.add(itemEntity);
+    }
+    return itemEntities;
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import ch.hsr.geohash.GeoHash;
+
+/**
+ * Helpers for working with geohash cells of a fixed precision.
+ * A geohash of n characters halves the world 5n times, alternating longitude and latitude, so
+ * its cells form a regular grid we can reason about without decoding hashes.
+ */
+public class GeoHashUtils {
+
+  private GeoHashUtils() { /* utility */ }
+
+  public static String geoHash(double latitude, double longitude, int precision) {
+    return GeoHash.withCharacterPrecision(latitude, longitude, precision).toBase32();
+  }
+
+  public static double cellHeightInDegrees(int precision) {
+    return 180.0 / (1L << ((precision * 5) / 2));
+  }
+
+  public static double cellWidthInDegrees(int precision) {
+    return 360.0 / (1L << (precision * 5 - (precision * 5) / 2));
+  }
+
+  /**
+   * Centre of the geohash cell containing the given point.
+   * @return GeoLocation of the centre of the cell
+   */
+  public static GeoLocation cellCenter(double latitude, double longitude, int precision) {
+    double cellHeight = cellHeightInDegrees(precision);
+    double cellWidth = cellWidthInDegrees(precision);
+    double row = Math.min(Math.floor((latitude + 90.0) / cellHeight), 180.0 / cellHeight - 1);
+    double column = Math.min(Math.floor((longitude + 180.0) / cellWidth), 360.0 / cellWidth - 1);
+    return new GeoLocation(row * cellHeight - 90.0 + cellHeight / 2,
+        column * cellWidth - 180.0 + cellWidth / 2);
+  }
+}
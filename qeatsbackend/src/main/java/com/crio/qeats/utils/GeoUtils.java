@@ -14,42 +14,49 @@ import lombok.Data;
 @AllArgsConstructor
 public class GeoUtils {
 
+  static final double EARTH_RADIUS_IN_KMS = 6371.0;
+
   public static double findDistanceInKm(double srcLatitude, double srcLongitude,
       double dstLatitude, double dstLongitude) {
-    return distance(srcLatitude, dstLatitude, srcLongitude, dstLongitude, 0, 0);
+    return haversine(srcLatitude, srcLongitude, Math.cos(Math.toRadians(srcLatitude)),
+        dstLatitude, dstLongitude);
+  }
+
+  /**
+   * Filter for the points within a radius of the given point, for checking many points against
+   * the same user location.
+   *   - Agrees exactly with {@link #findDistanceInKm} {@code <= radiusInKms}.
+   *   - Far away points are rejected with a bounding box, nearby ones are decided with a flat
+   *     earth approximation, and only points close to the circle pay for the exact distance.
+   * @param latitude latitude of the centre
+   * @param longitude longitude of the centre
+   * @param radiusInKms radius of the circle
+   * @return RadiusFilter to test points with
+   */
+  public static RadiusFilter withinRadius(double latitude, double longitude,
+      double radiusInKms) {
+    return new RadiusFilter(latitude, longitude, radiusInKms);
   }
 
   /**
-   * THIS IS BORROWED CODE. Calculate distance between two points in latitude and longitude taking
-   * into account height difference. If you are not interested in height difference pass 0.0. Uses
+   * THIS IS BORROWED CODE. Calculate distance between two points in latitude and longitude. Uses
    * Haversine method as its base.
    *
-   * <p>lat1, lon1 Start point lat2, lon2 End point el1 Start altitude in meters el2 End altitude
-   * in
-   * meters
+   * <p>lat1, lon1 Start point lat2, lon2 End point. cosLat1 is the cosine of lat1, which callers
+   * checking many points against the same start point compute only once.
    *
    * @returns Distance in Kilo Meters
    */
-  private static double distance(
-      double lat1, double lat2, double lon1, double lon2, double el1, double el2) {
-
-    final int R = 6371; // Radius of the earth
-
+  static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2) {
     double latDistance = Math.toRadians(lat2 - lat1);
     double lonDistance = Math.toRadians(lon2 - lon1);
     double a =
         Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-            + Math.cos(Math.toRadians(lat1))
+            + cosLat1
             * Math.cos(Math.toRadians(lat2))
             * Math.sin(lonDistance / 2)
             * Math.sin(lonDistance / 2);
     double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-    double distance = R * c;
-
-    double height = el1 - el2;
-
-    distance = Math.pow(distance, 2) + Math.pow(height, 2);
-
-    return Math.sqrt(distance);
+    return EARTH_RADIUS_IN_KMS * c;
   }
 }
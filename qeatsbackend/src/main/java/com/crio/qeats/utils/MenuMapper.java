@@ -0,0 +1,54 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps menu entities to the DTO sent to clients, with plain field copies like
+ * {@link RestaurantMapper}.
+ */
+public class MenuMapper {
+
+  private MenuMapper() { /* utility */ }
+
+  /**
+   * Maps a MenuEntity to a dto.Menu.
+   * @param menuEntity entity read from the db
+   * @return dto with its own copy of the items
+   */
+  public static Menu toMenu(MenuEntity menuEntity) {
+    List<Item> items = new ArrayList<>();
+    if (menuEntity.getItems() != null) {
+      for (ItemEntity itemEntity : menuEntity.getItems()) {
+        items.add(toItem(itemEntity));
+      }
+    }
+    return new Menu(menuEntity.getRestaurantId(), items);
+  }
+
+  /**
+   * Maps an ItemEntity to a dto.Item.
+   * @param itemEntity entity read from the db
+   * @return dto with its own copy of the attributes
+   */
+  public static Item toItem(ItemEntity itemEntity) {
+    return new Item(
+        itemEntity.getId(),
+        itemEntity.getItemId(),
+        itemEntity.getName(),
+        itemEntity.getImageUrl(),
+        itemEntity.getPrice(),
+        itemEntity.getAttributes() == null
+            ? null : new ArrayList<>(itemEntity.getAttributes()));
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Restaurant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the restaurants nearest to the user out of the ones it is given, one at a time.
+ *   - A max-heap of at most limit restaurants: a restaurant is only kept if it is nearer than
+ *     the farthest kept so far, so n restaurants cost O(n log limit), and nothing is sorted but
+ *     the page itself.
+ *   - With a cursor, restaurants up to the cursor are skipped: the next page is picked the same
+ *     way, without the earlier pages being sorted or kept.
+ *   - Ties on distance are broken by restaurantId, the order of {@link RestaurantCursor}.
+ */
+public class NearestRestaurants implements Consumer<Restaurant> {
+
+  private static final Comparator<Candidate> NEAREST_FIRST =
+      Comparator.<Candidate>comparingDouble(candidate -> candidate.distanceInKms)
+          .thenComparing(candidate -> candidate.restaurantId);
+
+  private final double latitude;
+
+  private final double longitude;
+
+  private final int limit;
+
+  private final RestaurantCursor after;
+
+  // the farthest restaurant kept is at the head
+  private final PriorityQueue<Candidate> heap;
+
+  /**
+   * Selector of a page of restaurants.
+   * @param latitude latitude of the user
+   * @param longitude longitude of the user
+   * @param limit maximum number of restaurants in the page
+   * @param after only restaurants after this cursor, or null for the first page
+   */
+  public NearestRestaurants(double latitude, double longitude, int limit,
+      RestaurantCursor after) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be at least 1, got " + limit);
+    }
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.limit = limit;
+    this.after = after;
+    this.heap = new PriorityQueue<>(limit, NEAREST_FIRST.reversed());
+  }
+
+  @Override
+  public void accept(Restaurant restaurant) {
+    double distanceInKms = distanceInKms(latitude, longitude, restaurant);
+    String restaurantId = idOf(restaurant);
+    if (after != null && !after.isBefore(distanceInKms, restaurantId)) {
+      return;
+    }
+    if (heap.size() == limit) {
+      Candidate farthest = heap.peek();
+      int byDistance = Double.compare(distanceInKms, farthest.distanceInKms);
+      if (byDistance > 0
+          || (byDistance == 0 && restaurantId.compareTo(farthest.restaurantId) >= 0)) {
+        return;
+      }
+      heap.poll();
+    }
+    heap.add(new Candidate(distanceInKms, restaurantId, restaurant));
+  }
+
+  /**
+   * Get the restaurants kept, nearest first.
+   */
+  public List<Restaurant> toList() {
+    List<Candidate> candidates = new ArrayList<>(heap);
+    Collections.sort(candidates, NEAREST_FIRST);
+    List<Restaurant> restaurants = new ArrayList<>(candidates.size());
+    for (Candidate candidate : candidates) {
+      restaurants.add(candidate.restaurant);
+    }
+    return restaurants;
+  }
+
+  // the one distance used for both ordering and cursors, so they always agree
+  static double distanceInKms(double latitude, double longitude, Restaurant restaurant) {
+    return GeoUtils.findDistanceInKm(latitude, longitude, restaurant.getLatitude(),
+        restaurant.getLongitude());
+  }
+
+  static String idOf(Restaurant restaurant) {
+    return restaurant.getRestaurantId() == null ? "" : restaurant.getRestaurantId();
+  }
+
+  private static class Candidate {
+
+    private final double distanceInKms;
+
+    private final String restaurantId;
+
+    private final Restaurant restaurant;
+
+    Candidate(double distanceInKms, String restaurantId, Restaurant restaurant) {
+      this.distanceInKms = distanceInKms;
+      this.restaurantId = restaurantId;
+      this.restaurant = restaurant;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Restaurant;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Opening hours as minute-of-day integers, parsed once instead of on every request.
+ *   - A restaurant is open from opensAt to closesAt, both inclusive.
+ *   - When closesAt is before opensAt the restaurant is open overnight, e.g. 18:00 - 02:00.
+ *   - Hours which can't be parsed are stored as {@link #NEVER} and are never open.
+ */
+public class OpeningHours {
+
+  public static final int NEVER = -1;
+
+  private OpeningHours() { /* utility */ }
+
+  /**
+   * Parses "HH:mm" (seconds, if present, are ignored).
+   * @return minute of the day, or {@link #NEVER} if the string isn't a valid time
+   */
+  public static int parseMinuteOfDay(String time) {
+    if (time == null || time.length() < 5 || time.charAt(2) != ':') {
+      return NEVER;
+    }
+    int hours = twoDigits(time, 0);
+    int minutes = twoDigits(time, 3);
+    if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+      return NEVER;
+    }
+    return hours * 60 + minutes;
+  }
+
+  /**
+   * Checks if a restaurant is open at the given second of the day.
+   * @param opensAtMinute minute of the day the restaurant opens
+   * @param closesAtMinute minute of the day the restaurant closes
+   * @param secondOfDay current time, as from {@link LocalTime#toSecondOfDay()}
+   * @return true if open
+   */
+  public static boolean isOpen(int opensAtMinute, int closesAtMinute, int secondOfDay) {
+    if (opensAtMinute == NEVER || closesAtMinute == NEVER) {
+      return false;
+    }
+    int opensAt = opensAtMinute * 60;
+    int closesAt = closesAtMinute * 60;
+    if (opensAt <= closesAt) {
+      return secondOfDay >= opensAt && secondOfDay <= closesAt;
+    }
+    return secondOfDay >= opensAt || secondOfDay <= closesAt;
+  }
+
+  public static boolean isOpen(String opensAt, String closesAt, LocalTime time) {
+    return isOpen(parseMinuteOfDay(opensAt), parseMinuteOfDay(closesAt), time.toSecondOfDay());
+  }
+
+  /**
+   * Parses the hours of a list of restaurants into one array of (opensAt, closesAt) pairs.
+   * @return array where restaurant i opens at [2 * i] and closes at [2 * i + 1]
+   */
+  public static int[] compile(List<Restaurant> restaurants) {
+    int[] minutes = new int[restaurants.size() * 2];
+    int i = 0;
+    for (Restaurant restaurant : restaurants) {
+      minutes[i++] = parseMinuteOfDay(restaurant.getOpensAt());
+      minutes[i++] = parseMinuteOfDay(restaurant.getClosesAt());
+    }
+    return minutes;
+  }
+
+  /**
+   * Checks if restaurant {@code index} of an array built by {@link #compile(List)} is open.
+   */
+  public static boolean isOpen(int[] compiledHours, int index, int secondOfDay) {
+    return isOpen(compiledHours[2 * index], compiledHours[2 * index + 1], secondOfDay);
+  }
+
+  /**
+   * Get the seconds of the day at which any restaurant of an array built by
+   * {@link #compile(List)} opens or closes.
+   *   - A restaurant opening at 18:00 and closing at 23:00 is open from second 64800 to 82800,
+   *     so its transitions are 64800 and 82801.
+   *   - Between two consecutive transitions the same restaurants are open.
+   * @return sorted seconds of the day, without duplicates
+   */
+  public static int[] transitions(int[] compiledHours) {
+    int[] seconds = new int[compiledHours.length];
+    int count = 0;
+    for (int i = 0; i + 1 < compiledHours.length; i += 2) {
+      if (compiledHours[i] == NEVER || compiledHours[i + 1] == NEVER) {
+        continue;
+      }
+      seconds[count++] = compiledHours[i] * 60;
+      seconds[count++] = compiledHours[i + 1] * 60 + 1;
+    }
+    Arrays.sort(seconds, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || seconds[distinct - 1] != seconds[i]) {
+        seconds[distinct++] = seconds[i];
+      }
+    }
+    return Arrays.copyOf(seconds, distinct);
+  }
+
+  private static int twoDigits(String time, int offset) {
+    int tens = time.charAt(offset) - '0';
+    int units = time.charAt(offset + 1) - '0';
+    if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+      return NEVER;
+    }
+    return tens * 10 + units;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Order;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Where a page of the orders of a user ended, like {@link RestaurantCursor} for restaurants.
+ *   - Orders are ordered by placedAt, latest first, then by id, so every order has a single
+ *     place in the order, even when several were placed in the same millisecond.
+ *   - The next page is the orders after the cursor in that order: a range of the
+ *     (userId, placedAt, _id) index, however many pages came before it.
+ *   - The user is kept too: a cursor is only valid for the user it was issued for.
+ *   - Sent to clients as an opaque URL-safe token.
+ */
+public final class OrderCursor {
+
+  private static final byte VERSION = 1;
+
+  private final String userId;
+
+  private final long placedAt;
+
+  private final String id;
+
+  private OrderCursor(String userId, long placedAt, String id) {
+    this.userId = userId;
+    this.placedAt = placedAt;
+    this.id = id;
+  }
+
+  /**
+   * Cursor right after the given order.
+   */
+  public static OrderCursor after(Order last) {
+    return new OrderCursor(last.getUserId(), last.getPlacedAt().getTime(), last.getId());
+  }
+
+  /**
+   * Reads a token made by {@link #encode()}.
+   * @throws IllegalArgumentException if it is not such a token
+   */
+  public static OrderCursor decode(String token) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+      if (buffer.get() != VERSION) {
+        throw new IllegalArgumentException("Unknown cursor version");
+      }
+      long placedAt = buffer.getLong();
+      byte[] id = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(id);
+      byte[] userId = new byte[buffer.remaining()];
+      buffer.get(userId);
+      return new OrderCursor(new String(userId, StandardCharsets.UTF_8), placedAt,
+          new String(id, StandardCharsets.UTF_8));
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated cursor", e);
+    }
+  }
+
+  public String encode() {
+    byte[] id = this.id.getBytes(StandardCharsets.UTF_8);
+    byte[] userId = this.userId.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Short.BYTES + id.length
+        + userId.length)
+        .put(VERSION)
+        .putLong(placedAt)
+        .putShort((short) id.length)
+        .put(id)
+        .put(userId);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * Whether the cursor was issued for the orders of this user.
+   */
+  public boolean isFor(String userId) {
+    return this.userId.equals(userId);
+  }
+
+  public Date getPlacedAt() {
+    return new Date(placedAt);
+  }
+
+  public String getId() {
+    return id;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.OrderEntity;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps orders from the entity to the dto, with plain field copies like {@link CartMapper}.
+ */
+public class OrderMapper {
+
+  private OrderMapper() { /* utility */ }
+
+  /**
+   * Maps an OrderEntity to a dto.Order.
+   * @param orderEntity entity read from the db
+   * @param withItems whether the items were read too; a summary without them has null items
+   * @return dto with its own copy of the items
+   */
+  public static Order toOrder(OrderEntity orderEntity, boolean withItems) {
+    List<Item> items = null;
+    if (withItems) {
+      items = new ArrayList<>();
+      if (orderEntity.getItems() != null) {
+        for (ItemEntity itemEntity : orderEntity.getItems()) {
+          items.add(MenuMapper.toItem(itemEntity));
+        }
+      }
+    }
+    return new Order(orderEntity.getId(), orderEntity.getRestaurantId(),
+        orderEntity.getUserId(), items,
+        orderEntity.getTotal() == null ? 0 : orderEntity.getTotal(), orderEntity.getPlacedAt());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+/**
+ * Checks points against a circle around a fixed centre, see {@link GeoUtils#withinRadius}.
+ *
+ * <p>Each check goes through up to three steps, cheapest first:
+ *   - A latitude/longitude bounding box of the circle rejects points which are clearly far.
+ *   - Inside the box, an equirectangular approximation decides points which are clearly inside
+ *     or clearly outside: its error is below 0.01% up to {@link #MAX_APPROXIMATE_RADIUS_IN_KMS}
+ *     and 80 degrees of latitude, ten times less than the band we leave around the circle.
+ *   - Points in that band get the exact Haversine distance.
+ * So the answer is always the one the exact distance gives.
+ */
+public class RadiusFilter {
+
+  static final double MAX_APPROXIMATE_RADIUS_IN_KMS = 50.0;
+
+  private static final double MAX_APPROXIMATE_LATITUDE = 80.0;
+
+  // Relative width of the band around the circle where the approximation isn't trusted.
+  private static final double APPROXIMATION_BAND = 1e-3;
+
+  // Keeps points right on the edge of the box from being rejected by a rounding error.
+  private static final double BOX_SLACK = 1e-9;
+
+  private final double latitude;
+  private final double longitude;
+  private final double radiusInKms;
+
+  private final double cosLatitude;
+  private final double halfSinLatitude;
+
+  private final double latitudeDelta;
+  private final double longitudeDelta;
+
+  private final boolean approximate;
+  private final double innerBoundSquared;
+  private final double outerBoundSquared;
+
+  RadiusFilter(double latitude, double longitude, double radiusInKms) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.radiusInKms = radiusInKms;
+
+    double latitudeInRadians = Math.toRadians(latitude);
+    this.cosLatitude = Math.cos(latitudeInRadians);
+    this.halfSinLatitude = Math.sin(latitudeInRadians) / 2;
+
+    double angularRadius = Math.max(radiusInKms, 0) / GeoUtils.EARTH_RADIUS_IN_KMS;
+    this.latitudeDelta = Math.toDegrees(angularRadius) * (1 + BOX_SLACK) + BOX_SLACK;
+    boolean containsPole = Math.abs(latitude) + latitudeDelta >= 90.0
+        || Math.sin(angularRadius) >= cosLatitude;
+    this.longitudeDelta = containsPole ? Double.POSITIVE_INFINITY
+        : Math.toDegrees(Math.asin(Math.sin(angularRadius) / cosLatitude)) * (1 + BOX_SLACK)
+            + BOX_SLACK;
+
+    this.approximate = radiusInKms <= MAX_APPROXIMATE_RADIUS_IN_KMS
+        && Math.abs(latitude) + latitudeDelta <= MAX_APPROXIMATE_LATITUDE;
+    this.innerBoundSquared = square(angularRadius * (1 - APPROXIMATION_BAND));
+    this.outerBoundSquared = square(angularRadius * (1 + APPROXIMATION_BAND));
+  }
+
+  /**
+   * Checks if a point is within the radius.
+   * @return true if {@link GeoUtils#findDistanceInKm} from the centre is at most the radius
+   */
+  public boolean contains(double pointLatitude, double pointLongitude) {
+    double latitudeDifference = pointLatitude - latitude;
+    if (latitudeDifference > latitudeDelta || latitudeDifference < -latitudeDelta) {
+      return false;
+    }
+    double longitudeDifference = normalizeLongitude(pointLongitude - longitude);
+    if (longitudeDifference > longitudeDelta || longitudeDifference < -longitudeDelta) {
+      return false;
+    }
+
+    if (approximate) {
+      // cos of the mean latitude, to first order: cos(a + d/2) ~ cos(a) - sin(a) * d/2
+      double y = Math.toRadians(latitudeDifference);
+      double x = Math.toRadians(longitudeDifference) * (cosLatitude - halfSinLatitude * y);
+      double distanceSquared = x * x + y * y;
+      if (distanceSquared < innerBoundSquared) {
+        return true;
+      }
+      if (distanceSquared > outerBoundSquared) {
+        return false;
+      }
+    }
+    return Double.compare(distanceInKm(pointLatitude, pointLongitude), radiusInKms) <= 0;
+  }
+
+  /**
+   * Exact distance from the centre, same as {@link GeoUtils#findDistanceInKm}.
+   */
+  public double distanceInKm(double pointLatitude, double pointLongitude) {
+    return GeoUtils.haversine(latitude, longitude, cosLatitude, pointLatitude, pointLongitude);
+  }
+
+  // Into [-180, 180], so that points across the antimeridian are seen as close.
+  private static double normalizeLongitude(double longitudeDifference) {
+    if (longitudeDifference >= -180.0 && longitudeDifference <= 180.0) {
+      return longitudeDifference;
+    }
+    return Math.IEEEremainder(longitudeDifference, 360.0);
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Restaurant;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Where a page of restaurants sorted by distance ended, so that the next page starts right
+ * after it without going through the earlier pages again.
+ *   - Restaurants are ordered by their distance from the user, then by restaurantId, so every
+ *     restaurant has a single place in the order.
+ *   - The location of the user is kept too: a cursor is only valid for the location it was
+ *     issued for.
+ *   - Sent to clients as an opaque URL-safe token.
+ */
+public final class RestaurantCursor {
+
+  private static final byte VERSION = 1;
+
+  private final double latitude;
+
+  private final double longitude;
+
+  private final double distanceInKms;
+
+  private final String restaurantId;
+
+  private RestaurantCursor(double latitude, double longitude, double distanceInKms,
+      String restaurantId) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.distanceInKms = distanceInKms;
+    this.restaurantId = restaurantId;
+  }
+
+  /**
+   * Cursor right after the given restaurant, for a user at the given location.
+   */
+  public static RestaurantCursor after(double latitude, double longitude, Restaurant last) {
+    return new RestaurantCursor(latitude, longitude,
+        NearestRestaurants.distanceInKms(latitude, longitude, last),
+        NearestRestaurants.idOf(last));
+  }
+
+  /**
+   * Reads a token made by {@link #encode()}.
+   * @throws IllegalArgumentException if it is not such a token
+   */
+  public static RestaurantCursor decode(String token) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+      if (buffer.get() != VERSION) {
+        throw new IllegalArgumentException("Unknown cursor version");
+      }
+      double latitude = buffer.getDouble();
+      double longitude = buffer.getDouble();
+      double distanceInKms = buffer.getDouble();
+      byte[] restaurantId = new byte[buffer.remaining()];
+      buffer.get(restaurantId);
+      return new RestaurantCursor(latitude, longitude, distanceInKms,
+          new String(restaurantId, StandardCharsets.UTF_8));
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated cursor", e);
+    }
+  }
+
+  public String encode() {
+    byte[] restaurantId = this.restaurantId.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(1 + 3 * Double.BYTES + restaurantId.length)
+        .put(VERSION)
+        .putDouble(latitude)
+        .putDouble(longitude)
+        .putDouble(distanceInKms)
+        .put(restaurantId);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * Whether the cursor was issued for a user at this location.
+   */
+  public boolean isFor(double latitude, double longitude) {
+    return Double.compare(this.latitude, latitude) == 0
+        && Double.compare(this.longitude, longitude) == 0;
+  }
+
+  /**
+   * Whether a restaurant at this distance comes after the cursor.
+   */
+  boolean isBefore(double distanceInKms, String restaurantId) {
+    int byDistance = Double.compare(this.distanceInKms, distanceInKms);
+    return byDistance < 0 || (byDistance == 0 && this.restaurantId.compareTo(restaurantId) < 0);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.ArrayList;
+
+/**
+ * Maps restaurant entities to the DTO sent to clients.
+ * Plain field copies: no reflection and no type maps, unlike ModelMapper.
+ */
+public class RestaurantMapper {
+
+  private RestaurantMapper() { /* utility */ }
+
+  /**
+   * Maps a RestaurantEntity to a dto.Restaurant.
+   * @param restaurantEntity entity read from the db
+   * @return dto with its own copy of the attributes
+   */
+  public static Restaurant toRestaurant(RestaurantEntity restaurantEntity) {
+    return new Restaurant(
+        restaurantEntity.getRestaurantId(),
+        restaurantEntity.getName(),
+        restaurantEntity.getCity(),
+        restaurantEntity.getImageUrl(),
+        restaurantEntity.getOpensAt(),
+        restaurantEntity.getClosesAt(),
+        restaurantEntity.getLatitude(),
+        restaurantEntity.getLongitude(),
+        restaurantEntity.getAttributes() == null
+            ? null : new ArrayList<>(restaurantEntity.getAttributes()));
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits names and attributes into normalized search tokens.
+ *   - Lower case, with accents and other combining marks removed.
+ *   - Anything other than a letter or a digit separates tokens: "South-Indian" gives
+ *     [south, indian].
+ * Queries and indexed text go through the same normalization, so they match token for token.
+ */
+public class SearchTokens {
+
+  private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+  private SearchTokens() { /* utility */ }
+
+  /**
+   * Get the distinct tokens of a text, in the order they first appear.
+   * @return tokens, or empty list if the text is null or has none
+   */
+  public static List<String> tokenize(String text) {
+    if (text == null || text.isEmpty()) {
+      return new ArrayList<>();
+    }
+    String normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+        .replaceAll("").toLowerCase(Locale.ROOT);
+
+    Set<String> tokens = new LinkedHashSet<>();
+    int start = -1;
+    for (int i = 0; i <= normalized.length(); i++) {
+      boolean partOfToken = i < normalized.length()
+          && Character.isLetterOrDigit(normalized.charAt(i));
+      if (partOfToken && start < 0) {
+        start = i;
+      } else if (!partOfToken && start >= 0) {
+        tokens.add(normalized.substring(start, i));
+        start = -1;
+      }
+    }
+    return new ArrayList<>(tokens);
+  }
+
+  /**
+   * Get the distinct tokens of all the given texts.
+   */
+  public static List<String> tokenize(Iterable<String> texts) {
+    Set<String> tokens = new LinkedHashSet<>();
+    if (texts != null) {
+      for (String text : texts) {
+        tokens.addAll(tokenize(text));
+      }
+    }
+    return new ArrayList<>(tokens);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import java.time.LocalTime;
+
+/**
+ * Radius within which restaurants serve, by time of day.
+ *   - Peak hours: 8AM - 10AM, 1PM-2PM, 7PM-9PM, when it is 3KMs.
+ *   - All other times it is 5KMs.
+ */
+public class ServingRadius {
+
+  public static final Double PEAK_HOURS_SERVING_RADIUS_IN_KMS = 3.0;
+
+  public static final Double NORMAL_HOURS_SERVING_RADIUS_IN_KMS = 5.0;
+
+  private ServingRadius() {
+  }
+
+  /**
+   * Get the serving radius at the given time.
+   * @param currentTime current time
+   * @return serving radius in KMs
+   */
+  public static Double inKmsAt(LocalTime currentTime) {
+    int h = currentTime.getHour();
+    int m = currentTime.getMinute();
+    if ((h >= 8 && h <= 9) || (h == 10 && m == 0) || h == 13 || (h == 14 && m == 0)
+        || (h >= 19 && h <= 21)) {
+      return PEAK_HOURS_SERVING_RADIUS_IN_KMS;
+    }
+    return NORMAL_HOURS_SERVING_RADIUS_IN_KMS;
+  }
+}
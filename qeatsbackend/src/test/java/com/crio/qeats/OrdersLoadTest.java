@@ -0,0 +1,224 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.OrderEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * POST /qeats/v1/order under load, on the in-process order queue.
+ *   - Only runs when asked for:
+ *     ./gradlew :qeatsbackend:test --tests '*OrdersLoadTest' -Dqeats.loadtest=true
+ *     -Dqeats.loadtest.concurrency (64) and -Dqeats.loadtest.seconds (20) change the load.
+ *   - The application is started on a random port with an embedded mongo; no RabbitMQ is
+ *     needed. Each client thread is a user which adds an item to its cart and orders it, again
+ *     and again, for a warm up and a measured run.
+ *   - Once the clients stop, the orders accepted are awaited in mongo: the time it takes shows
+ *     how far the consumer was behind the requests.
+ * Order throughput, POST /order latency percentiles and the drain time are printed at the end.
+ */
+@EnabledIfSystemProperty(named = "qeats.loadtest", matches = "true")
+class OrdersLoadTest {
+
+  private static final String API = "http://localhost:%d/qeats/v1";
+
+  private final int concurrency = Integer.getInteger("qeats.loadtest.concurrency", 64);
+
+  private final int seconds = Integer.getInteger("qeats.loadtest.seconds", 20);
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void ordersAreAcceptedWithoutWaitingForMongo() throws Exception {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(QEatsApplication.class)
+        .profiles("test")
+        .properties("server.port=0")
+        .run();
+    try {
+      MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+      mongoTemplate.save(menu(), "menus");
+      String api = String.format(Locale.ROOT, API,
+          context.getEnvironment().getProperty("local.server.port", Integer.class));
+
+      Result warmUp = load(api, Math.max(1, seconds / 4));
+      Result result = load(api, seconds);
+
+      long drainStart = System.nanoTime();
+      long expected = warmUp.accepted + result.accepted;
+      long deadline = drainStart + TimeUnit.SECONDS.toNanos(60);
+      while (mongoTemplate.count(new Query(), OrderEntity.class) < expected
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      result.drainMillis = (System.nanoTime() - drainStart) / 1e6;
+      assertEquals(expected, mongoTemplate.count(new Query(), OrderEntity.class));
+
+      System.out.printf("%nPOST /qeats/v1/order, %d clients, %ds%n", concurrency, seconds);
+      System.out.println(result);
+    } finally {
+      context.close();
+    }
+  }
+
+  private Result load(String api, int seconds) throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    AtomicLong errors = new AtomicLong();
+    List<Future<long[]>> futures = new ArrayList<>();
+    for (int client = 0; client < concurrency; client++) {
+      String userId = "user" + client;
+      futures.add(clients.submit(() -> {
+        Cart cart = objectMapper.readValue(get(api + "/cart?userId=" + userId), Cart.class);
+        String item = "{\"cartId\":\"" + cart.getId() + "\",\"itemId\":\"1\",\"restaurantId\""
+            + ":\"10\"}";
+        String order = "{\"cartId\":\"" + cart.getId() + "\"}";
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+          if (post(api + "/cart/item", item) != HttpURLConnection.HTTP_OK) {
+            errors.incrementAndGet();
+            continue;
+          }
+          long start = System.nanoTime();
+          if (post(api + "/order", order) != HttpURLConnection.HTTP_ACCEPTED) {
+            errors.incrementAndGet();
+            continue;
+          }
+          if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+          }
+          latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+      }));
+    }
+
+    long[] latencies = new long[0];
+    for (Future<long[]> future : futures) {
+      long[] clientLatencies = future.get();
+      int count = latencies.length;
+      latencies = Arrays.copyOf(latencies, count + clientLatencies.length);
+      System.arraycopy(clientLatencies, 0, latencies, count, clientLatencies.length);
+    }
+    clients.shutdown();
+    Arrays.sort(latencies);
+    return new Result(seconds, latencies, errors.get());
+  }
+
+  private static byte[] get(String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try (InputStream body = connection.getInputStream()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read; (read = body.read(buffer)) >= 0; ) {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  // Reads the whole body, so that the connection is kept alive for the next request.
+  private static int post(String url, String json) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    try (OutputStream body = connection.getOutputStream()) {
+      body.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    int status = connection.getResponseCode();
+    try (InputStream body = status < 400
+        ? connection.getInputStream() : connection.getErrorStream()) {
+      if (body != null) {
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) >= 0) {
+          // discarded
+        }
+      }
+    }
+    return status;
+  }
+
+  private static MenuEntity menu() {
+    ItemEntity itemEntity = new ItemEntity();
+    itemEntity.setId("1");
+    itemEntity.setItemId("1");
+    itemEntity.setName("Chicken Briyani");
+    itemEntity.setImageUrl("www.google.com");
+    itemEntity.setPrice(225.0);
+    itemEntity.setAttributes(Collections.singletonList("Mughal"));
+    MenuEntity menuEntity = new MenuEntity();
+    menuEntity.setRestaurantId("10");
+    menuEntity.setItems(Collections.singletonList(itemEntity));
+    return menuEntity;
+  }
+
+  private static class Result {
+
+    private final int seconds;
+
+    private final long[] sortedLatencies;
+
+    private final long accepted;
+
+    private final long errors;
+
+    private double drainMillis;
+
+    Result(int seconds, long[] sortedLatencies, long errors) {
+      this.seconds = seconds;
+      this.sortedLatencies = sortedLatencies;
+      this.accepted = sortedLatencies.length;
+      this.errors = errors;
+    }
+
+    private double percentileMillis(double percentile) {
+      if (sortedLatencies.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.min(sortedLatencies.length - 1,
+          Math.ceil(percentile * sortedLatencies.length) - 1);
+      return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%9.0f orders/s  p50 %8.2fms  p90 %8.2fms  p99 %8.2fms"
+          + "  max %8.2fms  errors %d  written %8.0fms after the last", (double) accepted
+          / seconds, percentileMillis(0.5), percentileMillis(0.9), percentileMillis(0.99),
+          percentileMillis(1.0), errors, drainMillis);
+    }
+  }
+}
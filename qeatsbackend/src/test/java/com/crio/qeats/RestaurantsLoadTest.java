@@ -0,0 +1,218 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.models.RestaurantEntity;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * GET /qeats/v1/restaurants under load, servlet stack against reactive stack.
+ *   - Only runs when asked for:
+ *     ./gradlew :qeatsbackend:test --tests '*RestaurantsLoadTest' -Dqeats.loadtest=true
+ *     -Dqeats.loadtest.concurrency (64) and -Dqeats.loadtest.seconds (20) change the load.
+ *   - Each stack is started on a random port, with its own embedded mongo holding the same
+ *     synthetic restaurants, then hit by concurrency client threads for a warm up and a
+ *     measured run. Redis is down, as in the other tests.
+ *   - "servlet" is the default configuration, caches included. "servlet-mongo" reads mongo on
+ *     every request like "reactive" does: MONGO_GEO, without the near cache or the serialized
+ *     responses.
+ * Throughput and latency percentiles of each stack are printed at the end.
+ */
+@EnabledIfSystemProperty(named = "qeats.loadtest", matches = "true")
+class RestaurantsLoadTest {
+
+  private static final int RESTAURANTS = 20000;
+
+  private static final double LATITUDE = 12.9716;
+
+  private static final double LONGITUDE = 77.5946;
+
+  // about 22kms across: a thousand restaurants or more within the serving radius
+  private static final double SPREAD_IN_DEGREES = 0.2;
+
+  private static final int QUERIES = 1024;
+
+  private final int concurrency = Integer.getInteger("qeats.loadtest.concurrency", 64);
+
+  private final int seconds = Integer.getInteger("qeats.loadtest.seconds", 20);
+
+  @Test
+  void servletAgainstReactive() throws Exception {
+    List<Result> results = new ArrayList<>();
+    results.add(run("servlet", new String[] {"test"}));
+    results.add(run("servlet-mongo", new String[] {"test"},
+        "qeats.restaurants.search-mode=MONGO_GEO", "qeats.cache.near.maximum-size=0",
+        "qeats.cache.restaurants-response.enabled=false"));
+    results.add(run("reactive", new String[] {"test", "reactive"}));
+
+    System.out.printf("%nGET /qeats/v1/restaurants, %d restaurants, %d clients, %ds%n",
+        RESTAURANTS, concurrency, seconds);
+    results.forEach(System.out::println);
+  }
+
+  private Result run(String name, String[] profiles, String... properties) throws Exception {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(QEatsApplication.class)
+        .profiles(profiles)
+        .properties("server.port=0")
+        .properties(properties)
+        .run();
+    try {
+      context.getBean(MongoTemplate.class).insert(restaurants(), RestaurantEntity.class);
+      int port = context.getEnvironment().getProperty("local.server.port", Integer.class);
+      String[] urls = urls(port);
+      assertEquals(HttpURLConnection.HTTP_OK, get(urls[0]), name);
+
+      load(name, urls, Math.max(1, seconds / 4));
+      return load(name, urls, seconds);
+    } finally {
+      context.close();
+    }
+  }
+
+  private Result load(String name, String[] urls, int seconds) throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    AtomicLong errors = new AtomicLong();
+    List<Future<long[]>> futures = new ArrayList<>();
+    for (int client = 0; client < concurrency; client++) {
+      int first = client;
+      futures.add(clients.submit(() -> {
+        long[] latencies = new long[1024];
+        int count = 0;
+        for (int i = first; System.nanoTime() < deadline; i++) {
+          long start = System.nanoTime();
+          if (get(urls[i % urls.length]) != HttpURLConnection.HTTP_OK) {
+            errors.incrementAndGet();
+          }
+          if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+          }
+          latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+      }));
+    }
+
+    long[] latencies = new long[0];
+    for (Future<long[]> future : futures) {
+      long[] clientLatencies = future.get();
+      int count = latencies.length;
+      latencies = Arrays.copyOf(latencies, count + clientLatencies.length);
+      System.arraycopy(clientLatencies, 0, latencies, count, clientLatencies.length);
+    }
+    clients.shutdown();
+    Arrays.sort(latencies);
+    return new Result(name, seconds, latencies, errors.get());
+  }
+
+  // Reads the whole body, so that the connection is kept alive for the next request.
+  private static int get(String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    int status = connection.getResponseCode();
+    try (InputStream body = status < 400
+        ? connection.getInputStream() : connection.getErrorStream()) {
+      if (body != null) {
+        byte[] buffer = new byte[8192];
+        while (body.read(buffer) >= 0) {
+          // discarded
+        }
+      }
+    }
+    return status;
+  }
+
+  private static String[] urls(int port) {
+    Random random = new Random(7);
+    String[] urls = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      urls[i] = String.format(Locale.ROOT, "http://localhost:%d/qeats/v1/restaurants"
+          + "?latitude=%.6f&longitude=%.6f", port, around(random, LATITUDE),
+          around(random, LONGITUDE));
+    }
+    return urls;
+  }
+
+  private static List<RestaurantEntity> restaurants() {
+    Random random = new Random(42);
+    List<RestaurantEntity> restaurants = new ArrayList<>(RESTAURANTS);
+    for (int i = 0; i < RESTAURANTS; i++) {
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setRestaurantId(String.valueOf(i));
+      restaurantEntity.setName("Restaurant " + i);
+      restaurantEntity.setCity("Bengaluru");
+      restaurantEntity.setImageUrl("www.google.com");
+      restaurantEntity.setLatitude(around(random, LATITUDE));
+      restaurantEntity.setLongitude(around(random, LONGITUDE));
+      // most of them open all day, so that the responses aren't empty at any time
+      boolean allDay = i % 4 != 0;
+      restaurantEntity.setOpensAt(allDay ? "00:00" : "10:00");
+      restaurantEntity.setClosesAt(allDay ? "23:59" : "22:00");
+      restaurantEntity.setAttributes(Arrays.asList("South Indian", "Cafe"));
+      restaurants.add(restaurantEntity);
+    }
+    return restaurants;
+  }
+
+  private static double around(Random random, double degrees) {
+    return degrees + (random.nextDouble() - 0.5) * SPREAD_IN_DEGREES;
+  }
+
+  private static class Result {
+
+    private final String name;
+
+    private final int seconds;
+
+    private final long[] sortedLatencies;
+
+    private final long errors;
+
+    Result(String name, int seconds, long[] sortedLatencies, long errors) {
+      this.name = name;
+      this.seconds = seconds;
+      this.sortedLatencies = sortedLatencies;
+      this.errors = errors;
+    }
+
+    private double percentileMillis(double percentile) {
+      if (sortedLatencies.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.min(sortedLatencies.length - 1,
+          Math.ceil(percentile * sortedLatencies.length) - 1);
+      return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "%-14s %9.0f req/s  p50 %8.2fms  p90 %8.2fms  p99 %8.2fms"
+          + "  max %8.2fms  errors %d", name, (double) sortedLatencies.length / seconds,
+          percentileMillis(0.5), percentileMillis(0.9), percentileMillis(0.99),
+          percentileMillis(1.0), errors);
+    }
+  }
+}
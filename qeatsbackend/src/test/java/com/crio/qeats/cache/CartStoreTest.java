@@ -0,0 +1,347 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.exceptions.CartNotFoundException;
+import com.crio.qeats.exceptions.EmptyCartException;
+import com.crio.qeats.exceptions.ItemNotFromSameRestaurantException;
+import com.crio.qeats.exceptions.OrderInProgressException;
+import com.crio.qeats.repositoryservices.CartRepositoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CartStoreTest {
+
+  private CartStore cartStore;
+
+  private CartRepositoryService cartRepositoryService;
+
+  // what the mocked db holds, by cart id
+  private final Map<String, Cart> saved = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  void setup() {
+    cartRepositoryService = mock(CartRepositoryService.class);
+    when(cartRepositoryService.findCartById(any(String.class)))
+        .thenAnswer(invocation -> saved.get(invocation.<String>getArgument(0)));
+    when(cartRepositoryService.findCartByUserId(any(String.class)))
+        .thenAnswer(invocation -> saved.values().stream()
+            .filter(cart -> cart.getUserId().equals(invocation.getArgument(0)))
+            .findFirst().orElse(null));
+    doAnswer(invocation -> {
+      for (Cart cart : invocation.<Collection<Cart>>getArgument(0)) {
+        saved.put(cart.getId(), cart);
+      }
+      return null;
+    }).when(cartRepositoryService).saveCarts(anyCollection());
+    cartStore = newCartStore();
+  }
+
+  @AfterEach
+  void teardown() {
+    cartStore.closeStore();
+  }
+
+  @Test
+  void usersGetTheirOwnCart() {
+    Cart cart = cartStore.findOrCreateCart("Bunny");
+
+    assertEquals("Bunny", cart.getUserId());
+    assertTrue(cart.getItems().isEmpty());
+    assertEquals(0, cart.getTotal());
+    assertEquals(cart.getId(), cartStore.findOrCreateCart("Bunny").getId());
+    assertFalse(cart.getId().equals(cartStore.findOrCreateCart("Bugs").getId()));
+  }
+
+  @Test
+  void totalFollowsTheItems() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+    cartStore.addItem(cartId, "10", item("2", 0.1));
+    Cart cart = cartStore.addItem(cartId, "10", item("2", 0.2));
+    assertEquals(3, cart.getItems().size());
+    assertEquals(225.3, cart.getTotal());
+
+    cart = cartStore.removeItem(cartId, "10", "2");
+    assertEquals(2, cart.getItems().size());
+    assertEquals(225.2, cart.getTotal());
+    // not in the cart
+    assertEquals(cart, cartStore.removeItem(cartId, "10", "99"));
+    assertEquals(cart, cartStore.removeItem(cartId, "11", "1"));
+
+    cart = cartStore.clearCart(cartId);
+    assertTrue(cart.getItems().isEmpty());
+    assertEquals(0, cart.getTotal());
+    assertNull(cart.getRestaurantId());
+  }
+
+  @Test
+  void itemsComeFromASingleRestaurant() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+
+    assertThrows(ItemNotFromSameRestaurantException.class,
+        () -> cartStore.addItem(cartId, "11", item("1", 100.0)));
+    assertEquals(225.0, cartStore.findCart(cartId).getTotal());
+
+    // once empty, the cart takes items of any restaurant
+    cartStore.removeItem(cartId, "10", "1");
+    Cart cart = cartStore.addItem(cartId, "11", item("1", 100.0));
+    assertEquals("11", cart.getRestaurantId());
+  }
+
+  @Test
+  void unknownCartIsNotFound() {
+    assertThrows(CartNotFoundException.class, () -> cartStore.findCart("99"));
+    assertThrows(CartNotFoundException.class,
+        () -> cartStore.addItem("99", "10", item("1", 225.0)));
+  }
+
+  @Test
+  void checkoutOrdersTheItemsAndEmptiesTheCart() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    assertThrows(EmptyCartException.class, () -> cartStore.checkout(cartId, cart -> cart));
+
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+    Cart ordered = cartStore.checkout(cartId, cart -> cart);
+    assertEquals(1, ordered.getItems().size());
+    assertEquals(225.0, ordered.getTotal());
+    assertEquals("10", ordered.getRestaurantId());
+
+    assertTrue(cartStore.findCart(cartId).getItems().isEmpty());
+    assertThrows(EmptyCartException.class, () -> cartStore.checkout(cartId, cart -> cart));
+  }
+
+  @Test
+  void cartIsLeftAsItWasWhenTheOrderFails() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    Cart cart = cartStore.addItem(cartId, "10", item("1", 225.0));
+
+    assertThrows(RejectedExecutionException.class, () -> cartStore.checkout(cartId, ordered -> {
+      throw new RejectedExecutionException("full");
+    }));
+    assertEquals(cart, cartStore.findCart(cartId));
+    // and can be ordered again
+    assertEquals(cart, cartStore.checkout(cartId, ordered -> ordered));
+  }
+
+  @Test
+  void orderIsPlacedOutsideTheLockOfTheCart() throws Exception {
+    // a single stripe, all the carts share the lock
+    cartStore.closeStore();
+    ReflectionTestUtils.setField(cartStore, "lockStripes", 1);
+    cartStore.initStore();
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    String otherCartId = cartStore.findOrCreateCart("Bugs").getId();
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Cart ordered = cartStore.checkout(cartId, cart -> {
+        // from another thread while the order is placed, which would wait for a lock held
+        Future<?> meanwhile = executorService.submit(() -> {
+          cartStore.addItem(otherCartId, "11", item("2", 10.0));
+          cartStore.addItem(cartId, "10", item("3", 30.0));
+          assertThrows(OrderInProgressException.class,
+              () -> cartStore.checkout(cartId, again -> again));
+          return null;
+        });
+        try {
+          meanwhile.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+        return cart;
+      });
+
+      assertEquals(2, ordered.getItems().size());
+      // the item added meanwhile is left, to be ordered next
+      Cart cart = cartStore.findCart(cartId);
+      assertEquals(Collections.singletonList(item("3", 30.0)), cart.getItems());
+      assertEquals(30.0, cart.getTotal());
+      assertEquals(10.0, cartStore.findCart(otherCartId).getTotal());
+      assertEquals(30.0, cartStore.checkout(cartId, again -> again).getTotal());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  void cartsAreOnlyWrittenWhenFlushed() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    for (int i = 0; i < 10; i++) {
+      cartStore.addItem(cartId, "10", item("1", 10.0));
+    }
+    verify(cartRepositoryService, never()).saveCarts(anyCollection());
+
+    assertTrue(cartStore.flush());
+    // the latest state only, once
+    verify(cartRepositoryService, times(1)).saveCarts(anyCollection());
+    assertEquals(10, saved.get(cartId).getItems().size());
+    assertEquals(100.0, saved.get(cartId).getTotal());
+
+    // nothing modified since
+    assertTrue(cartStore.flush());
+    verify(cartRepositoryService, times(1)).saveCarts(anyCollection());
+  }
+
+  @Test
+  void failedFlushIsRetried() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+    doThrow(new DataAccessResourceFailureException("down"))
+        .when(cartRepositoryService).saveCarts(anyCollection());
+
+    assertFalse(cartStore.flush());
+    assertTrue(saved.isEmpty());
+    // and the mutations don't wait for the db meanwhile
+    cartStore.addItem(cartId, "10", item("2", 25.0));
+
+    doAnswer(invocation -> {
+      for (Cart cart : invocation.<Collection<Cart>>getArgument(0)) {
+        saved.put(cart.getId(), cart);
+      }
+      return null;
+    }).when(cartRepositoryService).saveCarts(anyCollection());
+    assertTrue(cartStore.flush());
+    assertEquals(250.0, saved.get(cartId).getTotal());
+  }
+
+  @Test
+  void cartIsRecoveredAsLastFlushed() {
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+    cartStore.flush();
+    // lost in a crash
+    cartStore.addItem(cartId, "10", item("2", 25.0));
+
+    CartStore restarted = newCartStore();
+    try {
+      Cart cart = restarted.findOrCreateCart("Bunny");
+      assertEquals(cartId, cart.getId());
+      assertEquals(1, cart.getItems().size());
+      assertEquals(225.0, cart.getTotal());
+
+      cart = restarted.addItem(cartId, "10", item("3", 30.0));
+      assertEquals(255.0, cart.getTotal());
+    } finally {
+      restarted.closeStore();
+    }
+  }
+
+  @Test
+  void flushedCartsIdleTooLongAreEvicted() {
+    ReflectionTestUtils.setField(cartStore, "idleEvictionSeconds", 0L);
+    ReflectionTestUtils.setField(cartStore, "lastEvictionNanos",
+        System.nanoTime() - 10_000_000_000L);
+    String cartId = cartStore.findOrCreateCart("Bunny").getId();
+    cartStore.addItem(cartId, "10", item("1", 225.0));
+
+    cartStore.flush();
+    // read back from the db
+    assertEquals(225.0, cartStore.findOrCreateCart("Bunny").getTotal());
+    verify(cartRepositoryService, times(1)).findCartById(cartId);
+  }
+
+  @Test
+  void concurrentModificationsKeepTheTotalExact() throws Exception {
+    int users = 8;
+    int itemsPerUser = 1000;
+    List<String> cartIds = new ArrayList<>();
+    for (int user = 0; user < users; user++) {
+      cartIds.add(cartStore.findOrCreateCart("user" + user).getId());
+    }
+
+    ExecutorService executorService = Executors.newFixedThreadPool(16);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      // two threads on each cart, and flushes in between
+      for (int thread = 0; thread < 2 * users; thread++) {
+        String cartId = cartIds.get(thread % users);
+        futures.add(executorService.submit(() -> {
+          start.await();
+          for (int i = 0; i < itemsPerUser; i++) {
+            cartStore.addItem(cartId, "10", item("1", 0.1));
+            cartStore.addItem(cartId, "10", item("2", 1.0));
+            cartStore.removeItem(cartId, "10", "2");
+            if (i % 100 == 0) {
+              cartStore.flush();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+
+    cartStore.flush();
+    for (String cartId : cartIds) {
+      assertEquals(2 * itemsPerUser, cartStore.findCart(cartId).getItems().size());
+      assertEquals(2 * itemsPerUser * 0.1, cartStore.findCart(cartId).getTotal(), 1e-9);
+      assertEquals(cartStore.findCart(cartId), saved.get(cartId));
+    }
+  }
+
+  private CartStore newCartStore() {
+    CartStore newCartStore = new CartStore();
+    ReflectionTestUtils.setField(newCartStore, "cartRepositoryService", cartRepositoryService);
+    ReflectionTestUtils.setField(newCartStore, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(newCartStore, "lockStripes", 16);
+    // flushed by the tests
+    ReflectionTestUtils.setField(newCartStore, "flushIntervalMillis", 0L);
+    ReflectionTestUtils.setField(newCartStore, "flushBatchSize", 2);
+    ReflectionTestUtils.setField(newCartStore, "idleEvictionSeconds", 600L);
+    newCartStore.initStore();
+    return newCartStore;
+  }
+
+  private static Item item(String itemId, double price) {
+    return new Item(itemId, itemId, "Item " + itemId, "www.google.com", price,
+        Collections.singletonList("South Indian"));
+  }
+}
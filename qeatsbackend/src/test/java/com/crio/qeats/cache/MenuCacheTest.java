@@ -0,0 +1,158 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.repositoryservices.MenuRepositoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MenuCacheTest {
+
+  private MenuCache menuCache;
+
+  private MenuRepositoryService menuRepositoryService;
+
+  @BeforeEach
+  void setup() {
+    menuRepositoryService = mock(MenuRepositoryService.class);
+    menuCache = new MenuCache();
+    ReflectionTestUtils.setField(menuCache, "menuRepositoryService", menuRepositoryService);
+    ReflectionTestUtils.setField(menuCache, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(menuCache, "maximumSize", 100L);
+    ReflectionTestUtils.setField(menuCache, "refreshAfterWriteInSeconds", 300L);
+    menuCache.initCache();
+  }
+
+  @AfterEach
+  void teardown() {
+    menuCache.closeCache();
+  }
+
+  @Test
+  void onlyTheFirstReadOfARestaurantGoesToTheDb() {
+    when(menuRepositoryService.findMenu("11")).thenReturn(menu("11", "Chicken Briyani", 225.0));
+
+    GetMenuResponse first = menuCache.get("11");
+    assertSame(first, menuCache.get("11"));
+    assertEquals("Chicken Briyani", first.getMenu().getItems().get(0).getName());
+    // no menu is cached as well
+    assertNull(menuCache.get("99"));
+    assertNull(menuCache.get("99"));
+
+    verify(menuRepositoryService, times(1)).findMenu("11");
+    verify(menuRepositoryService, times(1)).findMenu("99");
+  }
+
+  @Test
+  void etagIsAHashOfTheContent() {
+    when(menuRepositoryService.findMenu("11")).thenReturn(menu("11", "Chicken Briyani", 225.0));
+    when(menuRepositoryService.findMenu("12")).thenReturn(menu("12", "Chicken Briyani", 225.0));
+    when(menuRepositoryService.findMenu("13")).thenReturn(menu("13", "Chicken Briyani", 225.0));
+
+    String etag = menuCache.get("11").getEtag();
+    assertEquals(66, etag.length());
+    assertEquals('"', etag.charAt(0));
+    // the restaurantId is part of the content
+    assertNotEquals(etag, menuCache.get("12").getEtag());
+
+    MenuEntity same = menuEntity("11", "Chicken Briyani", 225.0);
+    menuCache.onAfterSave(new AfterSaveEvent<>(same, null, "menus"));
+    assertEquals(etag, menuCache.get("11").getEtag());
+
+    MenuEntity cheaper = menuEntity("11", "Chicken Briyani", 200.0);
+    menuCache.onAfterSave(new AfterSaveEvent<>(cheaper, null, "menus"));
+    assertNotEquals(etag, menuCache.get("11").getEtag());
+  }
+
+  @Test
+  void savedMenusReplaceTheirEntryAndDeletesDropAll() {
+    when(menuRepositoryService.findMenu("11")).thenReturn(menu("11", "Chicken Briyani", 225.0));
+    menuCache.get("11");
+    assertNull(menuCache.get("12"));
+
+    menuCache.onAfterSave(new AfterSaveEvent<>(menuEntity("12", "Fish Briyani", 325.0), null,
+        "menus"));
+    assertEquals("Fish Briyani", menuCache.get("12").getMenu().getItems().get(0).getName());
+    verify(menuRepositoryService, times(1)).findMenu("12");
+
+    menuCache.onAfterDelete(new AfterDeleteEvent<>(new Document("restaurantId", "12"),
+        MenuEntity.class, "menus"));
+    assertNull(menuCache.get("12"));
+    menuCache.get("11");
+    verify(menuRepositoryService, times(2)).findMenu("11");
+    verify(menuRepositoryService, times(2)).findMenu("12");
+  }
+
+  @Test
+  void onlyTheMissingMenusAreReadTogether() {
+    when(menuRepositoryService.findMenu("11")).thenReturn(menu("11", "Chicken Briyani", 225.0));
+    when(menuRepositoryService.findMenus(any())).thenReturn(Arrays.asList(
+        menu("13", "Mutton Briyani", 300.0), menu("12", "Fish Briyani", 325.0)));
+    menuCache.get("11");
+
+    Map<String, GetMenuResponse> menus = menuCache.getAll(Arrays.asList("12", "11", "99", "13",
+        "12"));
+
+    // in the order asked for, without the restaurant which has no menu
+    assertEquals(Arrays.asList("12", "11", "13"), new ArrayList<>(menus.keySet()));
+    assertSame(menuCache.get("11"), menus.get("11"));
+    verify(menuRepositoryService, times(1)).findMenus(argThat(restaurantIds ->
+        new HashSet<>(restaurantIds).equals(new HashSet<>(Arrays.asList("12", "99", "13")))));
+
+    // all cached now, including the restaurant without a menu
+    assertEquals(3, menuCache.getAll(Arrays.asList("11", "12", "13", "99")).size());
+    verify(menuRepositoryService, times(1)).findMenus(any());
+    verify(menuRepositoryService, times(1)).findMenu("11");
+  }
+
+  private static Menu menu(String restaurantId, String name, Double price) {
+    Item item = new Item("1", "1", name, "www.google.com", price,
+        Collections.singletonList("Mughal"));
+    return new Menu(restaurantId, Collections.singletonList(item));
+  }
+
+  private static MenuEntity menuEntity(String restaurantId, String name, Double price) {
+    ItemEntity itemEntity = new ItemEntity();
+    itemEntity.setId("1");
+    itemEntity.setItemId("1");
+    itemEntity.setName(name);
+    itemEntity.setImageUrl("www.google.com");
+    itemEntity.setPrice(price);
+    itemEntity.setAttributes(Collections.singletonList("Mughal"));
+    MenuEntity menuEntity = new MenuEntity();
+    menuEntity.setRestaurantId(restaurantId);
+    menuEntity.setItems(Collections.singletonList(itemEntity));
+    return menuEntity;
+  }
+}
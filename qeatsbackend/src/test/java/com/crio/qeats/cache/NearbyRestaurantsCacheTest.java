@@ -0,0 +1,156 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.GeoUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class NearbyRestaurantsCacheTest {
+
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+
+  private RedisConfiguration redisConfiguration;
+
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setup() {
+    // nothing listens on this port, every redis call fails and the loader is used
+    redisConfiguration = new RedisConfiguration();
+    ReflectionTestUtils.setField(redisConfiguration, "redisHost", "localhost");
+    ReflectionTestUtils.setField(redisConfiguration, "redisPort", 1);
+    redisConfiguration.initCache();
+
+    meterRegistry = new SimpleMeterRegistry();
+    nearbyRestaurantsCache = new NearbyRestaurantsCache();
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "redisConfiguration", redisConfiguration);
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "nearCacheMaximumSize", 100L);
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "nearCacheExpiryInSeconds", 30L);
+    nearbyRestaurantsCache.initCache();
+  }
+
+  @AfterEach
+  void teardown() {
+    redisConfiguration.closeCache();
+  }
+
+  @Test
+  void concurrentMissesOnOneCellLoadOnce() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<NearbyRestaurants>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        futures.add(executorService.submit(() -> {
+          start.await();
+          return nearbyRestaurantsCache.get(20.0, 30.0, 5.0, (cellCenter, radiusInKms) -> {
+            loads.incrementAndGet();
+            sleep(100);
+            return Collections.singletonList(new Restaurant());
+          });
+        }));
+      }
+      start.countDown();
+      for (Future<NearbyRestaurants> future : futures) {
+        assertEquals(1, future.get(10, TimeUnit.SECONDS).getRestaurants().size());
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(1, loads.get());
+    assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss")
+        .functionCounter().count());
+    assertEquals(63.0, meterRegistry.get("cache.gets").tag("result", "hit")
+        .functionCounter().count());
+  }
+
+  @Test
+  void cellsAndRadiiAreCachedSeparately() {
+    AtomicInteger loads = new AtomicInteger();
+    nearbyRestaurantsCache.get(20.0, 30.0, 5.0, (cellCenter, radiusInKms) -> load(loads));
+    nearbyRestaurantsCache.get(20.0, 30.0, 3.0, (cellCenter, radiusInKms) -> load(loads));
+    nearbyRestaurantsCache.get(20.1, 30.0, 5.0, (cellCenter, radiusInKms) -> load(loads));
+    nearbyRestaurantsCache.get(20.0, 30.0, 5.0, (cellCenter, radiusInKms) -> load(loads));
+
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void entriesCoverEveryPointOfTheCell() {
+    int precision = GlobalConstants.GEOHASH_PRECISION_FOR_CACHE;
+    double cellHeight = GeoHashUtils.cellHeightInDegrees(precision);
+    double cellWidth = GeoHashUtils.cellWidthInDegrees(precision);
+    GeoLocation cellCenter = GeoHashUtils.cellCenter(20.0, 30.0, precision);
+    List<GeoLocation> loadedAround = new ArrayList<>();
+    List<Double> loadedWithin = new ArrayList<>();
+    nearbyRestaurantsCache.get(20.0, 30.0, 5.0, (center, radiusInKms) -> {
+      loadedAround.add(center);
+      loadedWithin.add(radiusInKms);
+      return Collections.emptyList();
+    });
+
+    assertEquals(cellCenter, loadedAround.get(0));
+    // a restaurant 5km away from a corner of the cell is in the entry
+    for (int i = -1; i <= 1; i += 2) {
+      for (int j = -1; j <= 1; j += 2) {
+        double distance = GeoUtils.findDistanceInKm(cellCenter.getLatitude(),
+            cellCenter.getLongitude(), cellCenter.getLatitude() + i * cellHeight / 2,
+            cellCenter.getLongitude() + j * cellWidth / 2);
+        assertTrue(distance + 5.0 <= loadedWithin.get(0));
+      }
+    }
+    assertTrue(loadedWithin.get(0) < 5.2);
+  }
+
+  @Test
+  void invalidateDropsTheCachedRestaurants() {
+    AtomicInteger loads = new AtomicInteger();
+    nearbyRestaurantsCache.get(20.0, 30.0, 5.0, (cellCenter, radiusInKms) -> load(loads));
+    nearbyRestaurantsCache.invalidate();
+    nearbyRestaurantsCache.get(20.0, 30.0, 5.0, (cellCenter, radiusInKms) -> load(loads));
+
+    assertEquals(2, loads.get());
+  }
+
+  private List<Restaurant> load(AtomicInteger loads) {
+    loads.incrementAndGet();
+    return Collections.emptyList();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.exceptions.EmptyCartException;
+import com.crio.qeats.exceptions.OrderInProgressException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.embedded.RedisServer;
+
+class OrderIdempotencyStoreTest {
+
+  // as spring.redis.port of the tests
+  private static final int REDIS_PORT = 6390;
+
+  private OrderIdempotencyStore orderIdempotencyStore;
+
+  private RedisConfiguration redisConfiguration;
+
+  private RedisServer redisServer;
+
+  private MeterRegistry meterRegistry;
+
+  private final AtomicInteger placed = new AtomicInteger();
+
+  @BeforeEach
+  void setup() {
+    // nothing listens on this port, every redis call fails and memory is used alone
+    redisConfiguration = newRedisConfiguration(1);
+
+    meterRegistry = new SimpleMeterRegistry();
+    orderIdempotencyStore = newStore(100L, 3600L);
+  }
+
+  @AfterEach
+  void teardown() {
+    redisConfiguration.closeCache();
+    if (redisServer != null) {
+      redisServer.stop();
+    }
+  }
+
+  @Test
+  void orderSentAgainIsNotPlacedAgain() {
+    Order first = orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+    Order again = orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+    Order otherKey = orderIdempotencyStore.placeOnce("1", "key2", this::placeOrder);
+    Order otherCart = orderIdempotencyStore.placeOnce("2", "key1", this::placeOrder);
+
+    assertSame(first, again);
+    assertNotSame(first, otherKey);
+    assertNotSame(first, otherCart);
+    assertEquals(3, placed.get());
+    assertEquals(1.0, meterRegistry.get("qeats.orders.duplicates").counter().count());
+    // redis was tried, and is skipped for a while after failing
+    assertEquals(1.0, meterRegistry.get("qeats.cache.redis").counter().count());
+  }
+
+  @Test
+  void failedOrderIsTriedAgain() {
+    assertThrows(EmptyCartException.class, () -> orderIdempotencyStore.placeOnce("1", "key1",
+        () -> {
+          placed.incrementAndGet();
+          throw new EmptyCartException("empty");
+        }));
+    Order order = orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+
+    assertEquals(order, orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder));
+    assertEquals(2, placed.get());
+  }
+
+  @Test
+  void concurrentDuplicatesPlaceASingleOrder() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch placing = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<Order>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        futures.add(executorService.submit(() -> {
+          start.await();
+          return orderIdempotencyStore.placeOnce("1", "key1", () -> {
+            // held until the others came in
+            awaitUninterruptibly(placing);
+            return placeOrder();
+          });
+        }));
+      }
+      start.countDown();
+      Thread.sleep(200);
+      placing.countDown();
+
+      Order winner = futures.get(0).get(10, TimeUnit.SECONDS);
+      for (Future<Order> future : futures) {
+        assertSame(winner, future.get(10, TimeUnit.SECONDS));
+      }
+      assertEquals(1, placed.get());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  void concurrentDuplicatesGetTheFailureOfTheFirst() throws Exception {
+    CountDownLatch placing = new CountDownLatch(1);
+    CountDownLatch failing = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    try {
+      Future<Order> first = executorService.submit(() ->
+          orderIdempotencyStore.placeOnce("1", "key1", () -> {
+            placing.countDown();
+            awaitUninterruptibly(failing);
+            throw new RejectedExecutionException("full");
+          }));
+      placing.await();
+      Future<Order> duplicate = executorService.submit(() ->
+          orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder));
+      Thread.sleep(200);
+      failing.countDown();
+
+      ExecutionException e = assertThrows(ExecutionException.class, () -> duplicate.get());
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+      assertThrows(ExecutionException.class, () -> first.get());
+      assertEquals(0, placed.get());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  void keysAreKeptForALimitedTimeAndNumber() {
+    orderIdempotencyStore = newStore(1L, 3600L);
+    orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+    orderIdempotencyStore.placeOnce("1", "key2", this::placeOrder);
+    // key1 was evicted by key2
+    orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+    assertEquals(3, placed.get());
+
+    orderIdempotencyStore = newStore(100L, 0L);
+    orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+    orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder);
+    assertEquals(5, placed.get());
+  }
+
+  @Test
+  void orderIsPlacedOnceAcrossServers() {
+    startRedis();
+    OrderIdempotencyStore otherServer = newStore(100L, 3600L);
+    String key = "idempotency:order:1:key1";
+
+    Order first = orderIdempotencyStore.placeOnce("1", "key1", () -> {
+      try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+        // claimed for a short while only
+        assertTrue(jedis.ttl(key) <= 30);
+      }
+      assertThrows(OrderInProgressException.class,
+          () -> otherServer.placeOnce("1", "key1", this::placeOrder));
+      return placeOrder();
+    });
+
+    assertEquals(first, otherServer.placeOnce("1", "key1", this::placeOrder));
+    assertEquals(1, placed.get());
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      assertTrue(jedis.ttl(key) > 30);
+    }
+  }
+
+  @Test
+  void failedOrderIsReleasedForOtherServers() {
+    startRedis();
+    OrderIdempotencyStore otherServer = newStore(100L, 3600L);
+
+    assertThrows(EmptyCartException.class, () -> orderIdempotencyStore.placeOnce("1", "key1",
+        () -> {
+          placed.incrementAndGet();
+          throw new EmptyCartException("empty");
+        }));
+    Order order = otherServer.placeOnce("1", "key1", this::placeOrder);
+
+    assertEquals(order, orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder));
+    assertEquals(2, placed.get());
+  }
+
+  @Test
+  void unreadableOrderIsNotPlacedAgain() {
+    startRedis();
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      jedis.setex("idempotency:order:1:key1", 3600, "{\"id\":");
+    }
+
+    assertThrows(OrderInProgressException.class,
+        () -> orderIdempotencyStore.placeOnce("1", "key1", this::placeOrder));
+    assertEquals(0, placed.get());
+  }
+
+  // Redis shared by the stores created from now on, each of them standing for a server.
+  private void startRedis() {
+    redisServer = new RedisServer(REDIS_PORT);
+    redisServer.start();
+    redisConfiguration.closeCache();
+    redisConfiguration = newRedisConfiguration(REDIS_PORT);
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      jedis.flushAll();
+    }
+    orderIdempotencyStore = newStore(100L, 3600L);
+  }
+
+  private static RedisConfiguration newRedisConfiguration(int redisPort) {
+    RedisConfiguration newRedisConfiguration = new RedisConfiguration();
+    ReflectionTestUtils.setField(newRedisConfiguration, "redisHost", "localhost");
+    ReflectionTestUtils.setField(newRedisConfiguration, "redisPort", redisPort);
+    newRedisConfiguration.initCache();
+    return newRedisConfiguration;
+  }
+
+  private OrderIdempotencyStore newStore(long maximumSize, long expireAfterWriteInSeconds) {
+    meterRegistry = new SimpleMeterRegistry();
+    OrderIdempotencyStore newStore = new OrderIdempotencyStore();
+    ReflectionTestUtils.setField(newStore, "redisConfiguration", redisConfiguration);
+    ReflectionTestUtils.setField(newStore, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(newStore, "maximumSize", maximumSize);
+    ReflectionTestUtils.setField(newStore, "expireAfterWriteInSeconds",
+        expireAfterWriteInSeconds);
+    ReflectionTestUtils.setField(newStore, "redisEnabled", true);
+    newStore.initStore();
+    return newStore;
+  }
+
+  private Order placeOrder() {
+    int i = placed.incrementAndGet();
+    return new Order("order" + i, "10", "Bunny", new ArrayList<>(), 225.0, new Date());
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalTime;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantsResponseCacheTest {
+
+  private static final String KEY = "restaurants:tdr1wxy:5.0";
+
+  // the user, all the restaurants of the cell are within the radius
+  private static final double LATITUDE = 20.0;
+  private static final double LONGITUDE = 30.0;
+
+  // the mapper spring mvc writes the responses with
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private RestaurantsResponseCache restaurantsResponseCache;
+
+  private MeterRegistry meterRegistry;
+
+  private NearbyRestaurants nearbyRestaurants;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    restaurantsResponseCache = new RestaurantsResponseCache();
+    ReflectionTestUtils.setField(restaurantsResponseCache, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(restaurantsResponseCache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(restaurantsResponseCache, "maximumSize", 100L);
+    ReflectionTestUtils.setField(restaurantsResponseCache, "expiryInSeconds", 30L);
+    restaurantsResponseCache.initCache();
+
+    nearbyRestaurants = new NearbyRestaurants(Arrays.asList(
+        restaurant("10", "18:00", "23:00"), restaurant("11", "22:00", "02:00"),
+        restaurant("12", "11:30", "15:00")));
+  }
+
+  @Test
+  void sameBytesUntilARestaurantOpensOrCloses() {
+    byte[] evening = restaurantsResponseCache.get(KEY, nearbyRestaurants, LocalTime.of(18, 0),
+        LATITUDE, LONGITUDE, 5.0);
+
+    assertSame(evening, restaurantsResponseCache.get(KEY, nearbyRestaurants,
+        LocalTime.of(20, 15), LATITUDE, LONGITUDE, 5.0));
+    assertSame(evening, restaurantsResponseCache.get(KEY, nearbyRestaurants,
+        LocalTime.of(21, 59, 59), LATITUDE, LONGITUDE, 5.0));
+    byte[] late = restaurantsResponseCache.get(KEY, nearbyRestaurants, LocalTime.of(22, 0),
+        LATITUDE, LONGITUDE, 5.0);
+    assertNotSame(evening, late);
+    assertArrayEquals(serialize(LocalTime.of(22, 0)), late);
+    assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss")
+        .functionCounter().count());
+  }
+
+  @Test
+  void bytesAreTheResponseAtAnyTimeOfTheDay() {
+    for (int second = 0; second < 24 * 3600; second += 59) {
+      LocalTime time = LocalTime.ofSecondOfDay(second);
+      assertArrayEquals(serialize(time), restaurantsResponseCache.get(KEY, nearbyRestaurants,
+          time, LATITUDE, LONGITUDE, 5.0), time.toString());
+    }
+  }
+
+  @Test
+  void reloadedRestaurantsAreSerializedAgain() {
+    LocalTime time = LocalTime.of(19, 0);
+    byte[] before = restaurantsResponseCache.get(KEY, nearbyRestaurants, time, LATITUDE,
+        LONGITUDE, 5.0);
+    nearbyRestaurants = new NearbyRestaurants(Arrays.asList(restaurant("13", "09:00", "21:00")));
+
+    byte[] after = restaurantsResponseCache.get(KEY, nearbyRestaurants, time, LATITUDE,
+        LONGITUDE, 5.0);
+
+    assertNotSame(before, after);
+    assertArrayEquals(serialize(time), after);
+    assertArrayEquals(after, restaurantsResponseCache.get(KEY, nearbyRestaurants, time,
+        LATITUDE, LONGITUDE, 5.0));
+  }
+
+  @Test
+  void cellsAreCachedSeparately() {
+    LocalTime time = LocalTime.of(19, 0);
+    NearbyRestaurants empty = new NearbyRestaurants(Arrays.asList());
+
+    byte[] cell = restaurantsResponseCache.get(KEY, nearbyRestaurants, time, LATITUDE,
+        LONGITUDE, 5.0);
+    byte[] otherCell = restaurantsResponseCache.get("restaurants:tdr1wxz:5.0", empty, time,
+        LATITUDE, LONGITUDE, 5.0);
+
+    assertArrayEquals("{\"restaurants\":[]}".getBytes(), otherCell);
+    assertSame(cell, restaurantsResponseCache.get(KEY, nearbyRestaurants, time, LATITUDE,
+        LONGITUDE, 5.0));
+  }
+
+  @Test
+  void restaurantsOutOfTheRadiusAreLeftOut() throws Exception {
+    LocalTime time = LocalTime.of(12, 0);
+    nearbyRestaurants = new NearbyRestaurants(Arrays.asList(
+        restaurant("10", "09:00", "21:00"), restaurant("11", "09:00", "21:00", 20.03),
+        restaurant("12", "09:00", "21:00")));
+    byte[] all = restaurantsResponseCache.get(KEY, nearbyRestaurants, time, LATITUDE, LONGITUDE,
+        5.0);
+
+    // restaurant 11 is 3.5km away from the user
+    byte[] close = restaurantsResponseCache.get("restaurants:tdr1wxy:3.0", nearbyRestaurants,
+        time, LATITUDE, LONGITUDE, 3.0);
+
+    assertArrayEquals(serialize(time), all);
+    assertArrayEquals(objectMapper.writeValueAsBytes(new GetRestaurantsResponse(Arrays.asList(
+        nearbyRestaurants.getRestaurants().get(0), nearbyRestaurants.getRestaurants().get(2)))),
+        close);
+    assertArrayEquals("{\"restaurants\":[]}".getBytes(), restaurantsResponseCache.get(
+        "restaurants:tg5cbpb:3.0", nearbyRestaurants, time, 21.0, LONGITUDE, 3.0));
+    assertSame(all, restaurantsResponseCache.get(KEY, nearbyRestaurants, time, LATITUDE,
+        LONGITUDE, 5.0));
+  }
+
+  @Test
+  void onlyRestaurantsNearTheEdgeOfTheRadiusAreCheckedForEachUser() throws Exception {
+    LocalTime time = LocalTime.of(12, 0);
+    GeoLocation centre = GeoHashUtils.cellCenter(LATITUDE, LONGITUDE,
+        GlobalConstants.GEOHASH_PRECISION_FOR_CACHE);
+    double kmsPerDegree = GeoUtils.findDistanceInKm(0.0, 0.0, 1.0, 0.0);
+    // one at the centre of the cell, and two 3km north and south of it
+    nearbyRestaurants = new NearbyRestaurants(Arrays.asList(
+        restaurant("10", "09:00", "21:00", centre.getLatitude() + 3.0 / kmsPerDegree,
+            centre.getLongitude()),
+        restaurant("11", "09:00", "21:00", centre.getLatitude(), centre.getLongitude()),
+        restaurant("12", "09:00", "21:00", centre.getLatitude() - 3.0 / kmsPerDegree,
+            centre.getLongitude())));
+    String key = "restaurants:tdr1wxy:3.0";
+
+    // users in the north and the south of the cell keep a different one
+    double north = centre.getLatitude() + 0.0006;
+    double south = centre.getLatitude() - 0.0006;
+    assertArrayEquals(serialize(time, north, centre.getLongitude(), 3.0),
+        restaurantsResponseCache.get(key, nearbyRestaurants, time, north,
+            centre.getLongitude(), 3.0));
+    assertArrayEquals(serialize(time, south, centre.getLongitude(), 3.0),
+        restaurantsResponseCache.get(key, nearbyRestaurants, time, south,
+            centre.getLongitude(), 3.0));
+
+    // users in the east and the west of the cell keep neither, and share the same bytes
+    byte[] east = restaurantsResponseCache.get(key, nearbyRestaurants, time,
+        centre.getLatitude(), centre.getLongitude() + 0.0006, 3.0);
+    byte[] west = restaurantsResponseCache.get(key, nearbyRestaurants, time,
+        centre.getLatitude(), centre.getLongitude() - 0.0006, 3.0);
+    assertArrayEquals(serialize(time, centre.getLatitude(), centre.getLongitude() + 0.0006, 3.0),
+        east);
+    assertSame(east, west);
+  }
+
+  private byte[] serialize(LocalTime time) {
+    try {
+      return objectMapper.writeValueAsBytes(
+          new GetRestaurantsResponse(nearbyRestaurants.openAt(time)));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Restaurant restaurant(String restaurantId, String opensAt, String closesAt) {
+    return restaurant(restaurantId, opensAt, closesAt, 20.02);
+  }
+
+  // the open restaurants within the radius, as they are written without the cache
+  private byte[] serialize(LocalTime time, double latitude, double longitude,
+      double radiusInKms) {
+    try {
+      return objectMapper.writeValueAsBytes(new GetRestaurantsResponse(nearbyRestaurants.openAt(
+          time, GeoUtils.withinRadius(latitude, longitude, radiusInKms))));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Restaurant restaurant(String restaurantId, String opensAt, String closesAt,
+      double latitude) {
+    return restaurant(restaurantId, opensAt, closesAt, latitude, 30.01);
+  }
+
+  private static Restaurant restaurant(String restaurantId, String opensAt, String closesAt,
+      double latitude, double longitude) {
+    return new Restaurant(restaurantId, "A2B " + restaurantId, "Hsr Layout", "www.google.com",
+        opensAt, closesAt, latitude, longitude, Arrays.asList("Tamil"));
+  }
+}
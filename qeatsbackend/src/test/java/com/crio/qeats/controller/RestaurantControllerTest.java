@@ -11,18 +11,27 @@ import static com.crio.qeats.controller.RestaurantController.CART_API;
 import static com.crio.qeats.controller.RestaurantController.CART_CLEAR_API;
 import static com.crio.qeats.controller.RestaurantController.CART_ITEM_API;
 import static com.crio.qeats.controller.RestaurantController.GET_ORDERS_API;
+import static com.crio.qeats.controller.RestaurantController.IDEMPOTENCY_KEY_HEADER;
+import static com.crio.qeats.controller.RestaurantController.MENUS_API;
 import static com.crio.qeats.controller.RestaurantController.MENU_API;
 import static com.crio.qeats.controller.RestaurantController.POST_ORDER_API;
 import static com.crio.qeats.controller.RestaurantController.RESTAURANTS_API;
 import static com.crio.qeats.controller.RestaurantController.RESTAURANT_API_ENDPOINT;
+import static com.crio.qeats.controller.RestaurantController.SUGGEST_API;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -30,17 +39,49 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.dto.Suggestion;
+import com.crio.qeats.exceptions.CartNotFoundException;
+import com.crio.qeats.exceptions.EmptyCartException;
+import com.crio.qeats.exceptions.OrderInProgressException;
+import com.crio.qeats.exchanges.CartModifiedResponse;
+import com.crio.qeats.exchanges.GetMenuRequest;
+import com.crio.qeats.exchanges.GetMenuResponse;
+import com.crio.qeats.exchanges.GetMenusRequest;
+import com.crio.qeats.exchanges.GetMenusResponse;
+import com.crio.qeats.exchanges.GetOrdersRequest;
+import com.crio.qeats.exchanges.GetOrdersResponse;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.GetSuggestionsRequest;
+import com.crio.qeats.exchanges.GetSuggestionsResponse;
+import com.crio.qeats.services.CartAndOrderService;
+import com.crio.qeats.services.MenuService;
+import com.crio.qeats.services.RestaurantRequestExecutor;
 import com.crio.qeats.services.RestaurantService;
 import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.OrderCursor;
+import com.crio.qeats.utils.RestaurantCursor;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.net.URI;
 import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -48,14 +89,19 @@ import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -84,11 +130,13 @@ public class RestaurantControllerTest {
   //FIXME: REVIEW the api names
   private static final String RESTAURANT_API_URI = RESTAURANT_API_ENDPOINT + RESTAURANTS_API;
   private static final String MENU_API_URI = RESTAURANT_API_ENDPOINT + MENU_API;
+  private static final String MENUS_API_URI = RESTAURANT_API_ENDPOINT + MENUS_API;
   private static final String CART_API_URI = RESTAURANT_API_ENDPOINT + CART_API;
   private static final String ADD_REMOVE_CART_API_URI = RESTAURANT_API_ENDPOINT + CART_ITEM_API;
   private static final String CLEAR_CART_API_URI = RESTAURANT_API_ENDPOINT + CART_CLEAR_API;
   private static final String POST_ORDER_API_URI = RESTAURANT_API_ENDPOINT + POST_ORDER_API;
   private static final String LIST_ORDERS_API_URI = RESTAURANT_API_ENDPOINT + GET_ORDERS_API;
+  private static final String SUGGEST_API_URI = RESTAURANT_API_ENDPOINT + SUGGEST_API;
 
   private static final String FIXTURES = "fixtures/exchanges";
   private ObjectMapper objectMapper;
@@ -100,10 +148,20 @@ public class RestaurantControllerTest {
 
   private MockMvc mvc;
 
+  // the whole application, with the controller configured by application.properties
+  @Autowired
+  private MockMvc configuredMvc;
+
   // it is just like autowired to mock a spring bmanaged bean or use as a mock to manage the bean dependency in spring 
   @MockBean
   private RestaurantService restaurantService;
 
+  @MockBean
+  private MenuService menuService;
+
+  @MockBean
+  private CartAndOrderService cartAndOrderService;
+
 // it injects @mock dependencies into the real object or help in creating mock object 
 // It helps in creating a testable controller instance.
 /*@InjectMocks injects the mocked dependencies (@MockBean instances) 
@@ -326,5 +384,714 @@ into the actual RestaurantController instance. */
 
 
 
-}
+  @Test
+  public void streamedRestaurantsAreTheSameBytesAsTheBufferedResponse() throws Exception {
+    List<Restaurant> restaurants = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json"),
+        new TypeReference<List<Restaurant>>() {
+        });
+    restaurants.get(0).setName("Caf\u00e9 \"Sp\u00e9cial\" \u0b9a\u0bc8\u0bb5\u0bae\u0bcd");
+    when(restaurantService.findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(new GetRestaurantsResponse(restaurants));
+    doAnswer(invocation -> {
+      Consumer<Restaurant> consumer = invocation.getArgument(2);
+      restaurants.forEach(consumer);
+      return null;
+    }).when(restaurantService).streamAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class), any());
+
+    String uri = UriComponentsBuilder
+        .fromPath(RESTAURANT_API_URI)
+        .queryParam("latitude", "20.21")
+        .queryParam("longitude", "30.31")
+        .build().toUriString();
+
+    MockHttpServletResponse buffered = getRestaurants(mvc, uri);
+
+    ReflectionTestUtils.setField(restaurantController, "streamingEnabled", true);
+    MockHttpServletResponse streamed = getRestaurants(mvc, uri);
+
+    assertEquals(HttpStatus.OK.value(), streamed.getStatus());
+    assertEquals(buffered.getContentType(), streamed.getContentType());
+    assertArrayEquals(buffered.getContentAsByteArray(), streamed.getContentAsByteArray());
+    verify(restaurantService, times(1)).streamAllRestaurantsCloseBy(
+        any(GetRestaurantsRequest.class), any(LocalTime.class), any());
+  }
+
+  @Test
+  public void listingsAreStreamedWithAsyncAndSerializedResponsesEnabled() throws Exception {
+    doAnswer(invocation -> {
+      Consumer<Restaurant> consumer = invocation.getArgument(2);
+      consumer.accept(new Restaurant("10", "A2B", "Hsr Layout", "www.google.com", "18:00",
+          "23:00", 20.22, 30.31, Arrays.asList("Tamil")));
+      return null;
+    }).when(restaurantService).streamAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class), any());
+    CompletableFuture<GetRestaurantsResponse> page = new CompletableFuture<>();
+    when(restaurantService.findAllRestaurantsCloseByAsync(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(page);
+    enableAsync();
+    ReflectionTestUtils.setField(restaurantController, "serializedResponsesEnabled", true);
+    ReflectionTestUtils.setField(restaurantController, "streamingEnabled", true);
+
+    MockHttpServletResponse response =
+        getRestaurants(mvc, restaurantsUri("20.21", "30.31", null, null));
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("10", objectMapper.readValue(response.getContentAsString(),
+        GetRestaurantsResponse.class).getRestaurants().get(0).getRestaurantId());
+    verify(restaurantService, times(0)).findAllRestaurantsCloseByAsJsonAsync(
+        any(GetRestaurantsRequest.class), any(LocalTime.class));
+
+    // pages are still looked up on the executor
+    MvcResult mvcResult = mvc.perform(
+        get(restaurantsUri("20.21", "30.31", "5", null)).accept(APPLICATION_JSON_UTF8)
+    ).andReturn();
+    page.complete(new GetRestaurantsResponse(Collections.emptyList()));
+    assertEquals("{\"restaurants\":[]}",
+        mvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse().getContentAsString());
+    verify(restaurantService, times(1)).streamAllRestaurantsCloseBy(
+        any(GetRestaurantsRequest.class), any(LocalTime.class), any());
+  }
+
+  @Test
+  public void serializedRestaurantsAreWrittenAsTheyAre() throws Exception {
+    byte[] json = "{\"restaurants\":[{\"restaurantId\":\"10\"}]}".getBytes("UTF-8");
+    when(restaurantService.findAllRestaurantsCloseByAsJson(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(json);
+    ReflectionTestUtils.setField(restaurantController, "serializedResponsesEnabled", true);
+
+    MockHttpServletResponse response =
+        getRestaurants(mvc, restaurantsUri("20.21", "30.31", null, null));
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(APPLICATION_JSON_UTF8.toString(), response.getContentType());
+    assertEquals(json.length, response.getContentLength());
+    assertArrayEquals(json, response.getContentAsByteArray());
+
+    // pages are not cached
+    when(restaurantService.findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(new GetRestaurantsResponse(Collections.emptyList()));
+    response = getRestaurants(mvc, restaurantsUri("20.21", "30.31", "5", null));
+
+    assertEquals("{\"restaurants\":[]}", response.getContentAsString());
+    verify(restaurantService, times(1)).findAllRestaurantsCloseByAsJson(
+        any(GetRestaurantsRequest.class), any(LocalTime.class));
+  }
+
+  @Test
+  public void listingsAreSerializedOnTheExecutorWithTheShippedConfiguration()
+      throws Exception {
+    byte[] json = "{\"restaurants\":[{\"restaurantId\":\"10\"}]}".getBytes("UTF-8");
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    when(restaurantService.findAllRestaurantsCloseByAsJsonAsync(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(future);
+
+    MvcResult mvcResult = configuredMvc.perform(
+        get(restaurantsUri("20.21", "30.31", null, null)).accept(APPLICATION_JSON)
+    ).andReturn();
+    // the servlet thread is back before the response is found
+    assertTrue(mvcResult.getRequest().isAsyncStarted());
+    future.complete(json);
+    MockHttpServletResponse response = configuredMvc.perform(asyncDispatch(mvcResult))
+        .andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(APPLICATION_JSON_UTF8.toString(), response.getContentType());
+    assertArrayEquals(json, response.getContentAsByteArray());
+    verify(restaurantService, times(0)).findAllRestaurantsCloseByAsJson(
+        any(GetRestaurantsRequest.class), any(LocalTime.class));
+  }
+
+  @Test
+  public void restaurantsAreLookedUpAsynchronouslyWhenEnabled() throws Exception {
+    List<Restaurant> restaurants = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json"),
+        new TypeReference<List<Restaurant>>() {
+        });
+    CompletableFuture<GetRestaurantsResponse> future = new CompletableFuture<>();
+    when(restaurantService.findAllRestaurantsCloseByAsync(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(future);
+    enableAsync();
+
+    MvcResult mvcResult = mvc.perform(
+        get(restaurantsUri("20.21", "30.31", null, null)).accept(APPLICATION_JSON_UTF8)
+    ).andReturn();
+    // the servlet thread is back before the restaurants are found
+    assertTrue(mvcResult.getRequest().isAsyncStarted());
+    future.complete(new GetRestaurantsResponse(restaurants));
+    MockHttpServletResponse response = mvc.perform(asyncDispatch(mvcResult))
+        .andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(3, objectMapper.readValue(response.getContentAsString(),
+        GetRestaurantsResponse.class).getRestaurants().size());
+  }
+
+  @Test
+  public void slowOrRejectedAsynchronousLookupsAreUnavailable() throws Exception {
+    CompletableFuture<GetRestaurantsResponse> future = new CompletableFuture<>();
+    when(restaurantService.findRestaurantsBySearchQueryAsync(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(future);
+    when(restaurantService.findAllRestaurantsCloseByAsync(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenThrow(new RejectedExecutionException("busy"));
+    enableAsync();
+    String searchUri = UriComponentsBuilder.fromUriString(restaurantsUri("20.21", "30.31", null,
+        null)).queryParam("searchFor", "A2B").build().toUriString();
+
+    MvcResult timedOut = mvc.perform(get(searchUri).accept(APPLICATION_JSON_UTF8)).andReturn();
+    MockAsyncContext asyncContext = (MockAsyncContext) timedOut.getRequest().getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+    MvcResult rejected = mvc.perform(
+        get(restaurantsUri("20.21", "30.31", null, null)).accept(APPLICATION_JSON_UTF8)
+    ).andReturn();
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(),
+        mvc.perform(asyncDispatch(timedOut)).andReturn().getResponse().getStatus());
+    // the lookup is dropped, if it did not start yet
+    assertTrue(future.isCancelled());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(),
+        mvc.perform(asyncDispatch(rejected)).andReturn().getResponse().getStatus());
+  }
+
+  private void enableAsync() {
+    RestaurantRequestExecutor restaurantRequestExecutor = new RestaurantRequestExecutor();
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "meterRegistry",
+        new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "poolSize", 1);
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "queueCapacity", 1);
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "timeoutMillis", 2000L);
+    restaurantRequestExecutor.initPool();
+    ReflectionTestUtils.setField(restaurantController, "restaurantRequestExecutor",
+        restaurantRequestExecutor);
+    ReflectionTestUtils.setField(restaurantController, "asyncEnabled", true);
+  }
+
+  @Test
+  public void limitAndCursorArePassedOnAndTheNextCursorReturned() throws Exception {
+    String cursor = RestaurantCursor.after(20.21, 30.31, new Restaurant("10", "A2B", "Hsr Layout",
+        "www.google.com", "18:00", "23:00", 20.22, 30.31, Arrays.asList("Tamil"))).encode();
+    when(restaurantService.findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class)))
+        .thenReturn(new GetRestaurantsResponse(Collections.emptyList(), "next"));
+
+    MockHttpServletResponse response =
+        getRestaurants(mvc, restaurantsUri("20.21", "30.31", "5", cursor));
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("next", objectMapper.readValue(response.getContentAsString(),
+        GetRestaurantsResponse.class).getNextCursor());
+    ArgumentCaptor<GetRestaurantsRequest> argumentCaptor =
+        ArgumentCaptor.forClass(GetRestaurantsRequest.class);
+    verify(restaurantService, times(1))
+        .findAllRestaurantsCloseBy(argumentCaptor.capture(), any(LocalTime.class));
+    assertEquals(Integer.valueOf(5), argumentCaptor.getValue().getLimit());
+    assertEquals(cursor, argumentCaptor.getValue().getCursor());
+  }
+
+  @Test
+  public void badLimitOrCursorResultsInBadHttpRequest() throws Exception {
+    String cursor = RestaurantCursor.after(20.21, 30.31, new Restaurant("10", "A2B", "Hsr Layout",
+        "www.google.com", "18:00", "23:00", 20.22, 30.31, Arrays.asList("Tamil"))).encode();
+
+    for (String uri : Arrays.asList(
+        restaurantsUri("20.21", "30.31", "0", null),
+        restaurantsUri("20.21", "30.31", "101", null),
+        // a cursor needs a limit
+        restaurantsUri("20.21", "30.31", null, cursor),
+        // and the location it was returned for
+        restaurantsUri("20.21", "30.32", "5", cursor),
+        restaurantsUri("20.21", "30.31", "5", "garbage"))) {
+      MockHttpServletResponse response = mvc.perform(
+          get(uri).accept(APPLICATION_JSON_UTF8)
+      ).andReturn().getResponse();
+      assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus(), uri);
+    }
+    verify(restaurantService, times(0))
+        .findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class), any(LocalTime.class));
+  }
+
+  private static String restaurantsUri(String latitude, String longitude, String limit,
+      String cursor) {
+    UriComponentsBuilder builder = UriComponentsBuilder
+        .fromPath(RESTAURANT_API_URI)
+        .queryParam("latitude", latitude)
+        .queryParam("longitude", longitude);
+    if (limit != null) {
+      builder.queryParam("limit", limit);
+    }
+    if (cursor != null) {
+      builder.queryParam("cursor", cursor);
+    }
+    return builder.build().toUriString();
+  }
+
+  // /restaurants answers with a DeferredResult, written on the async dispatch
+  private static MockHttpServletResponse getRestaurants(MockMvc mockMvc, String uri)
+      throws Exception {
+    MvcResult mvcResult = mockMvc.perform(get(uri).accept(APPLICATION_JSON_UTF8)).andReturn();
+    assertTrue(mvcResult.getRequest().isAsyncStarted());
+    return mockMvc.perform(asyncDispatch(mvcResult)).andReturn().getResponse();
+  }
+
+  @Test
+  public void searchForSearchesRestaurantsInsteadOfListingThem() throws Exception {
+    List<Restaurant> restaurants = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/list_restaurants_searchedby_attributes.json"),
+        new TypeReference<List<Restaurant>>() {
+        });
+    when(restaurantService.findRestaurantsBySearchQuery(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(new GetRestaurantsResponse(restaurants));
+
+    URI uri = UriComponentsBuilder
+        .fromPath(RESTAURANT_API_URI)
+        .queryParam("latitude", "22.93")
+        .queryParam("longitude", "23.44")
+        .queryParam("searchFor", "tamil")
+        .build().toUri();
+
+    MockHttpServletResponse response = getRestaurants(mvc, uri.toString());
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    ArgumentCaptor<GetRestaurantsRequest> argumentCaptor =
+        ArgumentCaptor.forClass(GetRestaurantsRequest.class);
+    verify(restaurantService, times(1))
+        .findRestaurantsBySearchQuery(argumentCaptor.capture(), any(LocalTime.class));
+    assertEquals("tamil", argumentCaptor.getValue().getSearchFor());
+    assertEquals(22.93, argumentCaptor.getValue().getLatitude());
+
+    GetRestaurantsResponse getRestaurantsResponse = objectMapper.readValue(
+        response.getContentAsString(), GetRestaurantsResponse.class);
+    assertEquals(1, getRestaurantsResponse.getRestaurants().size());
+    assertEquals("Nathan Cafe", getRestaurantsResponse.getRestaurants().get(0).getName());
+  }
+
+  @Test
+  public void suggestionsAreReturnedForThePrefix() throws Exception {
+    List<Suggestion> suggestions = Arrays.asList(
+        new Suggestion("Chicken Briyani", Suggestion.Type.DISH),
+        new Suggestion("Briyani House", Suggestion.Type.RESTAURANT));
+    when(restaurantService.findSuggestions(any(GetSuggestionsRequest.class)))
+        .thenReturn(new GetSuggestionsResponse(suggestions));
+
+    URI uri = UriComponentsBuilder
+        .fromPath(SUGGEST_API_URI)
+        .queryParam("latitude", "20.0")
+        .queryParam("longitude", "30.0")
+        .queryParam("prefix", "bri")
+        .queryParam("limit", "2")
+        .build().toUri();
 
+    MockHttpServletResponse response = mvc.perform(
+        get(uri.toString()).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    ArgumentCaptor<GetSuggestionsRequest> argumentCaptor =
+        ArgumentCaptor.forClass(GetSuggestionsRequest.class);
+    verify(restaurantService, times(1)).findSuggestions(argumentCaptor.capture());
+    assertEquals("bri", argumentCaptor.getValue().getPrefix());
+    assertEquals(2, argumentCaptor.getValue().getLimit());
+
+    GetSuggestionsResponse getSuggestionsResponse = objectMapper.readValue(
+        response.getContentAsString(), GetSuggestionsResponse.class);
+    assertEquals(suggestions, getSuggestionsResponse.getSuggestions());
+  }
+
+  @Test
+  public void suggestionsWithoutPrefixOrWithTooHighLimitResultInBadHttpRequest()
+      throws Exception {
+    URI uri = UriComponentsBuilder
+        .fromPath(SUGGEST_API_URI)
+        .queryParam("latitude", "20.0")
+        .queryParam("longitude", "30.0")
+        .build().toUri();
+
+    MockHttpServletResponse response = mvc.perform(
+        get(uri.toString()).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+
+    uri = UriComponentsBuilder
+        .fromPath(SUGGEST_API_URI)
+        .queryParam("latitude", "20.0")
+        .queryParam("longitude", "30.0")
+        .queryParam("prefix", "bri")
+        .queryParam("limit", "21")
+        .build().toUri();
+
+    response = mvc.perform(
+        get(uri.toString()).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+  }
+
+
+  @Test
+  public void menuIsReturnedWithItsEtag() throws Exception {
+    GetMenuResponse getMenuResponse = menuResponse("11", "\"abc\"");
+    when(menuService.findMenu(any(GetMenuRequest.class))).thenReturn(getMenuResponse);
+
+    MockHttpServletResponse response = mvc.perform(
+        get(menuUri("11")).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+    ArgumentCaptor<GetMenuRequest> argumentCaptor = ArgumentCaptor.forClass(GetMenuRequest.class);
+    verify(menuService, times(1)).findMenu(argumentCaptor.capture());
+    assertEquals("11", argumentCaptor.getValue().getRestaurantId());
+
+    GetMenuResponse returned = objectMapper.readValue(response.getContentAsString(),
+        GetMenuResponse.class);
+    assertEquals(getMenuResponse.getMenu(), returned.getMenu());
+    // the etag is a header only
+    assertNull(returned.getEtag());
+  }
+
+  @Test
+  public void menuWithMatchingEtagIsNotModified() throws Exception {
+    when(menuService.findMenu(any(GetMenuRequest.class)))
+        .thenReturn(menuResponse("11", "\"abc\""));
+
+    MockHttpServletResponse response = mvc.perform(
+        get(menuUri("11")).header(HttpHeaders.IF_NONE_MATCH, "\"abc\"")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+    assertEquals("", response.getContentAsString());
+
+    response = mvc.perform(
+        get(menuUri("11")).header(HttpHeaders.IF_NONE_MATCH, "\"older\"")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+  }
+
+  @Test
+  public void menuOfUnknownRestaurantIsNotFound() throws Exception {
+    when(menuService.findMenu(any(GetMenuRequest.class))).thenReturn(null);
+
+    MockHttpServletResponse response = mvc.perform(
+        get(menuUri("99")).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+  }
+
+  @Test
+  public void menuWithoutRestaurantIdResultsInBadHttpRequest() throws Exception {
+    MockHttpServletResponse response = mvc.perform(
+        get(MENU_API_URI).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+
+    response = mvc.perform(
+        get(menuUri(" ")).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    verify(menuService, times(0)).findMenu(any(GetMenuRequest.class));
+  }
+
+  @Test
+  public void menusOfAllTheRestaurantsAreReturnedTogether() throws Exception {
+    GetMenusResponse getMenusResponse = new GetMenusResponse(Arrays.asList(
+        menuResponse("11", "\"a\"").getMenu(), menuResponse("12", "\"b\"").getMenu()));
+    getMenusResponse.setEtag("\"ab\"");
+    when(menuService.findMenus(any(GetMenusRequest.class))).thenReturn(getMenusResponse);
+
+    MockHttpServletResponse response = mvc.perform(
+        get(MENUS_API_URI + "?restaurantIds=11,12&restaurantIds=13").accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals("\"ab\"", response.getHeader(HttpHeaders.ETAG));
+    ArgumentCaptor<GetMenusRequest> argumentCaptor =
+        ArgumentCaptor.forClass(GetMenusRequest.class);
+    verify(menuService, times(1)).findMenus(argumentCaptor.capture());
+    assertEquals(Arrays.asList("11", "12", "13"), argumentCaptor.getValue().getRestaurantIds());
+
+    GetMenusResponse returned = objectMapper.readValue(response.getContentAsString(),
+        GetMenusResponse.class);
+    assertEquals(getMenusResponse.getMenus(), returned.getMenus());
+
+    response = mvc.perform(
+        get(MENUS_API_URI + "?restaurantIds=11,12").header(HttpHeaders.IF_NONE_MATCH, "\"ab\"")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+  }
+
+  @Test
+  public void menusWithoutOrWithTooManyRestaurantIdsResultInBadHttpRequest() throws Exception {
+    MockHttpServletResponse response = mvc.perform(
+        get(MENUS_API_URI).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+
+    StringBuilder restaurantIds = new StringBuilder("0");
+    for (int i = 1; i <= 100; i++) {
+      restaurantIds.append(',').append(i);
+    }
+    response = mvc.perform(
+        get(MENUS_API_URI + "?restaurantIds=" + restaurantIds).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    verify(menuService, times(0)).findMenus(any(GetMenusRequest.class));
+  }
+
+  @Test
+  public void cartOfTheUserIsReturned() throws Exception {
+    Cart cart = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/get_cart_response.json"), Cart.class);
+    when(cartAndOrderService.findOrCreateCart("Bunny")).thenReturn(cart);
+
+    MockHttpServletResponse response = mvc.perform(
+        get(CART_API_URI + "?userId=Bunny").accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(cart, objectMapper.readValue(response.getContentAsString(), Cart.class));
+
+    response = mvc.perform(
+        get(CART_API_URI).accept(APPLICATION_JSON_UTF8)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    verify(cartAndOrderService, times(1)).findOrCreateCart(any(String.class));
+  }
+
+  @Test
+  public void itemIsAddedToAndRemovedFromTheCart() throws Exception {
+    Cart cart = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/get_cart_response.json"), Cart.class);
+    when(cartAndOrderService.addItemToCart("1", "1", "10"))
+        .thenReturn(new CartModifiedResponse(cart));
+    when(cartAndOrderService.removeItemFromCart("1", "1", "10"))
+        .thenReturn(new CartModifiedResponse(new Cart("1", null, "Bunny", Collections.emptyList(),
+            0)));
+    String body = FixtureHelpers.fixture(FIXTURES + "/cart_add_or_remove_item_body.json");
+
+    MockHttpServletResponse response = mvc.perform(
+        post(ADD_REMOVE_CART_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    CartModifiedResponse added =
+        objectMapper.readValue(response.getContentAsString(), CartModifiedResponse.class);
+    assertEquals(cart, added.getCart());
+    assertEquals(CartModifiedResponse.NO_ERROR, added.getCartResponseType());
+
+    response = mvc.perform(
+        delete(ADD_REMOVE_CART_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    CartModifiedResponse removed =
+        objectMapper.readValue(response.getContentAsString(), CartModifiedResponse.class);
+    assertTrue(removed.getCart().getItems().isEmpty());
+  }
+
+  @Test
+  public void itemWhichCannotBeAddedResultsInBadHttpRequest() throws Exception {
+    Cart cart = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/get_cart_response.json"), Cart.class);
+    // ITEM_NOT_FROM_SAME_RESTAURANT
+    when(cartAndOrderService.addItemToCart("1", "1", "10"))
+        .thenReturn(new CartModifiedResponse(cart, 102));
+
+    MockHttpServletResponse response = mvc.perform(
+        post(ADD_REMOVE_CART_API_URI).contentType(APPLICATION_JSON_UTF8)
+            .content(FixtureHelpers.fixture(FIXTURES + "/cart_add_or_remove_item_body.json"))
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    CartModifiedResponse returned =
+        objectMapper.readValue(response.getContentAsString(), CartModifiedResponse.class);
+    assertEquals(cart, returned.getCart());
+    assertEquals(102, returned.getCartResponseType());
+
+    response = mvc.perform(
+        post(ADD_REMOVE_CART_API_URI).contentType(APPLICATION_JSON_UTF8)
+            .content("{\"cartId\":\"1\",\"itemId\":\"1\"}")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    verify(cartAndOrderService, times(1))
+        .addItemToCart(any(String.class), any(String.class), any(String.class));
+  }
+
+  @Test
+  public void unknownCartIsNotFound() throws Exception {
+    when(cartAndOrderService.addItemToCart("1", "1", "10"))
+        .thenThrow(new CartNotFoundException("No cart with id 1"));
+    when(cartAndOrderService.clearCart("1"))
+        .thenThrow(new CartNotFoundException("No cart with id 1"));
+
+    MockHttpServletResponse response = mvc.perform(
+        post(ADD_REMOVE_CART_API_URI).contentType(APPLICATION_JSON_UTF8)
+            .content(FixtureHelpers.fixture(FIXTURES + "/cart_add_or_remove_item_body.json"))
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+
+    response = mvc.perform(
+        put(CLEAR_CART_API_URI).contentType(APPLICATION_JSON_UTF8)
+            .content(FixtureHelpers.fixture(FIXTURES + "/post_order_or_clear_cart_body.json"))
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+  }
+
+  @Test
+  public void clearedCartIsReturned() throws Exception {
+    Cart cleared = new Cart("1", null, "Bunny", Collections.emptyList(), 0);
+    when(cartAndOrderService.clearCart("1")).thenReturn(cleared);
+
+    MockHttpServletResponse response = mvc.perform(
+        put(CLEAR_CART_API_URI).contentType(APPLICATION_JSON_UTF8)
+            .content(FixtureHelpers.fixture(FIXTURES + "/post_order_or_clear_cart_body.json"))
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    assertEquals(cleared, objectMapper.readValue(response.getContentAsString(), Cart.class));
+  }
+
+  @Test
+  public void orderIsAcceptedOnceQueued() throws Exception {
+    Cart cart = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/get_cart_response.json"), Cart.class);
+    Order order = new Order("5d1b2f3e9c1f4a0001a1b2c3", "10", "Bunny", cart.getItems(),
+        cart.getTotal(), new Date());
+    when(cartAndOrderService.postOrder("1")).thenReturn(order);
+
+    MockHttpServletResponse response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8)
+            .content(FixtureHelpers.fixture(FIXTURES + "/post_order_or_clear_cart_body.json"))
+    ).andReturn().getResponse();
+
+    assertEquals(HttpStatus.ACCEPTED.value(), response.getStatus());
+    assertEquals(order, objectMapper.readValue(response.getContentAsString(), Order.class));
+  }
+
+  @Test
+  public void orderWhichCannotBePlacedIsRefused() throws Exception {
+    String body = FixtureHelpers.fixture(FIXTURES + "/post_order_or_clear_cart_body.json");
+
+    when(cartAndOrderService.postOrder("1")).thenThrow(new EmptyCartException("empty"));
+    MockHttpServletResponse response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+
+    when(cartAndOrderService.postOrder("1")).thenThrow(new CartNotFoundException("none"));
+    response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+
+    when(cartAndOrderService.postOrder("1")).thenThrow(new RejectedExecutionException("full"));
+    response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+
+    response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content("{}")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    verify(cartAndOrderService, times(3)).postOrder(any(String.class));
+  }
+
+  @Test
+  public void orderWithIdempotencyKeyIsPlacedOncePerKey() throws Exception {
+    Order order = new Order("5d1b2f3e9c1f4a0001a1b2c3", "10", "Bunny", Collections.emptyList(),
+        225.0, new Date());
+    when(cartAndOrderService.postOrder("1", "7f3c")).thenReturn(order);
+    String body = FixtureHelpers.fixture(FIXTURES + "/post_order_or_clear_cart_body.json");
+
+    MockHttpServletResponse response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+            .header(IDEMPOTENCY_KEY_HEADER, "7f3c")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.ACCEPTED.value(), response.getStatus());
+    assertEquals(order, objectMapper.readValue(response.getContentAsString(), Order.class));
+    verify(cartAndOrderService, times(0)).postOrder(any(String.class));
+
+    when(cartAndOrderService.postOrder("1", "7f3c"))
+        .thenThrow(new OrderInProgressException("in progress"));
+    response = mvc.perform(
+        post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+            .header(IDEMPOTENCY_KEY_HEADER, "7f3c")
+    ).andReturn().getResponse();
+    assertEquals(HttpStatus.CONFLICT.value(), response.getStatus());
+
+    for (String invalidKey : Arrays.asList(" ", String.join("", Collections.nCopies(256, "k")))) {
+      response = mvc.perform(
+          post(POST_ORDER_API_URI).contentType(APPLICATION_JSON_UTF8).content(body)
+              .header(IDEMPOTENCY_KEY_HEADER, invalidKey)
+      ).andReturn().getResponse();
+      assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+    verify(cartAndOrderService, times(2)).postOrder(any(String.class), any(String.class));
+  }
+
+  @Test
+  public void ordersAreListedAPageAtATime() throws Exception {
+    Order order = new Order("5d1b2f3e9c1f4a0001a1b2c3", "10", "Bunny", null, 225.0,
+        new Date(1562062530000L));
+    String nextCursor = OrderCursor.after(order).encode();
+    ArgumentCaptor<GetOrdersRequest> argumentCaptor =
+        ArgumentCaptor.forClass(GetOrdersRequest.class);
+    when(cartAndOrderService.findOrders(argumentCaptor.capture()))
+        .thenReturn(new GetOrdersResponse(Collections.singletonList(order), nextCursor));
+
+    URI uri = UriComponentsBuilder.fromPath(LIST_ORDERS_API_URI)
+        .queryParam("userId", "Bunny")
+        .queryParam("limit", "1")
+        .queryParam("cursor", nextCursor)
+        .build().toUri();
+    MockHttpServletResponse response = mvc.perform(get(uri)).andReturn().getResponse();
+
+    assertEquals(HttpStatus.OK.value(), response.getStatus());
+    GetOrdersResponse getOrdersResponse =
+        objectMapper.readValue(response.getContentAsString(), GetOrdersResponse.class);
+    assertEquals(nextCursor, getOrdersResponse.getNextCursor());
+    assertNull(getOrdersResponse.getOrders().get(0).getItems());
+    assertTrue(!response.getContentAsString().contains("items"));
+    GetOrdersRequest getOrdersRequest = argumentCaptor.getValue();
+    assertEquals("Bunny", getOrdersRequest.getUserId());
+    assertEquals(Integer.valueOf(1), getOrdersRequest.getLimit());
+    assertEquals(nextCursor, getOrdersRequest.getCursor());
+    assertTrue(!getOrdersRequest.isIncludeItems());
+  }
+
+  @Test
+  public void invalidOrdersRequestsAreBadRequests() throws Exception {
+    String cursorOfBugs = OrderCursor.after(
+        new Order("5d1b2f3e9c1f4a0001a1b2c3", "10", "Bugs", null, 225.0, new Date())).encode();
+    List<URI> uris = Arrays.asList(
+        UriComponentsBuilder.fromPath(LIST_ORDERS_API_URI).build().toUri(),
+        UriComponentsBuilder.fromPath(LIST_ORDERS_API_URI)
+            .queryParam("userId", "Bunny").queryParam("limit", "0").build().toUri(),
+        UriComponentsBuilder.fromPath(LIST_ORDERS_API_URI)
+            .queryParam("userId", "Bunny").queryParam("limit", "101").build().toUri(),
+        UriComponentsBuilder.fromPath(LIST_ORDERS_API_URI)
+            .queryParam("userId", "Bunny").queryParam("cursor", "garbage").build().toUri(),
+        UriComponentsBuilder.fromPath(LIST_ORDERS_API_URI)
+            .queryParam("userId", "Bunny").queryParam("cursor", cursorOfBugs).build().toUri());
+
+    for (URI uri : uris) {
+      MockHttpServletResponse response = mvc.perform(get(uri)).andReturn().getResponse();
+      assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus(), uri.toString());
+    }
+    verify(cartAndOrderService, times(0)).findOrders(any(GetOrdersRequest.class));
+  }
+
+  private static String menuUri(String restaurantId) {
+    return UriComponentsBuilder
+        .fromPath(MENU_API_URI)
+        .queryParam("restaurantId", restaurantId)
+        .build().toUriString();
+  }
+
+  private static GetMenuResponse menuResponse(String restaurantId, String etag) {
+    Item item = new Item("1", "10", "Idly", "www.google.com", 45.0,
+        Collections.singletonList("South Indian"));
+    GetMenuResponse getMenuResponse =
+        new GetMenuResponse(new Menu(restaurantId, Collections.singletonList(item)));
+    getMenuResponse.setEtag(etag);
+    return getMenuResponse;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.controller;
+
+import static com.crio.qeats.controller.RestaurantController.RESTAURANTS_API;
+import static com.crio.qeats.controller.RestaurantController.RESTAURANT_API_ENDPOINT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.services.ReactiveRestaurantService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class RestaurantHandlerTest {
+
+  private static final String RESTAURANT_API_URI = RESTAURANT_API_ENDPOINT + RESTAURANTS_API;
+
+  // the mapper spring writes the responses with
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private ReactiveRestaurantService reactiveRestaurantService;
+
+  private WebTestClient client;
+
+  @BeforeEach
+  void setup() {
+    reactiveRestaurantService = mock(ReactiveRestaurantService.class);
+    RestaurantHandler restaurantHandler = new RestaurantHandler();
+    ReflectionTestUtils.setField(restaurantHandler, "reactiveRestaurantService",
+        reactiveRestaurantService);
+    ReflectionTestUtils.setField(restaurantHandler, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(restaurantHandler, "validator",
+        Validation.buildDefaultValidatorFactory().getValidator());
+    client = WebTestClient.bindToRouterFunction(
+        new RestaurantRouter().restaurantRoutes(restaurantHandler)).build();
+  }
+
+  @Test
+  void restaurantsCloseByAreWrittenAsTheWholeResponseWouldBe() throws Exception {
+    List<Restaurant> restaurants = Arrays.asList(restaurant("10"), restaurant("11"),
+        restaurant("12"));
+    when(reactiveRestaurantService.streamAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(Flux.fromIterable(restaurants));
+
+    byte[] body = client.get().uri(RESTAURANT_API_URI + "?latitude=20.0&longitude=30.0")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.APPLICATION_JSON_UTF8)
+        .expectBody(byte[].class).returnResult().getResponseBody();
+
+    assertArrayEquals(objectMapper.writeValueAsBytes(new GetRestaurantsResponse(restaurants)),
+        body);
+    ArgumentCaptor<GetRestaurantsRequest> request =
+        ArgumentCaptor.forClass(GetRestaurantsRequest.class);
+    verify(reactiveRestaurantService).streamAllRestaurantsCloseBy(request.capture(),
+        any(LocalTime.class));
+    assertEquals(new GetRestaurantsRequest(20.0, 30.0), request.getValue());
+  }
+
+  @Test
+  void noRestaurantsIsAnEmptyList() {
+    when(reactiveRestaurantService.streamAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(Flux.empty());
+
+    byte[] body = client.get().uri(RESTAURANT_API_URI + "?latitude=20.0&longitude=30.0")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(byte[].class).returnResult().getResponseBody();
+
+    assertArrayEquals("{\"restaurants\":[]}".getBytes(), body);
+  }
+
+  @Test
+  void pagesAndSearchesAreWrittenWhole() throws Exception {
+    GetRestaurantsResponse page =
+        new GetRestaurantsResponse(Arrays.asList(restaurant("11")), "AQID");
+    when(reactiveRestaurantService.findAllRestaurantsCloseBy(any(GetRestaurantsRequest.class),
+        any(LocalTime.class))).thenReturn(Mono.just(page));
+    GetRestaurantsResponse found = new GetRestaurantsResponse(Arrays.asList(restaurant("12")));
+    when(reactiveRestaurantService.findRestaurantsBySearchQuery(
+        any(GetRestaurantsRequest.class), any(LocalTime.class))).thenReturn(Mono.just(found));
+
+    byte[] body = client.get().uri(RESTAURANT_API_URI + "?latitude=20.0&longitude=30.0&limit=1")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(byte[].class).returnResult().getResponseBody();
+    assertEquals(page, objectMapper.readValue(body, GetRestaurantsResponse.class));
+
+    body = client.get().uri(RESTAURANT_API_URI + "?latitude=20.0&longitude=30.0&searchFor=A2B")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(byte[].class).returnResult().getResponseBody();
+    assertEquals(found, objectMapper.readValue(body, GetRestaurantsResponse.class));
+  }
+
+  @Test
+  void invalidQueryParamsAreBadRequests() {
+    for (String query : Arrays.asList("", "?latitude=20.0", "?longitude=30.0",
+        "?latitude=91&longitude=30.0", "?latitude=20.0&longitude=-181",
+        "?latitude=north&longitude=30.0", "?latitude=20.0&longitude=30.0&limit=0",
+        "?latitude=20.0&longitude=30.0&limit=1&cursor=nonsense",
+        "?latitude=20.0&longitude=30.0&cursor=" + String.join("", Collections.nCopies(10, "A")))) {
+      client.get().uri(RESTAURANT_API_URI + query)
+          .exchange()
+          .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+    verifyZeroInteractions(reactiveRestaurantService);
+  }
+
+  private static Restaurant restaurant(String restaurantId) {
+    return new Restaurant(restaurantId, "A2B " + restaurantId, "Hsr Layout", "www.google.com",
+        "18:00", "23:00", 20.02, 30.01, Arrays.asList("Tamil"));
+  }
+}
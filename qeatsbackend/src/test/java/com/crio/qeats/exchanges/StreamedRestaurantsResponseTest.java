@@ -0,0 +1,96 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.exchanges;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StreamedRestaurantsResponseTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void writesTheSameBytesAsTheWholeResponse() throws IOException {
+    List<Restaurant> restaurants = listOfRestaurants();
+    restaurants.get(0).setName("Caf\u00e9 \"Sp\u00e9cial\" \u0b9a\u0bc8\u0bb5\u0bae\u0bcd");
+    restaurants.get(1).setAttributes(null);
+    // many restaurants, so the generator buffer is flushed along the way
+    List<Restaurant> many = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      many.addAll(restaurants);
+    }
+
+    assertSameBytes(restaurants);
+    assertSameBytes(many);
+    assertSameBytes(Collections.emptyList());
+  }
+
+  @Test
+  void responseIsUnreadableIfTheLookupFailsHalfWay() throws IOException {
+    List<Restaurant> restaurants = listOfRestaurants();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    StreamedRestaurantsResponse response = new StreamedRestaurantsResponse(consumer -> {
+      restaurants.forEach(consumer);
+      throw new IllegalStateException("mongo went away");
+    });
+
+    assertThrows(IOException.class, () -> objectMapper.writeValue(out, response));
+    assertThrows(IOException.class,
+        () -> objectMapper.readValue(out.toByteArray(), GetRestaurantsResponse.class));
+  }
+
+  @Test
+  void failuresToWriteAreThrown() throws IOException {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+    Restaurant restaurant = listOfRestaurants().get(0);
+    StreamedRestaurantsResponse response = new StreamedRestaurantsResponse(consumer -> {
+      for (int i = 0; i < 1000; i++) {
+        consumer.accept(restaurant);
+      }
+    });
+
+    IOException e = assertThrows(IOException.class,
+        () -> objectMapper.writeValue(broken, response));
+    assertTrue(e.getMessage().contains("connection reset"));
+  }
+
+  private void assertSameBytes(List<Restaurant> restaurants) throws IOException {
+    byte[] streamed =
+        objectMapper.writeValueAsBytes(new StreamedRestaurantsResponse(restaurants::forEach));
+
+    assertArrayEquals(objectMapper.writeValueAsBytes(new GetRestaurantsResponse(restaurants)),
+        streamed);
+  }
+
+  private List<Restaurant> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<Restaurant>>() {
+    });
+  }
+}
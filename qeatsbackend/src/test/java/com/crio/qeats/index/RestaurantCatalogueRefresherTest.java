@@ -0,0 +1,185 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCollection;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantCatalogueRefresherTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private RestaurantCatalogueRefresher restaurantCatalogueRefresher;
+
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  private RestaurantGeoIndexSynchronizer restaurantGeoIndexSynchronizer;
+
+  private MongoTemplate mongoTemplate;
+
+  private MongoCollection<Document> collection;
+
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() throws IOException {
+    restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(listOfRestaurants());
+    restaurantGeoIndexSynchronizer = mock(RestaurantGeoIndexSynchronizer.class);
+    mongoTemplate = mock(MongoTemplate.class);
+    collection = mock(MongoCollection.class);
+    when(mongoTemplate.getCollectionName(RestaurantEntity.class)).thenReturn("restaurants");
+    when(mongoTemplate.getCollection("restaurants")).thenReturn(collection);
+    when(collection.estimatedDocumentCount()).thenReturn(5L);
+    nearbyRestaurantsCache = mock(NearbyRestaurantsCache.class);
+
+    restaurantCatalogueRefresher = new RestaurantCatalogueRefresher();
+    ReflectionTestUtils.setField(restaurantCatalogueRefresher, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(restaurantCatalogueRefresher, "restaurantGeoIndex",
+        restaurantGeoIndex);
+    ReflectionTestUtils.setField(restaurantCatalogueRefresher, "restaurantGeoIndexSynchronizer",
+        restaurantGeoIndexSynchronizer);
+    ReflectionTestUtils.setField(restaurantCatalogueRefresher, "nearbyRestaurantsCache",
+        nearbyRestaurantsCache);
+    ReflectionTestUtils.setField(restaurantCatalogueRefresher, "reconcileEveryPolls", 3);
+    ReflectionTestUtils.setField(restaurantCatalogueRefresher, "watermark", new Date(0));
+  }
+
+  @Test
+  void pollingAppliesSavedRestaurantsAndMovesTheWatermark() throws IOException {
+    RestaurantEntity moved = listOfRestaurants().get(0);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    moved.setLastModified(new Date(1000000));
+    when(mongoTemplate.find(any(Query.class), eq(RestaurantEntity.class)))
+        .thenReturn(Collections.singletonList(moved));
+    countRestaurantIds(5);
+
+    restaurantCatalogueRefresher.pollChanges();
+
+    List<Restaurant> nearby = restaurantGeoIndex.snapshot()
+        .findRestaurants(20.8, 30.1, 3.0, RestaurantSnapshot.ANY_TIME);
+    assertEquals(1, nearby.size());
+    assertEquals("10", nearby.get(0).getRestaurantId());
+    assertEquals(new Date(1000000),
+        ReflectionTestUtils.getField(restaurantCatalogueRefresher, "watermark"));
+    verify(restaurantGeoIndexSynchronizer, never()).reload();
+  }
+
+  @Test
+  void pollingReloadsWhenRestaurantsWereDeleted() {
+    when(mongoTemplate.find(any(Query.class), eq(RestaurantEntity.class)))
+        .thenReturn(Collections.emptyList());
+    countRestaurantIds(4);
+
+    restaurantCatalogueRefresher.pollChanges();
+
+    assertEquals(new Date(0),
+        ReflectionTestUtils.getField(restaurantCatalogueRefresher, "watermark"));
+    verify(restaurantGeoIndexSynchronizer).reload();
+  }
+
+  @Test
+  void restaurantsPolledAgainAreNotAppliedAgain() throws IOException {
+    RestaurantEntity moved = listOfRestaurants().get(0);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    moved.setLastModified(new Date(1000000));
+    RestaurantEntity movedAgain = listOfRestaurants().get(0);
+    movedAgain.setLatitude(20.8);
+    movedAgain.setLongitude(30.1);
+    movedAgain.setLastModified(new Date(1000000));
+    when(mongoTemplate.find(any(Query.class), eq(RestaurantEntity.class)))
+        .thenReturn(Collections.singletonList(moved))
+        .thenReturn(Collections.singletonList(movedAgain));
+    countRestaurantIds(5);
+
+    restaurantCatalogueRefresher.pollChanges();
+    RestaurantSnapshot snapshot = restaurantGeoIndex.snapshot();
+    // within the overlap, nothing saved since
+    restaurantCatalogueRefresher.pollChanges();
+
+    assertSame(snapshot, restaurantGeoIndex.snapshot());
+    verify(nearbyRestaurantsCache, times(1)).invalidate();
+
+    // saved by this application, which indexed it already: nothing to change
+    RestaurantEntity saved = listOfRestaurants().get(1);
+    saved.setLastModified(new Date(1000500));
+    restaurantGeoIndex.upsert(saved);
+    snapshot = restaurantGeoIndex.snapshot();
+    RestaurantEntity polled = listOfRestaurants().get(1);
+    polled.setLastModified(new Date(1000500));
+    when(mongoTemplate.find(any(Query.class), eq(RestaurantEntity.class)))
+        .thenReturn(Collections.singletonList(polled));
+    restaurantCatalogueRefresher.pollChanges();
+
+    assertSame(snapshot, restaurantGeoIndex.snapshot());
+    verify(nearbyRestaurantsCache, times(1)).invalidate();
+  }
+
+  @Test
+  void deletesAreLookedForWhenTheNumberOfDocumentsChangesOrEveryFewPolls() {
+    when(mongoTemplate.find(any(Query.class), eq(RestaurantEntity.class)))
+        .thenReturn(Collections.emptyList());
+    countRestaurantIds(5);
+
+    // the first poll, then every third one
+    for (int i = 0; i < 4; i++) {
+      restaurantCatalogueRefresher.pollChanges();
+    }
+    verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class),
+        eq(RestaurantEntity.class), eq(Document.class));
+    verify(restaurantGeoIndexSynchronizer, never()).reload();
+
+    when(collection.estimatedDocumentCount()).thenReturn(4L);
+    countRestaurantIds(4);
+    restaurantCatalogueRefresher.pollChanges();
+    verify(restaurantGeoIndexSynchronizer).reload();
+  }
+
+  private void countRestaurantIds(int count) {
+    when(mongoTemplate.aggregate(any(Aggregation.class), eq(RestaurantEntity.class),
+        eq(Document.class))).thenReturn(new AggregationResults<>(
+            Collections.singletonList(new Document("count", count)), new Document()));
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return new ObjectMapper().readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantGeoIndexSynchronizerTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  private RestaurantGeoIndexSynchronizer restaurantGeoIndexSynchronizer;
+
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+
+  @BeforeEach
+  void setup() throws IOException {
+    restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(listOfRestaurants());
+
+    restaurantGeoIndexSynchronizer = new RestaurantGeoIndexSynchronizer();
+    ReflectionTestUtils.setField(restaurantGeoIndexSynchronizer, "restaurantGeoIndex",
+        restaurantGeoIndex);
+    ReflectionTestUtils.setField(restaurantGeoIndexSynchronizer, "restaurantRepository",
+        mock(RestaurantRepository.class));
+    nearbyRestaurantsCache = mock(NearbyRestaurantsCache.class);
+    ReflectionTestUtils.setField(restaurantGeoIndexSynchronizer, "nearbyRestaurantsCache",
+        nearbyRestaurantsCache);
+  }
+
+  @Test
+  void savesAndDeletesAreAppliedInOneBatchByTheNextReader() throws IOException {
+    RestaurantSnapshot before = restaurantGeoIndex.snapshot();
+    List<RestaurantEntity> restaurantEntities = listOfRestaurants();
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      restaurantEntity.setLatitude(20.8);
+      restaurantEntity.setLongitude(30.1);
+      save(restaurantEntity);
+    }
+    delete("11");
+    assertSame(before, restaurantGeoIndex.snapshot());
+    // the cached restaurants are dropped straight away, they are loaded again from the index
+    verify(nearbyRestaurantsCache, times(6)).invalidate();
+
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    RestaurantSnapshot after = restaurantGeoIndex.snapshot();
+    assertNotSame(before, after);
+    assertEquals(4, after.size());
+    assertEquals(4, after.findRestaurants(20.8, 30.1, 3.0, RestaurantSnapshot.ANY_TIME).size());
+
+    // nothing queued since
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    assertSame(after, restaurantGeoIndex.snapshot());
+  }
+
+  @Test
+  void theLastChangeOfADocumentWins() throws IOException {
+    RestaurantEntity restaurantEntity = listOfRestaurants().get(1);
+    delete(restaurantEntity.getId());
+    save(restaurantEntity);
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    assertEquals(5, restaurantGeoIndex.size());
+
+    save(restaurantEntity);
+    delete(restaurantEntity.getId());
+    restaurantGeoIndexSynchronizer.ensureLoaded();
+    assertEquals(4, restaurantGeoIndex.size());
+  }
+
+  private void save(RestaurantEntity restaurantEntity) {
+    restaurantGeoIndexSynchronizer.onAfterSave(
+        new AfterSaveEvent<>(restaurantEntity, new Document(), "restaurants"));
+  }
+
+  private void delete(String documentId) {
+    restaurantGeoIndexSynchronizer.onAfterDelete(new AfterDeleteEvent<>(
+        new Document("_id", documentId), RestaurantEntity.class, "restaurants"));
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return new ObjectMapper().readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RestaurantGeoIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @BeforeEach
+  void setup() throws IOException {
+    restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(listOfRestaurants());
+  }
+
+  @Test
+  void candidatesAreNearbyRestaurantsInCatalogueOrder() {
+    assertEquals(5, restaurantGeoIndex.size());
+
+    List<String> nearby = restaurantIds(restaurantGeoIndex.findCandidates(20.0, 30.0, 3.0));
+    assertEquals(3, nearby.size());
+    assertEquals("10", nearby.get(0));
+    assertEquals("11", nearby.get(1));
+    assertEquals("12", nearby.get(2));
+
+    List<String> farAway = restaurantIds(restaurantGeoIndex.findCandidates(20.9, 30.0, 3.0));
+    assertTrue(farAway.isEmpty());
+  }
+
+  @Test
+  void upsertMovesRestaurantAndKeepsItsPosition() throws IOException {
+    RestaurantEntity moved = listOfRestaurants().get(0);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    restaurantGeoIndex.upsert(moved);
+
+    assertEquals(5, restaurantGeoIndex.size());
+    assertEquals(2, restaurantGeoIndex.findCandidates(20.0, 30.0, 3.0).size());
+    assertEquals("10",
+        restaurantIds(restaurantGeoIndex.findCandidates(20.8, 30.1, 3.0)).get(0));
+  }
+
+  @Test
+  void removeByDocumentIdDropsRestaurant() {
+    restaurantGeoIndex.removeByDocumentId("11");
+    restaurantGeoIndex.removeByDocumentId("unknown");
+
+    assertEquals(4, restaurantGeoIndex.size());
+    List<String> nearby = restaurantIds(restaurantGeoIndex.findCandidates(20.0, 30.0, 3.0));
+    assertEquals(2, nearby.size());
+    assertEquals("10", nearby.get(0));
+    assertEquals("12", nearby.get(1));
+  }
+
+  @Test
+  void snapshotFollowsWritesAndOldSnapshotsStayAsTheyWere() throws IOException {
+    RestaurantSnapshot before = restaurantGeoIndex.snapshot();
+    assertEquals(5, before.size());
+
+    RestaurantEntity moved = listOfRestaurants().get(0);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    restaurantGeoIndex.upsert(moved);
+    restaurantGeoIndex.removeByDocumentId("11");
+
+    RestaurantSnapshot after = restaurantGeoIndex.snapshot();
+    assertEquals(4, after.size());
+    assertEquals(1, after.findRestaurants(20.0, 30.0, 3.0, RestaurantSnapshot.ANY_TIME).size());
+    assertEquals("10", after.findRestaurants(20.8, 30.1, 3.0, RestaurantSnapshot.ANY_TIME)
+        .get(0).getRestaurantId());
+    assertEquals(2, before.findRestaurants(20.0, 30.0, 3.0, RestaurantSnapshot.ANY_TIME).size());
+  }
+
+  @Test
+  void applyChangesPublishesOneSnapshotForTheWholeBatch() throws IOException {
+    RestaurantSnapshot before = restaurantGeoIndex.snapshot();
+    assertFalse(restaurantGeoIndex.applyChanges(Collections.emptyList(),
+        Arrays.asList("unknown")));
+    // saved again as it is
+    assertFalse(restaurantGeoIndex.applyChanges(listOfRestaurants(), Collections.emptyList()));
+    assertSame(before, restaurantGeoIndex.snapshot());
+
+    List<RestaurantEntity> restaurantEntities = listOfRestaurants();
+    RestaurantEntity moved = restaurantEntities.get(1);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    RestaurantEntity added = restaurantEntities.get(2);
+    added.setId("15");
+    added.setRestaurantId("15");
+    restaurantGeoIndex.applyChanges(Arrays.asList(moved, added), Arrays.asList("10", "12"));
+
+    RestaurantSnapshot after = restaurantGeoIndex.snapshot();
+    assertEquals(4, after.size());
+    List<Restaurant> nearby = after.findRestaurants(20.0, 30.0, 3.0, RestaurantSnapshot.ANY_TIME);
+    assertEquals(1, nearby.size());
+    assertEquals("15", nearby.get(0).getRestaurantId());
+    assertEquals("11", after.findRestaurants(20.8, 30.1, 3.0, RestaurantSnapshot.ANY_TIME)
+        .get(0).getRestaurantId());
+    assertEquals(3, before.findRestaurants(20.0, 30.0, 3.0, RestaurantSnapshot.ANY_TIME).size());
+  }
+
+  @Test
+  void coveringCellsNeverMissRestaurantsWithinRadius() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      double latitude = random.nextDouble() * 170.0 - 85.0;
+      double longitude = random.nextDouble() * 360.0 - 180.0;
+      double radiusInKms = 0.5 + random.nextDouble() * 10.0;
+      double bearing = random.nextDouble() * 2 * Math.PI;
+      double distance = random.nextDouble() * radiusInKms / 6371.0;
+
+      double lat1 = Math.toRadians(latitude);
+      double lat2 = Math.asin(Math.sin(lat1) * Math.cos(distance)
+          + Math.cos(lat1) * Math.sin(distance) * Math.cos(bearing));
+      double lon2 = Math.toRadians(longitude) + Math.atan2(
+          Math.sin(bearing) * Math.sin(distance) * Math.cos(lat1),
+          Math.cos(distance) - Math.sin(lat1) * Math.sin(lat2));
+      double pointLatitude = Math.toDegrees(lat2);
+      double pointLongitude = (Math.toDegrees(lon2) + 540.0) % 360.0 - 180.0;
+
+      if (GeoUtils.findDistanceInKm(latitude, longitude, pointLatitude, pointLongitude)
+          > radiusInKms) {
+        continue;
+      }
+      Set<String> cells = RestaurantGeoIndex.coveringCells(latitude, longitude, radiusInKms);
+      assertTrue(cells.contains(RestaurantGeoIndex.cellOf(pointLatitude, pointLongitude)),
+          "Missed " + pointLatitude + "," + pointLongitude + " around " + latitude + ","
+              + longitude);
+    }
+  }
+
+  private List<String> restaurantIds(List<RestaurantEntity> restaurantEntities) {
+    return restaurantEntities.stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return new ObjectMapper().readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
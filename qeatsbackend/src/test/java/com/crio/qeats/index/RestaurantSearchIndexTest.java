@@ -0,0 +1,161 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantSearchIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private static final int EVENING = LocalTime.of(20, 0).toSecondOfDay();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private RestaurantSearchIndex restaurantSearchIndex;
+
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  private MenuRepository menuRepository;
+
+  private MenuCatalogue menuCatalogue;
+
+  @BeforeEach
+  void setup() throws IOException {
+    restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(listOfRestaurants());
+    menuRepository = mock(MenuRepository.class);
+    when(menuRepository.findAll()).thenReturn(listOfMenus());
+
+    menuCatalogue = new MenuCatalogue();
+    ReflectionTestUtils.setField(menuCatalogue, "menuRepository", menuRepository);
+
+    restaurantSearchIndex = new RestaurantSearchIndex();
+    ReflectionTestUtils.setField(restaurantSearchIndex, "restaurantGeoIndex", restaurantGeoIndex);
+    ReflectionTestUtils.setField(restaurantSearchIndex, "menuCatalogue", menuCatalogue);
+    ReflectionTestUtils.setField(restaurantSearchIndex, "restaurantGeoIndexSynchronizer",
+        mock(RestaurantGeoIndexSynchronizer.class));
+  }
+
+  @Test
+  void everyWordMustMatchSomewhere() {
+    assertEquals(Arrays.asList("10", "11", "12"), search("tamil"));
+    assertEquals(Arrays.asList("10", "11", "12"), search("South INDIAN"));
+    assertEquals(Arrays.asList("11", "12"), search("briyani"));
+    assertEquals(Arrays.asList("12"), search("fish mughal"));
+    assertTrue(search("tamil pizza").isEmpty());
+    assertTrue(search("  ").isEmpty());
+    assertTrue(search(null).isEmpty());
+  }
+
+  @Test
+  void onlyNearbyOpenRestaurantsAreReturned() {
+    // 13 and 14 are A2B too, but far away
+    assertEquals(Arrays.asList("10", "11", "12"), search("a2b"));
+    assertEquals(Arrays.asList("14"),
+        ids(restaurantSearchIndex.search(20.78, 30.09, 3.0, EVENING, "adyar a2b", null)));
+    assertTrue(restaurantSearchIndex.search(20.0, 30.0, 3.0,
+        LocalTime.of(17, 0).toSecondOfDay(), "a2b", null).isEmpty());
+  }
+
+  @Test
+  void nameMatchesComeBeforeItemMatches() {
+    assertEquals(Arrays.asList("11", "12"), search("briyani"));
+
+    MenuEntity menuEntity = new MenuEntity();
+    menuEntity.setRestaurantId("12");
+    ItemEntity itemEntity = new ItemEntity();
+    itemEntity.setName("Chettinad Bhavan Special");
+    itemEntity.setAttributes(Arrays.asList("Chettinad"));
+    menuEntity.setItems(Arrays.asList(itemEntity));
+    menuCatalogue.onAfterSave(new AfterSaveEvent<>(menuEntity, null, "menus"));
+
+    // 14 has Bhavan in its name, 12 on its menu
+    assertEquals(Arrays.asList("14", "12"),
+        ids(restaurantSearchIndex.search(20.5, 30.05, 60.0, EVENING, "bhavan", null)));
+    // the fish briyani is gone from the menu of 12
+    assertEquals(Arrays.asList("11"), search("briyani"));
+    verify(menuRepository, times(1)).findAll();
+  }
+
+  @Test
+  void searchFollowsTheGeoIndex() throws IOException {
+    assertEquals(Arrays.asList("11", "12"), search("briyani"));
+
+    RestaurantEntity moved = listOfRestaurants().get(1);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    restaurantGeoIndex.upsert(moved);
+
+    assertEquals(Arrays.asList("12"), search("briyani"));
+  }
+
+  @Test
+  void previousTermsAreSearchedUntilRebuiltInTheBackground() throws IOException {
+    ReflectionTestUtils.setField(restaurantSearchIndex, "refreshIntervalMillis", 1000L);
+    // built by the first search, there was nothing to search before
+    assertEquals(Arrays.asList("11", "12"), search("briyani"));
+
+    RestaurantEntity moved = listOfRestaurants().get(1);
+    moved.setLatitude(20.8);
+    moved.setLongitude(30.1);
+    restaurantGeoIndex.upsert(moved);
+    assertEquals(Arrays.asList("11", "12"), search("briyani"));
+
+    restaurantSearchIndex.refresh();
+    assertEquals(Arrays.asList("12"), search("briyani"));
+  }
+
+  private List<String> search(String searchFor) {
+    return ids(restaurantSearchIndex.search(20.0, 30.0, 5.0, EVENING, searchFor, null));
+  }
+
+  private List<String> ids(List<Restaurant> restaurants) {
+    return restaurants.stream()
+        .map(Restaurant::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+
+  private List<MenuEntity> listOfMenus() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_menus.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<MenuEntity>>() {
+    });
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RestaurantMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantSnapshotTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private static final String[][] HOURS = {
+      {"07:00", "11:00"}, {"18:00", "23:00"}, {"20:00", "04:00"}, {"00:00", "23:59"}
+  };
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void findsNearbyRestaurantsOpenAtTime() throws IOException {
+    RestaurantSnapshot snapshot = new RestaurantSnapshot(listOfRestaurants());
+
+    assertEquals(5, snapshot.size());
+    assertEquals(Arrays.asList("11", "12"), restaurantIds(snapshot.findRestaurants(
+        20.0, 30.0, 3.0, LocalTime.of(18, 1).toSecondOfDay())));
+    assertTrue(snapshot.findRestaurants(20.0, 30.0, 3.0,
+        LocalTime.of(17, 59).toSecondOfDay()).isEmpty());
+    assertEquals(Arrays.asList("10", "11", "12"), restaurantIds(snapshot.findRestaurants(
+        20.0, 30.0, 3.1, RestaurantSnapshot.ANY_TIME)));
+    assertTrue(snapshot.findRestaurants(20.9, 30.0, 3.0, RestaurantSnapshot.ANY_TIME)
+        .isEmpty());
+  }
+
+  @Test
+  void restaurantsAreTheSameAsMappedFromEntities() throws IOException {
+    List<RestaurantEntity> restaurantEntities = listOfRestaurants();
+    RestaurantSnapshot snapshot = new RestaurantSnapshot(restaurantEntities);
+
+    List<Restaurant> everything = snapshot.scan(20.0, 30.0, 20000.0, RestaurantSnapshot.ANY_TIME);
+    assertEquals(restaurantEntities.size(), everything.size());
+    for (int i = 0; i < everything.size(); i++) {
+      assertEquals(objectMapper.writeValueAsString(
+          RestaurantMapper.toRestaurant(restaurantEntities.get(i))),
+          objectMapper.writeValueAsString(everything.get(i)));
+    }
+
+    // every dto has its own attributes
+    everything.get(0).getAttributes().add("Changed");
+    assertEquals(restaurantEntities.get(0).getAttributes().size(),
+        snapshot.scan(20.0, 30.0, 20000.0, RestaurantSnapshot.ANY_TIME)
+            .get(0).getAttributes().size());
+  }
+
+  @Test
+  void queriesAgreeWithFilteringEveryEntity() {
+    Random random = new Random(42);
+    List<RestaurantEntity> restaurantEntities = randomRestaurants(random, 5000);
+    RestaurantSnapshot snapshot = new RestaurantSnapshot(restaurantEntities);
+
+    for (int i = 0; i < 200; i++) {
+      double latitude = 12.9 + random.nextDouble() * 0.4 - 0.2;
+      double longitude = 77.6 + random.nextDouble() * 0.4 - 0.2;
+      double radiusInKms = 0.5 + random.nextDouble() * (i % 10 == 0 ? 50.0 : 5.0);
+      int secondOfDay = i % 2 == 0 ? RestaurantSnapshot.ANY_TIME
+          : random.nextInt(24 * 60) * 60;
+
+      List<String> expected = restaurantEntities.stream()
+          .filter(r -> GeoUtils.findDistanceInKm(latitude, longitude, r.getLatitude(),
+              r.getLongitude()) <= radiusInKms)
+          .filter(r -> secondOfDay == RestaurantSnapshot.ANY_TIME || OpeningHours.isOpen(
+              OpeningHours.parseMinuteOfDay(r.getOpensAt()),
+              OpeningHours.parseMinuteOfDay(r.getClosesAt()), secondOfDay))
+          .map(RestaurantEntity::getRestaurantId)
+          .collect(Collectors.toList());
+      assertEquals(expected, restaurantIds(
+          snapshot.findRestaurants(latitude, longitude, radiusInKms, secondOfDay)));
+      assertEquals(expected, restaurantIds(
+          snapshot.scan(latitude, longitude, radiusInKms, secondOfDay)));
+    }
+  }
+
+  @Test
+  void parallelScansGiveTheSameRestaurantsInTheSameOrder() {
+    List<RestaurantEntity> restaurantEntities = randomRestaurants(new Random(7), 20000);
+    RestaurantSnapshot snapshot = new RestaurantSnapshot(restaurantEntities);
+
+    RestaurantScanPool scanPool = new RestaurantScanPool();
+    ReflectionTestUtils.setField(scanPool, "enabled", true);
+    ReflectionTestUtils.setField(scanPool, "threshold", 0);
+    ReflectionTestUtils.setField(scanPool, "poolSize", 4);
+    ReflectionTestUtils.setField(scanPool, "minRowsPerTask", 64);
+    scanPool.initPool();
+    try {
+      assertTrue(scanPool.shouldSplit(1000));
+      Random random = new Random(11);
+      for (int i = 0; i < 50; i++) {
+        double latitude = 12.9 + random.nextDouble() * 0.4 - 0.2;
+        double longitude = 77.6 + random.nextDouble() * 0.4 - 0.2;
+        double radiusInKms = 1.0 + random.nextDouble() * (i % 5 == 0 ? 40.0 : 8.0);
+        int secondOfDay = random.nextInt(24 * 60) * 60;
+
+        assertEquals(
+            restaurantIds(snapshot.findRestaurants(latitude, longitude, radiusInKms,
+                secondOfDay)),
+            restaurantIds(snapshot.findRestaurants(latitude, longitude, radiusInKms,
+                secondOfDay, scanPool)));
+        assertEquals(
+            restaurantIds(snapshot.scan(latitude, longitude, radiusInKms, secondOfDay)),
+            restaurantIds(snapshot.scan(latitude, longitude, radiusInKms, secondOfDay,
+                scanPool)));
+      }
+    } finally {
+      scanPool.closePool();
+    }
+  }
+
+  private List<RestaurantEntity> randomRestaurants(Random random, int size) {
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setRestaurantId(Integer.toString(i));
+      restaurantEntity.setName("Restaurant " + i);
+      restaurantEntity.setCity("City");
+      restaurantEntity.setImageUrl("www.google.com");
+      restaurantEntity.setLatitude(12.9 + random.nextDouble() * 0.4 - 0.2);
+      restaurantEntity.setLongitude(77.6 + random.nextDouble() * 0.4 - 0.2);
+      String[] hours = HOURS[random.nextInt(HOURS.length)];
+      restaurantEntity.setOpensAt(hours[0]);
+      restaurantEntity.setClosesAt(hours[1]);
+      restaurantEntities.add(restaurantEntity);
+    }
+    return restaurantEntities;
+  }
+
+  private List<String> restaurantIds(List<Restaurant> restaurants) {
+    return restaurants.stream()
+        .map(Restaurant::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.dto.Suggestion;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.MenuRepository;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantSuggestionIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private RestaurantSuggestionIndex restaurantSuggestionIndex;
+
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  private MenuCatalogue menuCatalogue;
+
+  @BeforeEach
+  void setup() throws IOException {
+    restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(listOfRestaurants());
+    MenuRepository menuRepository = mock(MenuRepository.class);
+    when(menuRepository.findAll()).thenReturn(listOfMenus());
+
+    menuCatalogue = new MenuCatalogue();
+    ReflectionTestUtils.setField(menuCatalogue, "menuRepository", menuRepository);
+
+    restaurantSuggestionIndex = new RestaurantSuggestionIndex();
+    ReflectionTestUtils.setField(restaurantSuggestionIndex, "restaurantGeoIndex",
+        restaurantGeoIndex);
+    ReflectionTestUtils.setField(restaurantSuggestionIndex, "restaurantGeoIndexSynchronizer",
+        mock(RestaurantGeoIndexSynchronizer.class));
+    ReflectionTestUtils.setField(restaurantSuggestionIndex, "menuCatalogue", menuCatalogue);
+    restaurantSuggestionIndex.refresh();
+  }
+
+  @Test
+  void anyWordOfTheNameCanBeginTheSuggestion() {
+    assertEquals(Arrays.asList(dish("Chicken Briyani"), dish("Fish Briyani")),
+        suggest(20.0, 30.0, "bri"));
+    assertEquals(Arrays.asList(dish("Chicken Briyani")), suggest(20.0, 30.0, "CHICKEN b"));
+    assertEquals(Arrays.asList(restaurant("A2B Adyar Ananda Bhavan")),
+        suggest(20.78, 30.09, "anan"));
+    assertTrue(suggest(20.0, 30.0, "riyani").isEmpty());
+    assertTrue(suggest(20.0, 30.0, " - ").isEmpty());
+  }
+
+  @Test
+  void onlyNamesAroundTheUserAreSuggested() {
+    // 13 has mutton briyani, but it is far away
+    assertTrue(suggest(20.0, 30.0, "mutton").isEmpty());
+    assertEquals(Arrays.asList(dish("Mutton Briyani")), suggest(20.8, 30.1, "bri"));
+    assertTrue(suggest(0.0, 0.0, "a").isEmpty());
+  }
+
+  @Test
+  void namesOfMoreRestaurantsComeFirst() {
+    MenuEntity menuEntity = new MenuEntity();
+    menuEntity.setRestaurantId("10");
+    ItemEntity itemEntity = new ItemEntity();
+    itemEntity.setName("Fish Briyani");
+    menuEntity.setItems(Arrays.asList(itemEntity));
+    menuCatalogue.onAfterSave(new AfterSaveEvent<>(menuEntity, null, "menus"));
+
+    // still the previous dictionaries until they are built again
+    assertEquals(Arrays.asList(dish("Chicken Briyani"), dish("Fish Briyani")),
+        suggest(20.0, 30.0, "bri"));
+    restaurantSuggestionIndex.refresh();
+
+    assertEquals(Arrays.asList(dish("Fish Briyani"), dish("Chicken Briyani")),
+        suggest(20.0, 30.0, "bri"));
+    assertEquals(Arrays.asList(dish("Fish Briyani")),
+        restaurantSuggestionIndex.suggest(20.0, 30.0, "bri", 1));
+    // the A2B of 10, 11 and 12 is one name
+    assertEquals(Arrays.asList(restaurant("A2B")), suggest(20.0, 30.0, "a"));
+  }
+
+  @Test
+  void suggestionsFollowTheGeoIndex() throws IOException {
+    RestaurantEntity moved = listOfRestaurants().get(4);
+    moved.setLatitude(20.0);
+    moved.setLongitude(30.0);
+    restaurantGeoIndex.upsert(moved);
+    restaurantSuggestionIndex.refresh();
+
+    assertEquals(Arrays.asList(restaurant("A2B Adyar Ananda Bhavan")),
+        suggest(20.0, 30.0, "adyar"));
+    assertTrue(suggest(20.78, 30.09, "adyar").isEmpty());
+  }
+
+  private List<Suggestion> suggest(double latitude, double longitude, String prefix) {
+    return restaurantSuggestionIndex.suggest(latitude, longitude, prefix, 10);
+  }
+
+  private static Suggestion dish(String text) {
+    return new Suggestion(text, Suggestion.Type.DISH);
+  }
+
+  private static Suggestion restaurant(String text) {
+    return new Suggestion(text, Suggestion.Type.RESTAURANT);
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+
+  private List<MenuEntity> listOfMenus() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_menus.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<MenuEntity>>() {
+    });
+  }
+}
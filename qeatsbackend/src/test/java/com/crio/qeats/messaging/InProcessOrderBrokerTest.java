@@ -0,0 +1,204 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.repositoryservices.OrderRepositoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class InProcessOrderBrokerTest {
+
+  private InProcessOrderBroker orderBroker;
+
+  private OrderRepositoryService orderRepositoryService;
+
+  // what the mocked db holds, by order id
+  private final Map<String, Order> saved = new ConcurrentHashMap<>();
+
+  private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+  private final AtomicInteger failuresLeft = new AtomicInteger();
+
+  // the writes wait for it, when a test needs orders to pile up
+  private volatile CountDownLatch writesAllowed = new CountDownLatch(0);
+
+  @BeforeEach
+  void setup() {
+    orderRepositoryService = mock(OrderRepositoryService.class);
+    doAnswer(invocation -> {
+      writesAllowed.await();
+      if (failuresLeft.getAndDecrement() > 0) {
+        throw new DataAccessResourceFailureException("down");
+      }
+      Collection<Order> orders = invocation.getArgument(0);
+      batchSizes.add(orders.size());
+      for (Order order : orders) {
+        saved.put(order.getId(), order);
+      }
+      return null;
+    }).when(orderRepositoryService).saveOrders(anyCollection());
+  }
+
+  @AfterEach
+  void teardown() {
+    writesAllowed.countDown();
+    if (orderBroker != null) {
+      orderBroker.stop();
+    }
+  }
+
+  @Test
+  void publishedOrdersAreWritten() throws Exception {
+    orderBroker = newOrderBroker(100, 10);
+    for (int i = 0; i < 25; i++) {
+      orderBroker.publish(order(i));
+    }
+
+    awaitSaved(25);
+    assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+  }
+
+  @Test
+  void ordersWaitingAreWrittenTogether() throws Exception {
+    orderBroker = newOrderBroker(100, 50);
+    writesAllowed = new CountDownLatch(1);
+    // the first one is taken, and its write held: the others pile up in the meantime
+    orderBroker.publish(order(0));
+    Thread.sleep(200);
+    for (int i = 1; i < 31; i++) {
+      orderBroker.publish(order(i));
+    }
+    writesAllowed.countDown();
+
+    awaitSaved(31);
+    assertEquals(2, batchSizes.size());
+    assertEquals(30, batchSizes.get(1).intValue());
+  }
+
+  @Test
+  void failedBatchIsWrittenAgain() throws Exception {
+    orderBroker = newOrderBroker(100, 10);
+    failuresLeft.set(2);
+    orderBroker.publish(order(0));
+
+    awaitSaved(1);
+    assertEquals(Collections.singletonList(1), batchSizes);
+  }
+
+  @Test
+  void fullQueueRejectsOrders() {
+    orderBroker = newOrderBroker(2, 10);
+    writesAllowed = new CountDownLatch(1);
+
+    assertThrows(RejectedExecutionException.class, () -> {
+      // one taken by the consumer, two queued, then full
+      for (int i = 0; i < 4; i++) {
+        orderBroker.publish(order(i));
+      }
+    });
+  }
+
+  @Test
+  void queuedOrdersAreWrittenOnStop() {
+    orderBroker = newOrderBroker(100, 10);
+    for (int i = 0; i < 25; i++) {
+      orderBroker.publish(order(i));
+    }
+
+    orderBroker.stop();
+    assertEquals(25, saved.size());
+    assertThrows(RejectedExecutionException.class, () -> orderBroker.publish(order(25)));
+    orderBroker = null;
+  }
+
+  @Test
+  void failingBatchIsRetriedOnStop() {
+    orderBroker = newOrderBroker(100, 10);
+    writesAllowed = new CountDownLatch(1);
+    failuresLeft.set(20);
+    for (int i = 0; i < 5; i++) {
+      orderBroker.publish(order(i));
+    }
+    writesAllowed.countDown();
+
+    // the db is back after 20 retries, 10ms apart
+    orderBroker.stop();
+    assertEquals(5, saved.size());
+    orderBroker = null;
+  }
+
+  @Test
+  void stopGivesUpOnAFailingBatchAfterTheTimeout() {
+    orderBroker = newOrderBroker(100, 10);
+    ReflectionTestUtils.setField(orderBroker, "stopTimeoutMillis", 200L);
+    failuresLeft.set(Integer.MAX_VALUE);
+    for (int i = 0; i < 5; i++) {
+      orderBroker.publish(order(i));
+    }
+
+    long started = System.nanoTime();
+    orderBroker.stop();
+    assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+    assertFalse(((Thread) ReflectionTestUtils.getField(orderBroker, "consumer")).isAlive());
+    assertTrue(saved.isEmpty());
+    orderBroker = null;
+  }
+
+  private void awaitSaved(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (saved.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, saved.size());
+  }
+
+  private InProcessOrderBroker newOrderBroker(int queueCapacity, int batchSize) {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OrderBatchWriter orderBatchWriter = new OrderBatchWriter();
+    ReflectionTestUtils.setField(orderBatchWriter, "orderRepositoryService",
+        orderRepositoryService);
+    ReflectionTestUtils.setField(orderBatchWriter, "meterRegistry", meterRegistry);
+    orderBatchWriter.initWriter();
+
+    InProcessOrderBroker newOrderBroker = new InProcessOrderBroker();
+    ReflectionTestUtils.setField(newOrderBroker, "orderBatchWriter", orderBatchWriter);
+    ReflectionTestUtils.setField(newOrderBroker, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(newOrderBroker, "queueCapacity", queueCapacity);
+    ReflectionTestUtils.setField(newOrderBroker, "batchSize", batchSize);
+    ReflectionTestUtils.setField(newOrderBroker, "retryMillis", 10L);
+    newOrderBroker.start();
+    return newOrderBroker;
+  }
+
+  private static Order order(int i) {
+    return new Order("order" + i, "10", "user" + i, new ArrayList<>(), 225.0, new Date());
+  }
+}
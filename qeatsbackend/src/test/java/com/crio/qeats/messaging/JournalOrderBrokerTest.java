@@ -0,0 +1,189 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.repositoryservices.OrderRepositoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class JournalOrderBrokerTest {
+
+  private Path directory;
+
+  private JournalOrderBroker orderBroker;
+
+  private OrderRepositoryService orderRepositoryService;
+
+  // what the mocked db holds, by order id
+  private final Map<String, Order> saved = new ConcurrentHashMap<>();
+
+  private final AtomicInteger writes = new AtomicInteger();
+
+  private volatile boolean dbDown;
+
+  @BeforeEach
+  void setup() throws IOException {
+    directory = Files.createTempDirectory("order-journal");
+    orderRepositoryService = mock(OrderRepositoryService.class);
+    doAnswer(invocation -> {
+      if (dbDown) {
+        throw new DataAccessResourceFailureException("down");
+      }
+      Collection<Order> orders = invocation.getArgument(0);
+      writes.incrementAndGet();
+      for (Order order : orders) {
+        saved.put(order.getId(), order);
+      }
+      return null;
+    }).when(orderRepositoryService).saveOrders(anyCollection());
+  }
+
+  @AfterEach
+  void teardown() throws IOException {
+    if (orderBroker != null) {
+      orderBroker.stop();
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  void publishedOrdersAreReplayedIntoTheDb() throws Exception {
+    orderBroker = newOrderBroker(JournalFsyncPolicy.ALWAYS, 64 * 1024);
+    for (int i = 0; i < 25; i++) {
+      orderBroker.publish(order(i));
+    }
+
+    awaitSaved(25);
+    assertEquals(order(7).getItems(), saved.get("order7").getItems());
+  }
+
+  @Test
+  void ordersSyncedInTheBackgroundAreReplayed() throws Exception {
+    orderBroker = newOrderBroker(JournalFsyncPolicy.INTERVAL, 64 * 1024);
+    for (int i = 0; i < 25; i++) {
+      orderBroker.publish(order(i));
+    }
+
+    awaitSaved(25);
+  }
+
+  @Test
+  void ordersNotWrittenAreReplayedAfterARestart() throws Exception {
+    dbDown = true;
+    orderBroker = newOrderBroker(JournalFsyncPolicy.ALWAYS, 64 * 1024);
+    for (int i = 0; i < 5; i++) {
+      orderBroker.publish(order(i));
+    }
+    orderBroker.stop();
+    assertEquals(0, saved.size());
+
+    dbDown = false;
+    orderBroker = newOrderBroker(JournalFsyncPolicy.ALWAYS, 64 * 1024);
+    awaitSaved(5);
+  }
+
+  @Test
+  void ordersWrittenAreNotReplayedAgain() throws Exception {
+    orderBroker = newOrderBroker(JournalFsyncPolicy.ALWAYS, 64 * 1024);
+    for (int i = 0; i < 5; i++) {
+      orderBroker.publish(order(i));
+    }
+    awaitSaved(5);
+    orderBroker.stop();
+    int writesBefore = writes.get();
+
+    orderBroker = newOrderBroker(JournalFsyncPolicy.ALWAYS, 64 * 1024);
+    orderBroker.publish(order(5));
+    awaitSaved(6);
+    assertEquals(writesBefore + 1, writes.get());
+  }
+
+  @Test
+  void journalFullOfOrdersNotWrittenRejectsOrders() {
+    dbDown = true;
+    orderBroker = newOrderBroker(JournalFsyncPolicy.NEVER, 1024);
+
+    // two segments of a few orders each
+    assertThrows(RejectedExecutionException.class, () -> {
+      for (int i = 0; i < 100; i++) {
+        orderBroker.publish(order(i));
+      }
+    });
+  }
+
+  private void awaitSaved(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (saved.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, saved.size());
+  }
+
+  private JournalOrderBroker newOrderBroker(JournalFsyncPolicy fsync, int segmentSizeBytes) {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OrderBatchWriter orderBatchWriter = new OrderBatchWriter();
+    ReflectionTestUtils.setField(orderBatchWriter, "orderRepositoryService",
+        orderRepositoryService);
+    ReflectionTestUtils.setField(orderBatchWriter, "meterRegistry", meterRegistry);
+    orderBatchWriter.initWriter();
+
+    JournalOrderBroker newOrderBroker = new JournalOrderBroker();
+    ReflectionTestUtils.setField(newOrderBroker, "orderBatchWriter", orderBatchWriter);
+    ReflectionTestUtils.setField(newOrderBroker, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(newOrderBroker, "directory", directory.toString());
+    ReflectionTestUtils.setField(newOrderBroker, "segmentSizeBytes", segmentSizeBytes);
+    ReflectionTestUtils.setField(newOrderBroker, "maxSegments", 2);
+    ReflectionTestUtils.setField(newOrderBroker, "fsync", fsync);
+    ReflectionTestUtils.setField(newOrderBroker, "fsyncIntervalMillis", 10L);
+    ReflectionTestUtils.setField(newOrderBroker, "replayIntervalMillis", 10L);
+    ReflectionTestUtils.setField(newOrderBroker, "batchSize", 10);
+    ReflectionTestUtils.setField(newOrderBroker, "retryMillis", 10L);
+    try {
+      newOrderBroker.start();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return newOrderBroker;
+  }
+
+  private static Order order(int i) {
+    Item item = new Item("1", "1", "Chicken Briyani", "www.google.com", 225.0,
+        Collections.singletonList("Mughal"));
+    return new Order("order" + i, "10", "user" + i,
+        new ArrayList<>(Collections.singletonList(item)), 225.0, new Date());
+  }
+}
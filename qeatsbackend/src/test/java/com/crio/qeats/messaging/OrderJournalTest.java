@@ -0,0 +1,197 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OrderJournalTest {
+
+  private Path directory;
+
+  private OrderJournal journal;
+
+  @BeforeEach
+  void setup() throws IOException {
+    directory = Files.createTempDirectory("order-journal");
+  }
+
+  @AfterEach
+  void teardown() throws IOException {
+    if (journal != null) {
+      journal.close();
+    }
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Test
+  void recordsAreReadInTheOrderAppended() throws IOException {
+    journal = open(1024, 4);
+    for (int i = 0; i < 5; i++) {
+      journal.append(record(i, 10));
+    }
+
+    List<byte[]> read = new ArrayList<>();
+    long next = journal.read(0, 3, journal.getWrittenPosition(), read::add);
+    next = journal.read(next, 100, journal.getWrittenPosition(), read::add);
+
+    assertEquals(5, read.size());
+    for (int i = 0; i < 5; i++) {
+      assertArrayEquals(record(i, 10), read.get(i));
+    }
+    assertEquals(journal.getWrittenPosition(), next);
+  }
+
+  @Test
+  void recordsRollOverToNewSegments() throws IOException {
+    // three records of 308 bytes in a segment
+    journal = open(1024, 8);
+    for (int i = 0; i < 10; i++) {
+      journal.append(record(i, 300));
+    }
+
+    List<byte[]> read = new ArrayList<>();
+    journal.read(0, 100, journal.getWrittenPosition(), read::add);
+
+    assertEquals(4, journal.getSegmentCount());
+    assertEquals(10, read.size());
+    assertArrayEquals(record(9, 300), read.get(9));
+  }
+
+  @Test
+  void segmentsReadAreDeleted() throws IOException {
+    journal = open(1024, 8);
+    for (int i = 0; i < 10; i++) {
+      journal.append(record(i, 300));
+    }
+
+    // the seventh is the first of the third segment
+    long next = journal.read(0, 7, journal.getWrittenPosition(), record -> { });
+    journal.deleteBefore(next);
+    List<byte[]> read = new ArrayList<>();
+    journal.read(next, 100, journal.getWrittenPosition(), read::add);
+
+    assertEquals(2, journal.getSegmentCount());
+    assertEquals(3, read.size());
+    assertArrayEquals(record(7, 300), read.get(0));
+  }
+
+  @Test
+  void fullJournalRejectsRecords() throws IOException {
+    // two records of 508 bytes in a segment, two segments
+    journal = open(1024, 2);
+    for (int i = 0; i < 4; i++) {
+      journal.append(record(i, 500));
+    }
+
+    assertThrows(RejectedExecutionException.class, () -> journal.append(record(4, 500)));
+    journal.deleteBefore(journal.getWrittenPosition());
+    journal.append(record(4, 500));
+  }
+
+  @Test
+  void tornRecordIsDiscardedOnOpen() throws IOException {
+    journal = open(1024, 4);
+    journal.append(record(0, 10));
+    long end = journal.append(record(1, 10));
+    journal.append(record(2, 10));
+    journal.close();
+    // as if the machine crashed in the middle of writing the third one
+    try (FileChannel channel = FileChannel.open(segment(1), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {42}), OrderJournal.offset(end) + 12);
+    }
+
+    journal = open(1024, 4);
+    assertEquals(end, journal.getWrittenPosition());
+    journal.append(record(3, 10));
+    List<byte[]> read = new ArrayList<>();
+    journal.read(0, 100, journal.getWrittenPosition(), read::add);
+
+    assertEquals(3, read.size());
+    assertArrayEquals(record(1, 10), read.get(1));
+    assertArrayEquals(record(3, 10), read.get(2));
+  }
+
+  @Test
+  void checkpointSurvivesReopening() throws IOException {
+    journal = open(1024, 4);
+    assertEquals(0, journal.readCheckpoint());
+    long position = journal.append(record(0, 10));
+    journal.writeCheckpoint(position);
+    journal.close();
+
+    journal = open(1024, 4);
+    assertEquals(position, journal.readCheckpoint());
+    assertEquals(position, journal.getWrittenPosition());
+  }
+
+  @Test
+  void closedJournalRejectsRecords() throws IOException {
+    journal = open(1024, 4);
+    journal.close();
+
+    assertThrows(IllegalStateException.class, () -> journal.append(record(0, 10)));
+  }
+
+  @Test
+  void ordersAreDecodedAsEncoded() {
+    Item item = new Item("1", "1", "Chicken Briyani", "www.google.com", 225.0,
+        new ArrayList<>(Arrays.asList("Mughal", "Spicy")));
+    Item withNulls = new Item("2", "2", null, null, null, new ArrayList<>());
+    Order order = new Order("5f0c", "10", "Bunny", new ArrayList<>(Arrays.asList(item, withNulls)),
+        225.0, new Date());
+    Order empty = new Order("5f0d", null, "Bugs", new ArrayList<>(), 0, new Date(0));
+
+    assertEquals(order, OrderRecords.decode(OrderRecords.encode(order)));
+    assertEquals(empty, OrderRecords.decode(OrderRecords.encode(empty)));
+    assertThrows(IllegalArgumentException.class, () -> OrderRecords.decode(new byte[] {9}));
+    assertThrows(IllegalArgumentException.class, () -> OrderRecords.decode(
+        Arrays.copyOf(OrderRecords.encode(order), 20)));
+  }
+
+  private OrderJournal open(int segmentSize, int maxSegments) throws IOException {
+    OrderJournal newJournal = new OrderJournal(directory, segmentSize, maxSegments);
+    newJournal.open();
+    return newJournal;
+  }
+
+  private Path segment(long index) {
+    return directory.resolve(String.format("%020d.journal", index));
+  }
+
+  // size bytes, all of them i
+  private static byte[] record(int i, int size) {
+    byte[] record = new byte[size];
+    Arrays.fill(record, (byte) i);
+    return record;
+  }
+
+}
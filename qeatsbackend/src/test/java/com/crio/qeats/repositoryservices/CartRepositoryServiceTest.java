@@ -0,0 +1,94 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.dto.Cart;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.CartEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {QEatsApplication.class})
+@DirtiesContext
+@ActiveProfiles("test")
+public class CartRepositoryServiceTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Autowired
+  private CartRepositoryService cartRepositoryService;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  void setup() throws IOException {
+    for (CartEntity cartEntity : listOfCarts()) {
+      mongoTemplate.save(cartEntity, "carts");
+    }
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("carts");
+  }
+
+  @Test
+  void cartByIdOrByUser() throws IOException {
+    Cart expected = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/get_cart_response.json"), Cart.class);
+
+    assertEquals(expected, cartRepositoryService.findCartById("1"));
+    assertEquals(expected, cartRepositoryService.findCartByUserId("Bunny"));
+    assertNull(cartRepositoryService.findCartById("99"));
+    assertNull(cartRepositoryService.findCartByUserId("Bugs"));
+  }
+
+  @Test
+  void cartsAreInsertedOrReplacedTogether() {
+    Item item = new Item("2", "2", "Idly", "www.google.com", 45.0,
+        Collections.singletonList("South Indian"));
+    Cart replaced = new Cart("1", "10", "Bunny", new ArrayList<>(Arrays.asList(item, item)), 90);
+    Cart inserted = new Cart("2", null, "Bugs", new ArrayList<>(), 0);
+
+    cartRepositoryService.saveCarts(Arrays.asList(replaced, inserted));
+
+    assertEquals(replaced, cartRepositoryService.findCartById("1"));
+    assertEquals(inserted, cartRepositoryService.findCartByUserId("Bugs"));
+    assertEquals(2, mongoTemplate.count(new Query(), "carts"));
+  }
+
+  private List<CartEntity> listOfCarts() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_carts.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<CartEntity>>() {
+    });
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.dto.Menu;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {QEatsApplication.class})
+@DirtiesContext
+@ActiveProfiles("test")
+public class MenuRepositoryServiceTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Autowired
+  private MenuRepositoryService menuRepositoryService;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  void setup() throws IOException {
+    for (MenuEntity menuEntity : listOfMenus()) {
+      mongoTemplate.save(menuEntity, "menus");
+    }
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("menus");
+  }
+
+  @Test
+  void menuOfOneRestaurant() {
+    Menu menu = menuRepositoryService.findMenu("12");
+
+    assertEquals("12", menu.getRestaurantId());
+    assertEquals(1, menu.getItems().size());
+    assertEquals("Fish Briyani", menu.getItems().get(0).getName());
+    assertEquals(Double.valueOf(325), menu.getItems().get(0).getPrice());
+    assertEquals(Arrays.asList("Mughal"), menu.getItems().get(0).getAttributes());
+    assertNull(menuRepositoryService.findMenu("99"));
+  }
+
+  @Test
+  void menusOfSeveralRestaurantsTogether() {
+    List<Menu> menus = menuRepositoryService.findMenus(Arrays.asList("13", "99", "11"));
+
+    assertEquals(Arrays.asList("11", "13"), menus.stream().map(Menu::getRestaurantId)
+        .sorted().collect(Collectors.toList()));
+    assertTrue(menuRepositoryService.findMenus(Collections.singletonList("99")).isEmpty());
+  }
+
+  private List<MenuEntity> listOfMenus() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_menus.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<MenuEntity>>() {
+    });
+  }
+}
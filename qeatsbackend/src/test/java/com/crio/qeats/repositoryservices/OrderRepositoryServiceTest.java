@@ -0,0 +1,150 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.models.OrderEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.OrderCursor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {QEatsApplication.class})
+@DirtiesContext
+@ActiveProfiles("test")
+public class OrderRepositoryServiceTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Autowired
+  private OrderRepositoryService orderRepositoryService;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  // the documents only, so that the indexes created on startup stay
+  @AfterEach
+  void teardown() {
+    mongoTemplate.remove(new Query(), OrderEntity.class);
+  }
+
+  @Test
+  void ordersAreWrittenOnceEach() {
+    Item item = new Item("1", "1", "Chicken Briyani", "www.google.com", 225.0,
+        Collections.singletonList("Mughal"));
+    Order first = new Order("1", "10", "Bunny", Arrays.asList(item), 225.0, new Date());
+    Order second = new Order("2", "10", "Bugs", Arrays.asList(item, item), 450.0, new Date());
+
+    orderRepositoryService.saveOrders(Arrays.asList(first, second));
+    // a redelivered batch
+    orderRepositoryService.saveOrders(Arrays.asList(first, second));
+
+    assertEquals(2, mongoTemplate.count(new Query(), "orders"));
+    OrderEntity orderEntity = mongoTemplate.findById("2", OrderEntity.class);
+    assertEquals("Bugs", orderEntity.getUserId());
+    assertEquals(2, orderEntity.getItems().size());
+    assertEquals(Double.valueOf(450.0), orderEntity.getTotal());
+    assertEquals(second.getPlacedAt(), orderEntity.getPlacedAt());
+  }
+
+  @Test
+  void ordersOfAUserAreReadAPageAtATimeLatestFirst() throws IOException {
+    // the fixture order, then 6 more of Bunny, two of them in the same millisecond, and one of
+    // Bugs
+    List<OrderEntity> orderEntities = listOfOrders();
+    orderEntities.get(0).setPlacedAt(new Date(1000));
+    for (int i = 2; i <= 7; i++) {
+      orderEntities.add(orderEntity(String.valueOf(i), "Bunny", i == 5 ? 4000 : i * 1000));
+    }
+    orderEntities.add(orderEntity("8", "Bugs", 9000));
+    for (OrderEntity orderEntity : orderEntities) {
+      mongoTemplate.save(orderEntity, "orders");
+    }
+
+    List<String> ids = new ArrayList<>();
+    OrderCursor after = null;
+    List<Order> page;
+    do {
+      page = orderRepositoryService.findOrders("Bunny", 3, after, false);
+      for (Order order : page) {
+        assertNull(order.getItems());
+        ids.add(order.getId());
+      }
+      after = page.isEmpty() ? null : OrderCursor.after(page.get(page.size() - 1));
+    } while (page.size() == 3);
+
+    assertEquals(Arrays.asList("7", "6", "5", "4", "3", "2", "1"), ids);
+  }
+
+  @Test
+  void itemsAreOnlyReadWhenAskedFor() throws IOException {
+    OrderEntity orderEntity = listOfOrders().get(0);
+    orderEntity.setPlacedAt(new Date());
+    mongoTemplate.save(orderEntity, "orders");
+
+    Order summary = orderRepositoryService.findOrders("Bunny", 10, null, false).get(0);
+    Order order = orderRepositoryService.findOrders("Bunny", 10, null, true).get(0);
+
+    assertNull(summary.getItems());
+    assertEquals(225.0, summary.getTotal(), 0.0);
+    assertEquals(1, order.getItems().size());
+    assertEquals("Chicken Briyani", order.getItems().get(0).getName());
+    assertEquals(Collections.emptyList(), orderRepositoryService.findOrders("Bugs", 10, null,
+        true));
+  }
+
+  @Test
+  void ordersAreIndexedByUserAndTimePlaced() {
+    List<String> indexNames = mongoTemplate.indexOps(OrderEntity.class).getIndexInfo().stream()
+        .map(indexInfo -> indexInfo.getName())
+        .collect(Collectors.toList());
+
+    assertTrue(indexNames.contains(OrderEntity.USER_PLACED_AT_INDEX), indexNames.toString());
+  }
+
+  private List<OrderEntity> listOfOrders() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_orders.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<OrderEntity>>() {
+    });
+  }
+
+  private static OrderEntity orderEntity(String id, String userId, long placedAt) {
+    OrderEntity orderEntity = new OrderEntity();
+    orderEntity.setId(id);
+    orderEntity.setRestaurantId("10");
+    orderEntity.setUserId(userId);
+    orderEntity.setTotal(45.0);
+    orderEntity.setPlacedAt(new Date(placedAt));
+    return orderEntity;
+  }
+}
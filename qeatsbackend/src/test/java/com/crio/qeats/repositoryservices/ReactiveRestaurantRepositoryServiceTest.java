@@ -0,0 +1,138 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoLocation;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+// the application as the "reactive" profile runs it, on the embedded mongo
+@SpringBootTest(classes = {QEatsApplication.class},
+    properties = "spring.main.web-application-type=reactive")
+@DirtiesContext
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveRestaurantRepositoryServiceTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Autowired
+  private ReactiveRestaurantRepositoryService reactiveRestaurantRepositoryService;
+
+  @Autowired
+  private RestaurantRepositoryService restaurantRepositoryService;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  void setup() throws IOException {
+    // saved through the application, so that the location is set and indexed
+    for (RestaurantEntity restaurantEntity : listOfRestaurants()) {
+      mongoTemplate.save(restaurantEntity, "restaurants");
+    }
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("restaurants");
+  }
+
+  @Test
+  void restaurantsCloseByAndOpenNow() {
+    List<Restaurant> restaurants = reactiveRestaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0)
+        .collectList().block();
+
+    assertEquals(2, restaurants.size());
+    // mongo streams them nearest first
+    assertEquals("12", restaurants.get(0).getRestaurantId());
+    assertEquals("11", restaurants.get(1).getRestaurantId());
+  }
+
+  @Test
+  void sameRestaurantsAsTheBlockingService() {
+    // at the centre of its geohash cell the blocking service looks around the same point
+    GeoLocation cellCenter = GeoHashUtils.cellCenter(20.0, 30.0,
+        GlobalConstants.GEOHASH_PRECISION_FOR_CACHE);
+    double latitude = cellCenter.getLatitude();
+    double longitude = cellCenter.getLongitude();
+
+    for (Double servingRadiusInKms : Arrays.asList(3.0, 5.0)) {
+      List<String> expected = restaurantIds(restaurantRepositoryService
+          .findAllRestaurantsCloseBy(latitude, longitude, LocalTime.of(18, 1),
+              servingRadiusInKms));
+      assertEquals(expected, restaurantIds(reactiveRestaurantRepositoryService
+          .findAllRestaurantsCloseBy(latitude, longitude, LocalTime.of(18, 1),
+              servingRadiusInKms)
+          .collectList().block()));
+    }
+  }
+
+  @Test
+  void noRestaurantsNearBy() {
+    StepVerifier.create(reactiveRestaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.9, 30.0, LocalTime.of(18, 0), 3.0))
+        .verifyComplete();
+  }
+
+  @Test
+  void noRestaurantIsOpenTooEarlyOrTooLate() {
+    StepVerifier.create(reactiveRestaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(17, 59), 3.0))
+        .verifyComplete();
+    StepVerifier.create(reactiveRestaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(23, 1), 3.0))
+        .verifyComplete();
+  }
+
+  @Test
+  void searchesComeFromTheSearchIndex() {
+    StepVerifier.create(reactiveRestaurantRepositoryService
+        .findRestaurantsBySearchQuery(20.0, 30.0, "A2B", LocalTime.of(18, 1), 3.0)
+        .map(Restaurant::getRestaurantId).sort())
+        .expectNext("11", "12")
+        .verifyComplete();
+  }
+
+  private static List<String> restaurantIds(List<Restaurant> restaurants) {
+    return restaurants.stream().map(Restaurant::getRestaurantId).sorted()
+        .collect(Collectors.toList());
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
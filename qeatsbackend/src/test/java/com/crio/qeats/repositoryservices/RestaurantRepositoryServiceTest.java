@@ -11,17 +11,22 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.configs.RedisConfiguration;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.models.RestaurantEntity;
 import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.FixtureHelpers;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -39,6 +44,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
 import redis.embedded.RedisServer;
 
 // TODO: CRIO_TASK_MODULE_NOSQL
@@ -59,6 +66,12 @@ public class RestaurantRepositoryServiceTest {
   private ObjectMapper objectMapper;
   @Autowired
   private Provider<ModelMapper> modelMapperProvider;
+  @Autowired
+  private RedisConfiguration redisConfiguration;
+  @Autowired
+  private NearbyRestaurantsCache nearbyRestaurantsCache;
+  @Autowired
+  private MeterRegistry meterRegistry;
 
   @MockBean
   private RestaurantRepository restaurantRepository;
@@ -78,6 +91,7 @@ public class RestaurantRepositoryServiceTest {
       mongoTemplate.save(restaurantEntity, "restaurants");// to save the in mongodb using mongotemplate 
     }
     when(restaurantRepository.findAll()).thenReturn(allRestaurants);
+    nearbyRestaurantsCache.invalidateNearCache();
   }
 
   @AfterEach
@@ -95,7 +109,8 @@ public class RestaurantRepositoryServiceTest {
     List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
         .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
         ModelMapper modelMapper = modelMapperProvider.get();
-    verify(restaurantRepository, times(1)).findAll();
+    // served from the geo index, which picked up the saves above, not from a full scan
+    verify(restaurantRepository, never()).findAll();
     assertEquals(2, allRestaurantsCloseBy.size());
     assertEquals("11", allRestaurantsCloseBy.get(0).getRestaurantId());
     assertEquals("12", allRestaurantsCloseBy.get(1).getRestaurantId());
@@ -142,6 +157,73 @@ public class RestaurantRepositoryServiceTest {
 
 
 
+  @Test
+  void restaurantsAreCachedInRedisUntilTheyChange() {
+    server = new RedisServer(redisPort);
+    server.start();
+    try {
+      redisConfiguration.destroyCache();
+      // redis was down until now, try it straight away
+      ReflectionTestUtils.setField(nearbyRestaurantsCache, "redisDownUntil", 0L);
+      Counter redisHits = meterRegistry.get("qeats.cache.redis")
+          .tag("name", "nearbyRestaurants").tag("result", "hit").counter();
+      double redisHitsBefore = redisHits.count();
+
+      List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
+          .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0);
+      assertEquals(3, allRestaurantsCloseBy.size());
+      assertEquals("10", allRestaurantsCloseBy.get(0).getRestaurantId());
+      assertEquals("11", allRestaurantsCloseBy.get(1).getRestaurantId());
+      assertEquals("12", allRestaurantsCloseBy.get(2).getRestaurantId());
+
+      // served from redis once the near cache is gone
+      nearbyRestaurantsCache.invalidateNearCache();
+      allRestaurantsCloseBy = restaurantRepositoryService
+          .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0);
+      assertEquals(3, allRestaurantsCloseBy.size());
+      assertEquals(redisHitsBefore + 1, redisHits.count());
+
+      // moving restaurant 11 far away drops the cached restaurants from both tiers
+      RestaurantEntity restaurantEntity = allRestaurants.get(1);
+      restaurantEntity.setLatitude(20.8);
+      mongoTemplate.save(restaurantEntity, "restaurants");
+
+      allRestaurantsCloseBy = restaurantRepositoryService
+          .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0);
+      assertEquals(2, allRestaurantsCloseBy.size());
+      assertEquals("10", allRestaurantsCloseBy.get(0).getRestaurantId());
+      assertEquals("12", allRestaurantsCloseBy.get(1).getRestaurantId());
+      assertEquals(redisHitsBefore + 1, redisHits.count());
+      try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+        // the entry of the previous version is left to expire
+        assertEquals(2, jedis.keys("restaurants:*:5.0:v*").size());
+      }
+    } finally {
+      server.stop();
+    }
+
+    // redis is down, the db is read again
+    nearbyRestaurantsCache.invalidateNearCache();
+    List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0);
+    assertEquals(2, allRestaurantsCloseBy.size());
+  }
+
+  @Test
+  void restaurantsOfACellAreKeptWithinTheRadiusOfTheUser() {
+    // both users are in the same cell, and share its cached entry: restaurant 10 is 3.002km
+    // away from the first one and 2.947km away from the second one
+    List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+    assertEquals(2, allRestaurantsCloseBy.size());
+    assertEquals("11", allRestaurantsCloseBy.get(0).getRestaurantId());
+
+    allRestaurantsCloseBy = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0005, 30.0, LocalTime.of(18, 1), 3.0);
+    assertEquals(3, allRestaurantsCloseBy.size());
+    assertEquals("10", allRestaurantsCloseBy.get(0).getRestaurantId());
+  }
+
   void searchedAttributesIsSubsetOfRetrievedRestaurantAttributes() {
     // TODO
   }
@@ -0,0 +1,71 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantRequestExecutorTest {
+
+  private RestaurantRequestExecutor restaurantRequestExecutor;
+
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    restaurantRequestExecutor = new RestaurantRequestExecutor();
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "poolSize", 2);
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "queueCapacity", 1);
+    restaurantRequestExecutor.initPool();
+  }
+
+  @AfterEach
+  void teardown() {
+    restaurantRequestExecutor.closePool();
+  }
+
+  @Test
+  void lookupsBeyondThePoolAndTheQueueAreRejected() throws Exception {
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < 3; i++) {
+      restaurantRequestExecutor.getExecutor().execute(() -> {
+        started.countDown();
+        await(release);
+      });
+    }
+    started.await(5, TimeUnit.SECONDS);
+
+    assertThrows(RejectedExecutionException.class,
+        () -> restaurantRequestExecutor.getExecutor().execute(() -> { }));
+    release.countDown();
+    assertEquals(1.0, meterRegistry.get("qeats.restaurants.async").tag("result", "rejected")
+        .counter().count());
+    assertEquals(2.0, meterRegistry.get("executor.pool.size").tag("name", "restaurantRequests")
+        .gauge().value());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -9,8 +9,10 @@ package com.crio.qeats.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,11 +23,16 @@ import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
 import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
 import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.RestaurantCursor;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -37,6 +44,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 // TODO: CRIO_TASK_MODULE_RESTAURANTSAPI
 //  Pass all the RestaurantService test cases.
@@ -176,6 +184,72 @@ The service then calls the mocked repository method. */
 
 
   
+  @Test
+  void limitAsksForAPageOfTheNearestRestaurants() throws IOException {
+    List<Restaurant> restaurants = loadRestaurantsDuringNormalHours();
+    when(restaurantRepositoryServiceMock.findNearestRestaurantsCloseBy(any(Double.class),
+        any(Double.class), any(LocalTime.class), any(Double.class), eq(2), any()))
+        .thenReturn(restaurants.subList(0, 2), restaurants.subList(2, 3));
+
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setLimit(2);
+    GetRestaurantsResponse firstPage = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(22, 0));
+
+    assertEquals(restaurants.subList(0, 2), firstPage.getRestaurants());
+    assertEquals(RestaurantCursor.after(20.0, 30.0, restaurants.get(1)).encode(),
+        firstPage.getNextCursor());
+
+    getRestaurantsRequest.setCursor(firstPage.getNextCursor());
+    GetRestaurantsResponse lastPage = restaurantService
+        .findAllRestaurantsCloseBy(getRestaurantsRequest, LocalTime.of(22, 0));
+
+    assertEquals(restaurants.subList(2, 3), lastPage.getRestaurants());
+    assertNull(lastPage.getNextCursor());
+    ArgumentCaptor<RestaurantCursor> after = ArgumentCaptor.forClass(RestaurantCursor.class);
+    verify(restaurantRepositoryServiceMock, times(2)).findNearestRestaurantsCloseBy(
+        eq(20.0), eq(30.0), any(LocalTime.class), eq(5.0), eq(2), after.capture());
+    assertNull(after.getAllValues().get(0));
+    assertEquals(firstPage.getNextCursor(), after.getAllValues().get(1).encode());
+  }
+
+  @Test
+  void asyncLookupsRunOnTheRequestExecutor() throws Exception {
+    List<Restaurant> restaurants = loadRestaurantsDuringNormalHours();
+    AtomicReference<String> lookedUpOn = new AtomicReference<>();
+    when(restaurantRepositoryServiceMock.findAllRestaurantsCloseBy(any(Double.class),
+        any(Double.class), any(LocalTime.class), any(Double.class)))
+        .thenAnswer(invocation -> {
+          lookedUpOn.set(Thread.currentThread().getName());
+          return restaurants;
+        });
+    when(restaurantRepositoryServiceMock.findAllRestaurantsCloseByAsync(any(Double.class),
+        any(Double.class), any(LocalTime.class), any(Double.class), any(Executor.class)))
+        .thenCallRealMethod();
+    RestaurantRequestExecutor restaurantRequestExecutor = new RestaurantRequestExecutor();
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "meterRegistry",
+        new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "poolSize", 1);
+    ReflectionTestUtils.setField(restaurantRequestExecutor, "queueCapacity", 1);
+    restaurantRequestExecutor.initPool();
+    ReflectionTestUtils.setField(restaurantService, "restaurantRequestExecutor",
+        restaurantRequestExecutor);
+
+    try {
+      GetRestaurantsResponse getRestaurantsResponse = restaurantService
+          .findAllRestaurantsCloseByAsync(new GetRestaurantsRequest(20.0, 30.0),
+              LocalTime.of(22, 0))
+          .get(5, TimeUnit.SECONDS);
+
+      assertEquals(restaurants, getRestaurantsResponse.getRestaurants());
+      assertEquals("restaurant-request-0", lookedUpOn.get());
+      verify(restaurantRepositoryServiceMock, times(1)).findAllRestaurantsCloseBy(eq(20.0),
+          eq(30.0), any(LocalTime.class), eq(5.0));
+    } finally {
+      restaurantRequestExecutor.closePool();
+    }
+  }
+
   private List<Restaurant> loadRestaurantsDuringNormalHours() throws IOException {
     String fixture =
         FixtureHelpers.fixture(FIXTURES + "/normal_hours_list_of_restaurants.json");
@@ -10,7 +10,10 @@
 package com.crio.qeats.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class GeoUtilsTest {
@@ -29,4 +32,81 @@ class GeoUtilsTest {
     assertEquals(3.04, distanceBetweenA2bHsrAndA2bBtm, 0.1);
   }
 
+  @Test
+  public void radiusFilterAgreesWithDistanceOnKnownPoints() {
+    assertTrue(GeoUtils.withinRadius(10.0, 20.0, 0.0).contains(10.0, 20.0));
+
+    RadiusFilter aroundA2bHsr = GeoUtils.withinRadius(12.9168585, 77.6072902, 3.1);
+    assertTrue(aroundA2bHsr.contains(12.9138172, 77.63517));
+    assertFalse(GeoUtils.withinRadius(12.9168585, 77.6072902, 3.0)
+        .contains(12.9138172, 77.63517));
+    assertEquals(GeoUtils.findDistanceInKm(12.9168585, 77.6072902, 12.9138172, 77.63517),
+        aroundA2bHsr.distanceInKm(12.9138172, 77.63517), 0.0);
+  }
+
+  @Test
+  public void radiusFilterWorksAcrossAntimeridianAndPoles() {
+    assertTrue(GeoUtils.withinRadius(0.0, 179.99, 5.0).contains(0.0, -179.99));
+    assertFalse(GeoUtils.withinRadius(0.0, 179.99, 1.0).contains(0.0, -179.99));
+    assertTrue(GeoUtils.withinRadius(89.99, 0.0, 5.0).contains(89.99, 180.0));
+    assertTrue(GeoUtils.withinRadius(-89.99, 45.0, 5.0).contains(-89.99, -135.0));
+  }
+
+  @Test
+  public void radiusFilterAgreesWithBorrowedHaversine() {
+    Random random = new Random(42);
+    for (int i = 0; i < 1000000; i++) {
+      double latitude = random.nextDouble() * 180.0 - 90.0;
+      double longitude = random.nextDouble() * 360.0 - 180.0;
+      double radiusInKms = i % 3 == 0 ? random.nextDouble() * 200.0 : random.nextDouble() * 10.0;
+
+      // points around the box of the circle, and points right on the circle
+      double span = radiusInKms / 111.0 * (1 + 2 * random.nextDouble());
+      double pointLatitude = Math.max(-90.0, Math.min(90.0,
+          latitude + (random.nextDouble() * 2 - 1) * span));
+      double pointLongitude = Math.IEEEremainder(longitude + (random.nextDouble() * 2 - 1) * span
+          / Math.max(0.05, Math.cos(Math.toRadians(latitude))), 360.0);
+      assertAgrees(latitude, longitude, radiusInKms, pointLatitude, pointLongitude);
+
+      double bearing = random.nextDouble() * 2 * Math.PI;
+      double angularRadius = radiusInKms / 6371.0;
+      double lat1 = Math.toRadians(latitude);
+      double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angularRadius)
+          + Math.cos(lat1) * Math.sin(angularRadius) * Math.cos(bearing));
+      double lon2 = Math.toRadians(longitude) + Math.atan2(
+          Math.sin(bearing) * Math.sin(angularRadius) * Math.cos(lat1),
+          Math.cos(angularRadius) - Math.sin(lat1) * Math.sin(lat2));
+      assertAgrees(latitude, longitude, radiusInKms,
+          Math.toDegrees(lat2), Math.IEEEremainder(Math.toDegrees(lon2), 360.0));
+    }
+  }
+
+  private void assertAgrees(double latitude, double longitude, double radiusInKms,
+      double pointLatitude, double pointLongitude) {
+    double expectedDistance =
+        borrowedHaversine(latitude, pointLatitude, longitude, pointLongitude);
+    assertEquals(expectedDistance,
+        GeoUtils.findDistanceInKm(latitude, longitude, pointLatitude, pointLongitude), 0.0);
+    assertEquals(expectedDistance <= radiusInKms,
+        GeoUtils.withinRadius(latitude, longitude, radiusInKms)
+            .contains(pointLatitude, pointLongitude),
+        () -> pointLatitude + "," + pointLongitude + " from " + latitude + "," + longitude
+            + " within " + radiusInKms);
+  }
+
+  // GeoUtils.distance as it was before the fast path, including the altitude term.
+  private static double borrowedHaversine(double lat1, double lat2, double lon1, double lon2) {
+    final int R = 6371;
+    double latDistance = Math.toRadians(lat2 - lat1);
+    double lonDistance = Math.toRadians(lon2 - lon1);
+    double a =
+        Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+            + Math.cos(Math.toRadians(lat1))
+            * Math.cos(Math.toRadians(lat2))
+            * Math.sin(lonDistance / 2)
+            * Math.sin(lonDistance / 2);
+    double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    double distance = R * c;
+    return Math.sqrt(Math.pow(distance, 2) + Math.pow(0.0, 2));
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.dto.Restaurant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class NearestRestaurantsTest {
+
+  private static final double LATITUDE = 20.0;
+
+  private static final double LONGITUDE = 30.0;
+
+  @Test
+  void nearestRestaurantsComeFirstWithTiesByRestaurantId() {
+    List<Restaurant> restaurants = Arrays.asList(
+        restaurant("13", 20.03, 30.0),
+        restaurant("12", 20.01, 30.0),
+        restaurant("11", 20.01, 30.0),
+        restaurant("10", 20.02, 30.0));
+
+    assertEquals(Arrays.asList("11", "12", "10"), ids(page(restaurants, 3, null)));
+    assertEquals(Arrays.asList("11", "12", "10", "13"), ids(page(restaurants, 10, null)));
+  }
+
+  @Test
+  void pagesFollowEachOtherWithoutGapsOrRepeats() {
+    Random random = new Random(7);
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      // a small grid, so that many restaurants are at the same distance
+      restaurants.add(restaurant(String.valueOf(i), LATITUDE + (random.nextInt(21) - 10) * 1e-3,
+          LONGITUDE + (random.nextInt(21) - 10) * 1e-3));
+    }
+    List<Restaurant> sorted = new ArrayList<>(restaurants);
+    sorted.sort(Comparator.<Restaurant>comparingDouble(restaurant -> GeoUtils.findDistanceInKm(
+        LATITUDE, LONGITUDE, restaurant.getLatitude(), restaurant.getLongitude()))
+        .thenComparing(Restaurant::getRestaurantId));
+
+    List<Restaurant> paged = new ArrayList<>();
+    String cursor = null;
+    while (true) {
+      Collections.shuffle(restaurants, random);
+      List<Restaurant> page = page(restaurants, 30,
+          cursor == null ? null : RestaurantCursor.decode(cursor));
+      paged.addAll(page);
+      if (page.size() < 30) {
+        break;
+      }
+      cursor = RestaurantCursor.after(LATITUDE, LONGITUDE, page.get(page.size() - 1)).encode();
+    }
+
+    assertEquals(ids(sorted), ids(paged));
+  }
+
+  @Test
+  void cursorsAreOnlyForTheirLocation() {
+    String token = RestaurantCursor.after(LATITUDE, LONGITUDE,
+        restaurant("11", 20.01, 30.0)).encode();
+
+    assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    assertTrue(RestaurantCursor.decode(token).isFor(LATITUDE, LONGITUDE));
+    assertFalse(RestaurantCursor.decode(token).isFor(LATITUDE, 30.000001));
+    assertThrows(IllegalArgumentException.class, () -> RestaurantCursor.decode("AQ"));
+    assertThrows(IllegalArgumentException.class, () -> RestaurantCursor.decode("not a cursor"));
+    assertThrows(IllegalArgumentException.class, () -> RestaurantCursor.decode("Ag"));
+  }
+
+  private static List<Restaurant> page(List<Restaurant> restaurants, int limit,
+      RestaurantCursor after) {
+    NearestRestaurants nearest = new NearestRestaurants(LATITUDE, LONGITUDE, limit, after);
+    restaurants.forEach(nearest);
+    return nearest.toList();
+  }
+
+  private static List<String> ids(List<Restaurant> restaurants) {
+    return restaurants.stream().map(Restaurant::getRestaurantId).collect(Collectors.toList());
+  }
+
+  private static Restaurant restaurant(String restaurantId, double latitude, double longitude) {
+    Restaurant restaurant = new Restaurant();
+    restaurant.setRestaurantId(restaurantId);
+    restaurant.setLatitude(latitude);
+    restaurant.setLongitude(longitude);
+    return restaurant;
+  }
+}
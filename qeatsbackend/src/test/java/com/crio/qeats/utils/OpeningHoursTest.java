@@ -0,0 +1,99 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.dto.Restaurant;
+import java.time.LocalTime;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class OpeningHoursTest {
+
+  @Test
+  void parsesHoursAndMinutes() {
+    assertEquals(0, OpeningHours.parseMinuteOfDay("00:00"));
+    assertEquals(18 * 60, OpeningHours.parseMinuteOfDay("18:00"));
+    assertEquals(23 * 60 + 59, OpeningHours.parseMinuteOfDay("23:59"));
+    assertEquals(9 * 60 + 30, OpeningHours.parseMinuteOfDay("09:30:15"));
+    assertEquals(OpeningHours.NEVER, OpeningHours.parseMinuteOfDay("24:00"));
+    assertEquals(OpeningHours.NEVER, OpeningHours.parseMinuteOfDay("9:30"));
+    assertEquals(OpeningHours.NEVER, OpeningHours.parseMinuteOfDay("ab:cd"));
+    assertEquals(OpeningHours.NEVER, OpeningHours.parseMinuteOfDay(null));
+  }
+
+  @Test
+  void sameDayWindowIncludesBothEnds() {
+    assertFalse(OpeningHours.isOpen("18:00", "23:00", LocalTime.of(17, 59)));
+    assertTrue(OpeningHours.isOpen("18:00", "23:00", LocalTime.of(18, 0)));
+    assertTrue(OpeningHours.isOpen("18:00", "23:00", LocalTime.of(22, 59, 59)));
+    assertTrue(OpeningHours.isOpen("18:00", "23:00", LocalTime.of(23, 0)));
+    assertFalse(OpeningHours.isOpen("18:00", "23:00", LocalTime.of(23, 0, 1)));
+    assertFalse(OpeningHours.isOpen("18:00", "23:00", LocalTime.of(23, 1)));
+  }
+
+  @Test
+  void overnightWindowWrapsPastMidnight() {
+    assertTrue(OpeningHours.isOpen("18:00", "02:00", LocalTime.of(18, 0)));
+    assertTrue(OpeningHours.isOpen("18:00", "02:00", LocalTime.of(23, 59)));
+    assertTrue(OpeningHours.isOpen("18:00", "02:00", LocalTime.of(0, 0)));
+    assertTrue(OpeningHours.isOpen("18:00", "02:00", LocalTime.of(2, 0)));
+    assertFalse(OpeningHours.isOpen("18:00", "02:00", LocalTime.of(2, 1)));
+    assertFalse(OpeningHours.isOpen("18:00", "02:00", LocalTime.of(12, 0)));
+  }
+
+  @Test
+  void unparseableHoursAreNeverOpen() {
+    assertFalse(OpeningHours.isOpen("late", "23:00", LocalTime.of(20, 0)));
+    assertFalse(OpeningHours.isOpen("18:00", null, LocalTime.of(20, 0)));
+  }
+
+  @Test
+  void compiledHoursMatchPerRestaurantCheck() {
+    Restaurant dinner = restaurant("18:00", "23:00");
+    Restaurant lateNight = restaurant("22:00", "04:00");
+    int[] compiled = OpeningHours.compile(Arrays.asList(dinner, lateNight));
+
+    assertArrayEquals(new int[] {1080, 1380, 1320, 240}, compiled);
+    for (int second = 0; second < 24 * 3600; second += 30) {
+      LocalTime time = LocalTime.ofSecondOfDay(second);
+      assertEquals(OpeningHours.isOpen("18:00", "23:00", time),
+          OpeningHours.isOpen(compiled, 0, second));
+      assertEquals(OpeningHours.isOpen("22:00", "04:00", time),
+          OpeningHours.isOpen(compiled, 1, second));
+    }
+  }
+
+  @Test
+  void transitionsAreWhereTheOpenRestaurantsChange() {
+    int[] compiled = OpeningHours.compile(Arrays.asList(restaurant("18:00", "23:00"),
+        restaurant("22:00", "04:00"), restaurant("18:00", "late"), restaurant("04:00", "18:00")));
+
+    int[] transitions = OpeningHours.transitions(compiled);
+
+    assertArrayEquals(new int[] {14400, 14401, 64800, 64801, 79200, 82801}, transitions);
+    for (int second = 1; second < 24 * 3600; second++) {
+      boolean changed = false;
+      for (int i = 0; i < 4; i++) {
+        changed |= OpeningHours.isOpen(compiled, i, second)
+            != OpeningHours.isOpen(compiled, i, second - 1);
+      }
+      assertEquals(changed, Arrays.binarySearch(transitions, second) >= 0, "second " + second);
+    }
+  }
+
+  private Restaurant restaurant(String opensAt, String closesAt) {
+    Restaurant restaurant = new Restaurant();
+    restaurant.setOpensAt(opensAt);
+    restaurant.setClosesAt(closesAt);
+    return restaurant;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+class RestaurantMapperTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void mapsLikeModelMapper() throws IOException, JSONException {
+    ModelMapper modelMapper = new ModelMapper();
+    for (RestaurantEntity restaurantEntity : listOfRestaurants()) {
+      Restaurant expected = modelMapper.map(restaurantEntity, Restaurant.class);
+      Restaurant actual = RestaurantMapper.toRestaurant(restaurantEntity);
+
+      JSONAssert.assertEquals(objectMapper.writeValueAsString(expected),
+          objectMapper.writeValueAsString(actual), true);
+      assertNotSame(restaurantEntity.getAttributes(), actual.getAttributes());
+    }
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
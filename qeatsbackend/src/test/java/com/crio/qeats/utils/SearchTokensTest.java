@@ -0,0 +1,33 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class SearchTokensTest {
+
+  @Test
+  void splitsOnAnythingButLettersAndDigits() {
+    assertEquals(Arrays.asList("south", "indian"), SearchTokens.tokenize("South-Indian"));
+    assertEquals(Arrays.asList("a2b", "veg"), SearchTokens.tokenize("  A2B (Veg) "));
+    assertEquals(Arrays.asList("chicken", "briyani"),
+        SearchTokens.tokenize("Chicken briyani, chicken"));
+    assertTrue(SearchTokens.tokenize(" - ").isEmpty());
+    assertTrue(SearchTokens.tokenize((String) null).isEmpty());
+  }
+
+  @Test
+  void ignoresCaseAndAccents() {
+    assertEquals(Arrays.asList("creme", "brulee"), SearchTokens.tokenize("Cr\u00e8me BR\u00dbL\u00c9E"));
+    assertEquals(Arrays.asList("tamil", "south", "indian"),
+        SearchTokens.tokenize(Arrays.asList("Tamil", "South Indian", "tamil")));
+  }
+}
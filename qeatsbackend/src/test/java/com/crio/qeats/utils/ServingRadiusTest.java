@@ -0,0 +1,31 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static com.crio.qeats.utils.ServingRadius.NORMAL_HOURS_SERVING_RADIUS_IN_KMS;
+import static com.crio.qeats.utils.ServingRadius.PEAK_HOURS_SERVING_RADIUS_IN_KMS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalTime;
+import org.junit.jupiter.api.Test;
+
+class ServingRadiusTest {
+
+  @Test
+  void radiusIsSmallerDuringPeakHours() {
+    for (LocalTime peak : new LocalTime[] {LocalTime.of(8, 0), LocalTime.of(9, 59),
+        LocalTime.of(10, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(19, 0),
+        LocalTime.of(21, 0)}) {
+      assertEquals(PEAK_HOURS_SERVING_RADIUS_IN_KMS, ServingRadius.inKmsAt(peak), peak::toString);
+    }
+    for (LocalTime normal : new LocalTime[] {LocalTime.of(7, 59), LocalTime.of(10, 1),
+        LocalTime.of(12, 59), LocalTime.of(14, 1), LocalTime.of(18, 59), LocalTime.of(22, 0)}) {
+      assertEquals(NORMAL_HOURS_SERVING_RADIUS_IN_KMS, ServingRadius.inKmsAt(normal),
+          normal::toString);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.RadiusFilter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Distance checks of one user against a block of restaurants, the inner loop of every search.
+ *   - spreadInKms=5 is what the candidates from the geo index look like: most of them close to
+ *     the serving radius.
+ *   - spreadInKms=100 is a scan of a whole city, where most restaurants are far away.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeoUtilsBenchmark {
+
+  private static final int RESTAURANTS = 4096;
+
+  private static final double SERVING_RADIUS_IN_KMS = 3.0;
+
+  @Param({"5", "100"})
+  public double spreadInKms;
+
+  private double latitude;
+  private double longitude;
+
+  private double[] latitudes;
+  private double[] longitudes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticCatalogue catalogue = new SyntheticCatalogue(7, spreadInKms);
+    GeoLocation user = catalogue.getCentre();
+    latitude = user.getLatitude();
+    longitude = user.getLongitude();
+
+    List<RestaurantEntity> restaurantEntities = catalogue.restaurants(RESTAURANTS);
+    latitudes = new double[RESTAURANTS];
+    longitudes = new double[RESTAURANTS];
+    for (int i = 0; i < RESTAURANTS; i++) {
+      latitudes[i] = restaurantEntities.get(i).getLatitude();
+      longitudes[i] = restaurantEntities.get(i).getLongitude();
+    }
+  }
+
+  @Benchmark
+  public int haversine() {
+    int within = 0;
+    for (int i = 0; i < RESTAURANTS; i++) {
+      if (GeoUtils.findDistanceInKm(latitude, longitude, latitudes[i], longitudes[i])
+          <= SERVING_RADIUS_IN_KMS) {
+        within++;
+      }
+    }
+    return within;
+  }
+
+  @Benchmark
+  public int radiusFilter() {
+    RadiusFilter withinServingRadius =
+        GeoUtils.withinRadius(latitude, longitude, SERVING_RADIUS_IN_KMS);
+    int within = 0;
+    for (int i = 0; i < RESTAURANTS; i++) {
+      if (withinServingRadius.contains(latitudes[i], longitudes[i])) {
+        within++;
+      }
+    }
+    return within;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.cache.NearbyRestaurantsCache;
+import com.crio.qeats.cache.RestaurantsResponseCache;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndexSynchronizer;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
+import com.crio.qeats.repositoryservices.RestaurantRepositoryServiceImpl;
+import com.crio.qeats.repositoryservices.RestaurantSearchMode;
+import com.crio.qeats.services.RestaurantService;
+import com.crio.qeats.services.RestaurantServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Wires the search beans by hand, the way Spring would, without a database.
+ *   - The geo index is built from the given catalogue, so the repository is never called.
+ *   - Redis points at a closed port: the cache falls back to the in-process tier only, which is
+ *     what a server sees while Redis is down.
+ *   - Fields are set with ReflectionTestUtils, which fails the setup as soon as one of them was
+ *     renamed or removed, instead of leaving it null.
+ */
+public class OfflineWiring {
+
+  private static final int CLOSED_PORT = 1;
+
+  private final RestaurantGeoIndex restaurantGeoIndex = new RestaurantGeoIndex();
+
+  private final NearbyRestaurantsCache nearbyRestaurantsCache = new NearbyRestaurantsCache();
+
+  private final RestaurantRepositoryServiceImpl restaurantRepositoryService =
+      new RestaurantRepositoryServiceImpl();
+
+  private final RestaurantServiceImpl restaurantService = new RestaurantServiceImpl();
+
+  public OfflineWiring(List<RestaurantEntity> restaurantEntities) {
+    restaurantGeoIndex.rebuild(restaurantEntities);
+
+    RestaurantGeoIndexSynchronizer synchronizer = new RestaurantGeoIndexSynchronizer();
+    ReflectionTestUtils.setField(synchronizer, "restaurantGeoIndex", restaurantGeoIndex);
+    ReflectionTestUtils.setField(synchronizer, "nearbyRestaurantsCache", nearbyRestaurantsCache);
+
+    RedisConfiguration redisConfiguration = new RedisConfiguration();
+    ReflectionTestUtils.setField(redisConfiguration, "redisHost", "localhost");
+    ReflectionTestUtils.setField(redisConfiguration, "redisPort", CLOSED_PORT);
+    redisConfiguration.initCache();
+
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "redisConfiguration", redisConfiguration);
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "meterRegistry",
+        new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "nearCacheMaximumSize", 10000L);
+    ReflectionTestUtils.setField(nearbyRestaurantsCache, "nearCacheExpiryInSeconds", 30L);
+    nearbyRestaurantsCache.initCache();
+
+    RestaurantsResponseCache restaurantsResponseCache = new RestaurantsResponseCache();
+    ReflectionTestUtils.setField(restaurantsResponseCache, "objectMapper", new ObjectMapper());
+    ReflectionTestUtils.setField(restaurantsResponseCache, "meterRegistry",
+        new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(restaurantsResponseCache, "maximumSize", 10000L);
+    ReflectionTestUtils.setField(restaurantsResponseCache, "expiryInSeconds", 30L);
+    restaurantsResponseCache.initCache();
+
+    ReflectionTestUtils.setField(restaurantRepositoryService, "restaurantGeoIndex",
+        restaurantGeoIndex);
+    ReflectionTestUtils.setField(restaurantRepositoryService, "restaurantGeoIndexSynchronizer",
+        synchronizer);
+    ReflectionTestUtils.setField(restaurantRepositoryService, "nearbyRestaurantsCache",
+        nearbyRestaurantsCache);
+    ReflectionTestUtils.setField(restaurantRepositoryService, "restaurantsResponseCache",
+        restaurantsResponseCache);
+    ReflectionTestUtils.setField(restaurantRepositoryService, "searchMode",
+        RestaurantSearchMode.GEO_INDEX);
+
+    ReflectionTestUtils.setField(restaurantService, "restaurantRepositoryService",
+        restaurantRepositoryService);
+  }
+
+  public RestaurantGeoIndex getRestaurantGeoIndex() {
+    return restaurantGeoIndex;
+  }
+
+  public NearbyRestaurantsCache getNearbyRestaurantsCache() {
+    return nearbyRestaurantsCache;
+  }
+
+  public RestaurantRepositoryService getRestaurantRepositoryService() {
+    return restaurantRepositoryService;
+  }
+
+  public RestaurantService getRestaurantService() {
+    return restaurantService;
+  }
+
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Order;
+import com.crio.qeats.messaging.JournalFsyncPolicy;
+import com.crio.qeats.messaging.OrderJournal;
+import com.crio.qeats.messaging.OrderRecords;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.OrderEntity;
+import com.mongodb.MongoClientURI;
+import com.mongodb.WriteConcern;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+
+/**
+ * Taking one order for POST /order: appended to the order journal, or inserted into mongo.
+ *   - journalAppend encodes the order and appends it the way JournalOrderBroker does, forcing it
+ *     to the disk with fsync=ALWAYS; 8 threads append at once, so they share the forces. The
+ *     journal is in java.io.tmpdir, emptied after each iteration.
+ *   - mongoInsert inserts it into a running mongo, at -Dqeats.benchmark.mongo-uri,
+ *     acknowledged by the server only or once in its journal too: JOURNALED is what
+ *     fsync=ALWAYS promises. It needs a mongo, so the build leaves it out unless given its uri
+ *     with -PjmhMongoUri.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+@Warmup(time = 2)
+@Measurement(time = 2)
+public class OrderIntakeBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Journal {
+
+    @Param({"ALWAYS", "INTERVAL", "NEVER"})
+    public JournalFsyncPolicy fsync;
+
+    private Path directory;
+
+    private OrderJournal orderJournal;
+
+    private volatile long syncedAt;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      directory = Files.createTempDirectory("order-journal-benchmark");
+      // room for a few GB of orders in an iteration
+      orderJournal = new OrderJournal(directory, 16 * 1024 * 1024, 1024);
+      orderJournal.open();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteReplayed() {
+      orderJournal.deleteBefore(orderJournal.getWrittenPosition());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      orderJournal.close();
+      try (Stream<Path> files = Files.walk(directory)) {
+        for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+
+    long append(Order order) {
+      long position = orderJournal.append(OrderRecords.encode(order));
+      if (fsync == JournalFsyncPolicy.ALWAYS) {
+        orderJournal.sync(position);
+      } else if (fsync == JournalFsyncPolicy.INTERVAL) {
+        // what the syncer thread of the broker does every 10ms
+        long now = System.nanoTime();
+        if (now - syncedAt > TimeUnit.MILLISECONDS.toNanos(10)) {
+          syncedAt = now;
+          orderJournal.sync(position);
+        }
+      }
+      return position;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Mongo {
+
+    @Param({"ACKNOWLEDGED", "JOURNALED"})
+    public String writeConcern;
+
+    private MongoTemplate mongoTemplate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      mongoTemplate = new MongoTemplate(new SimpleMongoDbFactory(new MongoClientURI(
+          System.getProperty("qeats.benchmark.mongo-uri",
+              "mongodb://localhost:27017/qeats-benchmark"))));
+      mongoTemplate.setWriteConcern(WriteConcern.valueOf(writeConcern));
+      mongoTemplate.dropCollection(OrderEntity.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      mongoTemplate.dropCollection(OrderEntity.class);
+    }
+  }
+
+  @Benchmark
+  public long journalAppend(Journal journal) {
+    return journal.append(order());
+  }
+
+  @Benchmark
+  public Object mongoInsert(Mongo mongo) {
+    Order order = order();
+    ItemEntity itemEntity = new ItemEntity();
+    Item item = order.getItems().get(0);
+    itemEntity.setId(item.getId());
+    itemEntity.setItemId(item.getItemId());
+    itemEntity.setName(item.getName());
+    itemEntity.setImageUrl(item.getImageUrl());
+    itemEntity.setPrice(item.getPrice());
+    itemEntity.setAttributes(item.getAttributes());
+    OrderEntity orderEntity = new OrderEntity();
+    orderEntity.setId(order.getId());
+    orderEntity.setRestaurantId(order.getRestaurantId());
+    orderEntity.setUserId(order.getUserId());
+    orderEntity.setItems(new ArrayList<>(Collections.singletonList(itemEntity)));
+    orderEntity.setTotal(order.getTotal());
+    orderEntity.setPlacedAt(order.getPlacedAt());
+    return mongo.mongoTemplate.insert(orderEntity);
+  }
+
+  // what CartAndOrderService builds from a cart of one item
+  private static Order order() {
+    Item item = new Item("1", "1", "Chicken Briyani", "www.google.com", 225.0,
+        Collections.singletonList("Mughal"));
+    return new Order(new ObjectId().toHexString(), "10", "Bunny",
+        new ArrayList<>(Collections.singletonList(item)), 225.0, new Date());
+  }
+}
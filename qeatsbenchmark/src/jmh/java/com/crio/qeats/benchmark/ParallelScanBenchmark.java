@@ -0,0 +1,91 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantScanPool;
+import com.crio.qeats.index.RestaurantSnapshot;
+import com.crio.qeats.utils.GeoLocation;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Serial against fork-join scans of the snapshot, to pick qeats.restaurants.parallel-scan.*.
+ * The radius sets how many rows a query looks at: from a few hundred rows at 3km to the whole
+ * catalogue at 100km. The crossover is the row count where parallel starts winning on the box
+ * the benchmark runs on; it moves with the number of cores, so run it on the production shape.
+ *   ./gradlew :qeatsbenchmark:jmh -PjmhInclude=ParallelScanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelScanBenchmark {
+
+  @Param({"100000", "1000000"})
+  public int catalogueSize;
+
+  @Param({"3", "10", "30", "100"})
+  public double radiusInKms;
+
+  @Param({"0"})
+  public int poolSize;
+
+  private RestaurantSnapshot snapshot;
+
+  private RestaurantScanPool scanPool;
+
+  private GeoLocation centre;
+
+  private int secondOfDay;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticCatalogue catalogue = new SyntheticCatalogue(42);
+    RestaurantGeoIndex restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(catalogue.restaurants(catalogueSize));
+    snapshot = restaurantGeoIndex.snapshot();
+    centre = catalogue.getCentre();
+    secondOfDay = 20 * 60 * 60;
+
+    scanPool = new RestaurantScanPool();
+    ReflectionTestUtils.setField(scanPool, "enabled", true);
+    ReflectionTestUtils.setField(scanPool, "threshold", 0);
+    ReflectionTestUtils.setField(scanPool, "poolSize", poolSize);
+    // split even small scans, to see where splitting stops paying off
+    ReflectionTestUtils.setField(scanPool, "minRowsPerTask", 1024);
+    scanPool.initPool();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    scanPool.closePool();
+  }
+
+  @Benchmark
+  public List<Restaurant> serial() {
+    return snapshot.findRestaurants(centre.getLatitude(), centre.getLongitude(), radiusInKms,
+        secondOfDay);
+  }
+
+  @Benchmark
+  public List<Restaurant> forkJoin() {
+    return snapshot.findRestaurants(centre.getLatitude(), centre.getLongitude(), radiusInKms,
+        secondOfDay, scanPool);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.RestaurantMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Entity to DTO mapping of a page of restaurants: ModelMapper against {@link RestaurantMapper}.
+ *   - modelMapper is the path which was replaced: the repository service got a new prototype
+ *     ModelMapper for each request, and built its type map for every page it mapped.
+ *   - warmModelMapper reuses one ModelMapper, whose type map is built once: the cost of the
+ *     mapping alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RestaurantMapperBenchmark {
+
+  private static final int RESTAURANTS = 256;
+
+  private List<RestaurantEntity> restaurantEntities;
+
+  private ModelMapper warmModelMapper;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    restaurantEntities = new SyntheticCatalogue(11).restaurants(RESTAURANTS);
+    warmModelMapper = new ModelMapper();
+  }
+
+  @Benchmark
+  public List<Restaurant> modelMapper() {
+    // as QEatsApplication.modelMapper(), a prototype bean
+    return mapWith(new ModelMapper());
+  }
+
+  @Benchmark
+  public List<Restaurant> warmModelMapper() {
+    return mapWith(warmModelMapper);
+  }
+
+  @Benchmark
+  public List<Restaurant> restaurantMapper() {
+    List<Restaurant> restaurants = new ArrayList<>(RESTAURANTS);
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      restaurants.add(RestaurantMapper.toRestaurant(restaurantEntity));
+    }
+    return restaurants;
+  }
+
+  private List<Restaurant> mapWith(ModelMapper modelMapper) {
+    List<Restaurant> restaurants = new ArrayList<>(RESTAURANTS);
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      restaurants.add(modelMapper.map(restaurantEntity, Restaurant.class));
+    }
+    return restaurants;
+  }
+}
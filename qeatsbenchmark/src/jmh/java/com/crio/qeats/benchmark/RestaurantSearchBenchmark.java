@@ -0,0 +1,185 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.GeoUtils;
+import com.crio.qeats.utils.OpeningHours;
+import com.crio.qeats.utils.RadiusFilter;
+import com.crio.qeats.utils.RestaurantMapper;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * GET /qeats/v1/restaurants, from the repository service down, over synthetic catalogues.
+ *   - legacyFullScan is the original implementation: map every restaurant with ModelMapper,
+ *     parse its hours with LocalTime and compute its distance.
+ *   - geoIndexScan filters the entities of the geo index cells around the user.
+ *   - snapshotSearch does the same over the columnar snapshot, which is what a cache miss
+ *     costs; snapshotFullScan scans every row of the snapshot, without the cells.
+ *   - cachedRepositoryService and restaurantService go through the near cache, which is what
+ *     most requests see once the cells around the users are warm.
+ *   - nearestPage is restaurantService asking for the nearest PAGE_SIZE restaurants only, which
+ *     are picked with a bounded heap instead of sorting them all.
+ * Run with the gc profiler (the default in build.gradle) for the allocation rate; the sample
+ * mode reports p50/p99/p999 latencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RestaurantSearchBenchmark {
+
+  private static final int QUERIES = 1024;
+
+  private static final double SERVING_RADIUS_IN_KMS = 3.0;
+
+  private static final int PAGE_SIZE = 30;
+
+  @Param({"1000", "100000", "1000000"})
+  public int catalogueSize;
+
+  private List<RestaurantEntity> restaurantEntities;
+
+  private OfflineWiring wiring;
+
+  private GeoLocation[] queries;
+
+  private LocalTime[] times;
+
+  private ModelMapper modelMapper;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticCatalogue catalogue = new SyntheticCatalogue(42);
+    restaurantEntities = catalogue.restaurants(catalogueSize);
+    queries = catalogue.queries(QUERIES);
+    times = catalogue.times(QUERIES);
+    wiring = new OfflineWiring(restaurantEntities);
+    modelMapper = new ModelMapper();
+  }
+
+  /**
+   * Cycles through the queries, one per invocation, per thread.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next = 0;
+
+    int next() {
+      int current = next;
+      next = (next + 1) & (QUERIES - 1);
+      return current;
+    }
+  }
+
+  @Benchmark
+  public List<Restaurant> legacyFullScan(Cursor cursor) {
+    int i = cursor.next();
+    double latitude = queries[i].getLatitude();
+    double longitude = queries[i].getLongitude();
+    LocalTime currentTime = times[i];
+
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      restaurants.add(modelMapper.map(restaurantEntity, Restaurant.class));
+    }
+    List<Restaurant> nearby = new ArrayList<>();
+    for (Restaurant restaurant : restaurants) {
+      LocalTime opensAt = LocalTime.parse(restaurant.getOpensAt());
+      LocalTime closesAt = LocalTime.parse(restaurant.getClosesAt());
+      double distanceInKms = GeoUtils.findDistanceInKm(latitude, longitude,
+          restaurant.getLatitude(), restaurant.getLongitude());
+      if (distanceInKms > SERVING_RADIUS_IN_KMS) {
+        continue;
+      }
+      if (currentTime.equals(opensAt) || currentTime.equals(closesAt)
+          || (currentTime.isAfter(opensAt) && currentTime.isBefore(closesAt))) {
+        nearby.add(restaurant);
+      }
+    }
+    return nearby;
+  }
+
+  @Benchmark
+  public List<Restaurant> geoIndexScan(Cursor cursor) {
+    int i = cursor.next();
+    double latitude = queries[i].getLatitude();
+    double longitude = queries[i].getLongitude();
+    int secondOfDay = times[i].toSecondOfDay();
+
+    RadiusFilter withinServingRadius =
+        GeoUtils.withinRadius(latitude, longitude, SERVING_RADIUS_IN_KMS);
+    List<Restaurant> nearby = new ArrayList<>();
+    for (RestaurantEntity restaurantEntity : wiring.getRestaurantGeoIndex()
+        .findCandidates(latitude, longitude, SERVING_RADIUS_IN_KMS)) {
+      if (!withinServingRadius.contains(restaurantEntity.getLatitude(),
+          restaurantEntity.getLongitude())) {
+        continue;
+      }
+      if (OpeningHours.isOpen(OpeningHours.parseMinuteOfDay(restaurantEntity.getOpensAt()),
+          OpeningHours.parseMinuteOfDay(restaurantEntity.getClosesAt()), secondOfDay)) {
+        nearby.add(RestaurantMapper.toRestaurant(restaurantEntity));
+      }
+    }
+    return nearby;
+  }
+
+  @Benchmark
+  public List<Restaurant> snapshotSearch(Cursor cursor) {
+    int i = cursor.next();
+    return wiring.getRestaurantGeoIndex().snapshot().findRestaurants(queries[i].getLatitude(),
+        queries[i].getLongitude(), SERVING_RADIUS_IN_KMS, times[i].toSecondOfDay());
+  }
+
+  @Benchmark
+  public List<Restaurant> snapshotFullScan(Cursor cursor) {
+    int i = cursor.next();
+    return wiring.getRestaurantGeoIndex().snapshot().scan(queries[i].getLatitude(),
+        queries[i].getLongitude(), SERVING_RADIUS_IN_KMS, times[i].toSecondOfDay());
+  }
+
+  @Benchmark
+  public List<Restaurant> cachedRepositoryService(Cursor cursor) {
+    int i = cursor.next();
+    return wiring.getRestaurantRepositoryService().findAllRestaurantsCloseBy(
+        queries[i].getLatitude(), queries[i].getLongitude(), times[i], SERVING_RADIUS_IN_KMS);
+  }
+
+  @Benchmark
+  public GetRestaurantsResponse restaurantService(Cursor cursor) {
+    int i = cursor.next();
+    return wiring.getRestaurantService().findAllRestaurantsCloseBy(
+        new GetRestaurantsRequest(queries[i].getLatitude(), queries[i].getLongitude()), times[i]);
+  }
+
+  @Benchmark
+  public GetRestaurantsResponse nearestPage(Cursor cursor) {
+    int i = cursor.next();
+    GetRestaurantsRequest getRestaurantsRequest =
+        new GetRestaurantsRequest(queries[i].getLatitude(), queries[i].getLongitude());
+    getRestaurantsRequest.setLimit(PAGE_SIZE);
+    return wiring.getRestaurantService().findAllRestaurantsCloseBy(getRestaurantsRequest,
+        times[i]);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.cache.NearbyRestaurants;
+import com.crio.qeats.cache.RestaurantsResponseCache;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsResponse;
+import com.crio.qeats.exchanges.StreamedRestaurantsResponse;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoLocation;
+import com.crio.qeats.utils.RestaurantMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Writing a /restaurants response from a cached cell: the list of open restaurants serialized
+ * into a buffer, as spring does with the GetRestaurantsResponse, against
+ * {@link StreamedRestaurantsResponse}, and against the bytes kept by
+ * {@link RestaurantsResponseCache} for the time slot, whole or only the restaurants within the
+ * radius of the user.
+ *   - The cell holds the restaurants within the serving radius of its centre and half its
+ *     diagonal, as {@link com.crio.qeats.cache.NearbyRestaurantsCache} loads them.
+ *   - The output goes to a stream which only counts the bytes, like a socket would take them.
+ *   - gc.alloc.rate.norm is the memory used per response: it grows with the size of the response
+ *     for the buffered one only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RestaurantsResponseBenchmark {
+
+  private static final LocalTime EVENING = LocalTime.of(19, 30);
+
+  private static final double SERVING_RADIUS_IN_KMS = 5.0;
+
+  // half the diagonal of a cell of the cache, about 110m
+  private static final double CELL_HALF_DIAGONAL_IN_KMS = 0.11;
+
+  private static final String CELL = "restaurants:tdr1wxy:5.0";
+
+  private static final String CELL_WITH_A_LARGER_RADIUS = "restaurants:tdr1wxy:20.0";
+
+  @Param({"100", "10000"})
+  public int restaurants;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private NearbyRestaurants nearbyRestaurants;
+
+  private RestaurantsResponseCache restaurantsResponseCache;
+
+  // the user, in the cell
+  private GeoLocation user;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticCatalogue catalogue = new SyntheticCatalogue(5,
+        SERVING_RADIUS_IN_KMS + CELL_HALF_DIAGONAL_IN_KMS);
+    List<Restaurant> cached = new ArrayList<>();
+    for (RestaurantEntity restaurantEntity : catalogue.restaurants(restaurants)) {
+      cached.add(RestaurantMapper.toRestaurant(restaurantEntity));
+    }
+    nearbyRestaurants = new NearbyRestaurants(cached);
+    user = catalogue.getCentre();
+
+    restaurantsResponseCache = new RestaurantsResponseCache();
+    ReflectionTestUtils.setField(restaurantsResponseCache, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(restaurantsResponseCache, "meterRegistry",
+        new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(restaurantsResponseCache, "maximumSize", 100L);
+    ReflectionTestUtils.setField(restaurantsResponseCache, "expiryInSeconds", 3600L);
+    restaurantsResponseCache.initCache();
+  }
+
+  @Benchmark
+  public long buffered() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    out.write(objectMapper.writeValueAsBytes(
+        new GetRestaurantsResponse(nearbyRestaurants.openAt(EVENING))));
+    return out.count;
+  }
+
+  @Benchmark
+  public long streamed() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    objectMapper.writeValue(out, new StreamedRestaurantsResponse(
+        consumer -> nearbyRestaurants.forEachOpenAt(EVENING, consumer)));
+    return out.count;
+  }
+
+  // Every restaurant of the cell is within the radius of the user, who gets the bytes shared
+  // by the cell: within a slot only the copy to the stream is left.
+  @Benchmark
+  public long cached() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    out.write(restaurantsResponseCache.get(CELL_WITH_A_LARGER_RADIUS, nearbyRestaurants,
+        EVENING, user.getLatitude(), user.getLongitude(), 4 * SERVING_RADIUS_IN_KMS));
+    return out.count;
+  }
+
+  // The common case in a busy cell: the user keeps some of the restaurants near the edge of
+  // the radius, which are checked, and gets a copy of the pieces of the restaurants kept.
+  @Benchmark
+  public long cachedWithinRadius() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    out.write(restaurantsResponseCache.get(CELL, nearbyRestaurants, EVENING,
+        user.getLatitude(), user.getLongitude(), SERVING_RADIUS_IN_KMS));
+    return out.count;
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+
+    private long count = 0;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      count += length;
+    }
+  }
+}
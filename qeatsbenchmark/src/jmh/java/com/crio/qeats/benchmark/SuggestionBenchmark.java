@@ -0,0 +1,122 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.dto.Suggestion;
+import com.crio.qeats.index.MenuCatalogue;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndexSynchronizer;
+import com.crio.qeats.index.RestaurantSuggestionIndex;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.utils.GeoLocation;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * GET /qeats/v1/suggest, from the suggestion index down, over synthetic catalogues and menus.
+ *   - Prefixes are 1 to 4 letters of dish and restaurant words: the short ones match most of
+ *     the names of a cell and are answered from the heaviest names kept for them.
+ *   - The dictionaries are built once in setup, the way the background refresh does; the build
+ *     time and the heap used are printed there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuggestionBenchmark {
+
+  private static final int QUERIES = 1024;
+
+  private static final int LIMIT = 10;
+
+  private static final String[] WORDS = {
+      "chicken", "paneer", "biryani", "tikka", "butter", "noodles", "chef", "restaurant",
+      "mushroom", "kebab", "soup", "gobi", "pizza", "manchurian", "prawn", "65"
+  };
+
+  @Param({"1000", "100000"})
+  public int catalogueSize;
+
+  private RestaurantSuggestionIndex restaurantSuggestionIndex;
+
+  private GeoLocation[] queries;
+
+  private String[] prefixes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticCatalogue catalogue = new SyntheticCatalogue(42);
+    RestaurantGeoIndex restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.rebuild(catalogue.restaurants(catalogueSize));
+    RestaurantGeoIndexSynchronizer synchronizer = new RestaurantGeoIndexSynchronizer();
+    ReflectionTestUtils.setField(synchronizer, "restaurantGeoIndex", restaurantGeoIndex);
+
+    // loaded already, so that the menus are only the ones saved here
+    MenuCatalogue menuCatalogue = new MenuCatalogue();
+    ReflectionTestUtils.setField(menuCatalogue, "loaded", true);
+    for (MenuEntity menuEntity : catalogue.menus(catalogueSize)) {
+      menuCatalogue.onAfterSave(new AfterSaveEvent<>(menuEntity, null, "menus"));
+    }
+
+    restaurantSuggestionIndex = new RestaurantSuggestionIndex();
+    ReflectionTestUtils.setField(restaurantSuggestionIndex, "restaurantGeoIndex",
+        restaurantGeoIndex);
+    ReflectionTestUtils.setField(restaurantSuggestionIndex, "restaurantGeoIndexSynchronizer",
+        synchronizer);
+    ReflectionTestUtils.setField(restaurantSuggestionIndex, "menuCatalogue", menuCatalogue);
+
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+    long start = System.currentTimeMillis();
+    restaurantSuggestionIndex.refresh();
+    long buildMillis = System.currentTimeMillis() - start;
+    System.gc();
+    long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+    System.out.printf("%nSuggestions of %d restaurants built in %dms, using about %dMB%n",
+        catalogueSize, buildMillis, (usedAfter - usedBefore) >> 20);
+
+    queries = catalogue.queries(QUERIES);
+    prefixes = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      String word = WORDS[i % WORDS.length];
+      prefixes[i] = word.substring(0, Math.min(word.length(), 1 + (i / WORDS.length) % 4));
+    }
+  }
+
+  /**
+   * Cycles through the queries, one per invocation, per thread.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next = 0;
+
+    int next() {
+      int current = next;
+      next = (next + 1) & (QUERIES - 1);
+      return current;
+    }
+  }
+
+  @Benchmark
+  public List<Suggestion> suggest(Cursor cursor) {
+    int i = cursor.next();
+    return restaurantSuggestionIndex.suggest(queries[i].getLatitude(),
+        queries[i].getLongitude(), prefixes[i], LIMIT);
+  }
+}
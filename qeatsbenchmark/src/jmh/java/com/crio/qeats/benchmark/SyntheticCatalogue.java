@@ -0,0 +1,178 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.benchmark;
+
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoLocation;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Deterministic catalogues of restaurants spread around the coordinates in coordinates.txt.
+ *   - Restaurants are spread uniformly over a disc around the centre, by default of
+ *     {@link #SPREAD_IN_KMS}, i.e. about the size of a large city.
+ *   - Opening hours mix breakfast, lunch, dinner, all day and overnight restaurants.
+ *   - The same size and seed always give the same catalogue and the same queries.
+ */
+public class SyntheticCatalogue {
+
+  static final double SPREAD_IN_KMS = 100.0;
+
+  private static final double KMS_PER_DEGREE = 111.195;
+
+  private static final String[][] HOURS = {
+      {"07:00", "11:00"}, {"11:30", "15:30"}, {"18:00", "23:00"}, {"10:00", "22:00"},
+      {"00:00", "23:59"}, {"20:00", "04:00"}, {"22:00", "06:00"}, {"09:00", "21:30"}
+  };
+
+  private static final String[] ATTRIBUTES = {
+      "North Indian", "South Indian", "Chinese", "Italian", "Bakery", "Cafe", "Desserts",
+      "Biryani", "Street Food", "Healthy", "Pizza", "Burger", "Vegan", "Seafood"
+  };
+
+  private static final String[] DISH_BASES = {
+      "Chicken", "Mutton", "Paneer", "Veg", "Fish", "Egg", "Prawn", "Mushroom", "Aloo", "Gobi"
+  };
+
+  private static final String[] DISH_STYLES = {
+      "Biryani", "Tikka", "Butter Masala", "Fried Rice", "Noodles", "Curry", "65", "Kebab",
+      "Roll", "Pizza", "Burger", "Manchurian", "Chettinad", "Sandwich", "Soup", "Pulao"
+  };
+
+  private final GeoLocation centre;
+
+  private final double spreadInKms;
+
+  private final Random random;
+
+  public SyntheticCatalogue(long seed) {
+    this(seed, SPREAD_IN_KMS);
+  }
+
+  public SyntheticCatalogue(long seed, double spreadInKms) {
+    this.centre = readCentre();
+    this.spreadInKms = spreadInKms;
+    this.random = new Random(seed);
+  }
+
+  public GeoLocation getCentre() {
+    return centre;
+  }
+
+  /**
+   * Builds a catalogue of the given size.
+   * @return restaurants with ids "0" to "size - 1"
+   */
+  public List<RestaurantEntity> restaurants(int size) {
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      GeoLocation location = pointAround(spreadInKms);
+      String[] hours = HOURS[random.nextInt(HOURS.length)];
+
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setId(Integer.toHexString(i));
+      restaurantEntity.setRestaurantId(Integer.toString(i));
+      restaurantEntity.setName("Restaurant " + i);
+      restaurantEntity.setCity("City " + (i % 97));
+      restaurantEntity.setImageUrl("https://images.qeats.crio.do/" + i + ".jpg");
+      restaurantEntity.setLatitude(location.getLatitude());
+      restaurantEntity.setLongitude(location.getLongitude());
+      restaurantEntity.setOpensAt(hours[0]);
+      restaurantEntity.setClosesAt(hours[1]);
+      restaurantEntity.setAttributes(new ArrayList<>(Arrays.asList(
+          ATTRIBUTES[random.nextInt(ATTRIBUTES.length)],
+          ATTRIBUTES[random.nextInt(ATTRIBUTES.length)])));
+      restaurantEntities.add(restaurantEntity);
+    }
+    return restaurantEntities;
+  }
+
+  /**
+   * Builds the menus of restaurants "0" to "size - 1", of 10 to 40 dishes.
+   *   - Dishes are a base and a style, e.g. "Paneer Tikka", so most of them are on many menus.
+   *   - One dish in ten is a special, e.g. "Chef's Gobi Soup No. 7", found in a few menus only.
+   */
+  public List<MenuEntity> menus(int size) {
+    List<MenuEntity> menuEntities = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      int dishes = 10 + random.nextInt(31);
+      List<ItemEntity> items = new ArrayList<>(dishes);
+      for (int j = 0; j < dishes; j++) {
+        String dish = DISH_BASES[random.nextInt(DISH_BASES.length)] + " "
+            + DISH_STYLES[random.nextInt(DISH_STYLES.length)];
+        ItemEntity itemEntity = new ItemEntity();
+        itemEntity.setItemId(i + "-" + j);
+        itemEntity.setName(random.nextInt(10) == 0
+            ? "Chef's " + dish + " No. " + random.nextInt(100) : dish);
+        itemEntity.setPrice(50.0 + random.nextInt(400));
+        itemEntity.setAttributes(new ArrayList<>(Arrays.asList(
+            ATTRIBUTES[random.nextInt(ATTRIBUTES.length)])));
+        items.add(itemEntity);
+      }
+      MenuEntity menuEntity = new MenuEntity();
+      menuEntity.setRestaurantId(Integer.toString(i));
+      menuEntity.setItems(items);
+      menuEntities.add(menuEntity);
+    }
+    return menuEntities;
+  }
+
+  /**
+   * Builds user locations inside the catalogue, so that every query has restaurants around it.
+   */
+  public GeoLocation[] queries(int count) {
+    GeoLocation[] queries = new GeoLocation[count];
+    for (int i = 0; i < count; i++) {
+      queries[i] = pointAround(spreadInKms * 0.9);
+    }
+    return queries;
+  }
+
+  /**
+   * Builds times of the day, a minute apart on average, over the whole day.
+   */
+  public LocalTime[] times(int count) {
+    LocalTime[] times = new LocalTime[count];
+    for (int i = 0; i < count; i++) {
+      times[i] = LocalTime.ofSecondOfDay(random.nextInt(24 * 60) * 60L);
+    }
+    return times;
+  }
+
+  // Uniform over the disc: sqrt of a uniform variable for the distance from the centre.
+  private GeoLocation pointAround(double radiusInKms) {
+    double distance = radiusInKms * Math.sqrt(random.nextDouble());
+    double bearing = random.nextDouble() * 2 * Math.PI;
+    double latitude = centre.getLatitude() + distance * Math.cos(bearing) / KMS_PER_DEGREE;
+    double longitude = centre.getLongitude() + distance * Math.sin(bearing)
+        / (KMS_PER_DEGREE * Math.cos(Math.toRadians(centre.getLatitude())));
+    return new GeoLocation(latitude, longitude);
+  }
+
+  // coordinates.txt is passed in by the jmh task, fall back to its values if it's not there.
+  private static GeoLocation readCentre() {
+    Properties coordinates = new Properties();
+    String path = System.getProperty("qeats.coordinates", "coordinates.txt");
+    try (InputStream in = new FileInputStream(path)) {
+      coordinates.load(in);
+    } catch (IOException e) {
+      return new GeoLocation(11.7, 77.9);
+    }
+    return new GeoLocation(
+        Double.parseDouble(coordinates.getProperty("latitude", "11.7").trim()),
+        Double.parseDouble(coordinates.getProperty("longitude", "77.9").trim()));
+  }
+}